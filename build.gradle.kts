@@ -2,6 +2,7 @@ plugins {
     java
     id("org.springframework.boot") version "3.5.7"
     id("io.spring.dependency-management") version "1.1.7"
+    id("org.graalvm.buildtools.native") version "0.10.6" apply false
 }
 
 group = "com.example"
@@ -25,14 +26,21 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter-thymeleaf")
     implementation("org.springframework.boot:spring-boot-starter-validation")
     implementation("org.springframework.boot:spring-boot-starter-web")
+    implementation("org.springframework.session:spring-session-core")
     implementation(platform("io.awspring.cloud:spring-cloud-aws-dependencies:3.4.0"))
     implementation("io.awspring.cloud:spring-cloud-aws-starter-s3")
+    implementation("software.amazon.awssdk:apache-client")
+    // S3のHTTPトランスポートの選択肢（app.s3.http-client.transport）
+    implementation("software.amazon.awssdk:url-connection-client")
+    implementation("software.amazon.awssdk:aws-crt-client")
+    implementation("org.crac:crac")
     testImplementation("org.flywaydb:flyway-core")
     testImplementation("org.flywaydb:flyway-database-postgresql")
     testImplementation("org.thymeleaf.extras:thymeleaf-extras-springsecurity6")
     compileOnly("org.projectlombok:lombok")
     developmentOnly("org.springframework.boot:spring-boot-devtools")
     runtimeOnly("org.postgresql:postgresql")
+    runtimeOnly("software.amazon.awssdk.crt:aws-crt:0.38.1")
     annotationProcessor("org.projectlombok:lombok")
     annotationProcessor("org.springframework.boot:spring-boot-configuration-processor")
     testImplementation("org.springframework.boot:spring-boot-starter-test")
@@ -51,6 +59,147 @@ tasks.named<ProcessResources>("processTestResources") {
     }
 }
 
+// 静的リソースの圧縮版（.gz / .br）をビルド時に生成
+// 実行時はEncodedResourceResolverがAccept-Encodingに応じて配信する
+// .brの生成にはbrotliコマンドが必要（Dockerfileのビルドステージでインストール）
+// brotliがないローカル環境では-PskipBrotliで.brの生成を省略できる（.brなしのjarになるため本番には使わない）
+val skipBrotli = providers.gradleProperty("skipBrotli").isPresent
+tasks.named<ProcessResources>("processResources") {
+    inputs.property("skipBrotli", skipBrotli)
+    doLast {
+        if (skipBrotli) {
+            logger.warn("-PskipBrotliが指定されたため.brの生成を省略しました")
+        }
+        val staticDir = destinationDir.resolve("static")
+        staticDir.walkTopDown()
+            .filter { it.isFile && it.extension in setOf("css", "js", "svg") }
+            .forEach { file ->
+                java.util.zip.GZIPOutputStream(file.resolveSibling("${file.name}.gz").outputStream()).use { out ->
+                    file.inputStream().use { it.copyTo(out) }
+                }
+                if (!skipBrotli) {
+                    val exitCode = try {
+                        ProcessBuilder("brotli", "--force", "--best", file.absolutePath)
+                            .inheritIO()
+                            .start()
+                            .waitFor()
+                    } catch (e: java.io.IOException) {
+                        throw GradleException(
+                            "brotliコマンドが見つかりません。インストールするか、-PskipBrotliで.brの生成を省略してください", e)
+                    }
+                    if (exitCode != 0) {
+                        throw GradleException("brotliによる.brの生成に失敗しました: ${file.name} (exit=$exitCode)")
+                    }
+                }
+            }
+    }
+}
+
 tasks.withType<Test> {
     useJUnitPlatform()
 }
+
+// JMHのマイクロベンチマーク（./gradlew jmh、対象を絞る場合は-PjmhIncludes=UserRateLimiter）
+// src/jmh/javaはmainと同じパッケージに置き、パッケージプライベートのAPIも計測できるようにする
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + configurations.runtimeClasspath.get()
+    runtimeClasspath += output + compileClasspath
+}
+
+dependencies {
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+    // S3のトランスポートのベンチマークはLocalStackのコンテナに接続する
+    "jmhImplementation"("org.testcontainers:localstack")
+    // INSERTのベンチマークはPostgreSQLのコンテナにマイグレーションを適用して接続する
+    "jmhImplementation"("org.testcontainers:postgresql")
+    "jmhImplementation"("org.flywaydb:flyway-core")
+    "jmhImplementation"("org.flywaydb:flyway-database-postgresql")
+    // 一覧ページの描画のベンチマークはThymeleafのWebContextをモックのリクエストで作る
+    "jmhImplementation"("org.springframework:spring-test")
+}
+
+tasks.register<JavaExec>("jmh") {
+    description = "Runs JMH microbenchmarks."
+    group = "verification"
+    classpath = jmh.runtimeClasspath
+    mainClass = "org.openjdk.jmh.Main"
+    args(providers.gradleProperty("jmhIncludes").getOrElse(".*"))
+}
+
+// 負荷テスト（./gradlew loadTest、Dockerが必要）
+// src/testのTestcontainersConfigurationでPostgreSQL・LocalStackを起動してアプリケーションを起動し、
+// 操作ごとのp50/p95/p99・スループットをbuild/reports/load-test/{実行ID}/report.json・report.htmlに出力する
+// 設定は-PloadTestUsers=50 -PloadTestMemos=1000 -PloadTestConcurrency=32 -PloadTestWarmup=30s -PloadTestDuration=60s
+// -PloadTestThinkTime=0s -PloadTestMix=list=30,image=40 -PloadTestBaseline=（比較するreport.json、省略時は前回）
+// -PloadTestLoginBurst=256 -PloadTestLoginBurstDuration=30s（計測後にPOST /loginを集中させ、その間の画像配信を別に記録）
+val loadTest: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.test.get().output +
+            configurations.testRuntimeClasspath.get()
+    runtimeClasspath += output + compileClasspath
+}
+
+tasks.register<JavaExec>("loadTest") {
+    description = "Runs the load test against the application backed by Testcontainers."
+    group = "verification"
+    classpath = loadTest.runtimeClasspath
+    mainClass = "com.example.handson.loadtest.LoadTestRunner"
+    workingDir = projectDir
+    listOf("users", "memos", "concurrency", "warmup", "duration", "thinkTime", "mix", "loginBurst",
+            "loginBurstDuration", "baseline").forEach { name ->
+        providers.gradleProperty("loadTest" + name.replaceFirstChar { it.uppercase() }).orNull?.let {
+            systemProperty("loadtest.$name", it)
+        }
+    }
+    systemProperty("loadtest.reportDir", layout.buildDirectory.dir("reports/load-test").get().asFile.absolutePath)
+    // 毎回実行する（前回の結果と比較するため）
+    outputs.upToDateWhen { false }
+}
+
+// 高速起動ビルド（./gradlew bootJar -Paot）
+// Spring AOT（processAot）で生成したBean定義をjarに含め、実行時は-Dspring.aot.enabled=trueで使用する
+// ネイティブイメージビルド（./gradlew nativeCompile -Pnative）
+// GraalVMでbuild/native/nativeCompile/handsonを生成する（nativeIntegrationTestでコンテナ接続テスト）
+// AOTではBeanの条件（@ConditionalOnPropertyなど）がビルド時に評価されるため、
+// 実行環境と同じ値を-PaotArgs="--app.session.store=jdbc"のように渡す
+if (providers.gradleProperty("aot").isPresent || providers.gradleProperty("native").isPresent) {
+    apply(plugin = "org.graalvm.buildtools.native")
+
+    tasks.withType<org.springframework.boot.gradle.tasks.aot.ProcessAot>().configureEach {
+        args(providers.gradleProperty("aotArgs").getOrElse("").split(" ").filter { it.isNotBlank() })
+    }
+
+    configure<org.graalvm.buildtools.gradle.dsl.GraalVMExtension> {
+        // Hibernate・AWS SDK・Testcontainersなどのリフレクション情報はGraalVM Reachability Metadata Repositoryから取得
+        metadataRepository {
+            enabled = true
+        }
+        binaries.named("main") {
+            imageName = "handson"
+            buildArgs.add("-march=compatibility")
+        }
+    }
+
+    // ネイティブバイナリをPostgreSQL・LocalStackのコンテナに接続して起動する統合テスト
+    // -PnativeStartupMaxMillis=5000で起動時間の上限も検証する（既定は起動時間のログ出力のみ）
+    val nativeCompile = tasks.named<org.graalvm.buildtools.gradle.tasks.BuildNativeImageTask>("nativeCompile")
+    tasks.register<Test>("nativeIntegrationTest") {
+        description = "Runs integration tests against the native image."
+        group = "verification"
+        dependsOn(nativeCompile)
+        testClassesDirs = sourceSets["test"].output.classesDirs
+        classpath = sourceSets["test"].runtimeClasspath
+        useJUnitPlatform {
+            includeTags("native")
+        }
+        val nativeImage = nativeCompile.flatMap { it.outputFile }
+        inputs.file(nativeImage)
+        jvmArgumentProviders.add(CommandLineArgumentProvider {
+            listOf("-Dnative.image.path=${nativeImage.get().asFile.absolutePath}")
+        })
+        providers.gradleProperty("nativeStartupMaxMillis").orNull?.let {
+            systemProperty("native.startup.maxMillis", it)
+        }
+        outputs.upToDateWhen { false }
+    }
+}
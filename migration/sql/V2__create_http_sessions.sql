@@ -0,0 +1,28 @@
+-- HTTPセッションテーブル（複数ECSタスク間でセッションを共有するため）
+-- 時刻はエポックミリ秒で保持し、期限切れ判定を数値比較のみで行う
+CREATE TABLE http_sessions (
+    session_id VARCHAR(64) PRIMARY KEY,
+    principal_name VARCHAR(100),
+    creation_time BIGINT NOT NULL,
+    last_access_time BIGINT NOT NULL,
+    max_inactive_interval INT NOT NULL,
+    expiry_time BIGINT NOT NULL
+);
+
+-- 同一ユーザーのセッション検索用インデックス（同時セッション数制御）
+CREATE INDEX idx_http_sessions_principal_name ON http_sessions(principal_name);
+
+-- 期限切れセッション削除用インデックス
+CREATE INDEX idx_http_sessions_expiry_time ON http_sessions(expiry_time);
+
+-- HTTPセッションの属性を属性ごとの行で保持する
+-- 保存時に変更した属性の行だけを書き換え、他タスクが同時に変更した属性（同時セッション制御の失効フラグなど）を上書きしない
+-- セッションIDの変更・セッションの削除には外部キーで追従する
+CREATE TABLE http_session_attributes (
+    session_id VARCHAR(64) NOT NULL,
+    attribute_name VARCHAR(200) NOT NULL,
+    attribute_bytes BYTEA NOT NULL,
+    PRIMARY KEY (session_id, attribute_name),
+    CONSTRAINT fk_http_session_attributes_session FOREIGN KEY (session_id)
+        REFERENCES http_sessions(session_id) ON DELETE CASCADE ON UPDATE CASCADE
+);
@@ -0,0 +1,4 @@
+-- 画像メモ一覧のバージョン番号
+-- 画像メモの作成・削除時にインクリメントし、一覧ページのキャッシュキーとETagに使用する
+-- ユーザー検索（認証後に毎回実行）と同じ行から取得できるため、追加のクエリは発生しない
+ALTER TABLE users ADD COLUMN memo_list_version BIGINT NOT NULL DEFAULT 0;
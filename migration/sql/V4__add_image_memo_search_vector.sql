@@ -0,0 +1,10 @@
+-- 画像メモの全文検索用カラム（タイトルを説明より高く重み付け）
+-- 'simple'設定は語幹処理を行わず、空白・記号区切りの語をそのまま索引化する
+ALTER TABLE image_memos
+    ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+        setweight(to_tsvector('simple', coalesce(title, '')), 'A') ||
+        setweight(to_tsvector('simple', coalesce(description, '')), 'B')
+    ) STORED;
+
+-- 全文検索用GINインデックス（LIKE '%x%'による全件走査を避ける）
+CREATE INDEX idx_image_memos_search_vector ON image_memos USING GIN (search_vector);
@@ -0,0 +1,12 @@
+-- 画像ファイル本体（内容のSHA-256で識別し、同じ内容のアップロードは1つのS3オブジェクトを共有する）
+-- ref_countは参照している画像メモの件数。0になった時点で行とS3オブジェクトを削除する
+CREATE TABLE blobs (
+    content_hash VARCHAR(64) PRIMARY KEY,
+    s3_key VARCHAR(500) NOT NULL UNIQUE,
+    size BIGINT NOT NULL,
+    ref_count INT NOT NULL CHECK (ref_count >= 0),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- 画像メモ削除時にS3キーから参照元の画像メモを確認するためのインデックス
+CREATE INDEX idx_image_memos_s3_key ON image_memos(s3_key);
@@ -0,0 +1,10 @@
+-- アップロードされたバイト列のSHA-256と、メタデータ除去後に保存した画像ファイル本体の対応
+-- ブラウザはアップロード前の重複確認に元のファイルのSHA-256を送るため、保存時のハッシュとは一致しない
+CREATE TABLE blob_sources (
+    source_hash VARCHAR(64) PRIMARY KEY,
+    content_hash VARCHAR(64) NOT NULL,
+    CONSTRAINT fk_blob_sources_blob FOREIGN KEY (content_hash) REFERENCES blobs(content_hash) ON DELETE CASCADE
+);
+
+-- 画像ファイル本体の削除時に対応を削除するためのインデックス
+CREATE INDEX idx_blob_sources_content_hash ON blob_sources(content_hash);
@@ -0,0 +1,6 @@
+-- IDの採番をHibernateのシーケンス（pooledオプティマイザ、allocationSize = 50）に切り替える
+-- Hibernateは1回のnextvalで50件分のIDを確保し、IDENTITYと違ってINSERTの前にIDが決まるため、INSERTをJDBCバッチにまとめられる
+-- シーケンスの増分はエンティティのallocationSizeと一致させる（不一致の場合、Hibernateが起動時にエラーにする）
+-- 列のデフォルト（nextval）で採番するINSERT（ユーザー登録のINSERT ... ON CONFLICT等）は1件ごとに50ずつ進むが、IDは重複しない
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+ALTER SEQUENCE image_memos_id_seq INCREMENT BY 50;
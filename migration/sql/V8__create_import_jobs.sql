@@ -0,0 +1,28 @@
+-- ZIPからの一括インポートの進捗（インポート中のリクエストとは別のリクエスト・タスクから状態を取得できるようにDBに保存する）
+-- stateはPENDING（作成済み・未実行）→ RUNNING → SUCCEEDED / FAILED
+-- errorsはエントリごとの失敗の理由（先頭の一定件数のみ、JSONの文字列の配列）
+CREATE TABLE import_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    state VARCHAR(20) NOT NULL,
+    entries_read INT NOT NULL DEFAULT 0,
+    imported INT NOT NULL DEFAULT 0,
+    skipped INT NOT NULL DEFAULT 0,
+    failed INT NOT NULL DEFAULT 0,
+    expanded_bytes BIGINT NOT NULL DEFAULT 0,
+    errors JSONB NOT NULL DEFAULT '[]',
+    error_message TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_import_jobs_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- ユーザーのインポートの状態の取得用インデックス
+CREATE INDEX idx_import_jobs_user_id ON import_jobs(user_id);
+
+-- 作成済み・インポート中のまま進捗が更新されないインポートの検索（中断扱いにする定期処理）用インデックス
+-- 終了したインポートは対象外のため、未終了の行だけを含める
+CREATE INDEX idx_import_jobs_unfinished_updated_at ON import_jobs(updated_at) WHERE state IN ('PENDING', 'RUNNING');
+
+-- エンティティのallocationSizeと合わせる（V7を参照）
+ALTER SEQUENCE import_jobs_id_seq INCREMENT BY 50;
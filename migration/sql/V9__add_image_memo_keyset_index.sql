@@ -0,0 +1,3 @@
+-- JSON APIの画像メモ一覧（作成日時・IDの降順のキーセット方式のページング）用インデックス
+-- ユーザーの範囲をそのまま並び順で読み、前ページ最後の(作成日時, ID)の位置から取得できるようにする
+CREATE INDEX idx_image_memos_user_id_created_at_id ON image_memos(user_id, created_at DESC, id DESC);
@@ -0,0 +1,51 @@
+-- 画像メモ全文検索のベンチマーク
+-- 100万件の画像メモを一時的に投入し、GINインデックスを使った検索とLIKEによる全件走査の実行計画・実行時間を比較する
+-- トランザクション内で投入し最後にROLLBACKするため、既存のデータには影響しない
+--
+-- 使い方:
+--   make benchmark-search
+--   （docker exec -i handson-db psql -U postgres -d handson < scripts/benchmark-search.sql と同じ）
+
+\timing on
+BEGIN;
+
+INSERT INTO users (username, password, enabled)
+VALUES ('benchmark-search', 'x', true);
+
+-- 100ユーザー分の画像メモを作成（1ユーザーあたり1万件）
+INSERT INTO users (username, password, enabled)
+SELECT 'benchmark-search-' || u, 'x', true
+FROM generate_series(1, 99) AS u;
+
+INSERT INTO image_memos (user_id, title, description, s3_key, created_at, updated_at)
+SELECT u.id,
+       'photo ' || (ARRAY['beach', 'mountain', 'city', 'forest', 'river'])[1 + i % 5] || ' ' || i,
+       'memo ' || md5(i::text) || ' ' || (ARRAY['sunset', 'morning', 'night', 'rain', 'snow'])[1 + i % 7 % 5],
+       'benchmark/' || i || '.jpg',
+       now() - make_interval(secs => i),
+       now()
+FROM generate_series(1, 1000000) AS i
+JOIN users u ON u.username = CASE WHEN i % 100 = 0 THEN 'benchmark-search' ELSE 'benchmark-search-' || (i % 100) END;
+
+ANALYZE image_memos;
+
+-- 全文検索（アプリケーションと同じクエリ）
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT im.id, im.title, im.description, im.created_at, ts_rank(im.search_vector, q.query) AS rank
+FROM image_memos im, to_tsquery('simple', 'beach:* & suns:*') AS q(query)
+WHERE im.user_id = (SELECT id FROM users WHERE username = 'benchmark-search')
+  AND im.search_vector @@ q.query
+ORDER BY rank DESC, im.id DESC
+LIMIT 21;
+
+-- 比較: LIKEによる部分一致（インデックスを使えず全件走査になる）
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT im.id, im.title, im.description, im.created_at
+FROM image_memos im
+WHERE im.user_id = (SELECT id FROM users WHERE username = 'benchmark-search')
+  AND (im.title ILIKE '%beach%' OR im.description ILIKE '%beach%')
+  AND (im.title ILIKE '%suns%' OR im.description ILIKE '%suns%')
+ORDER BY im.created_at DESC
+LIMIT 21;
+
+ROLLBACK;
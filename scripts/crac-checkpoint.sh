@@ -0,0 +1,50 @@
+#!/bin/bash
+
+# CRaCのチェックポイントを作成し、リストアで起動するイメージ（handson-app:crac）を作成するスクリプト
+# ウォームアップ（CheckpointWarmupRunner）でJITコンパイルを進めた状態を保存する
+#
+# 前提:
+#   - docker compose up -d でDB・LocalStackが起動し、マイグレーション済みであること
+#   - docker build --target crac-base -t handson-app:crac-base . でビルド済みであること
+#
+# リストア時は環境変数（JDBC_DATABASE_*、AWS_S3_BUCKET_NAME、AWS認証情報）を読み直すため、
+# チェックポイント作成時とは異なる環境（ECSタスク）でもそのまま起動できる
+
+set -e
+
+BASE_IMAGE="${1:-handson-app:crac-base}"
+TARGET_IMAGE="${2:-handson-app:crac}"
+CONTAINER_NAME="handson-crac-checkpoint"
+
+NETWORK=$(docker inspect handson-db -f '{{range $name, $_ := .NetworkSettings.Networks}}{{$name}}{{end}}')
+
+docker rm -f "$CONTAINER_NAME" > /dev/null 2>&1 || true
+
+echo "ウォームアップ後にチェックポイントを作成します: $BASE_IMAGE"
+docker run --name "$CONTAINER_NAME" \
+    --network "$NETWORK" \
+    -e SPRING_PROFILES_ACTIVE=local \
+    -e LOCALSTACK_HOST=localstack \
+    -e JDBC_DATABASE_URL=jdbc:postgresql://db:5432/handson \
+    -e JDBC_DATABASE_USERNAME=handson_app \
+    -e JDBC_DATABASE_PASSWORD="${DB_APP_PASSWORD:-app_password}" \
+    -e AWS_S3_BUCKET_NAME=image-memo-bucket \
+    -e APP_CRAC_CHECKPOINT_ON_READY=true \
+    "$BASE_IMAGE" || true
+
+# チェックポイント作成でJVMは終了するため、保存先にイメージファイルがあれば成功
+if ! docker cp "$CONTAINER_NAME:/app/checkpoint/." - 2> /dev/null | tar -t | grep -qv '^\./$'; then
+    echo "チェックポイントが作成されていません"
+    docker logs --tail 50 "$CONTAINER_NAME"
+    exit 1
+fi
+
+# リストアで起動するようにエントリーポイントを差し替えてコミット
+docker commit \
+    --change 'ENV APP_CRAC_CHECKPOINT_ON_READY=false' \
+    --change 'ENTRYPOINT ["sh", "-c", "exec java -XX:CRaCEngine=warp -XX:CRaCRestoreFrom=/app/checkpoint"]' \
+    "$CONTAINER_NAME" "$TARGET_IMAGE" > /dev/null
+docker rm "$CONTAINER_NAME" > /dev/null
+
+echo "リストア用イメージを作成しました: $TARGET_IMAGE"
+echo "起動時間の比較: ./scripts/measure-startup.sh 5 handson-app:latest $TARGET_IMAGE"
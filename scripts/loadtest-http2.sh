@@ -0,0 +1,88 @@
+#!/bin/bash
+
+# 一覧画面のフルロード時間をHTTP/1.1とHTTP/2（h2c）で比較する負荷テストスクリプト
+# 一覧HTMLの取得から、ページ内の画像（/memos/{id}/image）をすべて取得し終えるまでの時間を計測する
+# HTTP/1.1はブラウザと同じく1オリジンあたり6接続、HTTP/2は1接続で多重化して取得する
+#
+# 前提:
+#   - アプリをHTTP/2有効で起動していること（SERVER_HTTP2_ENABLED=true）
+#   - ログインユーザーが画像メモを1件以上作成済みであること
+#   - curl 7.66以上（--parallel / --http2-prior-knowledge対応）
+#
+# 使い方:
+#   ./scripts/loadtest-http2.sh <username> <password> [iterations] [base-url]
+
+set -e
+
+USERNAME="${1:?ユーザー名を指定してください}"
+PASSWORD="${2:?パスワードを指定してください}"
+ITERATIONS="${3:-20}"
+BASE_URL="${4:-http://localhost:8080}"
+BROWSER_CONNECTIONS=6
+
+WORK_DIR=$(mktemp -d)
+trap 'rm -rf "$WORK_DIR"' EXIT
+COOKIE_JAR="$WORK_DIR/cookies.txt"
+
+# ログイン（CSRFトークンをログイン画面から取得）
+CSRF_TOKEN=$(curl -s -c "$COOKIE_JAR" "$BASE_URL/login" \
+    | sed -n 's/.*name="_csrf"[^>]*value="\([^"]*\)".*/\1/p' | head -n 1)
+curl -s -o /dev/null -b "$COOKIE_JAR" -c "$COOKIE_JAR" \
+    --data-urlencode "username=$USERNAME" \
+    --data-urlencode "password=$PASSWORD" \
+    --data-urlencode "_csrf=$CSRF_TOKEN" \
+    "$BASE_URL/login"
+
+# 一覧画面に含まれる画像URLを抽出
+IMAGE_PATHS=$(curl -s -b "$COOKIE_JAR" "$BASE_URL/memos" | grep -o '/memos/[0-9]*/image' | sort -u)
+if [ -z "$IMAGE_PATHS" ]; then
+    echo "一覧画面に画像が見つかりません（ログイン情報と画像メモの登録を確認してください）"
+    exit 1
+fi
+IMAGE_COUNT=$(echo "$IMAGE_PATHS" | wc -l | tr -d ' ')
+
+# curlの設定ファイル形式でURL一覧を作成
+URL_CONFIG="$WORK_DIR/urls.txt"
+for path in $IMAGE_PATHS; do
+    echo "url = \"$BASE_URL$path\"" >> "$URL_CONFIG"
+    echo "output = \"/dev/null\"" >> "$URL_CONFIG"
+done
+
+# 1回分のフルロード時間（ミリ秒）を計測
+measure() {
+    local protocol_opt="$1"
+    local connection_opt="$2"
+    local start end
+    start=$(date +%s%N)
+    curl -s -o /dev/null -b "$COOKIE_JAR" $protocol_opt "$BASE_URL/memos"
+    curl -s -b "$COOKIE_JAR" $protocol_opt --parallel $connection_opt --config "$URL_CONFIG"
+    end=$(date +%s%N)
+    echo $(( (end - start) / 1000000 ))
+}
+
+# 計測結果（ミリ秒の一覧）から中央値とp95を表示
+report() {
+    local label="$1"
+    local results="$2"
+    local sorted median p95
+    sorted=$(echo "$results" | sort -n)
+    median=$(echo "$sorted" | awk '{a[NR]=$1} END {print a[int((NR+1)/2)]}')
+    p95=$(echo "$sorted" | awk '{a[NR]=$1} END {i=int(NR*0.95); if (i<1) i=1; print a[i]}')
+    printf "%-10s median=%5sms  p95=%5sms\n" "$label" "$median" "$p95"
+}
+
+echo "画像${IMAGE_COUNT}件を含む一覧画面のフルロードを${ITERATIONS}回ずつ計測します: $BASE_URL"
+
+# ウォームアップ（JITとコネクションプールのため結果には含めない）
+measure "--http1.1" "--parallel-max $BROWSER_CONNECTIONS" > /dev/null
+measure "--http2-prior-knowledge" "--parallel-max $IMAGE_COUNT" > /dev/null
+
+HTTP1_RESULTS=""
+HTTP2_RESULTS=""
+for i in $(seq 1 "$ITERATIONS"); do
+    HTTP1_RESULTS+="$(measure "--http1.1" "--parallel-max $BROWSER_CONNECTIONS")"$'\n'
+    HTTP2_RESULTS+="$(measure "--http2-prior-knowledge" "--parallel-max $IMAGE_COUNT")"$'\n'
+done
+
+report "HTTP/1.1" "$(echo -n "$HTTP1_RESULTS")"
+report "HTTP/2" "$(echo -n "$HTTP2_RESULTS")"
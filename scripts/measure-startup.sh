@@ -0,0 +1,86 @@
+#!/bin/bash
+
+# コンテナ起動から/actuator/healthが初めて200を返すまでの時間と、その時点のメモリ使用量を計測するスクリプト
+# 通常イメージ・高速起動イメージ（Spring AOT + AOTキャッシュ）・ネイティブイメージの比較に使用する
+#
+# 前提:
+#   - docker compose up -d でDB・LocalStackが起動し、マイグレーション済みであること
+#   - 計測するイメージをビルド済みであること
+#       docker build -t handson-app:latest .
+#       docker build --target fast-startup -t handson-app:fast-startup .
+#       docker build --target native -t handson-app:native .
+#
+# 使い方:
+#   ./scripts/measure-startup.sh [iterations] [image...]
+#   例: ./scripts/measure-startup.sh 5 handson-app:latest handson-app:fast-startup handson-app:native
+
+set -e
+
+ITERATIONS="${1:-5}"
+shift || true
+IMAGES=("$@")
+if [ ${#IMAGES[@]} -eq 0 ]; then
+    IMAGES=("handson-app:latest" "handson-app:fast-startup")
+fi
+
+CONTAINER_NAME="handson-startup-measure"
+HOST_PORT=18080
+TIMEOUT_SECONDS=120
+
+# compose.ymlで起動したDBコンテナと同じネットワークで起動する
+NETWORK=$(docker inspect handson-db -f '{{range $name, $_ := .NetworkSettings.Networks}}{{$name}}{{end}}')
+
+cleanup() {
+    docker rm -f "$CONTAINER_NAME" > /dev/null 2>&1 || true
+}
+trap cleanup EXIT
+
+# 1回分の起動時間（ミリ秒）と起動直後のメモリ使用量（MiB）を計測
+measure() {
+    local image="$1"
+    local start now
+    cleanup
+    start=$(date +%s%N)
+    docker run -d --name "$CONTAINER_NAME" \
+        --network "$NETWORK" \
+        -p "$HOST_PORT:8080" \
+        -e SPRING_PROFILES_ACTIVE=local \
+        -e LOCALSTACK_HOST=localstack \
+        -e JDBC_DATABASE_URL=jdbc:postgresql://db:5432/handson \
+        -e JDBC_DATABASE_USERNAME=handson_app \
+        -e JDBC_DATABASE_PASSWORD="${DB_APP_PASSWORD:-app_password}" \
+        -e AWS_S3_BUCKET_NAME=image-memo-bucket \
+        "$image" > /dev/null
+
+    while true; do
+        if curl -sf -o /dev/null "http://localhost:$HOST_PORT/actuator/health"; then
+            now=$(date +%s%N)
+            local memory
+            memory=$(docker stats --no-stream --format '{{.MemUsage}}' "$CONTAINER_NAME" \
+                | awk '{v=$1; if (v ~ /GiB$/) {sub(/GiB$/, "", v); v=v*1024} else {sub(/MiB$/, "", v)}; printf "%d", v}')
+            echo "$(( (now - start) / 1000000 )) $memory"
+            return
+        fi
+        now=$(date +%s%N)
+        if [ $(( (now - start) / 1000000000 )) -ge $TIMEOUT_SECONDS ]; then
+            echo "起動がタイムアウトしました: $image" >&2
+            docker logs --tail 50 "$CONTAINER_NAME" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+}
+
+for image in "${IMAGES[@]}"; do
+    RESULTS=""
+    for i in $(seq 1 "$ITERATIONS"); do
+        RESULTS+="$(measure "$image")"$'\n'
+    done
+    SORTED=$(echo -n "$RESULTS" | sort -n -k1)
+    MEDIAN=$(echo "$SORTED" | awk '{a[NR]=$1} END {print a[int((NR+1)/2)]}')
+    MIN=$(echo "$SORTED" | head -n 1 | awk '{print $1}')
+    MAX=$(echo "$SORTED" | tail -n 1 | awk '{print $1}')
+    MEMORY=$(echo "$SORTED" | awk '{print $2}' | sort -n | awk '{a[NR]=$1} END {print a[int((NR+1)/2)]}')
+    printf "%-28s median=%6sms  min=%6sms  max=%6sms  memory=%5sMiB  (n=%s)\n" \
+        "$image" "$MEDIAN" "$MIN" "$MAX" "$MEMORY" "$ITERATIONS"
+done
@@ -0,0 +1,111 @@
+package com.example.handson.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testcontainers.containers.localstack.LocalStackContainer;
+import org.testcontainers.utility.DockerImageName;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.testcontainers.containers.localstack.LocalStackContainer.Service.S3;
+
+/**
+ * S3のHTTPトランスポートごとの画像配信のスループット
+ * LocalStackに置いた画像を、画像配信のリクエストスレッドと同じく多数のスレッドから並行してGETし、全体を読み切る
+ * スレッド数（64）は接続数の上限（50）より多くし、接続の空き待ちも含めて計測する
+ * ./gradlew jmh -PjmhIncludes=S3Transport で実行（Dockerが必要）
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(64)
+public class S3TransportBenchmark {
+
+    private static final String BUCKET = "benchmark-bucket";
+    private static final String KEY = "blobs/be/benchmark.jpg";
+
+    /**
+     * 一覧のサムネイル相当の画像サイズ
+     */
+    private static final int IMAGE_BYTES = 200 * 1024;
+
+    @State(Scope.Benchmark)
+    public static class Transport {
+
+        @Param({"APACHE", "URL_CONNECTION", "CRT"})
+        public S3Properties.Transport transport;
+
+        @Param({"50"})
+        public int maxConnections;
+
+        LocalStackContainer localStack;
+        SdkHttpClient httpClient;
+        S3Client s3Client;
+        GetObjectRequest request;
+
+        @Setup
+        public void setUp() {
+            localStack = new LocalStackContainer(DockerImageName.parse("localstack/localstack:latest"))
+                    .withServices(S3);
+            localStack.start();
+
+            S3Properties properties = new S3Properties();
+            properties.getHttpClient().setTransport(transport);
+            properties.getHttpClient().setMaxConnections(maxConnections);
+            httpClient = S3HttpClientFactory.create(properties);
+            s3Client = S3Client.builder()
+                    .httpClient(httpClient)
+                    .endpointOverride(localStack.getEndpointOverride(S3))
+                    .credentialsProvider(StaticCredentialsProvider.create(
+                            AwsBasicCredentials.create(localStack.getAccessKey(), localStack.getSecretKey())))
+                    .region(Region.of(localStack.getRegion()))
+                    .forcePathStyle(true)
+                    .build();
+
+            byte[] image = new byte[IMAGE_BYTES];
+            new Random(42).nextBytes(image);
+            s3Client.createBucket(builder -> builder.bucket(BUCKET));
+            s3Client.putObject(builder -> builder.bucket(BUCKET).key(KEY), RequestBody.fromBytes(image));
+            request = GetObjectRequest.builder().bucket(BUCKET).key(KEY).build();
+        }
+
+        @TearDown
+        public void tearDown() {
+            s3Client.close();
+            httpClient.close();
+            localStack.stop();
+        }
+    }
+
+    @Benchmark
+    public long getImage(Transport state) throws IOException {
+        try (ResponseInputStream<GetObjectResponse> object = state.s3Client.getObject(state.request)) {
+            return object.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
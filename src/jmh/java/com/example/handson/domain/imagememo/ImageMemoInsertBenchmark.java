@@ -0,0 +1,181 @@
+package com.example.handson.domain.imagememo;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 画像メモ10万件のINSERT（1トランザクション）
+ * HibernateがID採番の方式ごとに送るSQLを、JDBCで同じ形・同じ往復回数で再現して比較する
+ * IDENTITY: 1件ごとにINSERTし、採番されたIDを受け取る（シーケンスへの切り替え前）
+ * SEQUENCE_BATCH: nextval 1回で50件分のIDを確保し、50件ずつJDBCバッチで送る
+ * SEQUENCE_BATCH_REWRITE: さらにドライバーがバッチを複数行のINSERT 1文に書き換える（reWriteBatchedInserts、現在の設定）
+ * ./gradlew jmh -PjmhIncludes=ImageMemoInsert で実行（Dockerが必要）
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImageMemoInsertBenchmark {
+
+    private static final int MEMOS = 100_000;
+
+    /**
+     * エンティティのallocationSize・hibernate.jdbc.batch_sizeと同じ
+     */
+    private static final int BATCH_SIZE = 50;
+
+    private static final String INSERT_WITHOUT_ID = """
+            INSERT INTO image_memos (user_id, title, description, s3_key, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String INSERT_WITH_ID = """
+            INSERT INTO image_memos (id, user_id, title, description, s3_key, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    public enum Strategy {
+        IDENTITY,
+        SEQUENCE_BATCH,
+        SEQUENCE_BATCH_REWRITE
+    }
+
+    @Param
+    public Strategy strategy;
+
+    private PostgreSQLContainer<?> postgres;
+    private long userId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:17.5"));
+        postgres.start();
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .locations("filesystem:migration/sql")
+                .load()
+                .migrate();
+
+        try (Connection connection = connect();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "INSERT INTO users (username, password, enabled) VALUES ('benchmark', 'x', true) RETURNING id")) {
+            rs.next();
+            userId = rs.getLong(1);
+        }
+    }
+
+    /**
+     * 毎回空のテーブルにINSERTする（インデックスの大きさを揃える）
+     */
+    @Setup(Level.Invocation)
+    public void truncate() throws SQLException {
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE image_memos");
+            statement.execute("VACUUM ANALYZE image_memos");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        postgres.stop();
+    }
+
+    @Benchmark
+    public long insert() throws SQLException {
+        try (Connection connection = connect()) {
+            connection.setAutoCommit(false);
+            long inserted = strategy == Strategy.IDENTITY ? insertOneByOne(connection) : insertInBatches(connection);
+            connection.commit();
+            return inserted;
+        }
+    }
+
+    private long insertOneByOne(Connection connection) throws SQLException {
+        long idSum = 0;
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_WITHOUT_ID, new String[]{"id"})) {
+            for (int i = 0; i < MEMOS; i++) {
+                bind(insert, 1, i);
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                    idSum += keys.getLong(1);
+                }
+            }
+        }
+        return idSum;
+    }
+
+    private long insertInBatches(Connection connection) throws SQLException {
+        long idSum = 0;
+        long nextId = 0;
+        try (PreparedStatement nextval = connection.prepareStatement("SELECT nextval('image_memos_id_seq')");
+             PreparedStatement insert = connection.prepareStatement(INSERT_WITH_ID)) {
+            for (int i = 0; i < MEMOS; i++) {
+                if (i % BATCH_SIZE == 0) {
+                    // pooledオプティマイザと同じく、nextvalの値を確保した範囲の末尾として扱う
+                    try (ResultSet rs = nextval.executeQuery()) {
+                        rs.next();
+                        nextId = rs.getLong(1) - BATCH_SIZE + 1;
+                    }
+                }
+                long id = nextId++;
+                insert.setLong(1, id);
+                bind(insert, 2, i);
+                insert.addBatch();
+                idSum += id;
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        return idSum;
+    }
+
+    private void bind(PreparedStatement insert, int firstIndex, int sequence) throws SQLException {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        insert.setLong(firstIndex, userId);
+        insert.setString(firstIndex + 1, "ベンチマーク " + sequence);
+        insert.setString(firstIndex + 2, "画像メモのINSERTのベンチマーク");
+        insert.setString(firstIndex + 3, "blobs/00/benchmark-" + sequence + ".jpg");
+        insert.setTimestamp(firstIndex + 4, now);
+        insert.setTimestamp(firstIndex + 5, now);
+    }
+
+    private Connection connect() throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", postgres.getUsername());
+        properties.setProperty("password", postgres.getPassword());
+        properties.setProperty("reWriteBatchedInserts",
+                String.valueOf(strategy == Strategy.SEQUENCE_BATCH_REWRITE));
+        return DriverManager.getConnection(postgres.getJdbcUrl(), properties);
+    }
+}
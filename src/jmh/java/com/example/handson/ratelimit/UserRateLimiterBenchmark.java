@@ -0,0 +1,73 @@
+package com.example.handson.ratelimit;
+
+import com.example.handson.config.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserRateLimiterの1リクエストあたりのオーバーヘッド
+ * 多数のユーザーに分散したアクセスと、1ユーザーにスレッドが集中するアクセス（CASの競合）を計測する
+ * ./gradlew jmh -PjmhIncludes=UserRateLimiter で実行
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class UserRateLimiterBenchmark {
+
+    private static final int USERS = 10_000;
+
+    @State(Scope.Benchmark)
+    public static class Limiter {
+
+        UserRateLimiter limiter;
+        String[] usernames;
+
+        @Setup
+        public void setUp() {
+            RateLimitProperties properties = new RateLimitProperties();
+            // 計測中に拒否ばかりにならないよう、十分な容量と短い回復間隔にする
+            properties.setUpload(new RateLimitProperties.Limit(1_000_000, Duration.ofNanos(100)));
+            limiter = new UserRateLimiter(properties, new SimpleMeterRegistry());
+            usernames = new String[USERS];
+            for (int i = 0; i < USERS; i++) {
+                usernames[i] = "user-" + i;
+            }
+        }
+    }
+
+    @Benchmark
+    public long distinctUsers(Limiter state) {
+        String username = state.usernames[ThreadLocalRandom.current().nextInt(USERS)];
+        return state.limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, username);
+    }
+
+    @Benchmark
+    public long sameUser(Limiter state) {
+        return state.limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "hot-user");
+    }
+
+    /**
+     * 比較用: ユーザー名の選択のみ（distinctUsersとの差がレート制限のコスト）
+     */
+    @Benchmark
+    public String baseline(Limiter state) {
+        return state.usernames[ThreadLocalRandom.current().nextInt(USERS)];
+    }
+}
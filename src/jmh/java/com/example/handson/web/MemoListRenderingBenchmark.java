@@ -0,0 +1,130 @@
+package com.example.handson.web;
+
+import com.example.handson.domain.imagememo.ImageMemo;
+import com.example.handson.domain.imagememo.ImageMemoSummary;
+import com.example.handson.domain.user.User;
+import com.example.handson.dto.MemoListCursor;
+import com.example.handson.dto.MemoListResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 画像メモ一覧1ページの書き出し: 一覧ページ（memos/list.html）の描画とJSON API（MemoJsonWriter）の比較
+ * 同じ件数の画像メモを、Thymeleafの描画・JSONの全項目・JSONのfields=id,title,imageUrlで書き出す
+ * DBの読み取り（一覧ページはエンティティ・ユーザーの生成と件数クエリ、JSON APIはコンストラクタ式の行のみ）は含まない
+ * 1ページのバイト数はセットアップ時にログに出力する
+ * ./gradlew jmh -PjmhIncludes=MemoListRendering で実行
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MemoListRenderingBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(MemoListRenderingBenchmark.class);
+
+    /**
+     * 1ページの件数（10は一覧ページの既定、50はJSON APIで大きめのlimitを指定した場合）
+     */
+    @Param({"10", "50"})
+    public int size;
+
+    private SpringTemplateEngine templateEngine;
+    private MockServletContext servletContext;
+    private JakartaServletWebApplication application;
+    private Map<String, Object> model;
+
+    private MemoJsonWriter memoJsonWriter;
+    private MemoListResult result;
+    private final Set<MemoField> allFields = MemoField.parse(null);
+    private final Set<MemoField> compactFields = MemoField.parse("id,title,imageUrl");
+
+    @Setup
+    public void setUp() throws IOException {
+        // 本番と同じテンプレートを、キャッシュを有効にしてクラスパスから読む
+        ClassLoaderTemplateResolver templateResolver = new ClassLoaderTemplateResolver();
+        templateResolver.setPrefix("templates/");
+        templateResolver.setSuffix(".html");
+        templateResolver.setTemplateMode(TemplateMode.HTML);
+        templateResolver.setCharacterEncoding("UTF-8");
+        templateResolver.setCacheable(true);
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        servletContext = new MockServletContext();
+        application = JakartaServletWebApplication.buildApplication(servletContext);
+
+        User user = User.builder().id(1L).username("benchmark").password("password").enabled(true).build();
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 10, 30);
+        List<ImageMemo> memos = new ArrayList<>();
+        List<ImageMemoSummary> summaries = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            long id = 1000L - i;
+            LocalDateTime createdAt = now.minusMinutes(i);
+            String title = "旅行の写真 " + id;
+            String description = "海辺で撮影した写真です。".repeat(1 + i % 8);
+            memos.add(ImageMemo.builder().id(id).user(user).title(title).description(description)
+                    .s3Key("blobs/ab/" + id + ".jpg").createdAt(createdAt).updatedAt(createdAt).build());
+            summaries.add(new ImageMemoSummary(id, title, description, createdAt, createdAt));
+        }
+        // 一覧ページはページネーション（5ページ分）、JSON APIはnextのcursorを書き出す
+        model = Map.of("memos", new PageImpl<>(memos, PageRequest.of(0, size), size * 5L));
+        ImageMemoSummary last = summaries.get(summaries.size() - 1);
+        result = new MemoListResult(summaries, new MemoListCursor(last.createdAt(), last.id()));
+        memoJsonWriter = new MemoJsonWriter(new ObjectMapper());
+
+        log.info("1ページのバイト数（{}件）: listPage={}, jsonAllFields={}, jsonCompactFields={}",
+                size, listPage().length, jsonAllFields().length, jsonCompactFields().length);
+    }
+
+    @Benchmark
+    public byte[] listPage() {
+        MockHttpServletRequest request = new MockHttpServletRequest(servletContext, "GET", "/memos");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        WebContext context = new WebContext(application.buildExchange(request, response), Locale.JAPAN, model);
+        return templateEngine.process("memos/list", context).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] jsonAllFields() throws IOException {
+        return memoJsonWriter.writeList(result, allFields, "");
+    }
+
+    @Benchmark
+    public byte[] jsonCompactFields() throws IOException {
+        return memoJsonWriter.writeList(result, compactFields, "");
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.handson.loadtest;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 操作ごとのレイテンシ・ステータスコードの記録
+ * 仮想ユーザーごとに1つずつ持ち（記録時に競合しない）、計測終了後にmergeで集計する
+ */
+final class LatencyRecorder {
+
+    private final Map<Operation, Samples> samples = new EnumMap<>(Operation.class);
+    private volatile boolean recording;
+    private volatile boolean duringLoginBurst;
+
+    LatencyRecorder() {
+        for (Operation operation : Operation.values()) {
+            samples.put(operation, new Samples());
+        }
+    }
+
+    /**
+     * ウォームアップ終了後に記録を開始する
+     */
+    void startRecording() {
+        recording = true;
+    }
+
+    /**
+     * ログイン集中フェーズの開始
+     * 以降の画像配信はIMAGE_DURING_LOGIN_BURSTに記録し、他の操作は記録しない（集中なしの結果と混ぜない）
+     */
+    void startLoginBurst() {
+        duringLoginBurst = true;
+    }
+
+    /**
+     * @param status HTTPステータスコード（接続エラー等で応答がない場合は0）
+     * @param success 操作として期待どおりの応答だったか
+     */
+    void record(Operation operation, long latencyNanos, int status, boolean success) {
+        Operation target = target(operation);
+        if (target != null) {
+            samples.get(target).add(latencyNanos, status, success);
+        }
+    }
+
+    /**
+     * 応答を得る前に失敗した操作（CSRFトークンの取得失敗等）。レイテンシのサンプルには含めない
+     */
+    void fail(Operation operation) {
+        Operation target = target(operation);
+        if (target != null) {
+            samples.get(target).fail();
+        }
+    }
+
+    /**
+     * 記録先の操作（記録しない場合はnull）
+     */
+    private Operation target(Operation operation) {
+        if (!recording) {
+            return null;
+        }
+        if (!duringLoginBurst) {
+            return operation;
+        }
+        return operation == Operation.IMAGE ? Operation.IMAGE_DURING_LOGIN_BURST : null;
+    }
+
+    /**
+     * 全仮想ユーザー分を集計する
+     */
+    static Map<Operation, Samples> merge(Iterable<LatencyRecorder> recorders) {
+        Map<Operation, Samples> merged = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            Samples total = new Samples();
+            for (LatencyRecorder recorder : recorders) {
+                total.addAll(recorder.samples.get(operation));
+            }
+            merged.put(operation, total);
+        }
+        return merged;
+    }
+
+    /**
+     * 1操作分のサンプル
+     */
+    static final class Samples {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private int errors;
+        private final Map<Integer, Integer> statuses = new TreeMap<>();
+
+        private void add(long latencyNanos, int status, boolean success) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            statuses.merge(status, 1, Integer::sum);
+            if (!success) {
+                errors++;
+            }
+        }
+
+        private void fail() {
+            statuses.merge(0, 1, Integer::sum);
+            errors++;
+        }
+
+        private void addAll(Samples other) {
+            for (int i = 0; i < other.count; i++) {
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = other.latencies[i];
+            }
+            other.statuses.forEach((status, n) -> statuses.merge(status, n, Integer::sum));
+            errors += other.errors;
+        }
+
+        int count() {
+            return count;
+        }
+
+        int errors() {
+            return errors;
+        }
+
+        Map<Integer, Integer> statuses() {
+            return statuses;
+        }
+
+        /**
+         * パーセンタイル（最近接順位法）
+         *
+         * @param percentile 0より大きく1以下
+         * @return レイテンシ（ミリ秒）。サンプルがない場合は0
+         */
+        double percentileMillis(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile * count) - 1;
+            return sorted[Math.max(0, rank)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.handson.loadtest;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+
+/**
+ * 負荷テストの結果
+ * 実行ごとに{reportDir}/{runId}/report.json・report.htmlを出力し、
+ * {reportDir}/index.htmlに全実行（コミットごと）の推移をまとめる
+ *
+ * @param runId 実行ID（開始日時とコミット）
+ * @param commit コミットハッシュ（未コミットの変更がある場合はdirty=true）
+ * @param settings 実行時の設定
+ * @param measuredSeconds 計測時間（ウォームアップを除く）
+ * @param throughput 全操作の合計スループット（件/秒）
+ * @param endpoints 操作ごとの結果
+ */
+record LoadTestReport(
+        String runId,
+        String commit,
+        String branch,
+        boolean dirty,
+        String startedAt,
+        String javaVersion,
+        int availableProcessors,
+        Map<String, Object> settings,
+        double measuredSeconds,
+        long totalRequests,
+        long totalErrors,
+        double throughput,
+        List<Endpoint> endpoints
+) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private static final String REPORT_JSON = "report.json";
+
+    /**
+     * 操作ごとの結果（レイテンシはミリ秒）
+     */
+    record Endpoint(
+            String operation,
+            long requests,
+            long errors,
+            double throughput,
+            double p50Ms,
+            double p95Ms,
+            double p99Ms,
+            double maxMs,
+            Map<String, Integer> statuses
+    ) {
+
+        static Endpoint of(Operation operation, LatencyRecorder.Samples samples, double measuredSeconds) {
+            Map<String, Integer> statuses = new LinkedHashMap<>();
+            samples.statuses().forEach((status, count) -> statuses.put(String.valueOf(status), count));
+            return new Endpoint(
+                    operation.key(),
+                    samples.count(),
+                    samples.errors(),
+                    samples.count() / measuredSeconds,
+                    samples.percentileMillis(0.50),
+                    samples.percentileMillis(0.95),
+                    samples.percentileMillis(0.99),
+                    samples.percentileMillis(1.0),
+                    statuses);
+        }
+    }
+
+    /**
+     * 操作ごとの結果
+     */
+    Optional<Endpoint> endpoint(String operation) {
+        return endpoints.stream().filter(endpoint -> endpoint.operation().equals(operation)).findFirst();
+    }
+
+    /**
+     * レポートを出力し、全実行の一覧（index.html）を更新する
+     *
+     * @param reportDir 出力先
+     * @param baseline 比較対象（nullの場合は比較しない）
+     * @return この実行のレポートのディレクトリ
+     */
+    Path write(Path reportDir, LoadTestReport baseline) throws IOException {
+        Path runDir = Files.createDirectories(reportDir.resolve(runId));
+        MAPPER.writeValue(runDir.resolve(REPORT_JSON).toFile(), this);
+        Files.writeString(runDir.resolve("report.html"), toHtml(baseline));
+        Files.writeString(reportDir.resolve("index.html"), indexHtml(readAll(reportDir)));
+        return runDir;
+    }
+
+    static LoadTestReport read(Path file) throws IOException {
+        return MAPPER.readValue(file.toFile(), LoadTestReport.class);
+    }
+
+    /**
+     * 出力先にある過去の全レポート（古い順）
+     */
+    static List<LoadTestReport> readAll(Path reportDir) throws IOException {
+        if (!Files.isDirectory(reportDir)) {
+            return List.of();
+        }
+        List<LoadTestReport> reports = new ArrayList<>();
+        try (Stream<Path> runDirs = Files.list(reportDir)) {
+            for (Path file : runDirs.map(dir -> dir.resolve(REPORT_JSON)).filter(Files::isRegularFile).toList()) {
+                reports.add(read(file));
+            }
+        }
+        reports.sort(Comparator.comparing(LoadTestReport::startedAt));
+        return reports;
+    }
+
+    private String toHtml(LoadTestReport baseline) {
+        StringBuilder html = new StringBuilder();
+        html.append(header("負荷テスト " + runId));
+        html.append("<h1>負荷テスト ").append(escape(runId)).append("</h1>\n");
+        html.append("<p>コミット: <code>").append(escape(commit)).append(dirty ? "（未コミットの変更あり）" : "")
+                .append("</code> / ブランチ: ").append(escape(branch))
+                .append(" / Java ").append(escape(javaVersion)).append(" / CPU ").append(availableProcessors).append("</p>\n");
+        html.append("<p>設定: <code>").append(escape(settings.toString())).append("</code></p>\n");
+        html.append(String.format("<p>合計: %,d件（エラー %,d件）/ %.1f件/秒 / 計測 %.0f秒</p>%n",
+                totalRequests, totalErrors, throughput, measuredSeconds));
+
+        html.append("<table>\n<tr><th>操作</th><th>件数</th><th>エラー</th><th>件/秒</th>"
+                + "<th>p50 (ms)</th><th>p95 (ms)</th><th>p99 (ms)</th><th>max (ms)</th><th>ステータス</th></tr>\n");
+        for (Endpoint endpoint : endpoints) {
+            html.append(String.format("<tr><td>%s</td><td>%,d</td><td>%,d</td><td>%.1f</td>"
+                            + "<td>%.1f</td><td>%.1f</td><td>%.1f</td><td>%.1f</td><td>%s</td></tr>%n",
+                    endpoint.operation(), endpoint.requests(), endpoint.errors(), endpoint.throughput(),
+                    endpoint.p50Ms(), endpoint.p95Ms(), endpoint.p99Ms(), endpoint.maxMs(), endpoint.statuses()));
+        }
+        html.append("</table>\n");
+        endpoint(Operation.IMAGE_DURING_LOGIN_BURST.key()).ifPresent(during -> html.append(String.format(
+                "<p>画像配信のp99: ログイン集中なし %.1f ms / ログイン集中中 %.1f ms（%s クライアント）</p>%n",
+                endpoint(Operation.IMAGE.key()).map(Endpoint::p99Ms).orElse(0.0), during.p99Ms(),
+                settings.get("loginBurst"))));
+
+        if (baseline != null) {
+            html.append("<h2>比較: ").append(escape(baseline.runId())).append("</h2>\n");
+            html.append("<p>前回比（件/秒は増加、レイテンシは減少が改善）</p>\n");
+            html.append("<table>\n<tr><th>操作</th><th>件/秒</th><th>p50</th><th>p95</th><th>p99</th></tr>\n");
+            for (Endpoint endpoint : endpoints) {
+                Optional<Endpoint> before = baseline.endpoint(endpoint.operation());
+                html.append("<tr><td>").append(endpoint.operation()).append("</td>")
+                        .append(delta(endpoint, before, Endpoint::throughput))
+                        .append(delta(endpoint, before, Endpoint::p50Ms))
+                        .append(delta(endpoint, before, Endpoint::p95Ms))
+                        .append(delta(endpoint, before, Endpoint::p99Ms))
+                        .append("</tr>\n");
+            }
+            html.append("</table>\n");
+        }
+        html.append("<p><a href=\"../index.html\">全実行の一覧</a></p>\n</body>\n</html>\n");
+        return html.toString();
+    }
+
+    private static String delta(Endpoint current, Optional<Endpoint> before, ToDoubleFunction<Endpoint> metric) {
+        double now = metric.applyAsDouble(current);
+        if (before.isEmpty() || metric.applyAsDouble(before.get()) == 0) {
+            return String.format("<td>%.1f</td>", now);
+        }
+        double previous = metric.applyAsDouble(before.get());
+        return String.format("<td>%.1f → %.1f（%+.1f%%）</td>", previous, now, (now - previous) / previous * 100);
+    }
+
+    private static String indexHtml(List<LoadTestReport> reports) {
+        List<String> operations = reports.stream()
+                .flatMap(report -> report.endpoints().stream().map(Endpoint::operation))
+                .distinct()
+                .toList();
+
+        StringBuilder html = new StringBuilder();
+        html.append(header("負荷テストの推移"));
+        html.append("<h1>負荷テストの推移</h1>\n");
+        html.append("<p>設定（ユーザー数・同時実行数・操作の重み）が異なる実行は単純に比較できない点に注意</p>\n");
+        html.append("<table>\n<tr><th>実行</th><th>コミット</th><th>同時実行数</th><th>件/秒</th><th>エラー</th>");
+        operations.forEach(operation -> html.append("<th>").append(operation).append(" p95 (ms)</th>"));
+        html.append("</tr>\n");
+        for (LoadTestReport report : reports.reversed()) {
+            html.append("<tr><td><a href=\"").append(escape(report.runId())).append("/report.html\">")
+                    .append(escape(report.runId())).append("</a></td>")
+                    .append("<td><code>").append(escape(report.commit())).append(report.dirty() ? "*" : "").append("</code></td>")
+                    .append("<td>").append(report.settings().get("concurrency")).append("</td>")
+                    .append(String.format("<td>%.1f</td><td>%,d</td>", report.throughput(), report.totalErrors()));
+            for (String operation : operations) {
+                html.append(report.endpoint(operation)
+                        .map(endpoint -> String.format("<td>%.1f</td>", endpoint.p95Ms()))
+                        .orElse("<td>-</td>"));
+            }
+            html.append("</tr>\n");
+        }
+        html.append("</table>\n<p>* 未コミットの変更あり</p>\n</body>\n</html>\n");
+        return html.toString();
+    }
+
+    private static String header(String title) {
+        return "<!DOCTYPE html>\n<html lang=\"ja\">\n<head>\n<meta charset=\"UTF-8\">\n<title>" + escape(title) + "</title>\n"
+                + "<style>body{font-family:sans-serif;margin:2em}table{border-collapse:collapse}"
+                + "th,td{border:1px solid #ccc;padding:4px 8px;text-align:right}th:first-child,td:first-child{text-align:left}</style>\n"
+                + "</head>\n<body>\n";
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
@@ -0,0 +1,325 @@
+package com.example.handson.loadtest;
+
+import com.example.handson.HandsonApplication;
+import com.example.handson.TestcontainersConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 負荷テスト（./gradlew loadTest、Dockerが必要）
+ * 1. TestcontainersConfigurationのPostgreSQL・LocalStackでアプリケーションを起動する
+ * 2. ユーザーと画像メモ（実際のJPEG）をHTTP経由で投入する
+ * 3. 仮想ユーザーが操作の重みに従ってログイン・一覧・詳細・画像配信・作成・削除を繰り返す
+ * 4. ログイン集中フェーズ（-PloadTestLoginBurst=256）を指定した場合は、計測時間の後に操作を続けたまま
+ *    別のクライアントから存在しないユーザー名でのPOST /loginを同時に送り続け、その間の画像配信を別に記録する
+ * 5. 操作ごとのp50/p95/p99・スループットをJSON・HTMLに出力し、前回の実行と比較する
+ *
+ * アプリケーションと負荷をかける側が同じJVM・マシンで動くため、結果はコミット間の相対比較に使う
+ */
+public final class LoadTestRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestRunner.class);
+
+    private static final String BUCKET = "load-test-bucket";
+    private static final String USERNAME_PREFIX = "load-user-";
+    private static final String LOGIN_BURST_PREFIX = "login-burst-";
+    private static final Set<Operation> LOGIN_BURST_OPERATIONS =
+            EnumSet.of(Operation.IMAGE_DURING_LOGIN_BURST, Operation.LOGIN_BURST);
+    private static final int SEED_PARALLELISM = 8;
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        log.info("負荷テストを開始します: {}", settings.describe());
+
+        try (ConfigurableApplicationContext context = startApplication()) {
+            context.getBean(S3Client.class).createBucket(builder -> builder.bucket(BUCKET));
+            URI baseUri = URI.create("http://localhost:" + context.getEnvironment().getRequiredProperty("local.server.port") + "/");
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+            List<VirtualUser> users = seed(settings, baseUri, jdbcTemplate);
+            LoadTestReport report = run(settings, baseUri, users.subList(0, settings.concurrency()), jdbcTemplate);
+
+            LoadTestReport baseline = settings.baseline() != null
+                    ? LoadTestReport.read(settings.baseline())
+                    : LoadTestReport.readAll(settings.reportDir()).stream().reduce((first, second) -> second).orElse(null);
+            Path runDir = report.write(settings.reportDir(), baseline);
+
+            log.info("負荷テストが完了しました: {}件/秒, エラー{}件", String.format("%.1f", report.throughput()), report.totalErrors());
+            report.endpoints().forEach(endpoint -> log.info("  {}: {}件, p50={}ms, p95={}ms, p99={}ms, エラー{}件",
+                    endpoint.operation(), endpoint.requests(),
+                    String.format("%.1f", endpoint.p50Ms()), String.format("%.1f", endpoint.p95Ms()),
+                    String.format("%.1f", endpoint.p99Ms()), endpoint.errors()));
+            report.endpoint(Operation.IMAGE_DURING_LOGIN_BURST.key()).ifPresent(during ->
+                    log.info("画像配信のp99: ログイン集中なし={}ms, ログイン集中中={}ms",
+                            report.endpoint(Operation.IMAGE.key()).map(image -> String.format("%.1f", image.p99Ms())).orElse("-"),
+                            String.format("%.1f", during.p99Ms())));
+            log.info("レポート: {}", runDir.resolve("report.html").toAbsolutePath());
+        }
+    }
+
+    /**
+     * アプリケーションの起動
+     * 仮想ユーザーは実際のユーザーより高頻度で操作するため、ユーザー単位のレート制限は無効にする
+     */
+    private static ConfigurableApplicationContext startApplication() {
+        return SpringApplication.from(HandsonApplication::main)
+                .with(TestcontainersConfiguration.class)
+                .run("--server.port=0",
+                        "--app.s3.bucket-name=" + BUCKET,
+                        "--app.rate-limit.enabled=false",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.com.example.handson=WARN")
+                .getApplicationContext();
+    }
+
+    /**
+     * ユーザー登録・ログイン・画像メモ作成（計測しない）
+     */
+    private static List<VirtualUser> seed(LoadTestSettings settings, URI baseUri, JdbcTemplate jdbcTemplate)
+            throws Exception {
+        long start = System.nanoTime();
+        List<VirtualUser> users = new ArrayList<>();
+        for (int i = 0; i < settings.users(); i++) {
+            users.add(new VirtualUser(baseUri, String.format("%s%05d", USERNAME_PREFIX, i), new LatencyRecorder()));
+        }
+
+        // BCryptの待ちキューを溢れさせないよう、並列数を抑えて投入する
+        try (ExecutorService executor = Executors.newFixedThreadPool(SEED_PARALLELISM)) {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < users.size(); i++) {
+                VirtualUser user = users.get(i);
+                int memos = settings.memos() / settings.users() + (i < settings.memos() % settings.users() ? 1 : 0);
+                long firstSequence = (long) i * (settings.memos() / settings.users() + 1);
+                tasks.add(executor.submit(() -> {
+                    user.register();
+                    if (!user.login(false)) {
+                        throw new IllegalStateException("ログインに失敗しました: username=" + user.username());
+                    }
+                    for (int n = 0; n < memos; n++) {
+                        user.upload(firstSequence + n, false);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        }
+
+        Map<String, VirtualUser> byUsername = new HashMap<>();
+        users.forEach(user -> byUsername.put(user.username(), user));
+        jdbcTemplate.query("SELECT u.username, m.id FROM image_memos m JOIN users u ON u.id = m.user_id WHERE u.username LIKE ?",
+                rs -> {
+                    byUsername.get(rs.getString(1)).memoIds().add(rs.getLong(2));
+                },
+                USERNAME_PREFIX + "%");
+
+        log.info("データを投入しました: users={}, memos={}, elapsed={}s",
+                settings.users(), settings.memos(), TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+        return users;
+    }
+
+    private static LoadTestReport run(LoadTestSettings settings, URI baseUri, List<VirtualUser> users,
+                                      JdbcTemplate jdbcTemplate) throws Exception {
+        Instant startedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        Operation[] wheel = wheel(settings.mix());
+        // 投入済みの画像と重複しない通し番号から作成する
+        AtomicLong sequence = new AtomicLong((long) settings.users() * (settings.memos() / settings.users() + 1));
+        long warmupEnd = System.nanoTime() + settings.warmup().toNanos();
+        long measureEnd = warmupEnd + settings.duration().toNanos();
+        boolean loginBurst = settings.loginBurst() > 0;
+        long end = measureEnd + (loginBurst ? settings.loginBurstDuration().toNanos() : 0);
+
+        List<LatencyRecorder> recorders = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (VirtualUser user : users) {
+                recorders.add(user.recorder());
+                executor.submit(() -> drive(user, wheel, settings.thinkTime(), end, sequence, jdbcTemplate));
+            }
+            log.info("ウォームアップ中です: {}s", settings.warmup().toSeconds());
+            TimeUnit.NANOSECONDS.sleep(warmupEnd - System.nanoTime());
+            recorders.forEach(LatencyRecorder::startRecording);
+            log.info("計測中です: {}s", settings.duration().toSeconds());
+            if (loginBurst) {
+                TimeUnit.NANOSECONDS.sleep(measureEnd - System.nanoTime());
+                recorders.forEach(LatencyRecorder::startLoginBurst);
+                log.info("ログイン集中フェーズです: {}クライアント, {}s",
+                        settings.loginBurst(), settings.loginBurstDuration().toSeconds());
+                AtomicLong attempts = new AtomicLong();
+                for (int i = 0; i < settings.loginBurst(); i++) {
+                    VirtualUser client = new VirtualUser(baseUri, LOGIN_BURST_PREFIX + i, new LatencyRecorder());
+                    client.recorder().startRecording();
+                    recorders.add(client.recorder());
+                    executor.submit(() -> burst(client, end, attempts));
+                }
+            }
+        }
+
+        double measuredSeconds = settings.duration().toMillis() / 1000.0;
+        Map<Operation, LatencyRecorder.Samples> merged = LatencyRecorder.merge(recorders);
+        List<LoadTestReport.Endpoint> endpoints = new ArrayList<>();
+        double loginBurstSeconds = settings.loginBurstDuration().toMillis() / 1000.0;
+        merged.forEach((operation, samples) -> {
+            if (!LOGIN_BURST_OPERATIONS.contains(operation)) {
+                endpoints.add(LoadTestReport.Endpoint.of(operation, samples, measuredSeconds));
+            } else if (loginBurst) {
+                endpoints.add(LoadTestReport.Endpoint.of(operation, samples, loginBurstSeconds));
+            }
+        });
+        // 内訳は対象の操作と同じリクエスト、ログイン集中フェーズは計測時間外のため合計に含めない
+        long totalRequests = merged.entrySet().stream()
+                .filter(entry -> !entry.getKey().breakdown())
+                .mapToLong(entry -> entry.getValue().count())
+                .sum();
+        long totalErrors = merged.entrySet().stream()
+                .filter(entry -> !entry.getKey().breakdown())
+                .mapToLong(entry -> entry.getValue().errors())
+                .sum();
+
+        String commit = git("rev-parse", "--short", "HEAD");
+        boolean dirty = !git("status", "--porcelain", "--untracked-files=no").isEmpty();
+        String runId = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC).format(startedAt)
+                + "-" + commit + (dirty ? "-dirty" : "");
+        return new LoadTestReport(
+                runId,
+                commit,
+                git("rev-parse", "--abbrev-ref", "HEAD"),
+                dirty,
+                DateTimeFormatter.ISO_INSTANT.format(startedAt),
+                Runtime.version().toString(),
+                Runtime.getRuntime().availableProcessors(),
+                settings.describe(),
+                measuredSeconds,
+                totalRequests,
+                totalErrors,
+                totalRequests / measuredSeconds,
+                endpoints);
+    }
+
+    /**
+     * 仮想ユーザー1人分の操作を終了時刻まで繰り返す
+     */
+    private static Void drive(VirtualUser user, Operation[] wheel, Duration thinkTime, long end,
+                              AtomicLong sequence, JdbcTemplate jdbcTemplate) throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < end) {
+            Operation operation = wheel[random.nextInt(wheel.length)];
+            try {
+                switch (operation) {
+                    case LOGIN -> {
+                        user.logout();
+                        user.login(true);
+                    }
+                    case LIST -> user.list();
+                    case DETAIL -> user.detail(pick(user.memoIds(), random));
+                    case IMAGE -> user.image(pick(user.memoIds(), random));
+                    case UPLOAD -> upload(user, sequence, jdbcTemplate);
+                    case DELETE -> {
+                        // 作成済みの画像メモがない場合は、先に作成する（投入済みのデータは削除しない）
+                        if (user.createdMemoIds().isEmpty()) {
+                            upload(user, sequence, jdbcTemplate);
+                        } else {
+                            user.delete(user.createdMemoIds().removeLast());
+                        }
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("操作に失敗しました: operation={}, username={}", operation, user.username(), e);
+                user.recorder().fail(operation);
+            }
+            if (!thinkTime.isZero()) {
+                Thread.sleep(thinkTime);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * ログイン集中のクライアント1つ分のログインを終了時刻まで繰り返す（応答後すぐに次を送る）
+     */
+    private static Void burst(VirtualUser client, long end, AtomicLong attempts) throws InterruptedException {
+        while (System.nanoTime() < end) {
+            try {
+                client.failedLogin(attempts.getAndIncrement());
+            } catch (IOException | RuntimeException e) {
+                log.debug("ログイン集中のログインに失敗しました: username={}", client.username(), e);
+                client.recorder().fail(Operation.LOGIN_BURST);
+            }
+        }
+        return null;
+    }
+
+    private static void upload(VirtualUser user, AtomicLong sequence, JdbcTemplate jdbcTemplate)
+            throws IOException, InterruptedException {
+        if (user.upload(sequence.getAndIncrement(), true)) {
+            // 1ユーザーを操作する仮想ユーザーは1つのため、最新のIDが今作成した画像メモ
+            user.createdMemoIds().add(jdbcTemplate.queryForObject(
+                    "SELECT max(m.id) FROM image_memos m JOIN users u ON u.id = m.user_id WHERE u.username = ?",
+                    Long.class, user.username()));
+        }
+    }
+
+    private static long pick(List<Long> memoIds, ThreadLocalRandom random) {
+        return memoIds.get(random.nextInt(memoIds.size()));
+    }
+
+    /**
+     * 重みの数だけ操作を並べた配列（一様乱数で引くと重みどおりの比率になる）
+     */
+    private static Operation[] wheel(Map<Operation, Integer> mix) {
+        List<Operation> wheel = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                wheel.add(operation);
+            }
+        });
+        if (wheel.isEmpty()) {
+            throw new IllegalArgumentException("操作の重みの合計が0です");
+        }
+        return wheel.toArray(Operation[]::new);
+    }
+
+    private static String git(String... args) {
+        List<String> command = new ArrayList<>(List.of("git"));
+        command.addAll(List.of(args));
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            return process.waitFor() == 0 ? output : "unknown";
+        } catch (IOException e) {
+            return "unknown";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "unknown";
+        }
+    }
+}
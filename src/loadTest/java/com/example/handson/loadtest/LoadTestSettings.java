@@ -0,0 +1,115 @@
+package com.example.handson.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 負荷テストの設定（システムプロパティloadtest.*、Gradleでは-PloadTestUsers=100のように指定）
+ *
+ * @param users 投入するユーザー数
+ * @param memos 投入する画像メモ数（ユーザーに均等に割り当てる）
+ * @param concurrency 同時に操作する仮想ユーザー数（1ユーザーにつき1つ）
+ * @param warmup 計測前のウォームアップ時間（JITコンパイル・接続プールの準備）
+ * @param duration 計測時間
+ * @param thinkTime 操作の間隔（0の場合は応答後すぐに次の操作を行う）
+ * @param mix 操作ごとの重み
+ * @param loginBurst ログイン集中フェーズで同時にPOST /loginを送るクライアント数（0の場合はフェーズを実行しない）
+ * @param loginBurstDuration ログイン集中フェーズの時間（計測時間の後に、操作を続けたまま実行する）
+ * @param reportDir レポートの出力先（実行ごとにサブディレクトリを作成）
+ * @param baseline 比較対象の過去のレポート（report.json）。未指定の場合は直前の実行
+ */
+record LoadTestSettings(
+        int users,
+        int memos,
+        int concurrency,
+        Duration warmup,
+        Duration duration,
+        Duration thinkTime,
+        Map<Operation, Integer> mix,
+        int loginBurst,
+        Duration loginBurstDuration,
+        Path reportDir,
+        Path baseline
+) {
+
+    LoadTestSettings {
+        if (users < 1 || memos < users) {
+            throw new IllegalArgumentException("ユーザー数は1以上、画像メモ数はユーザー数以上にしてください: users=" + users + ", memos=" + memos);
+        }
+        // 同時セッション数を1に制限しているため、同じユーザーで並行して操作できない
+        if (concurrency < 1 || concurrency > users) {
+            throw new IllegalArgumentException("同時実行数は1以上、ユーザー数以下にしてください: concurrency=" + concurrency + ", users=" + users);
+        }
+        if (loginBurst < 0) {
+            throw new IllegalArgumentException("ログイン集中のクライアント数は0以上にしてください: loginBurst=" + loginBurst);
+        }
+        mix = Collections.unmodifiableMap(new EnumMap<>(mix));
+    }
+
+    static LoadTestSettings fromSystemProperties() {
+        String baseline = System.getProperty("loadtest.baseline");
+        return new LoadTestSettings(
+                Integer.getInteger("loadtest.users", 50),
+                Integer.getInteger("loadtest.memos", 1000),
+                Integer.getInteger("loadtest.concurrency", 32),
+                Duration.parse("PT" + System.getProperty("loadtest.warmup", "30s")),
+                Duration.parse("PT" + System.getProperty("loadtest.duration", "60s")),
+                Duration.parse("PT" + System.getProperty("loadtest.thinkTime", "0s")),
+                parseMix(System.getProperty("loadtest.mix", "")),
+                Integer.getInteger("loadtest.loginBurst", 0),
+                Duration.parse("PT" + System.getProperty("loadtest.loginBurstDuration", "30s")),
+                Path.of(System.getProperty("loadtest.reportDir", "build/reports/load-test")),
+                baseline == null || baseline.isBlank() ? null : Path.of(baseline));
+    }
+
+    /**
+     * 「list=30,image=40」形式の重みを、未指定の操作はデフォルトの重みで補って返す
+     */
+    static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            if (!operation.breakdown()) {
+                mix.put(operation, operation.defaultWeight());
+            }
+        }
+        for (String entry : value.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] pair = entry.split("=", 2);
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("操作の重みの形式が不正です（例: list=30,image=40）: " + entry);
+            }
+            Operation operation = Operation.valueOf(pair[0].trim().toUpperCase());
+            if (operation.breakdown()) {
+                throw new IllegalArgumentException("内訳の操作には重みを指定できません: " + entry);
+            }
+            mix.put(operation, Integer.parseInt(pair[1].trim()));
+        }
+        return mix;
+    }
+
+    /**
+     * レポートに記録する設定値
+     */
+    Map<String, Object> describe() {
+        Map<String, Object> mixByKey = new LinkedHashMap<>();
+        mix.forEach((operation, weight) -> mixByKey.put(operation.key(), weight));
+
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("users", users);
+        description.put("memos", memos);
+        description.put("concurrency", concurrency);
+        description.put("warmupSeconds", warmup.toSeconds());
+        description.put("durationSeconds", duration.toSeconds());
+        description.put("thinkTimeMillis", thinkTime.toMillis());
+        description.put("mix", mixByKey);
+        description.put("loginBurst", loginBurst);
+        description.put("loginBurstSeconds", loginBurst > 0 ? loginBurstDuration.toSeconds() : 0);
+        return description;
+    }
+}
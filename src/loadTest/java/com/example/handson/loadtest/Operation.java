@@ -0,0 +1,92 @@
+package com.example.handson.loadtest;
+
+/**
+ * 負荷テストで実行する操作
+ * 重みは操作ごとの実行比率（-PloadTestMix=list=30,image=40,... で上書き）
+ * 計測するのは各操作の主要なリクエスト1件のみ（CSRFトークン取得などの前準備は含めない）
+ * 内訳（breakdown）は重みを持たず、対象の操作の中で途中経過として記録する
+ * ログイン集中フェーズの記録も同じく重みを持たず、合計に含めない
+ */
+enum Operation {
+
+    /**
+     * ログアウトしてから再ログイン（BCryptの照合を含むPOST /loginを計測）
+     */
+    LOGIN(2),
+
+    /**
+     * 画像メモ一覧（GET /memos、本文を読み切るまで）
+     */
+    LIST(30),
+
+    /**
+     * 画像メモ一覧の応答ヘッダーを受信するまで（TTFB。LISTの内訳で、単独では実行しない）
+     */
+    LIST_FIRST_BYTE,
+
+    /**
+     * 画像メモ一覧の最初の画像（{@code <img}）を受信するまで（ブラウザが最初の画像のリクエストを始められる時点。LISTの内訳）
+     */
+    LIST_FIRST_IMAGE,
+
+    /**
+     * 画像メモ詳細（GET /memos/{id}）
+     */
+    DETAIL(20),
+
+    /**
+     * 画像配信（GET /memos/{id}/image、本文を読み切るまで）
+     */
+    IMAGE(40),
+
+    /**
+     * 画像メモ作成（POST /memos、毎回異なる画像）
+     */
+    UPLOAD(5),
+
+    /**
+     * 画像メモ削除（POST /memos/{id}/delete、負荷テスト中に自分で作成した画像メモのみ）
+     */
+    DELETE(3),
+
+    /**
+     * ログイン集中フェーズ中の画像配信（IMAGEと同じリクエスト。フェーズ中はIMAGEの代わりにこちらに記録する）
+     */
+    IMAGE_DURING_LOGIN_BURST,
+
+    /**
+     * ログイン集中フェーズで並行して送る、存在しないユーザー名でのPOST /login（BCryptの照合を含む）
+     */
+    LOGIN_BURST;
+
+    private final int defaultWeight;
+    private final boolean breakdown;
+
+    Operation(int defaultWeight) {
+        this.defaultWeight = defaultWeight;
+        this.breakdown = false;
+    }
+
+    /**
+     * 他の操作の内訳・ログイン集中フェーズの記録（重みを持たない）
+     */
+    Operation() {
+        this.defaultWeight = 0;
+        this.breakdown = true;
+    }
+
+    int defaultWeight() {
+        return defaultWeight;
+    }
+
+    boolean breakdown() {
+        return breakdown;
+    }
+
+    /**
+     * レポート・設定で使う名前
+     */
+    String key() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.handson.loadtest;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+/**
+ * 負荷テスト用の画像（実際のJPEG）
+ * 同じ内容の画像は保存済みの画像を共有する（S3へのアップロードが省略される）ため、
+ * 通し番号ごとに異なる画素の画像を生成する
+ */
+final class SampleImages {
+
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 600;
+
+    private SampleImages() {
+    }
+
+    /**
+     * 通し番号に対応する画像（同じ番号からは同じ画像を生成する）
+     *
+     * @param sequence 通し番号
+     * @return JPEGのバイト列（約50〜150KB）
+     */
+    static byte[] jpeg(long sequence) {
+        Random random = new Random(sequence);
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            for (int i = 0; i < 40; i++) {
+                graphics.setColor(new Color(random.nextInt(0xFFFFFF)));
+                graphics.fillRect(random.nextInt(WIDTH), random.nextInt(HEIGHT),
+                        40 + random.nextInt(WIDTH / 2), 40 + random.nextInt(HEIGHT / 2));
+            }
+            graphics.setColor(Color.WHITE);
+            graphics.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 48));
+            graphics.drawString("memo #" + sequence, 40, HEIGHT - 40);
+        } finally {
+            graphics.dispose();
+        }
+        // 写真に近い圧縮率にするため、画素単位のノイズを加える
+        for (int y = 0; y < HEIGHT; y += 2) {
+            for (int x = 0; x < WIDTH; x += 2) {
+                image.setRGB(x, y, image.getRGB(x, y) ^ random.nextInt(0x101010));
+            }
+        }
+
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            ImageIO.write(image, "jpg", out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.example.handson.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * ブラウザ1つ分の操作（Cookieでセッションを保持し、フォームのCSRFトークンを送る）
+ * リダイレクトは追わず、1操作のレイテンシをリクエスト1件分で計測する
+ */
+final class VirtualUser {
+
+    private static final String PASSWORD = "load-test-password";
+
+    private static final Pattern CSRF_TOKEN = Pattern.compile("name=\"_csrf\"\\s+value=\"([^\"]+)\"");
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final byte[] FIRST_IMAGE = "<img".getBytes(StandardCharsets.US_ASCII);
+
+    private final URI baseUri;
+    private final String username;
+    private final LatencyRecorder recorder;
+    private final HttpClient client;
+    private String csrfToken;
+
+    /**
+     * 投入済みの画像メモ（詳細・画像配信の対象）
+     */
+    private final List<Long> memoIds = new ArrayList<>();
+
+    /**
+     * 負荷テスト中に作成した画像メモ（削除の対象。投入済みのデータは削除しない）
+     */
+    private final List<Long> createdMemoIds = new ArrayList<>();
+
+    VirtualUser(URI baseUri, String username, LatencyRecorder recorder) {
+        this.baseUri = baseUri;
+        this.username = username;
+        this.recorder = recorder;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .cookieHandler(new CookieManager())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    String username() {
+        return username;
+    }
+
+    LatencyRecorder recorder() {
+        return recorder;
+    }
+
+    List<Long> memoIds() {
+        return memoIds;
+    }
+
+    List<Long> createdMemoIds() {
+        return createdMemoIds;
+    }
+
+    /**
+     * ユーザー登録（データ投入用、計測しない）
+     */
+    void register() throws IOException, InterruptedException {
+        fetchCsrfToken("/register");
+        HttpResponse<Void> response = send(form("/register",
+                Map.of("username", username, "password", PASSWORD, "confirmPassword", PASSWORD)));
+        expectRedirect(response, "/login", "ユーザー登録");
+    }
+
+    /**
+     * ログイン（計測する場合はrecordにtrue）
+     */
+    boolean login(boolean record) throws IOException, InterruptedException {
+        fetchCsrfToken("/login");
+        HttpRequest request = form("/login", Map.of("username", username, "password", PASSWORD));
+        boolean success = record
+                ? timed(Operation.LOGIN, request, redirectsTo("/memos"))
+                : redirectsTo("/memos").test(send(request));
+        // ログイン時にセッションIDとCSRFトークンが変わる
+        fetchCsrfToken("/memos/new");
+        return success;
+    }
+
+    /**
+     * 存在しないユーザー名でのログイン（ログイン集中の負荷、計測する）
+     * 未登録のユーザー名でもタイミング攻撃対策でBCryptの照合が行われる
+     * 毎回ユーザー名を変え、失敗回数による一時ロック（BCryptを省略する）にかからないようにする
+     *
+     * @param attempt ユーザー名に付ける通し番号
+     */
+    void failedLogin(long attempt) throws IOException, InterruptedException {
+        if (csrfToken == null) {
+            fetchCsrfToken("/login");
+        }
+        // 失敗時もセッションとCSRFトークンは変わらない
+        timed(Operation.LOGIN_BURST, form("/login", Map.of("username", username + "-" + attempt, "password", PASSWORD)),
+                response -> response.statusCode() == 302 && location(response)
+                        .map(location -> URI.create(location).getPath().equals("/login"))
+                        .orElse(false));
+    }
+
+    void logout() throws IOException, InterruptedException {
+        send(form("/logout", Map.of()));
+    }
+
+    /**
+     * 一覧の全体に加え、応答ヘッダーの受信（TTFB）と最初の{@code <img}の受信までを内訳として記録する
+     * 一覧ページは描画しながら送信されるため、本文を順に読んで到着時刻を計る
+     */
+    void list() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<InputStream> response = client.send(get("/memos"), HttpResponse.BodyHandlers.ofInputStream());
+            boolean ok = response.statusCode() == 200;
+            recorder.record(Operation.LIST_FIRST_BYTE, System.nanoTime() - start, response.statusCode(), ok);
+            try (InputStream body = response.body()) {
+                if (skipUntil(body, FIRST_IMAGE)) {
+                    recorder.record(Operation.LIST_FIRST_IMAGE, System.nanoTime() - start, response.statusCode(), ok);
+                }
+                body.transferTo(OutputStream.nullOutputStream());
+            }
+            recorder.record(Operation.LIST, System.nanoTime() - start, response.statusCode(), ok);
+        } catch (IOException e) {
+            recorder.record(Operation.LIST, System.nanoTime() - start, 0, false);
+        }
+    }
+
+    void detail(long memoId) throws IOException, InterruptedException {
+        timed(Operation.DETAIL, get("/memos/" + memoId), status(200));
+    }
+
+    void image(long memoId) throws IOException, InterruptedException {
+        timed(Operation.IMAGE, get("/memos/" + memoId + "/image"), status(200));
+    }
+
+    /**
+     * 画像メモ作成
+     *
+     * @param record 計測する場合はtrue（データ投入時はfalse）
+     * @return 作成できた場合はtrue
+     */
+    boolean upload(long sequence, boolean record) throws IOException, InterruptedException {
+        HttpRequest request = multipart("/memos", Map.of(
+                "title", "負荷テスト " + sequence,
+                "description", "負荷テスト用の画像メモ（" + username + "）"),
+                "image", "memo-" + sequence + ".jpg", SampleImages.jpeg(sequence));
+        if (record) {
+            return timed(Operation.UPLOAD, request, redirectsTo("/memos"));
+        }
+        HttpResponse<Void> response = send(request);
+        expectRedirect(response, "/memos", "画像メモ作成");
+        return true;
+    }
+
+    void delete(long memoId) throws IOException, InterruptedException {
+        timed(Operation.DELETE, form("/memos/" + memoId + "/delete", Map.of()), redirectsTo("/memos"));
+    }
+
+    private boolean timed(Operation operation, HttpRequest request, Predicate<HttpResponse<Void>> success)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<Void> response = send(request);
+            boolean ok = success.test(response);
+            recorder.record(operation, System.nanoTime() - start, response.statusCode(), ok);
+            return ok;
+        } catch (IOException e) {
+            recorder.record(operation, System.nanoTime() - start, 0, false);
+            return false;
+        }
+    }
+
+    /**
+     * 本文は読み捨てる（画像配信は最後のバイトまで受信してから完了する）
+     */
+    private HttpResponse<Void> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.discarding());
+    }
+
+    /**
+     * 指定したバイト列の直後まで読み進める
+     *
+     * @return 見つかった場合はtrue（見つからない場合は本文の最後まで読む）
+     */
+    private static boolean skipUntil(InputStream in, byte[] pattern) throws IOException {
+        int matched = 0;
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == pattern[matched]) {
+                matched++;
+                if (matched == pattern.length) {
+                    return true;
+                }
+            } else {
+                // パターン（<img）は先頭の文字を途中に含まないため、先頭からの照合に戻すだけでよい
+                matched = b == pattern[0] ? 1 : 0;
+            }
+        }
+        return false;
+    }
+
+    private void fetchCsrfToken(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(get(path), HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = CSRF_TOKEN.matcher(response.body());
+        if (!matcher.find()) {
+            throw new IllegalStateException("CSRFトークンを取得できません: path=" + path + ", status=" + response.statusCode());
+        }
+        csrfToken = matcher.group(1);
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path)).timeout(REQUEST_TIMEOUT).GET().build();
+    }
+
+    private HttpRequest form(String path, Map<String, String> fields) {
+        Map<String, String> withToken = new LinkedHashMap<>(fields);
+        withToken.put("_csrf", csrfToken);
+        String body = withToken.entrySet().stream()
+                .map(entry -> encode(entry.getKey()) + "=" + encode(entry.getValue()))
+                .collect(Collectors.joining("&"));
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest multipart(String path, Map<String, String> fields, String fileField, String filename, byte[] file) {
+        String boundary = "----load-test-" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        Map<String, String> withToken = new LinkedHashMap<>(fields);
+        withToken.put("_csrf", csrfToken);
+        withToken.forEach((name, value) -> body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + name + "\"\r\n\r\n"
+                + value + "\r\n").getBytes(StandardCharsets.UTF_8)));
+        body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + fileField + "\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(file);
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    private static Predicate<HttpResponse<Void>> status(int expected) {
+        return response -> response.statusCode() == expected;
+    }
+
+    /**
+     * 指定したパスへのリダイレクト（エラー時のリダイレクト先・クエリ付きは失敗とする）
+     */
+    private static Predicate<HttpResponse<Void>> redirectsTo(String path) {
+        return response -> response.statusCode() == 302 && location(response)
+                .map(location -> URI.create(location).getPath().equals(path) && URI.create(location).getQuery() == null)
+                .orElse(false);
+    }
+
+    private static Optional<String> location(HttpResponse<?> response) {
+        return response.headers().firstValue("Location");
+    }
+
+    private void expectRedirect(HttpResponse<Void> response, String path, String action) {
+        if (!redirectsTo(path).test(response)) {
+            throw new IllegalStateException(action + "に失敗しました: username=" + username
+                    + ", status=" + response.statusCode() + ", location=" + location(response).orElse(""));
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
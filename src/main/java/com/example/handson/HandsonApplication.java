@@ -1,9 +1,12 @@
 package com.example.handson;
 
+import com.example.handson.config.NativeRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ImportRuntimeHints(NativeRuntimeHints.class)
 public class HandsonApplication {
 
 	public static void main(String[] args) {
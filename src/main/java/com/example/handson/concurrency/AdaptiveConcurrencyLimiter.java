@@ -0,0 +1,133 @@
+package com.example.handson.concurrency;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * 観測したレイテンシで同時実行数の上限を調整するリミッター（AIMD）
+ * - レイテンシが閾値以内: 上限の近くまで使われている場合のみ、上限あたり1件ずつ増やす（加算的増加）
+ * - レイテンシが閾値超過: 上限を一定の比率で減らす（乗算的減少）
+ * 上限に達している場合は待たずに拒否する（呼び出し元で即座にエラーを返す）
+ *
+ * 減少は、直前の減少より後に開始した操作のレイテンシでのみ行う
+ * （減少前から実行中だった操作の遅延で、上限を連鎖的に下げすぎないため）
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private long lastDecreaseNanos;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdNanos) {
+        this(initialLimit, minLimit, maxLimit, latencyThresholdNanos, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdNanos,
+                               LongSupplier nanoClock) {
+        if (minLimit < 1 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("同時実行数の範囲が不正です: min=" + minLimit + ", max=" + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.nanoClock = nanoClock;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.lastDecreaseNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * 実行枠を取得
+     *
+     * @return 取得できた場合は実行枠（操作の完了後にcloseすること）、上限に達している場合は空
+     */
+    public Optional<Permit> tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= getLimit()) {
+                return Optional.empty();
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return Optional.of(new Permit(nanoClock.getAsLong(), current + 1));
+            }
+        }
+    }
+
+    /**
+     * 現在の同時実行数の上限
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * 実行中の操作数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long startNanos, long latencyNanos, int inFlightAtStart) {
+        if (latencyNanos > latencyThresholdNanos) {
+            if (startNanos - lastDecreaseNanos >= 0) {
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                lastDecreaseNanos = nanoClock.getAsLong();
+            }
+        } else if (inFlightAtStart * 2 >= limit) {
+            // 上限の半分も使われていない状態では、上限が適切か判断できないため増やさない
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    /**
+     * 取得した実行枠
+     * レイテンシは最初のrecordLatency()またはclose()までの時間で記録し、実行枠はclose()で返却する
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final long startNanos;
+        private final int inFlightAtStart;
+        private final AtomicBoolean recorded = new AtomicBoolean();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long startNanos, int inFlightAtStart) {
+            this.startNanos = startNanos;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * この時点までをレイテンシとして記録する（実行枠は保持したまま）
+         * ストリーミングでは最初のバイトまでの時間を記録し、読み終わるまで実行枠を保持する
+         */
+        public void recordLatency() {
+            if (recorded.compareAndSet(false, true)) {
+                onSample(startNanos, nanoClock.getAsLong() - startNanos, inFlightAtStart);
+            }
+        }
+
+        /**
+         * レイテンシを記録せずに実行枠を返却する
+         * 途中で中断した操作（ヘッジで不要になったGET等）の所要時間は、上限の調整に使わない
+         */
+        public void cancel() {
+            recorded.set(true);
+            close();
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                recordLatency();
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.handson.concurrency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * 並列数の上限付きの一括処理
+ * 要素ごとの処理を仮想スレッドで実行し、同時に実行する数を上限以下に抑える
+ * 呼び出し元は全要素の処理が終わるまで待つ（途中で例外が発生しても、実行中の処理の完了を待ってから返る）
+ */
+public final class BoundedParallelism {
+
+    private BoundedParallelism() {
+    }
+
+    /**
+     * 各要素を並列に処理する
+     * 要素ごとの失敗を結果として扱う場合は、処理の中で例外をキャッチして結果に変換すること
+     *
+     * @param items 処理する要素
+     * @param parallelism 同時に実行する数の上限
+     * @param threadNamePrefix スレッド名の接頭辞
+     * @param task 要素ごとの処理
+     * @return 入力と同じ順序の処理結果
+     */
+    public static <T, R> List<R> map(List<T> items, int parallelism, String threadNamePrefix,
+                                     Function<? super T, ? extends R> task) {
+        if (items.isEmpty()) {
+            return List.of();
+        }
+        try (ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, items.size()),
+                Thread.ofVirtual().name(threadNamePrefix, 0).factory())) {
+            List<Future<? extends R>> futures = new ArrayList<>(items.size());
+            for (T item : items) {
+                futures.add(executor.submit(() -> task.apply(item)));
+            }
+            List<R> results = new ArrayList<>(items.size());
+            for (Future<? extends R> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("一括処理の完了待ちが中断されました");
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.handson.concurrency;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ヘッジ（追加リクエスト）の予算
+ * リクエストごとにratio件分の予算を貯め、ヘッジ1件ごとに1件分を使う
+ * 長期的にはヘッジの件数がリクエストのratio倍を超えない（S3の障害時にリクエスト数を倍増させない）
+ * 貯められる予算はburst件分まで
+ */
+public class HedgeBudget {
+
+    private static final long UNIT = 1_000_000;
+
+    private final long depositPerRequest;
+    private final long capacity;
+    private final AtomicLong balance;
+
+    /**
+     * @param ratio リクエストあたりのヘッジの割合（例: 0.05で5%）
+     * @param burst 貯められる予算の上限（件数）
+     */
+    public HedgeBudget(double ratio, int burst) {
+        this.depositPerRequest = Math.round(ratio * UNIT);
+        this.capacity = burst * UNIT;
+        this.balance = new AtomicLong(capacity);
+    }
+
+    /**
+     * リクエスト1件分の予算を貯める
+     */
+    public void recordRequest() {
+        balance.accumulateAndGet(depositPerRequest, (current, deposit) -> Math.min(capacity, current + deposit));
+    }
+
+    /**
+     * ヘッジ1件分の予算を使う
+     *
+     * @return 予算が残っていた場合はtrue
+     */
+    public boolean tryWithdraw() {
+        while (true) {
+            long current = balance.get();
+            if (current < UNIT) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - UNIT)) {
+                return true;
+            }
+        }
+    }
+}
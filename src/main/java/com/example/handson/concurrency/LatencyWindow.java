@@ -0,0 +1,64 @@
+package com.example.handson.concurrency;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 直近のレイテンシのパーセンタイル
+ * 固定長のリングバッファに記録し、一定件数ごとにソートしてパーセンタイルを再計算する
+ * 記録はロックを取らず、再計算は件数が区切りに達したスレッドが行う（読み取りはキャッシュ済みの値を返すだけ）
+ */
+public class LatencyWindow {
+
+    private static final int RECOMPUTE_INTERVAL = 64;
+
+    private final AtomicLongArray samples;
+    private final AtomicLong count = new AtomicLong();
+    private final double percentile;
+    private final int minSamples;
+
+    private volatile long cachedNanos = -1;
+
+    /**
+     * @param size 保持するサンプル数
+     * @param percentile パーセンタイル（0より大きく1未満）
+     * @param minSamples パーセンタイルを計算するのに必要な最小サンプル数
+     */
+    public LatencyWindow(int size, double percentile, int minSamples) {
+        this.samples = new AtomicLongArray(size);
+        this.percentile = percentile;
+        this.minSamples = Math.min(minSamples, size);
+    }
+
+    /**
+     * レイテンシを記録
+     *
+     * @param latencyNanos レイテンシ（ナノ秒）
+     */
+    public void record(long latencyNanos) {
+        long n = count.getAndIncrement();
+        samples.set((int) (n % samples.length()), latencyNanos);
+        if (n + 1 >= minSamples && ((n + 1) % RECOMPUTE_INTERVAL == 0 || n + 1 == minSamples)) {
+            cachedNanos = compute(Math.min(n + 1, samples.length()));
+        }
+    }
+
+    /**
+     * 直近のレイテンシのパーセンタイル
+     *
+     * @return パーセンタイル（ナノ秒）。サンプルが足りない場合は-1
+     */
+    public long percentileNanos() {
+        return cachedNanos;
+    }
+
+    private long compute(long filled) {
+        long[] sorted = new long[(int) filled];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)];
+    }
+}
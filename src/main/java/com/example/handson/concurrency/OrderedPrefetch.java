@@ -0,0 +1,89 @@
+package com.example.handson.concurrency;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * 順序を保った先読み
+ * 要素を順に読み込みながら、後続の要素の読み込みを先読み数まで仮想スレッドで並行に実行する
+ * 読み込み済みで未処理の結果は先読み数までしか保持しないため、要素数によらずメモリ使用量は一定
+ */
+public final class OrderedPrefetch {
+
+    private OrderedPrefetch() {
+    }
+
+    /**
+     * 各要素を読み込み、入力の順序で処理する
+     * 処理が例外で終わった場合は、先読み中の読み込みを中断して返る
+     *
+     * @param items 要素（呼び出し元のスレッドで順に取り出す）
+     * @param depth 同時に読み込む・保持する数の上限
+     * @param threadNamePrefix スレッド名の接頭辞
+     * @param loader 要素ごとの読み込み
+     * @param consumer 読み込んだ結果の処理（呼び出し元のスレッドで入力の順序に実行）
+     */
+    public static <T, R> void forEach(Iterator<T> items, int depth, String threadNamePrefix,
+                                      Function<? super T, ? extends R> loader,
+                                      Consumer<? super T, ? super R> consumer) throws IOException {
+        Deque<Prefetched<T, R>> pending = new ArrayDeque<>(depth);
+        ExecutorService executor = Executors.newFixedThreadPool(depth,
+                Thread.ofVirtual().name(threadNamePrefix, 0).factory());
+        try {
+            while (items.hasNext()) {
+                if (pending.size() == depth) {
+                    consumeFirst(pending, consumer);
+                }
+                T item = items.next();
+                pending.addLast(new Prefetched<>(item, executor.submit(() -> loader.apply(item))));
+            }
+            while (!pending.isEmpty()) {
+                consumeFirst(pending, consumer);
+            }
+        } finally {
+            pending.forEach(prefetched -> prefetched.result().cancel(true));
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T, R> void consumeFirst(Deque<Prefetched<T, R>> pending,
+                                            Consumer<? super T, ? super R> consumer) throws IOException {
+        Prefetched<T, R> first = pending.removeFirst();
+        R loaded;
+        try {
+            loaded = first.result().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("先読みの完了待ちが中断されました");
+        }
+        consumer.accept(first.item(), loaded);
+    }
+
+    /**
+     * 読み込んだ結果の処理（出力への書き込みを想定し、IOExceptionをスローできる）
+     */
+    @FunctionalInterface
+    public interface Consumer<T, R> {
+
+        void accept(T item, R loaded) throws IOException;
+    }
+
+    private record Prefetched<T, R>(T item, Future<? extends R> result) {
+    }
+}
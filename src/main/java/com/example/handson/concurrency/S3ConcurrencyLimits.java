@@ -0,0 +1,112 @@
+package com.example.handson.concurrency;
+
+import com.example.handson.config.S3Properties;
+import com.example.handson.exception.StorageOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * S3操作の同時実行数の制限
+ * 読み取り（画像配信）と書き込み（アップロード・削除）で別々のリミッターを使い、
+ * 一方が遅くなっても他方の実行枠を使い切らないようにする
+ * 上限に達した操作は待たせずにStorageOverloadedException（503）とし、
+ * S3の遅延でTomcatのリクエストスレッドが埋まって画面の描画まで遅くなるのを防ぐ
+ */
+@Component
+@Slf4j
+public class S3ConcurrencyLimits {
+
+    /**
+     * S3操作の種類
+     */
+    public enum Pool {
+        READ,
+        WRITE
+    }
+
+    private final Map<Pool, AdaptiveConcurrencyLimiter> limiters = new EnumMap<>(Pool.class);
+    private final Map<Pool, Counter> rejected = new EnumMap<>(Pool.class);
+
+    public S3ConcurrencyLimits(S3Properties s3Properties, MeterRegistry meterRegistry) {
+        limiters.put(Pool.READ, limiterOf(s3Properties.getReadConcurrency()));
+        limiters.put(Pool.WRITE, limiterOf(s3Properties.getWriteConcurrency()));
+
+        for (Pool pool : Pool.values()) {
+            AdaptiveConcurrencyLimiter limiter = limiters.get(pool);
+            String tag = pool.name().toLowerCase();
+            Gauge.builder("s3.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .description("S3操作の同時実行数の上限")
+                    .tag("pool", tag)
+                    .register(meterRegistry);
+            Gauge.builder("s3.concurrency.in.flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                    .description("実行中のS3操作の数")
+                    .tag("pool", tag)
+                    .register(meterRegistry);
+            rejected.put(pool, Counter.builder("s3.concurrency.rejected")
+                    .description("同時実行数の上限に達したため拒否したS3操作の数")
+                    .tag("pool", tag)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * S3操作の実行枠を取得
+     *
+     * @param pool S3操作の種類
+     * @return 実行枠（操作の完了後にcloseすること）
+     * @throws StorageOverloadedException 同時実行数の上限に達している場合
+     */
+    public AdaptiveConcurrencyLimiter.Permit acquire(Pool pool) {
+        AdaptiveConcurrencyLimiter limiter = limiters.get(pool);
+        return limiter.tryAcquire().orElseThrow(() -> {
+            rejected.get(pool).increment();
+            log.debug("S3操作の同時実行数が上限に達したため拒否しました: pool={}, limit={}", pool, limiter.getLimit());
+            return new StorageOverloadedException("ただいまアクセスが集中しています。しばらく時間をおいて再度お試しください。");
+        });
+    }
+
+    /**
+     * S3操作の実行枠を、上限に達していなければ取得する（補助的な操作用。拒否数には数えない）
+     *
+     * @param pool S3操作の種類
+     * @return 実行枠（上限に達している場合は空）
+     */
+    public Optional<AdaptiveConcurrencyLimiter.Permit> tryAcquire(Pool pool) {
+        return limiters.get(pool).tryAcquire();
+    }
+
+    /**
+     * 現在の同時実行数の上限
+     *
+     * @param pool S3操作の種類
+     * @return 上限
+     */
+    public int limitOf(Pool pool) {
+        return limiters.get(pool).getLimit();
+    }
+
+    /**
+     * 実行中のS3操作数
+     *
+     * @param pool S3操作の種類
+     * @return 実行中の操作数
+     */
+    public int inFlightOf(Pool pool) {
+        return limiters.get(pool).getInFlight();
+    }
+
+    private static AdaptiveConcurrencyLimiter limiterOf(S3Properties.Concurrency concurrency) {
+        return new AdaptiveConcurrencyLimiter(
+                concurrency.getInitialLimit(),
+                concurrency.getMinLimit(),
+                concurrency.getMaxLimit(),
+                concurrency.getLatencyThreshold().toNanos());
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.handson.concurrency;
+
+import com.example.handson.config.S3Properties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.metrics.SdkMetric;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * S3クライアントのHTTP接続プールのメトリクス
+ * AWS SDKがリクエストごとに報告する接続プールの状態（HttpMetric）を、最後に観測した値のゲージとして公開する
+ * S3へのリクエストがない間は値が更新されない（最後のリクエスト時点の状態のまま）
+ * 接続プールの状態を報告しないトランスポート（URL_CONNECTION）では値は0のまま
+ */
+@Component
+public class S3ConnectionPoolMetrics implements MetricPublisher {
+
+    private final AtomicInteger leased = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger available = new AtomicInteger();
+    private final AtomicInteger max = new AtomicInteger();
+    private final Timer acquireDuration;
+
+    public S3ConnectionPoolMetrics(S3Properties s3Properties, MeterRegistry meterRegistry) {
+        String transport = s3Properties.getHttpClient().getTransport().name().toLowerCase();
+        gauge(meterRegistry, "s3.http.pool.leased", "使用中の接続数", transport, leased);
+        gauge(meterRegistry, "s3.http.pool.pending", "接続の空きを待っているリクエスト数", transport, pending);
+        gauge(meterRegistry, "s3.http.pool.available", "アイドル状態の接続数", transport, available);
+        gauge(meterRegistry, "s3.http.pool.max", "接続数の上限", transport, max);
+        this.acquireDuration = Timer.builder("s3.http.pool.acquire")
+                .description("接続プールから接続を取得するまでの時間")
+                .tag("transport", transport)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void publish(MetricCollection metricCollection) {
+        // HttpMetricはAPI呼び出し → 試行 → HTTPクライアントの階層の下位に含まれる
+        update(metricCollection, HttpMetric.LEASED_CONCURRENCY, leased::set);
+        update(metricCollection, HttpMetric.PENDING_CONCURRENCY_ACQUIRES, pending::set);
+        update(metricCollection, HttpMetric.AVAILABLE_CONCURRENCY, available::set);
+        update(metricCollection, HttpMetric.MAX_CONCURRENCY, max::set);
+        update(metricCollection, HttpMetric.CONCURRENCY_ACQUIRE_DURATION, acquireDuration::record);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * 階層内の値を順に反映する（再試行した場合、ゲージは最後の試行の値になる）
+     */
+    private static <T> void update(MetricCollection collection, SdkMetric<T> metric, Consumer<T> consumer) {
+        collection.metricValues(metric).forEach(consumer);
+        collection.children().forEach(child -> update(child, metric, consumer));
+    }
+
+    private static void gauge(MeterRegistry meterRegistry, String name, String description, String transport,
+                              AtomicInteger value) {
+        Gauge.builder(name, value, AtomicInteger::get)
+                .description(description)
+                .tag("transport", transport)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.handson.config;
+
+import com.example.handson.concurrency.S3ConnectionPoolMetrics;
+import com.example.handson.crac.CheckpointRestoreRefresher;
+import com.example.handson.crac.RecyclableSdkHttpClient;
+import com.example.handson.crac.RestoreAwareCredentialsProvider;
+import io.awspring.cloud.autoconfigure.s3.S3ClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.ConfigurableEnvironment;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+
+/**
+ * CRaC（Coordinated Restore at Checkpoint）対応設定
+ * チェックポイント前に外部接続をすべて閉じ、リストア後に開き直す
+ * - Tomcatのコネクタ: Spring BootのWebサーバーLifecycleが停止・再開
+ * - Hikariの接続プール: Spring Bootが自動構成するLifecycleが接続を破棄・再接続
+ * - S3のHTTP接続プール: RecyclableSdkHttpClient
+ * - 環境変数由来の設定（S3Properties・AWS認証情報）: CheckpointRestoreRefresher
+ * 通常起動時もS3Clientはこれらを経由するが、動作は設定したトランスポートのHTTPクライアントと同じ
+ * S3Clientの認証情報はSpring Cloud AWSのプロバイダーではなくRestoreAwareCredentialsProviderに置き換える。
+ * 反映するspring.cloud.aws.credentials.*の範囲はRestoreAwareCredentialsProviderを参照（stsは反映しない）
+ */
+@Configuration
+public class CracConfig {
+
+    /**
+     * トランスポート・接続プール・タイムアウトはS3Propertiesから設定する（リストア後の作り直しでも再度読み込む）
+     */
+    @Bean
+    public RecyclableSdkHttpClient s3HttpClient(S3Properties s3Properties) {
+        return new RecyclableSdkHttpClient(() -> S3HttpClientFactory.create(s3Properties));
+    }
+
+    @Bean
+    public RestoreAwareCredentialsProvider s3CredentialsProvider(ConfigurableEnvironment environment) {
+        return new RestoreAwareCredentialsProvider(environment);
+    }
+
+    @Bean
+    public S3ClientCustomizer recyclableS3ClientCustomizer(RecyclableSdkHttpClient s3HttpClient,
+                                                           RestoreAwareCredentialsProvider s3CredentialsProvider,
+                                                           S3ConnectionPoolMetrics s3ConnectionPoolMetrics) {
+        return builder -> {
+            // Spring Cloud AWSが設定したoverrideConfiguration（User-Agent等）を残したままメトリクスの送信先を追加する
+            ClientOverrideConfiguration current = builder.overrideConfiguration();
+            builder.httpClient(s3HttpClient)
+                    .credentialsProvider(s3CredentialsProvider)
+                    .overrideConfiguration((current != null ? current.toBuilder() : ClientOverrideConfiguration.builder())
+                            .addMetricPublisher(s3ConnectionPoolMetrics)
+                            .build());
+        };
+    }
+
+    @Bean
+    public CheckpointRestoreRefresher checkpointRestoreRefresher(ConfigurableEnvironment environment,
+                                                                 S3Properties s3Properties,
+                                                                 RestoreAwareCredentialsProvider s3CredentialsProvider) {
+        return new CheckpointRestoreRefresher(environment, s3Properties, s3CredentialsProvider);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.handson.config;
+
+import jakarta.validation.constraints.Min;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * CRaC（Coordinated Restore at Checkpoint）関連のプロパティ設定
+ * application.ymlの"app.crac"プレフィックスに対応
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.crac")
+@Validated
+@Getter
+@Setter
+public class CracProperties {
+
+    /**
+     * 起動完了後にウォームアップを行い、チェックポイントを作成するか
+     * チェックポイント作成用のコンテナでのみtrueにする（-XX:CRaCCheckpointToと併用）
+     */
+    private boolean checkpointOnReady = false;
+
+    /**
+     * チェックポイント作成前のウォームアップ回数
+     */
+    @Min(value = 0, message = "ウォームアップ回数は0以上です")
+    private int warmupIterations = 500;
+}
@@ -0,0 +1,43 @@
+package com.example.handson.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.UpgradeProtocol;
+import org.apache.coyote.http2.Http2Protocol;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * HTTP/2設定
+ * server.http2.enabled=true の場合にSpring Bootが追加するHttp2Protocolを調整する
+ * （Spring AOTでビルド時に構成が固定されても実行時に切り替えられるよう、条件付きBeanにはしない）
+ * server.sslを設定した場合はTLS（ALPNによるh2）、未設定の場合は平文のh2c
+ * （Upgradeヘッダーおよびprior knowledge）で待ち受ける
+ * 一覧画面の画像リクエストがHTTP/1.1の同時接続数上限で待たされないよう、1コネクションで多重化する
+ */
+@Configuration
+@Slf4j
+public class Http2Config {
+
+    /**
+     * Spring Bootが追加したHttp2Protocolに同時ストリーム数とフロー制御ウィンドウを設定
+     * コネクタのカスタマイザはHttp2Protocolの追加後に呼び出される（HTTP/2無効時は何もしない）
+     */
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> http2ProtocolCustomizer(Http2Properties properties) {
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            for (UpgradeProtocol upgradeProtocol : connector.findUpgradeProtocols()) {
+                if (upgradeProtocol instanceof Http2Protocol http2) {
+                    http2.setMaxConcurrentStreams(properties.getMaxConcurrentStreams());
+                    http2.setMaxConcurrentStreamExecution(properties.getMaxConcurrentStreamExecution());
+                    http2.setInitialWindowSize(properties.getInitialWindowSize());
+                    log.info("HTTP/2を有効化しました: maxConcurrentStreams={}, maxConcurrentStreamExecution={}, initialWindowSize={}",
+                            properties.getMaxConcurrentStreams(),
+                            properties.getMaxConcurrentStreamExecution(),
+                            properties.getInitialWindowSize());
+                }
+            }
+        });
+    }
+}
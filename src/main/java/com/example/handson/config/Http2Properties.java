@@ -0,0 +1,43 @@
+package com.example.handson.config;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * HTTP/2関連のプロパティ設定
+ * application.ymlの"app.http2"プレフィックスに対応
+ * HTTP/2自体の有効化はSpring Bootのserver.http2.enabledで行う
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.http2")
+@Validated
+@Getter
+@Setter
+public class Http2Properties {
+
+    /**
+     * 1コネクションあたりの最大同時ストリーム数（クライアントに通知するSETTINGS_MAX_CONCURRENT_STREAMS）
+     */
+    @Min(value = 1, message = "最大同時ストリーム数は1以上です")
+    private long maxConcurrentStreams = 100;
+
+    /**
+     * 1コネクションあたり同時に処理（スレッドを割り当て）するストリーム数
+     * 超過分のストリームはキューで待機する
+     */
+    @Min(value = 1, message = "同時処理ストリーム数は1以上です")
+    private int maxConcurrentStreamExecution = 20;
+
+    /**
+     * ストリームのフロー制御ウィンドウ初期サイズ（バイト、SETTINGS_INITIAL_WINDOW_SIZE）
+     * 画像レスポンスが1往復で送り切れるよう、HTTP/2既定の64KBより大きくしている
+     */
+    @Min(value = 65535, message = "フロー制御ウィンドウは65535バイト以上です")
+    @Max(value = 2147483647, message = "フロー制御ウィンドウは2147483647バイト以下です")
+    private int initialWindowSize = 1048576; // 1MB
+}
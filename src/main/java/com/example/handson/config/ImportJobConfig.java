@@ -0,0 +1,28 @@
+package com.example.handson.config;
+
+import com.example.handson.service.ImageMemoImportService;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * ZIPからの一括インポートの定期処理設定
+ * 作成済み・インポート中のまま残ったインポート（ZIP未送信・サーバーの停止等）を起動時と一定間隔で中断扱いにする
+ */
+@Configuration
+public class ImportJobConfig implements SchedulingConfigurer {
+
+    private final S3Properties s3Properties;
+    private final ImageMemoImportService imageMemoImportService;
+
+    public ImportJobConfig(S3Properties s3Properties, ImageMemoImportService imageMemoImportService) {
+        this.s3Properties = s3Properties;
+        this.imageMemoImportService = imageMemoImportService;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(imageMemoImportService::failStaleJobs,
+                s3Properties.getZipImport().getStaleCheckInterval());
+    }
+}
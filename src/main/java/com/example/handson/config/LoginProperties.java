@@ -0,0 +1,69 @@
+package com.example.handson.config;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * ログイン・パスワードハッシュ関連のプロパティ設定
+ * application.ymlの"app.login"プレフィックスに対応
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.login")
+@Validated
+@Getter
+@Setter
+public class LoginProperties {
+
+    /**
+     * BCrypt計算専用スレッド数
+     * デフォルト: CPUコア数の半分（最低1）
+     * Tomcatのリクエストスレッドが全コアをBCryptで占有しないよう上限を設ける
+     */
+    @Min(value = 1, message = "ハッシュ計算スレッド数は1以上です")
+    private int hashingThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * BCrypt計算待ちキューの上限
+     * 超過したリクエストは即座に拒否する（ロードシェディング）
+     */
+    @Min(value = 0, message = "キュー上限は0以上です")
+    private int hashingQueueCapacity = 32;
+
+    /**
+     * BCrypt計算の待ち時間上限
+     */
+    @NotNull
+    private Duration hashingTimeout = Duration.ofSeconds(5);
+
+    /**
+     * 一時ロックまでの連続ログイン失敗回数
+     */
+    @Min(value = 1, message = "失敗回数の上限は1以上です")
+    private int maxFailedAttempts = 5;
+
+    /**
+     * ログイン失敗回数を数える時間窓
+     */
+    @NotNull
+    private Duration failureWindow = Duration.ofMinutes(5);
+
+    /**
+     * 失敗回数カウンタのストライプ数（メモリ使用量の上限）
+     */
+    @Min(value = 16, message = "ストライプ数は16以上です")
+    private int attemptStripes = 4096;
+
+    /**
+     * 1ストライプで失敗回数を保持するユーザー名の数（超過時はロック中でないものから古い順に破棄）
+     * ストライプ数との積が保持するユーザー名の上限になる
+     */
+    @Min(value = 1, message = "ストライプあたりのユーザー名の数は1以上です")
+    private int attemptsPerStripe = 16;
+}
@@ -0,0 +1,128 @@
+package com.example.handson.config;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * 画像メモ一覧ページ・JSON APIの一覧・コンタクトシート関連のプロパティ設定
+ * application.ymlの"app.memo-list"プレフィックスに対応
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.memo-list")
+@Validated
+@Getter
+@Setter
+public class MemoListProperties {
+
+    /**
+     * 一覧ページを描画しながら送信するか（head・ヘッダーを一覧の取得前に、カードを1件ずつ送信する）
+     * falseの場合は描画が終わってからまとめて送信する
+     */
+    private boolean streamingEnabled = true;
+
+    /**
+     * 描画済み一覧ページをキャッシュするか
+     */
+    private boolean cacheEnabled = true;
+
+    /**
+     * キャッシュする一覧ページの最大件数（超過時は最も長く参照されていないものから破棄）
+     * メモリ使用量はcacheMaxTotalBytesでも制限する
+     */
+    @Min(value = 1, message = "キャッシュ件数は1以上です")
+    private int cacheMaxEntries = 1000;
+
+    /**
+     * キャッシュする1ページあたりの最大サイズ（バイト）
+     */
+    @Min(value = 1024, message = "キャッシュするページサイズの上限は1KB以上です")
+    private int cacheMaxPageBytes = 262144; // 256KB
+
+    /**
+     * キャッシュする一覧ページの合計サイズの上限（バイト。超過時は最も長く参照されていないものから破棄）
+     */
+    @Min(value = 1024, message = "キャッシュの合計サイズの上限は1KB以上です")
+    private long cacheMaxTotalBytes = 33554432; // 32MB
+
+    /**
+     * JSON APIの一覧の1ページの件数（limitパラメーター未指定時）
+     */
+    @Min(value = 1, message = "JSON APIの一覧の件数は1以上です")
+    private int apiDefaultLimit = 20;
+
+    /**
+     * JSON APIの一覧の1ページの最大件数（limitパラメーターの上限）
+     */
+    @Min(value = 1, message = "JSON APIの一覧の最大件数は1以上です")
+    private int apiMaxLimit = 100;
+
+    /**
+     * コンタクトシート（一覧1ページ分のサムネイルを縦に並べた1枚の画像）
+     */
+    @Valid
+    @NotNull
+    private ContactSheet contactSheet = new ContactSheet();
+
+    /**
+     * コンタクトシートの設定
+     * 一覧の画像の読み込み前に表示するプレースホルダーのため、サムネイルは表示サイズより小さくてよい
+     */
+    @Getter
+    @Setter
+    public static class ContactSheet {
+
+        /**
+         * サムネイル1枚の幅（ピクセル）
+         */
+        @Min(value = 8, message = "コンタクトシートのサムネイルの幅は8以上です")
+        private int tileWidth = 160;
+
+        /**
+         * サムネイル1枚の高さ（ピクセル）
+         */
+        @Min(value = 8, message = "コンタクトシートのサムネイルの高さは8以上です")
+        private int tileHeight = 110;
+
+        /**
+         * JPEGの品質（0.0〜1.0）
+         */
+        @DecimalMin(value = "0.0", message = "コンタクトシートのJPEGの品質は0.0以上です")
+        @DecimalMax(value = "1.0", message = "コンタクトシートのJPEGの品質は1.0以下です")
+        private float quality = 0.6f;
+
+        /**
+         * 1枚に並べるサムネイルの最大数（一覧のページの件数がこれを超える場合はコンタクトシートを使わない）
+         */
+        @Min(value = 1, message = "コンタクトシートのサムネイルの最大数は1以上です")
+        @Max(value = 100, message = "コンタクトシートのサムネイルの最大数は100以下です")
+        private int maxTiles = 50;
+
+        /**
+         * サムネイルの作成（S3からの取得・縮小）の並列数
+         */
+        @Min(value = 1, message = "コンタクトシートの並列数は1以上です")
+        private int parallelism = 4;
+
+        /**
+         * キャッシュするコンタクトシートの最大件数（超過時は最も長く参照されていないものから破棄）
+         * メモリ使用量はcacheMaxTotalBytesでも制限する
+         */
+        @Min(value = 1, message = "コンタクトシートのキャッシュ件数は1以上です")
+        private int cacheMaxEntries = 500;
+
+        /**
+         * キャッシュするコンタクトシートの画像の合計サイズの上限（バイト。超過時は最も長く参照されていないものから破棄）
+         */
+        @Min(value = 1024, message = "コンタクトシートのキャッシュの合計サイズの上限は1KB以上です")
+        private long cacheMaxTotalBytes = 16777216; // 16MB
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.handson.config;
+
+import com.example.handson.domain.imagememo.ImageMemo;
+import com.example.handson.domain.imagememo.ImageMemoExportRow;
+import com.example.handson.domain.imagememo.ImageMemoImageRef;
+import com.example.handson.domain.imagememo.ImageMemoSearchHit;
+import com.example.handson.domain.imagememo.ImageMemoSummary;
+import com.example.handson.domain.importjob.ImportJob;
+import com.example.handson.domain.user.User;
+import com.example.handson.dto.BatchUploadResult;
+import com.example.handson.dto.ContactSheetMap;
+import com.example.handson.dto.ExportManifestEntry;
+import com.example.handson.dto.ImageMemoCreateDto;
+import com.example.handson.dto.ImportJobStatus;
+import com.example.handson.dto.MemoSearchCursor;
+import com.example.handson.dto.MemoSearchResult;
+import com.example.handson.dto.UserRegistrationDto;
+import com.example.handson.web.StreamingMemoPage;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+
+/**
+ * GraalVM native-image用のリフレクション・リソース・シリアライズ情報
+ * Spring AOTが自動検出できない、実行時に名前や式で参照される型とリソースを登録する
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+
+    /**
+     * Thymeleafのテンプレート式（SpEL）から参照される型
+     * エンティティはHibernateのフィールドアクセス・プロキシ生成でも使用される
+     * ExportManifestEntryはエクスポートのmanifest.jsonの書き出し・インポートでの読み取り（Jackson）で使用される
+     * ImportJobStatusはインポートの進捗のJSON（Jackson）で使用される
+     * ImageMemoSummary・ImageMemoImageRefはJPQLのコンストラクタ式（Hibernate）で生成される
+     * ContactSheetMapはコンタクトシートのサムネイルの位置のJSON（Jackson）で使用される
+     */
+    private static final List<Class<?>> TEMPLATE_AND_ENTITY_TYPES = List.of(
+            User.class,
+            ImageMemo.class,
+            UserRegistrationDto.class,
+            ImageMemoCreateDto.class,
+            ImageMemoSearchHit.class,
+            MemoSearchResult.class,
+            MemoSearchCursor.class,
+            BatchUploadResult.class,
+            ImageMemoExportRow.class,
+            ImageMemoSummary.class,
+            ImageMemoImageRef.class,
+            ExportManifestEntry.class,
+            ImportJob.class,
+            ImportJobStatus.class,
+            ContactSheetMap.class,
+            ContactSheetMap.Tile.class,
+            StreamingMemoPage.class,
+            PageImpl.class,
+            PageRequest.class
+    );
+
+    /**
+     * 共有セッションストア（app.session.store=jdbc）でJavaシリアライズされるセッション属性の型
+     */
+    private static final List<String> SESSION_ATTRIBUTE_TYPES = List.of(
+            "org.springframework.security.core.context.SecurityContextImpl",
+            "org.springframework.security.authentication.UsernamePasswordAuthenticationToken",
+            "org.springframework.security.authentication.AbstractAuthenticationToken",
+            "org.springframework.security.core.userdetails.User",
+            "org.springframework.security.core.userdetails.User$AuthorityComparator",
+            "org.springframework.security.core.authority.SimpleGrantedAuthority",
+            "org.springframework.security.web.authentication.WebAuthenticationDetails",
+            "org.springframework.security.web.csrf.DefaultCsrfToken",
+            "org.springframework.security.web.savedrequest.DefaultSavedRequest",
+            "org.springframework.security.web.savedrequest.SavedCookie",
+            "java.util.ArrayList",
+            "java.util.TreeSet",
+            "java.util.TreeMap",
+            "java.util.Collections$UnmodifiableCollection",
+            "java.util.Collections$UnmodifiableSet",
+            "java.util.Collections$UnmodifiableRandomAccessList",
+            "java.util.Collections$UnmodifiableList",
+            "java.util.Locale"
+    );
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (Class<?> type : TEMPLATE_AND_ENTITY_TYPES) {
+            hints.reflection().registerType(type,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS,
+                    MemberCategory.DECLARED_FIELDS);
+        }
+
+        for (String typeName : SESSION_ATTRIBUTE_TYPES) {
+            hints.serialization().registerType(TypeReference.of(typeName));
+        }
+
+        // Thymeleafテンプレートと静的リソース（ビルド時に生成した.gz/.brを含む）
+        hints.resources().registerPattern("templates/**");
+        hints.resources().registerPattern("static/**");
+
+        // AWS SDKがクラスパスから読み込むインターセプター定義とエンドポイント定義
+        hints.resources().registerPattern("software/amazon/awssdk/**/execution.interceptors");
+        hints.resources().registerPattern("software/amazon/awssdk/**/*.json");
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.handson.config;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * ユーザー単位のレート制限のプロパティ設定
+ * application.ymlの"app.rate-limit"プレフィックスに対応
+ * エンドポイントの種類ごとに、バケット容量（連続して受け付ける件数）と1件分が回復する間隔を指定する
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.rate-limit")
+@Validated
+@Getter
+@Setter
+public class RateLimitProperties {
+
+    /**
+     * レート制限を行うか
+     */
+    private boolean enabled = true;
+
+    /**
+     * エンドポイントの種類ごとのバケットのストライプ数（同時更新のロックの単位）
+     */
+    @Min(value = 16, message = "ストライプ数は16以上です")
+    private int stripes = 4096;
+
+    /**
+     * 1ストライプでバケットを保持するユーザー名の数（超過時は満杯に戻ったもの・満杯に最も近いものから破棄）
+     * ストライプ数との積が、エンドポイントの種類ごとに保持するユーザー名の上限（メモリ使用量の上限）になる
+     */
+    @Min(value = 1, message = "ストライプあたりのユーザー名の数は1以上です")
+    private int usernamesPerStripe = 16;
+
+    /**
+     * 画像メモの作成（S3へのアップロード）
+     * デフォルト: 10件まで連続で受け付け、以降は6秒に1件（毎分10件）
+     */
+    @Valid
+    @NotNull
+    private Limit upload = new Limit(10, Duration.ofSeconds(6));
+
+    /**
+     * 画像メモの一括作成（1リクエストで最大app.s3.batch-upload.max-files件）
+     * デフォルト: 2件まで連続で受け付け、以降は1分に1件
+     */
+    @Valid
+    @NotNull
+    private Limit batchUpload = new Limit(2, Duration.ofMinutes(1));
+
+    /**
+     * 画像の配信（S3からのダウンロード）
+     * デフォルト: 100件まで連続で受け付け、以降は50ミリ秒に1件（毎秒20件）
+     */
+    @Valid
+    @NotNull
+    private Limit image = new Limit(100, Duration.ofMillis(50));
+
+    /**
+     * 一覧ページのコンタクトシートと位置情報（シート1枚で最大app.memo-list.contact-sheet.max-tiles件の画像をS3からダウンロード）
+     * 1回の一覧表示でシートと位置情報の2件を使う
+     * デフォルト: 20件まで連続で受け付け、以降は3秒に1件（毎分10ページ分）
+     */
+    @Valid
+    @NotNull
+    private Limit contactSheet = new Limit(20, Duration.ofSeconds(3));
+
+    /**
+     * 全画像メモのZIPエクスポート（1リクエストで全画像をS3からダウンロード）
+     * デフォルト: 1件まで受け付け、以降は10分に1件
+     */
+    @Valid
+    @NotNull
+    private Limit export = new Limit(1, Duration.ofMinutes(10));
+
+    /**
+     * ZIPからの一括インポートの開始（1回で最大app.s3.zip-import.max-entries件）
+     * デフォルト: 1件まで受け付け、以降は10分に1件
+     */
+    @Valid
+    @NotNull
+    private Limit zipImport = new Limit(1, Duration.ofMinutes(10));
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+
+        /**
+         * バケット容量（連続して受け付ける最大件数）
+         */
+        @Min(value = 1, message = "バケット容量は1以上です")
+        private int capacity;
+
+        /**
+         * 1件分が回復する間隔
+         */
+        @NotNull
+        private Duration refillInterval;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.handson.config;
+
+import com.example.handson.datasource.ReadReplicaDataSourcePostProcessor;
+import com.example.handson.datasource.ReadReplicaPools;
+import com.example.handson.datasource.ReadYourWritesWindow;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * 読み取りレプリカ設定
+ * app.read-replica.endpointsを設定すると、@Transactional(readOnly = true)のクエリを
+ * レプリケーション遅延が許容範囲内のレプリカに送る（未設定時は従来どおりプライマリのみ）
+ */
+@Configuration
+public class ReadReplicaConfig implements SchedulingConfigurer {
+
+    private final ReadReplicaProperties readReplicaProperties;
+    private final ObjectProvider<ReadReplicaPools> readReplicaPools;
+
+    public ReadReplicaConfig(ReadReplicaProperties readReplicaProperties,
+                             ObjectProvider<ReadReplicaPools> readReplicaPools) {
+        this.readReplicaProperties = readReplicaProperties;
+        this.readReplicaPools = readReplicaPools;
+    }
+
+    @Bean
+    public ReadReplicaPools readReplicaPools(DataSourceProperties dataSourceProperties) {
+        return new ReadReplicaPools(readReplicaProperties, dataSourceProperties);
+    }
+
+    /**
+     * BeanPostProcessorは他のBeanより先に生成されるため、依存Beanは遅延取得する
+     */
+    @Bean
+    public static ReadReplicaDataSourcePostProcessor readReplicaDataSourcePostProcessor(
+            ObjectProvider<ReadReplicaPools> readReplicaPools,
+            ObjectProvider<ReadYourWritesWindow> readYourWritesWindow) {
+        return new ReadReplicaDataSourcePostProcessor(readReplicaPools, readYourWritesWindow);
+    }
+
+    /**
+     * レプリケーション遅延を定期的に確認する
+     */
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        if (readReplicaProperties.getEndpoints().isEmpty()) {
+            return;
+        }
+        taskRegistrar.addFixedDelayTask(
+                () -> readReplicaPools.getObject().refreshReplicaHealth(),
+                readReplicaProperties.getLagCheckInterval());
+    }
+}
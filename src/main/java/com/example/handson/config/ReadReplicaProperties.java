@@ -0,0 +1,80 @@
+package com.example.handson.config;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 読み取りレプリカ関連のプロパティ設定
+ * application.ymlの"app.read-replica"プレフィックスに対応
+ * endpointsが空の場合はすべてのクエリをプライマリ（spring.datasource）に送る
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.read-replica")
+@Validated
+@Getter
+@Setter
+public class ReadReplicaProperties {
+
+    /**
+     * レプリカの接続先（ユーザー名・パスワード省略時はspring.datasourceと同じ）
+     */
+    @Valid
+    private List<Endpoint> endpoints = new ArrayList<>();
+
+    /**
+     * 許容するレプリケーション遅延（超過したレプリカは一時的に使用しない）
+     */
+    @NotNull
+    private Duration maxLag = Duration.ofSeconds(1);
+
+    /**
+     * プライマリからWALもキープアライブも受信していない状態を許容する期間（超過したレプリカは切断とみなして使用しない）
+     * アイドル時もwal_receiver_timeoutの半分ごとにキープアライブを受信するため、wal_receiver_timeout（デフォルト60秒）以上にする
+     */
+    @NotNull
+    private Duration maxReceiverSilence = Duration.ofSeconds(60);
+
+    /**
+     * レプリケーション遅延の確認間隔
+     */
+    @NotNull
+    private Duration lagCheckInterval = Duration.ofSeconds(2);
+
+    /**
+     * 書き込み後にそのセッションの読み取りをプライマリに送る期間（read-your-writes）
+     */
+    @NotNull
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+
+    /**
+     * レプリカごとの最大接続数
+     */
+    @Min(value = 1, message = "レプリカの最大接続数は1以上です")
+    private int maximumPoolSize = 10;
+
+    @Getter
+    @Setter
+    public static class Endpoint {
+
+        /**
+         * JDBC URL
+         */
+        @NotBlank(message = "レプリカのJDBC URLは必須です")
+        private String url;
+
+        private String username;
+
+        private String password;
+    }
+}
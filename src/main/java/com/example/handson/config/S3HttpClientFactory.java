@@ -0,0 +1,69 @@
+package com.example.handson.config;
+
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtHttpClient;
+import software.amazon.awssdk.http.crt.TcpKeepAliveConfiguration;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+
+import java.time.Duration;
+
+/**
+ * S3Propertiesのトランスポート設定からS3クライアント用のHTTPクライアントを生成する
+ * CracConfig（アプリケーション）とトランスポートのベンチマークで同じ設定を使う
+ */
+public final class S3HttpClientFactory {
+
+    /**
+     * CRTのTCPキープアライブのプローブ間隔・応答待ち時間
+     * （ApacheHttpClient・URLConnectionはOSのデフォルト値を使い、設定できない）
+     */
+    private static final Duration CRT_KEEP_ALIVE_INTERVAL = Duration.ofSeconds(30);
+    private static final Duration CRT_KEEP_ALIVE_TIMEOUT = Duration.ofSeconds(10);
+
+    private S3HttpClientFactory() {
+    }
+
+    /**
+     * HTTPクライアントを生成
+     * 接続確立・ソケットのタイムアウトはS3Propertiesのconnect-timeout・read-timeoutを使う
+     *
+     * @param s3Properties S3関連のプロパティ
+     * @return 新しいHTTPクライアント（接続プールは呼び出し元でcloseする）
+     */
+    public static SdkHttpClient create(S3Properties s3Properties) {
+        S3Properties.HttpClient httpClient = s3Properties.getHttpClient();
+        return switch (httpClient.getTransport()) {
+            case APACHE -> ApacheHttpClient.builder()
+                    .connectionTimeout(s3Properties.getConnectTimeout())
+                    .socketTimeout(s3Properties.getReadTimeout())
+                    .maxConnections(httpClient.getMaxConnections())
+                    .connectionAcquisitionTimeout(httpClient.getConnectionAcquisitionTimeout())
+                    .tcpKeepAlive(httpClient.isTcpKeepAlive())
+                    .connectionTimeToLive(httpClient.getConnectionTimeToLive())
+                    .connectionMaxIdleTime(httpClient.getConnectionMaxIdleTime())
+                    .useIdleConnectionReaper(true)
+                    .build();
+            // 接続の再利用はJDKのキープアライブキャッシュ（システムプロパティhttp.maxConnections）に従う
+            case URL_CONNECTION -> UrlConnectionHttpClient.builder()
+                    .connectionTimeout(s3Properties.getConnectTimeout())
+                    .socketTimeout(s3Properties.getReadTimeout())
+                    .build();
+            // CRTにはソケットタイムアウト・接続の最大寿命の設定がない（最初のバイトまではfirst-byte-timeoutで打ち切る）
+            case CRT -> {
+                AwsCrtHttpClient.Builder builder = AwsCrtHttpClient.builder()
+                        .connectionTimeout(s3Properties.getConnectTimeout())
+                        .maxConcurrency(httpClient.getMaxConnections())
+                        .connectionAcquisitionTimeout(httpClient.getConnectionAcquisitionTimeout())
+                        .connectionMaxIdleTime(httpClient.getConnectionMaxIdleTime());
+                if (httpClient.isTcpKeepAlive()) {
+                    builder.tcpKeepAliveConfiguration(TcpKeepAliveConfiguration.builder()
+                            .keepAliveInterval(CRT_KEEP_ALIVE_INTERVAL)
+                            .keepAliveTimeout(CRT_KEEP_ALIVE_TIMEOUT)
+                            .build());
+                }
+                yield builder.build();
+            }
+        };
+    }
+}
@@ -1,12 +1,16 @@
 package com.example.handson.config;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.validation.annotation.Validated;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 
@@ -49,4 +53,308 @@ public class S3Properties {
      */
     @Min(value = 60, message = "キャッシュ時間は最小60秒です")
     private int cacheMaxAge = 3600;
+
+    /**
+     * S3からの読み取り（画像配信）の同時実行数
+     * 書き込みと合わせた上限の合計が、S3クライアントの接続数の上限（http-client.max-connections）を超えないようにする
+     */
+    @Valid
+    @NotNull
+    private Concurrency readConcurrency = new Concurrency(20, 2, 40, Duration.ofMillis(500));
+
+    /**
+     * S3への書き込み（アップロード・削除）の同時実行数
+     */
+    @Valid
+    @NotNull
+    private Concurrency writeConcurrency = new Concurrency(5, 1, 10, Duration.ofSeconds(5));
+
+    /**
+     * S3への接続確立の待ち時間上限（試行ごと）
+     */
+    @NotNull
+    private Duration connectTimeout = Duration.ofSeconds(1);
+
+    /**
+     * GETの最初のバイト（レスポンスヘッダー）までの待ち時間上限（試行ごと、超過時はSDKが再試行する）
+     */
+    @NotNull
+    private Duration firstByteTimeout = Duration.ofSeconds(2);
+
+    /**
+     * 受信・送信でデータが途切れてよい時間の上限（ソケットタイムアウト）
+     */
+    @NotNull
+    private Duration readTimeout = Duration.ofSeconds(10);
+
+    /**
+     * S3クライアントのHTTPトランスポート・接続プール
+     */
+    @Valid
+    @NotNull
+    private HttpClient httpClient = new HttpClient();
+
+    /**
+     * 画像配信のGETのヘッジ（応答が遅い場合に2つ目のGETを送り、先に応答した方を使う）
+     */
+    @Valid
+    @NotNull
+    private Hedge hedge = new Hedge();
+
+    /**
+     * 複数の画像ファイルの一括アップロード
+     */
+    @Valid
+    @NotNull
+    private BatchUpload batchUpload = new BatchUpload();
+
+    /**
+     * 全画像メモのZIPエクスポート
+     */
+    @Valid
+    @NotNull
+    private Export export = new Export();
+
+    /**
+     * ZIPからの一括インポート
+     */
+    @Valid
+    @NotNull
+    private ZipImport zipImport = new ZipImport();
+
+    /**
+     * 読み取り・書き込みの同時実行数の上限の合計が、接続数の上限以下か
+     * 超えると、実行枠を取得した操作がさらに接続の空き待ちになる（接続プールを持たないURL_CONNECTIONは対象外）
+     */
+    @AssertTrue(message = "read-concurrency・write-concurrencyのmax-limitの合計は、http-client.max-connections以下にしてください")
+    public boolean isConnectionPoolLargeEnough() {
+        if (httpClient.getTransport() == Transport.URL_CONNECTION
+                || readConcurrency == null || writeConcurrency == null) {
+            return true;
+        }
+        return readConcurrency.getMaxLimit() + writeConcurrency.getMaxLimit() <= httpClient.getMaxConnections();
+    }
+
+    /**
+     * S3操作の同時実行数の上限（観測したレイテンシで初期値から最小値〜最大値の範囲で調整する）
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Concurrency {
+
+        @Min(value = 1, message = "同時実行数の初期値は1以上です")
+        private int initialLimit;
+
+        @Min(value = 1, message = "同時実行数の最小値は1以上です")
+        private int minLimit;
+
+        @Min(value = 1, message = "同時実行数の最大値は1以上です")
+        private int maxLimit;
+
+        /**
+         * これを超えるレイテンシを観測したら上限を下げる
+         */
+        @NotNull
+        private Duration latencyThreshold;
+    }
+
+    @Getter
+    @Setter
+    public static class Hedge {
+
+        private boolean enabled = true;
+
+        /**
+         * 2つ目のGETを送るまでの待ち時間とする、最初のバイトまでのレイテンシのパーセンタイル
+         */
+        @DecimalMin(value = "0.5", message = "パーセンタイルは0.5以上です")
+        @DecimalMax(value = "0.999", message = "パーセンタイルは0.999以下です")
+        private double percentile = 0.95;
+
+        /**
+         * 待ち時間の下限（パーセンタイルがこれより短くても、これより早くは送らない）
+         */
+        @NotNull
+        private Duration minDelay = Duration.ofMillis(20);
+
+        /**
+         * 待ち時間の上限（レイテンシのサンプルが足りない間もこの値を使う）
+         */
+        @NotNull
+        private Duration maxDelay = Duration.ofSeconds(1);
+
+        /**
+         * リクエストに対するヘッジの割合の上限
+         */
+        @DecimalMin(value = "0.0", message = "ヘッジの割合は0以上です")
+        @DecimalMax(value = "0.5", message = "ヘッジの割合は0.5以下です")
+        private double budgetRatio = 0.05;
+
+        /**
+         * 連続して送れるヘッジの上限（予算を貯められる件数）
+         */
+        @Min(value = 1, message = "ヘッジの予算の上限は1以上です")
+        private int budgetBurst = 10;
+    }
+
+    @Getter
+    @Setter
+    public static class BatchUpload {
+
+        /**
+         * 1回の一括アップロードで受け付ける画像ファイル数の上限
+         */
+        @Min(value = 1, message = "一括アップロードのファイル数の上限は1以上です")
+        @Max(value = 500, message = "一括アップロードのファイル数の上限は500以下です")
+        private int maxFiles = 50;
+
+        /**
+         * 1回の一括アップロードで並列に実行するメタデータ除去・S3へのアップロードの数
+         * 書き込みの同時実行数（write-concurrency）の範囲で実行し、他のユーザーのアップロードの枠を使い切らないよう小さくする
+         */
+        @Min(value = 1, message = "一括アップロードの並列数は1以上です")
+        private int parallelism = 4;
+
+        /**
+         * 書き込みの同時実行数（write-concurrency）が上限に達している場合に、画像ごとに実行枠の空きを待つ最大時間
+         * 単一のアップロードと異なり即座に503とせず、S3が正常なのに一括の途中の画像だけが失敗しないよう再試行する
+         */
+        @NotNull
+        private Duration permitWait = Duration.ofSeconds(5);
+    }
+
+    @Getter
+    @Setter
+    public static class Export {
+
+        /**
+         * ZIPに書き込み中の画像の後続を先読みするS3のGETの数
+         * 先読みした画像はメモリに保持するため、1回のエクスポートのメモリ使用量はこの数×画像サイズの上限まで
+         */
+        @Min(value = 1, message = "エクスポートの先読み数は1以上です")
+        @Max(value = 16, message = "エクスポートの先読み数は16以下です")
+        private int prefetch = 4;
+
+        /**
+         * 画像メモの行を読む1回のクエリの件数（1ページごとに短いトランザクションで読み、ZIPの書き込み中は接続を保持しない）
+         */
+        @Min(value = 1, message = "エクスポートのページの件数は1以上です")
+        private int pageSize = 200;
+
+        /**
+         * アプリケーション全体で同時に実行するエクスポートの数（超過時は503）
+         * ユーザー単位のレート制限とは別に、複数のユーザーのエクスポートがS3の読み取りの枠を使い切らないようにする
+         */
+        @Min(value = 1, message = "エクスポートの同時実行数は1以上です")
+        private int maxConcurrent = 4;
+    }
+
+    /**
+     * ZIPからの一括インポートの上限（ZIP爆弾対策）
+     * サイズはZIPのヘッダーの値ではなく、実際に読み取った・展開したバイト数で判定する
+     */
+    @Getter
+    @Setter
+    public static class ZipImport {
+
+        /**
+         * 1つのZIPのエントリ数の上限（ディレクトリを含む）
+         */
+        @Min(value = 1, message = "インポートのエントリ数の上限は1以上です")
+        private int maxEntries = 1000;
+
+        /**
+         * 受け付けるZIP（圧縮後）のサイズの上限（バイト）
+         * デフォルト: 1GB
+         */
+        @Min(value = 1024, message = "インポートのZIPのサイズの上限は1KB（1024バイト）以上です")
+        private long maxArchiveSize = 1073741824L;
+
+        /**
+         * 展開後の合計サイズの上限（バイト、取り込まないエントリも含む）
+         * デフォルト: 2GB
+         */
+        @Min(value = 1024, message = "インポートの展開後の合計サイズの上限は1KB（1024バイト）以上です")
+        private long maxExpandedSize = 2147483648L;
+
+        /**
+         * 1回のトランザクションで保存する画像の数（S3への並列アップロードと画像メモのINSERTの単位）
+         */
+        @Min(value = 1, message = "インポートのバッチサイズは1以上です")
+        @Max(value = 500, message = "インポートのバッチサイズは500以下です")
+        private int batchSize = 50;
+
+        /**
+         * 1バッチのメタデータ除去後の合計サイズの上限（超えた時点でbatchSize未満でも保存する）
+         * 画像はメモリ上に保持するため、インポート1件のメモリ使用量は概ねこの値の2倍（読み取り中と保存中のバッチ）まで
+         * デフォルト: 64MB
+         */
+        @Min(value = 1, message = "インポートのバッチの合計サイズの上限は1バイト以上です")
+        private long maxBatchBytes = 67108864L;
+
+        /**
+         * 作成済み・インポート中のまま進捗が更新されない時間がこれを超えたインポートは中断扱い（FAILED）にする
+         * ZIPが送信されないままのインポートや、サーバーの停止でインポート中のまま残ったインポートが対象
+         * 進捗はバッチごとに更新するため、遅いクライアントが1バッチ分を送信する時間より長くする
+         */
+        @NotNull
+        private Duration staleTimeout = Duration.ofMinutes(30);
+
+        /**
+         * 中断扱いにするインポートの確認間隔（起動時にも確認する）
+         */
+        @NotNull
+        private Duration staleCheckInterval = Duration.ofMinutes(5);
+    }
+
+    /**
+     * S3クライアントのHTTPトランスポート
+     * APACHE: Apache HttpClient（同期・接続プールあり、デフォルト）
+     * URL_CONNECTION: JDKのHttpURLConnection（依存が最小。接続プールの設定・メトリクスなし）
+     * CRT: AWS Common Runtime（ネイティブライブラリ。ネイティブイメージでは使用不可）
+     */
+    public enum Transport {
+        APACHE,
+        URL_CONNECTION,
+        CRT
+    }
+
+    @Getter
+    @Setter
+    public static class HttpClient {
+
+        @NotNull
+        private Transport transport = Transport.APACHE;
+
+        /**
+         * 接続数の上限（S3クライアント全体、読み取り・書き込みの合計）
+         */
+        @Min(value = 1, message = "接続数の上限は1以上です")
+        private int maxConnections = 50;
+
+        /**
+         * 接続プールの空きを待つ時間の上限
+         */
+        @NotNull
+        private Duration connectionAcquisitionTimeout = Duration.ofSeconds(10);
+
+        /**
+         * TCPキープアライブ（アイドル中の接続がNAT・ロードバランサーに切断されたことを検知する）
+         */
+        private boolean tcpKeepAlive = true;
+
+        /**
+         * 接続の最大寿命（S3のIPアドレスの入れ替えに追従するため、長く使い続けた接続を作り直す。CRTは非対応）
+         */
+        @NotNull
+        private Duration connectionTimeToLive = Duration.ofMinutes(1);
+
+        /**
+         * アイドル状態の接続を閉じるまでの時間（バックグラウンドで定期的に回収する）
+         */
+        @NotNull
+        private Duration connectionMaxIdleTime = Duration.ofSeconds(60);
+    }
 }
@@ -1,13 +1,22 @@
 package com.example.handson.config;
 
+import com.example.handson.security.BoundedPasswordEncoder;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.core.session.SessionRegistry;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+
+import java.util.Arrays;
 
 /**
  * セキュリティ設定
@@ -17,16 +26,39 @@ import org.springframework.security.web.SecurityFilterChain;
 @RequiredArgsConstructor
 public class SecurityConfig {
 
+    private final LoginProperties loginProperties;
+
+    /**
+     * BCryptの計算は専用の有界スレッドプールで実行する
+     * ログイン集中時にTomcatのリクエストスレッドが全コアを占有するのを防ぐ
+     */
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BoundedPasswordEncoder(
+                new BCryptPasswordEncoder(),
+                loginProperties.getHashingThreads(),
+                loginProperties.getHashingQueueCapacity(),
+                loginProperties.getHashingTimeout());
+    }
+
+    /**
+     * 静的リソースはセキュリティフィルターチェーン自体を通さない
+     * 認証情報を参照しない公開リソースのため、セッション読み込み等のコストを省く
+     */
+    @Bean
+    public WebSecurityCustomizer staticResourcesCustomizer() {
+        return web -> web.ignoring().requestMatchers(
+                Arrays.stream(WebConfig.STATIC_DIRECTORIES).map(dir -> "/" + dir + "/**").toArray(String[]::new));
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(
+            HttpSecurity http,
+            ObjectProvider<SessionRegistry> sessionRegistry
+    ) throws Exception {
         http
                 .authorizeHttpRequests(authz -> authz
-                        .requestMatchers("/", "/register", "/css/**", "/js/**", "/images/**", "/actuator/health").permitAll()
+                        .requestMatchers("/", "/register", "/actuator/health").permitAll()
                         .anyRequest().authenticated()
                 )
                 .formLogin(form -> form
@@ -34,17 +66,25 @@ public class SecurityConfig {
                         .defaultSuccessUrl("/memos", true)
                         .permitAll()
                 )
+                .exceptionHandling(exceptions -> exceptions
+                        // JSON APIはログインページへリダイレクトせず401を返す
+                        .defaultAuthenticationEntryPointFor(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED),
+                                PathPatternRequestMatcher.withDefaults().matcher("/api/**"))
+                )
                 .logout(logout -> logout
                         .logoutSuccessUrl("/")
                         .invalidateHttpSession(true)  // セッション無効化
                         .deleteCookies("JSESSIONID")  // セッションクッキー削除
                         .permitAll()
                 )
-                .sessionManagement(session -> session
-                        .sessionFixation().changeSessionId()  // セッション固定攻撃対策（ログイン時にIDを変更）
-                        .maximumSessions(1)  // 同一ユーザーの同時セッション数を1に制限
-                        .maxSessionsPreventsLogin(false)  // 新しいログインを優先（古いセッションを無効化）
-                );
+                .sessionManagement(session -> {
+                    session.sessionFixation().changeSessionId();  // セッション固定攻撃対策（ログイン時にIDを変更）
+                    var concurrency = session
+                            .maximumSessions(1)  // 同一ユーザーの同時セッション数を1に制限
+                            .maxSessionsPreventsLogin(false);  // 新しいログインを優先（古いセッションを無効化）
+                    // 共有セッションストア使用時は、タスク間で同時セッション数を判定する
+                    sessionRegistry.ifAvailable(concurrency::sessionRegistry);
+                });
 
         return http.build();
     }
@@ -0,0 +1,73 @@
+package com.example.handson.config;
+
+import com.example.handson.session.JdbcNearCacheSessionRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.security.core.session.SessionRegistry;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+import org.springframework.session.security.SpringSessionBackedSessionRegistry;
+import org.springframework.session.web.http.CookieSerializer;
+import org.springframework.session.web.http.DefaultCookieSerializer;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * 共有セッションストア設定
+ * app.session.store=jdbc の場合のみ有効化し、セッションをPostgreSQLに保存する
+ * スティッキーセッションなしで複数タスクにスケールアウトでき、タスク再起動でもログアウトされない
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.session", name = "store", havingValue = "jdbc")
+@EnableSpringHttpSession
+public class SessionConfig implements SchedulingConfigurer {
+
+    private final SessionProperties sessionProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    public SessionConfig(SessionProperties sessionProperties, JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager) {
+        this.sessionProperties = sessionProperties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+    }
+
+    @Bean
+    public JdbcNearCacheSessionRepository sessionRepository() {
+        return new JdbcNearCacheSessionRepository(
+                jdbcTemplate,
+                transactionManager,
+                sessionProperties.getTimeout(),
+                sessionProperties.getNearCacheTtl(),
+                getClass().getClassLoader());
+    }
+
+    /**
+     * 同時セッション数制御をタスク間で共有するためのSessionRegistry
+     * SecurityConfigのmaximumSessions(1)がこのRegistryを使用する
+     */
+    @Bean
+    public SessionRegistry sessionRegistry(JdbcNearCacheSessionRepository sessionRepository) {
+        return new SpringSessionBackedSessionRegistry<>(sessionRepository);
+    }
+
+    /**
+     * ログアウト時のdeleteCookies("JSESSIONID")と整合させるため、Cookie名をJSESSIONIDに揃える
+     */
+    @Bean
+    public CookieSerializer cookieSerializer() {
+        DefaultCookieSerializer serializer = new DefaultCookieSerializer();
+        serializer.setCookieName("JSESSIONID");
+        return serializer;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        JdbcNearCacheSessionRepository repository = sessionRepository();
+        registrar.addFixedDelayTask(repository::flushPendingAccessTimes, sessionProperties.getFlushInterval());
+        registrar.addFixedDelayTask(repository::cleanupExpiredSessions, sessionProperties.getCleanupInterval());
+    }
+}
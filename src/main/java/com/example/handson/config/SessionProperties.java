@@ -0,0 +1,60 @@
+package com.example.handson.config;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * セッションストア関連のプロパティ設定
+ * application.ymlの"app.session"プレフィックスに対応
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.session")
+@Validated
+@Getter
+@Setter
+public class SessionProperties {
+
+    /**
+     * セッションの保存先
+     * container: Tomcatのインメモリセッション（単一タスク・ローカル開発用）
+     * jdbc: PostgreSQLに保存し、複数タスク間で共有する
+     */
+    @NotNull
+    private Store store = Store.CONTAINER;
+
+    /**
+     * 非アクティブ状態でセッションを失効させるまでの時間
+     */
+    @NotNull
+    private Duration timeout = Duration.ofMinutes(30);
+
+    /**
+     * ローカルニアキャッシュの有効期間
+     * 他タスクでの属性変更は最大この時間だけ遅れて反映される
+     */
+    @NotNull
+    private Duration nearCacheTtl = Duration.ofSeconds(2);
+
+    /**
+     * 最終アクセス時刻のみの更新をまとめてDBへ書き戻す間隔
+     */
+    @NotNull
+    private Duration flushInterval = Duration.ofSeconds(5);
+
+    /**
+     * 期限切れセッションを削除する間隔
+     */
+    @NotNull
+    private Duration cleanupInterval = Duration.ofMinutes(1);
+
+    public enum Store {
+        CONTAINER,
+        JDBC
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.handson.config;
+
+import com.example.handson.ratelimit.RateLimitInterceptor;
+import com.example.handson.ratelimit.UserRateLimiter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Web MVC設定
+ * 静的リソースの配信方法とインターセプターを定義
+ */
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    /**
+     * 静的リソースのディレクトリ（SecurityConfigでセキュリティフィルターの対象外にしている）
+     */
+    static final String[] STATIC_DIRECTORIES = {"css", "js", "images"};
+
+    /**
+     * コンテンツハッシュ付きのファイル名（ContentVersionStrategyが付けるMD5、例: style-{hash}.css）
+     */
+    private static final String VERSIONED_FILE = "{file:[^/]+-[0-9a-f]{32}\\.[^/]+}";
+
+    private final UserRateLimiter userRateLimiter;
+
+    /**
+     * 静的リソース（CSS/JS/画像）の配信設定
+     * - URLにコンテンツハッシュを付与（例: /css/style-{hash}.css）し、内容が変わればURLも変わる
+     * - そのためハッシュ付きのURLには1年間のimmutableキャッシュを指定できる
+     * - ハッシュなしのURL（/css/style.css）はデプロイで内容が変わるため、毎回再検証させる（Last-Modifiedで304）
+     * - ビルド時に生成した.br/.gzがあればAccept-Encodingに応じて配信（実行時の圧縮処理なし）
+     */
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        for (String directory : STATIC_DIRECTORIES) {
+            // より具体的なパターンのため、ハッシュ付きのファイル名は/**より優先される（サブディレクトリはハッシュなしと同じ扱い）
+            addResourceHandler(registry, "/" + directory + "/" + VERSIONED_FILE, directory,
+                    CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable());
+            addResourceHandler(registry, "/" + directory + "/**", directory, CacheControl.noCache().cachePublic());
+        }
+    }
+
+    private static void addResourceHandler(ResourceHandlerRegistry registry, String pathPattern, String directory,
+                                           CacheControl cacheControl) {
+        registry.addResourceHandler(pathPattern)
+                .addResourceLocations("classpath:/static/" + directory + "/")
+                .setCacheControl(cacheControl)
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+    }
+
+    /**
+     * {@code @RateLimited}を付与したハンドラーのユーザー単位のレート制限
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RateLimitInterceptor(userRateLimiter));
+    }
+
+    /**
+     * Thymeleafの@{...}で生成した静的リソースURLをハッシュ付きURLに書き換えるフィルター
+     */
+    @Bean
+    public ResourceUrlEncodingFilter resourceUrlEncodingFilter() {
+        return new ResourceUrlEncodingFilter();
+    }
+}
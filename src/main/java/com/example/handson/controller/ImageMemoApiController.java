@@ -0,0 +1,222 @@
+package com.example.handson.controller;
+
+import com.example.handson.config.MemoListProperties;
+import com.example.handson.domain.imagememo.ImageMemo;
+import com.example.handson.domain.imagememo.ImageMemoSummary;
+import com.example.handson.domain.user.User;
+import com.example.handson.dto.ImageMemoCreateDto;
+import com.example.handson.dto.MemoListCursor;
+import com.example.handson.dto.MemoListResult;
+import com.example.handson.ratelimit.RateLimited;
+import com.example.handson.ratelimit.RateLimitedEndpoint;
+import com.example.handson.service.ImageMemoService;
+import com.example.handson.service.UserService;
+import com.example.handson.web.BuildFingerprint;
+import com.example.handson.web.MemoField;
+import com.example.handson.web.MemoJsonWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 画像メモのJSON API（バージョン1）
+ * ImageMemoControllerと同じ操作（一覧・詳細・作成・削除・画像URL）をモバイルクライアント向けにJSONで提供する
+ *
+ * - 一覧はキーセット方式のページング（レスポンスのnextをcursorに指定して続きを取得）
+ * - fieldsパラメーターで必要な項目だけを返す（例: fields=id,title,imageUrl）
+ * - GETはユーザーの一覧バージョン番号をキーにしたETagで、変更がなければDBの画像メモを読まずに304を返す
+ * - 2KB以上のレスポンスはTomcatがgzipで圧縮する（server.compression）
+ *
+ * 認証はブラウザと同じセッション（未認証は401）。POST・DELETEにはCSRFトークン（GET /api/v1/csrf）が必要
+ */
+@RestController
+@RequestMapping("/api/v1")
+@RequiredArgsConstructor
+public class ImageMemoApiController {
+
+    private final ImageMemoService imageMemoService;
+    private final UserService userService;
+    private final MemoJsonWriter memoJsonWriter;
+    private final MemoListProperties memoListProperties;
+    private final BuildFingerprint buildFingerprint;
+
+    /**
+     * 画像メモ一覧（作成日時の降順）
+     */
+    @GetMapping("/memos")
+    public ResponseEntity<byte[]> listMemos(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields,
+            WebRequest webRequest,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        User user = userService.findByUsername(userDetails.getUsername());
+        MemoListCursor after = cursor != null ? MemoListCursor.decode(cursor) : null;
+        int pageSize = pageSize(limit);
+        Set<MemoField> selected = MemoField.parse(fields);
+
+        String etag = etag("memos", user, MemoField.bitmask(selected) + "-" + pageSize
+                + (after != null ? "-" + after.encode() : ""));
+        // クライアントには保存させつつ、取得のたびにETagで再検証させる（304にもETag・Cache-Controlを付ける）
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        MemoListResult result = imageMemoService.findSummaries(user.getId(), after, pageSize);
+        return json(memoJsonWriter.writeList(result, selected, request.getContextPath()));
+    }
+
+    /**
+     * 画像メモ詳細（他のユーザーの画像メモは404）
+     */
+    @GetMapping("/memos/{id}")
+    public ResponseEntity<byte[]> getMemo(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable Long id,
+            @RequestParam(required = false) String fields,
+            WebRequest webRequest,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        User user = userService.findByUsername(userDetails.getUsername());
+        Set<MemoField> selected = MemoField.parse(fields);
+
+        // 画像メモは作成・削除しかされないため、削除を反映する一覧バージョン番号をETagに含めれば十分
+        String etag = etag("memo-" + id, user, MemoField.bitmask(selected));
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        Optional<ImageMemoSummary> memo = imageMemoService.findSummary(id, user.getId());
+        if (memo.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return json(memoJsonWriter.writeMemo(memo.get(), selected, request.getContextPath()));
+    }
+
+    /**
+     * 画像メモ作成（multipart/form-dataのtitle・description・image、またはimageの代わりにcontentHash）
+     * 201とLocationヘッダー、作成した画像メモのJSONを返す
+     * IllegalArgumentException（画像ファイル未選択等）はApiExceptionHandlerが400のProblem Detailsにする
+     */
+    @PostMapping("/memos")
+    @RateLimited(RateLimitedEndpoint.UPLOAD)
+    public ResponseEntity<?> createMemo(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @Valid @ModelAttribute ImageMemoCreateDto dto,
+            BindingResult result,
+            HttpServletRequest request
+    ) throws IOException {
+        if (result.hasErrors()) {
+            ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, "入力内容に誤りがあります");
+            problem.setProperty("errors", result.getFieldErrors().stream()
+                    .map(error -> Map.of("field", error.getField(), "message", messageOf(error)))
+                    .toList());
+            return ResponseEntity.badRequest().body(problem);
+        }
+
+        User user = userService.findByUsername(userDetails.getUsername());
+        ImageMemo memo = imageMemoService.createImageMemo(dto, user);
+        byte[] body = memoJsonWriter.writeMemo(ImageMemoSummary.of(memo), MemoField.parse(null),
+                request.getContextPath());
+        return ResponseEntity.created(ServletUriComponentsBuilder.fromCurrentRequestUri()
+                        .path("/{id}")
+                        .buildAndExpand(memo.getId())
+                        .toUri())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * 画像メモ削除（204、他のユーザーの画像メモは404）
+     */
+    @DeleteMapping("/memos/{id}")
+    public ResponseEntity<Void> deleteMemo(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable Long id
+    ) {
+        User user = userService.findByUsername(userDetails.getUsername());
+        if (imageMemoService.findSummary(id, user.getId()).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        imageMemoService.deleteImageMemo(id, user.getId());
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * POST・DELETEに付けるCSRFトークン（headerNameのヘッダーにtokenを指定する）
+     */
+    @GetMapping("/csrf")
+    public ResponseEntity<Map<String, String>> csrf(CsrfToken csrfToken) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(Map.of("headerName", csrfToken.getHeaderName(), "token", csrfToken.getToken()));
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null) {
+            return memoListProperties.getApiDefaultLimit();
+        }
+        if (limit < 1 || limit > memoListProperties.getApiMaxLimit()) {
+            throw new IllegalArgumentException(
+                    String.format("limitは1〜%dで指定してください", memoListProperties.getApiMaxLimit()));
+        }
+        return limit;
+    }
+
+    /**
+     * ETag（ユーザーの一覧バージョン番号が変わる = 画像メモの作成・削除で変わる）
+     * ビルドの識別子を含め、デプロイでJSONの項目・形式が変わった後に旧ビルドの内容を304で返さないようにする
+     * Tomcatのレスポンス圧縮を妨げないよう弱いETagとする
+     * タスクの再起動やタスク間で同じ値になるよう、パラメーターはハッシュコードではなく値そのものから作る
+     */
+    private String etag(String resource, User user, String parameters) {
+        return "W/\"api-" + resource + "-" + buildFingerprint.value() + "-" + user.getId() + "-"
+                + user.getMemoListVersion() + "-" + parameters + "\"";
+    }
+
+    /**
+     * JSONのレスポンス（ETagはcheckNotModified()でレスポンスに設定済み）
+     */
+    private static ResponseEntity<byte[]> json(byte[] body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    private static String messageOf(FieldError error) {
+        return error.getDefaultMessage() != null ? error.getDefaultMessage() : "入力内容に誤りがあります";
+    }
+}
@@ -1,21 +1,37 @@
 package com.example.handson.controller;
 
+import com.example.handson.config.MemoListProperties;
 import com.example.handson.config.S3Properties;
 import com.example.handson.domain.imagememo.ImageMemo;
 import com.example.handson.domain.user.User;
+import com.example.handson.dto.BatchUploadResult;
+import com.example.handson.dto.ContactSheetMap;
 import com.example.handson.dto.ImageMemoCreateDto;
+import com.example.handson.dto.MemoSearchCursor;
+import com.example.handson.ratelimit.RateLimited;
+import com.example.handson.ratelimit.RateLimitedEndpoint;
+import com.example.handson.service.ContactSheet;
+import com.example.handson.service.ContactSheetService;
+import com.example.handson.service.ImageBlobService;
 import com.example.handson.service.ImageDownloadResult;
+import com.example.handson.service.ImageMemoBatchService;
+import com.example.handson.service.ImageMemoExportService;
 import com.example.handson.service.ImageMemoService;
 import com.example.handson.service.S3Service;
 import com.example.handson.service.UserService;
+import com.example.handson.web.BuildFingerprint;
+import com.example.handson.web.MemoListPageCache;
+import com.example.handson.web.StreamingMemoPage;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.InputStreamResource;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -26,9 +42,17 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.Flushable;
 import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 画像メモコントローラー
@@ -40,29 +64,139 @@ import java.io.IOException;
 public class ImageMemoController {
 
     private final ImageMemoService imageMemoService;
+    private final ImageMemoBatchService imageMemoBatchService;
+    private final ImageMemoExportService imageMemoExportService;
+    private final ImageBlobService imageBlobService;
     private final UserService userService;
     private final S3Service s3Service;
     private final S3Properties s3Properties;
+    private final MemoListPageCache memoListPageCache;
+    private final MemoListProperties memoListProperties;
+    private final ContactSheetService contactSheetService;
+    private final BuildFingerprint buildFingerprint;
 
+    /**
+     * 画像メモ一覧
+     * 一覧は作成・削除時にしか変わらないため、ユーザーの一覧バージョン番号をキーに
+     * ETag（304応答）と描画済みページのキャッシュで一覧クエリ・件数クエリ・テンプレート描画を省略する
+     * 未キャッシュ時は描画しながら送信する（StreamingMemoPage）
+     */
     @GetMapping
-    public String listMemos(
+    public ModelAndView listMemos(
             @AuthenticationPrincipal UserDetails userDetails,
             @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable,
-            Model model
+            Model model,
+            WebRequest webRequest,
+            HttpServletRequest request,
+            HttpServletResponse response
     ) {
         User user = userService.findByUsername(userDetails.getUsername());
-        Page<ImageMemo> memos = imageMemoService.findByUserId(user.getId(), pageable);
-        model.addAttribute("memos", memos);
-        return "memos/list";
+        // コンタクトシートは1枚に並べられる件数を超えるページでは使わない（各カードの画像だけを表示する）
+        model.addAttribute("contactSheetMaxTiles", memoListProperties.getContactSheet().getMaxTiles());
+
+        // フラッシュメッセージ付きの表示は一度きりのためキャッシュしない
+        if (model.containsAttribute("successMessage") || model.containsAttribute("errorMessage")) {
+            model.addAttribute("memos", memoPage(user, pageable,
+                    memoListProperties.isStreamingEnabled() ? response::flushBuffer : StreamingMemoPage.NO_FLUSH));
+            return new ModelAndView("memos/list");
+        }
+
+        MemoListPageCache.Key key = memoListPageCache.keyFor(user, request.getSession().getId(), pageable);
+        // ブラウザには保存させつつ、表示のたびにETagで再検証させる
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        if (webRequest.checkNotModified(key.etag())) {
+            return null;
+        }
+
+        return new ModelAndView(memoListPageCache.view("memos/list", key,
+                flusher -> Map.of("memos", memoPage(user, pageable, flusher))));
+    }
+
+    /**
+     * 描画時に取得する一覧ページ（一覧・件数のクエリはテンプレートが参照した時点で実行される）
+     */
+    private StreamingMemoPage memoPage(User user, Pageable pageable, Flushable flusher) {
+        return new StreamingMemoPage(pageable.getPageNumber(), pageable.getPageSize(),
+                () -> imageMemoService.findSummaryPage(user.getId(), pageable),
+                () -> imageMemoService.countByUserId(user.getId()),
+                flusher);
+    }
+
+    /**
+     * 一覧の指定ページのコンタクトシート（サムネイルを縦に並べた1枚のJPEG）
+     * 一覧ページが画像の読み込み前のプレースホルダーとして表示する
+     * 一覧と同じく、ユーザーの一覧バージョン番号によるETagで変わっていなければ304を返す
+     * （304の場合もユーザーの取得は行う。画像メモの取得・S3からの取得・画像の作成は行わない）
+     */
+    @GetMapping("/contact-sheet")
+    @RateLimited(RateLimitedEndpoint.CONTACT_SHEET)
+    public ResponseEntity<byte[]> getContactSheet(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable,
+            WebRequest webRequest,
+            HttpServletResponse response
+    ) {
+        User user = userService.findByUsername(userDetails.getUsername());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        if (webRequest.checkNotModified(contactSheetEtag("contact-sheet", user, pageable))) {
+            return null;
+        }
+
+        ContactSheet sheet = contactSheetService.getContactSheet(user.getId(), pageable);
+        if (!sheet.complete()) {
+            // 空きの枠を含むため、ブラウザに保存させず次回は作り直させる
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_JPEG)
+                .body(sheet.image());
+    }
+
+    /**
+     * コンタクトシートの各サムネイルの位置（JSON）
+     */
+    @GetMapping("/contact-sheet/map")
+    @RateLimited(RateLimitedEndpoint.CONTACT_SHEET)
+    public ResponseEntity<ContactSheetMap> getContactSheetMap(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable,
+            WebRequest webRequest,
+            HttpServletResponse response
+    ) {
+        User user = userService.findByUsername(userDetails.getUsername());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        if (webRequest.checkNotModified(contactSheetEtag("contact-sheet-map", user, pageable))) {
+            return null;
+        }
+
+        String imageUrl = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/memos/contact-sheet")
+                .queryParam("page", pageable.getPageNumber())
+                .queryParam("size", pageable.getPageSize())
+                .build()
+                .toUriString();
+        return ResponseEntity.ok(contactSheetService.getMap(user.getId(), pageable, imageUrl));
+    }
+
+    /**
+     * 一覧のページの内容は一覧バージョン番号・ページ番号・件数で決まる（画像は変更されない）
+     * 枠のサイズ・画質やタイル位置の計算はビルド・設定で変わるため、ビルドの識別子と枠のサイズ・画質も含める
+     */
+    private String contactSheetEtag(String resource, User user, Pageable pageable) {
+        MemoListProperties.ContactSheet settings = memoListProperties.getContactSheet();
+        return "\"" + resource + "-" + buildFingerprint.value() + "-" + user.getId() + "-"
+                + user.getMemoListVersion() + "-" + pageable.getPageNumber() + "-" + pageable.getPageSize() + "-"
+                + settings.getTileWidth() + "x" + settings.getTileHeight() + "-" + settings.getQuality() + "\"";
     }
 
     @GetMapping("/new")
     public String showCreateForm(Model model) {
-        model.addAttribute("memo", new ImageMemoCreateDto("", "", null));
+        model.addAttribute("memo", new ImageMemoCreateDto("", "", null, null));
         return "memos/create";
     }
 
     @PostMapping
+    @RateLimited(RateLimitedEndpoint.UPLOAD)
     public String createMemo(
             @AuthenticationPrincipal UserDetails userDetails,
             @Valid @ModelAttribute("memo") ImageMemoCreateDto dto,
@@ -81,6 +215,104 @@ public class ImageMemoController {
         // 注: IllegalArgumentException、IOExceptionはGlobalExceptionHandlerがキャッチ
     }
 
+    @GetMapping("/batch")
+    public String showBatchForm(Model model) {
+        model.addAttribute("maxFiles", s3Properties.getBatchUpload().getMaxFiles());
+        return "memos/batch";
+    }
+
+    /**
+     * 画像メモの一括作成
+     * タイトルはファイル名から付け、ファイルごとの結果（作成した画像メモ・失敗した理由）を表示する
+     */
+    @PostMapping("/batch")
+    @RateLimited(RateLimitedEndpoint.BATCH_UPLOAD)
+    public String createMemos(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestParam(name = "images", required = false) List<MultipartFile> images,
+            @RequestParam(required = false) String description,
+            Model model
+    ) {
+        User user = userService.findByUsername(userDetails.getUsername());
+        List<BatchUploadResult> results = imageMemoBatchService.createImageMemos(images, description, user);
+
+        model.addAttribute("maxFiles", s3Properties.getBatchUpload().getMaxFiles());
+        model.addAttribute("results", results);
+        model.addAttribute("succeededCount", results.stream().filter(BatchUploadResult::isSuccess).count());
+        return "memos/batch";
+
+        // 注: IllegalArgumentException（ファイル未選択・件数超過）はGlobalExceptionHandlerがキャッチ
+    }
+
+    /**
+     * 全画像メモのZIPエクスポート
+     * 全画像とメタデータ（manifest.json）のZIPをレスポンスに直接書き込む（サーバーにZIPを作らない）
+     * 非同期処理のタイムアウトで打ち切られないよう、リクエストスレッドで書き込む
+     */
+    @GetMapping("/export")
+    @RateLimited(RateLimitedEndpoint.EXPORT)
+    public void exportMemos(
+            @AuthenticationPrincipal UserDetails userDetails,
+            HttpServletResponse response
+    ) throws IOException {
+        User user = userService.findByUsername(userDetails.getUsername());
+
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("image-memos-" + LocalDate.now() + ".zip")
+                .build()
+                .toString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        try {
+            imageMemoExportService.export(user, response.getOutputStream());
+        } catch (RuntimeException e) {
+            // 送信前の失敗（同時実行数の上限による503など）は、エラーページがZIPとして保存されないようヘッダーを戻す
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            throw e;
+        }
+
+        // 注: 書き込み開始後の失敗はZIPが不完全になる（レスポンスのステータスは変更できない）
+    }
+
+    /**
+     * アップロード前の重複確認
+     * ブラウザで計算した画像のSHA-256が自分の画像メモで保存済みなら204、それ以外は404を返す
+     * 204の場合、画像ファイルを送らずに内容ハッシュだけで画像メモを作成できる
+     */
+    @GetMapping("/blobs/{contentHash}")
+    public ResponseEntity<Void> checkBlob(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable String contentHash
+    ) {
+        User user = userService.findByUsername(userDetails.getUsername());
+        if (!imageBlobService.isReusable(contentHash, user.getId())) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * 画像メモをタイトル・説明から全文検索
+     * 続きのページは前ページ最後の関連度とIDを指定して取得する（キーセット方式）
+     */
+    @GetMapping("/search")
+    public String searchMemos(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestParam(name = "q", required = false) String keywords,
+            @RequestParam(required = false) Float afterRank,
+            @RequestParam(required = false) Long afterId,
+            Model model
+    ) {
+        User user = userService.findByUsername(userDetails.getUsername());
+        MemoSearchCursor after = afterRank != null && afterId != null ? new MemoSearchCursor(afterRank, afterId) : null;
+
+        model.addAttribute("q", keywords);
+        model.addAttribute("result", imageMemoService.search(user.getId(), keywords, after));
+        return "memos/search";
+    }
+
     @GetMapping("/{id}")
     public String showMemo(
             @AuthenticationPrincipal UserDetails userDetails,
@@ -142,6 +374,7 @@ public class ImageMemoController {
      * @return 画像データ（ストリーミング配信）
      */
     @GetMapping("/{id}/image")
+    @RateLimited(RateLimitedEndpoint.IMAGE)
     public ResponseEntity<InputStreamResource> getImage(
             @AuthenticationPrincipal UserDetails userDetails,
             @PathVariable Long id
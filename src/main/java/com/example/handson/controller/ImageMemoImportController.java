@@ -0,0 +1,93 @@
+package com.example.handson.controller;
+
+import com.example.handson.config.S3Properties;
+import com.example.handson.domain.user.User;
+import com.example.handson.dto.ImportJobStatus;
+import com.example.handson.ratelimit.RateLimited;
+import com.example.handson.ratelimit.RateLimitedEndpoint;
+import com.example.handson.service.ImageMemoImportService;
+import com.example.handson.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * ZIPからの一括インポートのコントローラー
+ * 画面（GET /memos/import）のJavaScriptが、インポートの作成 → ZIPの送信と並行して進捗の取得を行う
+ */
+@Controller
+@RequestMapping("/memos/import")
+@RequiredArgsConstructor
+public class ImageMemoImportController {
+
+    private final ImageMemoImportService imageMemoImportService;
+    private final UserService userService;
+    private final S3Properties s3Properties;
+
+    @GetMapping
+    public String showImportForm(Model model) {
+        model.addAttribute("maxEntries", s3Properties.getZipImport().getMaxEntries());
+        model.addAttribute("maxArchiveSize", s3Properties.getZipImport().getMaxArchiveSize());
+        return "memos/import";
+    }
+
+    /**
+     * インポートを作成（ZIPは続けて /memos/import/jobs/{id}/archive に送る）
+     */
+    @PostMapping("/jobs")
+    @RateLimited(RateLimitedEndpoint.ZIP_IMPORT)
+    public ResponseEntity<ImportJobStatus> createJob(@AuthenticationPrincipal UserDetails userDetails) {
+        User user = userService.findByUsername(userDetails.getUsername());
+        ImportJobStatus status = imageMemoImportService.createJob(user);
+        return ResponseEntity.created(ServletUriComponentsBuilder.fromCurrentRequestUri()
+                        .path("/{id}")
+                        .buildAndExpand(status.id())
+                        .toUri())
+                .body(status);
+    }
+
+    /**
+     * ZIPを受け取りインポートする（本文はZIPそのもの。マルチパートにせず、ディスクに書き出さずに読む）
+     * インポートが終わるまで応答しないため、進捗は別のリクエストで取得する
+     * 作成済みでZIP未送信のインポートでない場合は409
+     */
+    @PostMapping("/jobs/{id}/archive")
+    public ResponseEntity<ImportJobStatus> importArchive(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable Long id,
+            HttpServletRequest request
+    ) throws IOException {
+        User user = userService.findByUsername(userDetails.getUsername());
+        if (imageMemoImportService.findJob(id, user.getId()).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Optional<ImportJobStatus> status = imageMemoImportService.importArchive(id, user, request.getInputStream());
+        return status.map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).build());
+    }
+
+    /**
+     * インポートの進捗を取得（他のユーザーのインポートは404）
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ImportJobStatus> getJob(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable Long id
+    ) {
+        User user = userService.findByUsername(userDetails.getUsername());
+        return ResponseEntity.of(imageMemoImportService.findJob(id, user.getId()));
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.handson.crac;
+
+import com.example.handson.config.S3Properties;
+import lombok.extern.slf4j.Slf4j;
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.env.SystemEnvironmentPropertySource;
+
+import java.util.HashMap;
+
+/**
+ * CRaCリストア時に環境変数由来の設定を読み直す
+ * チェックポイントを作成した環境ではなく、リストア先タスクの環境変数
+ * （バケット名・認証情報など）を使用させる
+ * 接続プールの破棄・再接続はSpringのLifecycle（Tomcat・Hikari・RecyclableSdkHttpClient）が行う
+ */
+@Slf4j
+public class CheckpointRestoreRefresher implements Resource, InitializingBean {
+
+    private static final String S3_PROPERTIES_PREFIX = "app.s3";
+
+    private final ConfigurableEnvironment environment;
+    private final S3Properties s3Properties;
+    private final RestoreAwareCredentialsProvider credentialsProvider;
+
+    public CheckpointRestoreRefresher(ConfigurableEnvironment environment,
+                                      S3Properties s3Properties,
+                                      RestoreAwareCredentialsProvider credentialsProvider) {
+        this.environment = environment;
+        this.s3Properties = s3Properties;
+        this.credentialsProvider = credentialsProvider;
+    }
+
+    /**
+     * CRaCのグローバルコンテキストに登録（弱参照で保持されるため、Beanとして参照を維持する）
+     */
+    @Override
+    public void afterPropertiesSet() {
+        Core.getGlobalContext().register(this);
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+        log.info("チェックポイントを作成します: bucket={}", s3Properties.getBucketName());
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        environment.getPropertySources().replace(
+                StandardEnvironment.SYSTEM_ENVIRONMENT_PROPERTY_SOURCE_NAME,
+                new SystemEnvironmentPropertySource(
+                        StandardEnvironment.SYSTEM_ENVIRONMENT_PROPERTY_SOURCE_NAME,
+                        new HashMap<>(System.getenv())));
+
+        Binder.get(environment).bind(S3_PROPERTIES_PREFIX, Bindable.ofInstance(s3Properties));
+        credentialsProvider.reload();
+        log.info("リストア後に環境変数から設定を再読み込みしました: bucket={}", s3Properties.getBucketName());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.handson.crac;
+
+import com.example.handson.config.CracProperties;
+import com.example.handson.domain.user.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.crac.CheckpointException;
+import org.crac.Core;
+import org.crac.RestoreException;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.util.List;
+
+/**
+ * CRaCチェックポイント作成前のウォームアップ
+ * app.crac.checkpoint-on-ready=true の場合、起動完了後に主要な画面・DBアクセスを繰り返し実行して
+ * JITコンパイルを進めてからチェックポイントを作成する
+ * リストアしたタスクはコンパイル済みの状態から処理を開始できる
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CheckpointWarmupRunner implements ApplicationRunner {
+
+    /**
+     * 認証なしで取得できる、テンプレート描画・セキュリティフィルター・静的リソース配信を通るパス
+     */
+    private static final List<String> WARMUP_PATHS = List.of(
+            "/", "/login", "/register", "/memos", "/css/style.css", "/actuator/health");
+
+    private final CracProperties cracProperties;
+    private final UserRepository userRepository;
+    private final Environment environment;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!cracProperties.isCheckpointOnReady()) {
+            return;
+        }
+
+        warmUp();
+
+        try {
+            log.info("チェックポイントを作成します");
+            Core.checkpointRestore();
+            log.info("チェックポイントからリストアしました");
+        } catch (CheckpointException | RestoreException | UnsupportedOperationException e) {
+            log.error("チェックポイントの作成に失敗しました（CRaC対応JDKと-XX:CRaCCheckpointToの指定を確認してください）", e);
+        }
+    }
+
+    private void warmUp() {
+        int port = environment.getRequiredProperty("local.server.port", Integer.class);
+        RestClient client = RestClient.create("http://localhost:" + port);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < cracProperties.getWarmupIterations(); i++) {
+            for (String path : WARMUP_PATHS) {
+                client.get().uri(path).exchange((request, response) -> response.getStatusCode());
+            }
+            userRepository.findByUsername("warmup-" + i);
+        }
+
+        log.info("ウォームアップが完了しました: iterations={}, elapsed={}ms",
+                cracProperties.getWarmupIterations(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.handson.crac;
+
+import com.example.handson.exception.StorageOverloadedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import software.amazon.awssdk.http.ExecutableHttpRequest;
+import software.amazon.awssdk.http.HttpExecuteRequest;
+import software.amazon.awssdk.http.SdkHttpClient;
+
+import java.util.function.Supplier;
+
+/**
+ * 接続プールを破棄・再生成できるS3用HTTPクライアント
+ * CRaCのチェックポイント前（Lifecycleのstop）に接続プールごと閉じ、
+ * リストア後の最初のリクエストで新しい接続プールを生成する
+ * S3Clientは同じインスタンスのまま使い続けられる
+ *
+ * 停止はWebサーバーの停止（処理中のリクエストの完了待ちを含む）の後に行い、
+ * 停止中のリクエストは接続プールを作り直さずにStorageOverloadedException（503）で拒否する
+ * （チェックポイント時に開いたソケットが残る、終了後に接続プールが残るのを防ぐ）
+ */
+@Slf4j
+public class RecyclableSdkHttpClient implements SdkHttpClient, SmartLifecycle {
+
+    private final Supplier<SdkHttpClient> factory;
+    private final Object lock = new Object();
+    private volatile SdkHttpClient delegate;
+    private volatile boolean running = true;
+
+    public RecyclableSdkHttpClient(Supplier<SdkHttpClient> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public ExecutableHttpRequest prepareRequest(HttpExecuteRequest request) {
+        return current().prepareRequest(request);
+    }
+
+    @Override
+    public String clientName() {
+        return current().clientName();
+    }
+
+    private SdkHttpClient current() {
+        SdkHttpClient client = delegate;
+        if (client == null) {
+            synchronized (lock) {
+                client = delegate;
+                if (client == null) {
+                    if (!running) {
+                        throw new StorageOverloadedException("ただいまS3に接続できません。しばらく時間をおいて再度お試しください。");
+                    }
+                    client = factory.get();
+                    delegate = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * 接続プールは次のリクエスト時に生成する
+     */
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    /**
+     * 接続プールを閉じる（チェックポイント前・アプリケーション終了時）
+     */
+    @Override
+    public void stop() {
+        synchronized (lock) {
+            running = false;
+            if (delegate != null) {
+                delegate.close();
+                delegate = null;
+                log.info("S3のHTTP接続プールを閉じました");
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Webサーバー（WebServerStartStopLifecycle）より後に停止し、先に開始する
+     */
+    @Override
+    public int getPhase() {
+        return WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 2048;
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+}
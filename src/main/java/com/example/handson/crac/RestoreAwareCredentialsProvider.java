@@ -0,0 +1,92 @@
+package com.example.handson.crac;
+
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.InstanceProfileCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.profiles.ProfileFile;
+import software.amazon.awssdk.utils.SdkAutoCloseable;
+
+import java.nio.file.Paths;
+
+/**
+ * リストア時に作り直せるAWS認証情報プロバイダー
+ * Spring Cloud AWSの自動構成と同じ優先順でspring.cloud.aws.credentials.*を読む
+ * - access-key/secret-key: その値
+ * - instance-profile: EC2のインスタンスプロファイル
+ * - profile.name/profile.path: 共有認証情報ファイルのプロファイル
+ * - いずれもなければDefaultCredentialsProvider（環境変数・Webアイデンティティ・ECSタスクロール・
+ *   AWS_PROFILEなど）
+ * spring.cloud.aws.credentials.sts（Webアイデンティティの明示設定）は反映しない。
+ * 環境変数AWS_ROLE_ARN・AWS_WEB_IDENTITY_TOKEN_FILEによるWebアイデンティティはDefaultCredentialsProviderが扱う
+ * チェックポイント時点のタスクの認証情報を、リストア先のタスクで使い続けないようにする
+ */
+public class RestoreAwareCredentialsProvider implements AwsCredentialsProvider, AutoCloseable {
+
+    private static final String ACCESS_KEY_PROPERTY = "spring.cloud.aws.credentials.access-key";
+    private static final String SECRET_KEY_PROPERTY = "spring.cloud.aws.credentials.secret-key";
+    private static final String INSTANCE_PROFILE_PROPERTY = "spring.cloud.aws.credentials.instance-profile";
+    private static final String PROFILE_NAME_PROPERTY = "spring.cloud.aws.credentials.profile.name";
+    private static final String PROFILE_PATH_PROPERTY = "spring.cloud.aws.credentials.profile.path";
+
+    private final Environment environment;
+    private volatile AwsCredentialsProvider delegate;
+
+    public RestoreAwareCredentialsProvider(Environment environment) {
+        this.environment = environment;
+        this.delegate = createDelegate();
+    }
+
+    @Override
+    public AwsCredentials resolveCredentials() {
+        return delegate.resolveCredentials();
+    }
+
+    /**
+     * 現在の環境から認証情報プロバイダーを作り直す
+     */
+    public void reload() {
+        AwsCredentialsProvider previous = delegate;
+        delegate = createDelegate();
+        closeQuietly(previous);
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(delegate);
+    }
+
+    private AwsCredentialsProvider createDelegate() {
+        Binder binder = Binder.get(environment);
+        String accessKey = binder.bind(ACCESS_KEY_PROPERTY, String.class).orElse(null);
+        String secretKey = binder.bind(SECRET_KEY_PROPERTY, String.class).orElse(null);
+        if (accessKey != null && secretKey != null) {
+            return StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        }
+        if (binder.bind(INSTANCE_PROFILE_PROPERTY, Boolean.class).orElse(false)) {
+            return InstanceProfileCredentialsProvider.builder().build();
+        }
+        String profileName = binder.bind(PROFILE_NAME_PROPERTY, String.class).orElse(null);
+        if (profileName != null) {
+            ProfileCredentialsProvider.Builder builder = ProfileCredentialsProvider.builder().profileName(profileName);
+            binder.bind(PROFILE_PATH_PROPERTY, String.class).ifBound(path -> builder.profileFile(ProfileFile.builder()
+                    .content(Paths.get(path))
+                    .type(ProfileFile.Type.CREDENTIALS)
+                    .build()));
+            return builder.build();
+        }
+        // create()は共有インスタンスで解決結果がキャッシュされるため、builderで新しいインスタンスを生成する
+        return DefaultCredentialsProvider.builder().build();
+    }
+
+    private static void closeQuietly(AwsCredentialsProvider provider) {
+        if (provider instanceof SdkAutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.handson.datasource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Spring Bootが自動構成したプライマリのDataSourceを、読み取り専用トランザクションを
+ * レプリカに振り分けるLazyConnectionDataSourceProxyで包む
+ * 実際の接続取得をトランザクションのreadOnly設定後まで遅らせることで振り分け先を決定する
+ * 自動構成のDataSource（Hikariの設定・メトリクス・CRaC対応）はそのまま使用する
+ */
+public class ReadReplicaDataSourcePostProcessor implements BeanPostProcessor {
+
+    private static final String PRIMARY_DATA_SOURCE_BEAN_NAME = "dataSource";
+
+    private final ObjectProvider<ReadReplicaPools> replicas;
+    private final ObjectProvider<ReadYourWritesWindow> readYourWritesWindow;
+
+    public ReadReplicaDataSourcePostProcessor(ObjectProvider<ReadReplicaPools> replicas,
+                                              ObjectProvider<ReadYourWritesWindow> readYourWritesWindow) {
+        this.replicas = replicas;
+        this.readYourWritesWindow = readYourWritesWindow;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!PRIMARY_DATA_SOURCE_BEAN_NAME.equals(beanName) || !(bean instanceof DataSource primary)) {
+            return bean;
+        }
+        ReadReplicaPools readReplicaPools = replicas.getObject();
+        if (!readReplicaPools.hasReplicas()) {
+            return bean;
+        }
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primary);
+        proxy.setReadOnlyDataSource(
+                new ReplicaRoutingDataSource(primary, readReplicaPools, readYourWritesWindow.getObject()));
+        return proxy;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.handson.datasource;
+
+import com.example.handson.config.ReadReplicaProperties;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 読み取りレプリカの接続プールと状態管理
+ * 定期的にレプリケーション遅延を確認し、許容範囲内のレプリカだけを読み取りに使用する
+ * 使用できるレプリカがない場合、読み取りはプライマリに送られる
+ */
+@Slf4j
+public class ReadReplicaPools implements SmartLifecycle, AutoCloseable {
+
+    /**
+     * 受信済みWALをすべて適用済みなら遅延0、未適用があれば最後に適用したトランザクションからの経過秒数
+     * （プライマリへの書き込みがない間に遅延が増え続けないようにする）
+     * WALレシーバーがプライマリからストリーミング中でない、または一定時間プライマリから受信していない場合はNULL
+     * （プライマリから切断されたレプリカは受信済みWALを適用し終えると遅延0に見えるため）
+     * pg_stat_wal_receiverの状態を読むため、接続ユーザーにpg_read_all_stats（pg_monitor）の権限が必要
+     */
+    private static final String LAG_QUERY = """
+            SELECT CASE
+                     WHEN NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver
+                                      WHERE status = 'streaming'
+                                        AND last_msg_receipt_time > now() - make_interval(secs => ?)) THEN NULL
+                     WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                     ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+                   END
+            """;
+
+    private final List<Replica> replicas;
+    private final Duration maxLag;
+    private final Duration maxReceiverSilence;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile boolean running = true;
+
+    public ReadReplicaPools(ReadReplicaProperties properties, DataSourceProperties primaryProperties) {
+        this.maxLag = properties.getMaxLag();
+        this.maxReceiverSilence = properties.getMaxReceiverSilence();
+        this.replicas = new ArrayList<>();
+        for (int i = 0; i < properties.getEndpoints().size(); i++) {
+            ReadReplicaProperties.Endpoint endpoint = properties.getEndpoints().get(i);
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("replica-" + i);
+            config.setJdbcUrl(endpoint.getUrl());
+            config.setUsername(endpoint.getUsername() != null ? endpoint.getUsername() : primaryProperties.determineUsername());
+            config.setPassword(endpoint.getPassword() != null ? endpoint.getPassword() : primaryProperties.determinePassword());
+            config.setMaximumPoolSize(properties.getMaximumPoolSize());
+            config.setReadOnly(true);
+            // レプリカ停止中でもアプリケーションは起動させ、読み取りはプライマリで継続する
+            config.setInitializationFailTimeout(-1);
+            config.setConnectionTimeout(1000);
+            config.setAllowPoolSuspension(true);
+            replicas.add(new Replica(config.getPoolName(), new HikariDataSource(config)));
+        }
+    }
+
+    public boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    /**
+     * 使用可能なレプリカをラウンドロビンで選択
+     *
+     * @return レプリカ（使用可能なものがなければempty）
+     */
+    public Optional<DataSource> select() {
+        if (!running) {
+            return Optional.empty();
+        }
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.available) {
+                return Optional.of(replica.dataSource);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * 接続に失敗したレプリカを次回の遅延確認まで使用しない
+     */
+    public void markUnavailable(DataSource dataSource) {
+        for (Replica replica : replicas) {
+            if (replica.dataSource == dataSource && replica.available) {
+                replica.available = false;
+                log.warn("レプリカへの接続に失敗したため一時的に除外します: {}", replica.name);
+            }
+        }
+    }
+
+    /**
+     * 各レプリカのレプリケーション遅延を確認し、使用可否を更新する
+     */
+    public void refreshReplicaHealth() {
+        if (!running) {
+            return;
+        }
+        for (Replica replica : replicas) {
+            boolean available;
+            try {
+                Double lagSeconds = new JdbcTemplate(replica.dataSource).queryForObject(LAG_QUERY, Double.class,
+                        maxReceiverSilence.toMillis() / 1000.0);
+                if (lagSeconds == null) {
+                    available = false;
+                    log.warn("レプリカがプライマリからWALを受信していないため読み取りをプライマリに切り替えます: {}", replica.name);
+                } else {
+                    Duration lag = Duration.ofMillis(Math.round(lagSeconds * 1000));
+                    available = lag.compareTo(maxLag) <= 0;
+                    if (!available) {
+                        log.warn("レプリケーション遅延が許容値を超えたため読み取りをプライマリに切り替えます: {}, lag={}ms",
+                                replica.name, lag.toMillis());
+                    }
+                }
+            } catch (RuntimeException e) {
+                available = false;
+                log.warn("レプリカの遅延確認に失敗しました: {}", replica.name, e);
+            }
+            if (available && !replica.available) {
+                log.info("レプリカを読み取り対象に戻しました: {}", replica.name);
+            }
+            replica.available = available;
+        }
+    }
+
+    /**
+     * 接続を閉じて一時停止（CRaCのチェックポイント前）
+     */
+    @Override
+    public void stop() {
+        running = false;
+        for (Replica replica : replicas) {
+            HikariPoolMXBean pool = replica.dataSource.getHikariPoolMXBean();
+            if (pool != null) {
+                pool.suspendPool();
+                pool.softEvictConnections();
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        for (Replica replica : replicas) {
+            HikariPoolMXBean pool = replica.dataSource.getHikariPoolMXBean();
+            if (pool != null) {
+                pool.resumePool();
+            }
+        }
+        running = true;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    private static final class Replica {
+
+        private final String name;
+        private final HikariDataSource dataSource;
+        private volatile boolean available = true;
+
+        private Replica(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
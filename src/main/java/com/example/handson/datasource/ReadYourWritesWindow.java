@@ -0,0 +1,46 @@
+package com.example.handson.datasource;
+
+import com.example.handson.config.ReadReplicaProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * read-your-writesの期間管理
+ * 書き込み直後のセッションでは、レプリカに未反映のデータを読まないよう読み取りもプライマリに送る
+ * セッション属性に保持するため、共有セッションストア使用時は別タスクへのリクエストにも適用される
+ */
+@Component
+@RequiredArgsConstructor
+public class ReadYourWritesWindow {
+
+    static final String SESSION_ATTRIBUTE = ReadYourWritesWindow.class.getName() + ".PRIMARY_UNTIL";
+
+    private final ReadReplicaProperties properties;
+
+    /**
+     * 現在のセッションで書き込みを行ったことを記録
+     * リクエスト外（バッチ処理など）では何もしない
+     */
+    public void markWritten() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return;
+        }
+        long primaryUntil = System.currentTimeMillis() + properties.getReadYourWritesWindow().toMillis();
+        attributes.setAttribute(SESSION_ATTRIBUTE, primaryUntil, RequestAttributes.SCOPE_SESSION);
+    }
+
+    /**
+     * 現在のセッションが書き込み直後の期間内か
+     */
+    public boolean isActive() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return false;
+        }
+        Object primaryUntil = attributes.getAttribute(SESSION_ATTRIBUTE, RequestAttributes.SCOPE_SESSION);
+        return primaryUntil instanceof Long until && System.currentTimeMillis() < until;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.handson.datasource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * 読み取り専用トランザクション用のDataSource
+ * LazyConnectionDataSourceProxyのreadOnlyDataSourceとして使用し、
+ * 書き込み直後のセッションと使用可能なレプリカがない場合はプライマリの接続を返す
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final ReadReplicaPools replicas;
+    private final ReadYourWritesWindow readYourWritesWindow;
+
+    public ReplicaRoutingDataSource(DataSource primary, ReadReplicaPools replicas, ReadYourWritesWindow readYourWritesWindow) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.readYourWritesWindow = readYourWritesWindow;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (readYourWritesWindow.isActive()) {
+            return primary.getConnection();
+        }
+        Optional<DataSource> replica = replicas.select();
+        if (replica.isPresent()) {
+            try {
+                return replica.get().getConnection();
+            } catch (SQLException e) {
+                replicas.markUnavailable(replica.get());
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+}
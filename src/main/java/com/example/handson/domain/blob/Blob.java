@@ -0,0 +1,43 @@
+package com.example.handson.domain.blob;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * 画像ファイル本体エンティティ
+ * 内容のSHA-256をキーとし、同じ内容の画像を参照する画像メモの件数を保持する
+ */
+@Entity
+@Table(name = "blobs")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+@Builder
+public class Blob {
+
+    /**
+     * 内容のSHA-256（16進数小文字64文字）
+     */
+    @Id
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "s3_key", nullable = false, unique = true, length = 500)
+    private String s3Key;
+
+    @Column(nullable = false)
+    private long size;
+
+    /**
+     * 参照している画像メモの件数
+     */
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,14 @@
+package com.example.handson.domain.blob;
+
+/**
+ * 画像ファイル本体の参照取得結果
+ */
+public interface BlobReference {
+
+    String getS3Key();
+
+    /**
+     * 今回の参照で行を新規作成したか（trueの場合のみS3へのアップロードが必要）
+     */
+    Boolean getCreated();
+}
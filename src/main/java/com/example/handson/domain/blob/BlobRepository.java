@@ -0,0 +1,122 @@
+package com.example.handson.domain.blob;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * 画像ファイル本体リポジトリ
+ * 参照数の増減は1文のUPDATE/UPSERTで行い、行ロックにより同じ内容の同時アップロード・削除を直列化する
+ */
+@Repository
+public interface BlobRepository extends JpaRepository<Blob, String> {
+
+    /**
+     * 画像ファイル本体への参照を追加（未登録の場合は参照数1で登録）
+     * 同じ内容の同時アップロードは行ロックで待たされるため、S3へのアップロードは最初の1件だけが行う
+     *
+     * @return S3キーと新規登録かどうか（xmax = 0は今回INSERTされた行）
+     */
+    @Query(value = """
+            INSERT INTO blobs (content_hash, s3_key, size, ref_count)
+            VALUES (:contentHash, :s3Key, :size, 1)
+            ON CONFLICT (content_hash) DO UPDATE SET ref_count = blobs.ref_count + 1
+            RETURNING s3_key AS "s3Key", (xmax = 0) AS "created"
+            """, nativeQuery = true)
+    BlobReference acquire(@Param("contentHash") String contentHash,
+                          @Param("s3Key") String s3Key,
+                          @Param("size") long size);
+
+    /**
+     * 画像ファイル本体への参照を複数追加（一括アップロードで同じ内容の画像が複数ある場合）
+     *
+     * @param references 追加する参照数
+     * @return S3キーと新規登録かどうか
+     */
+    @Query(value = """
+            INSERT INTO blobs (content_hash, s3_key, size, ref_count)
+            VALUES (:contentHash, :s3Key, :size, :references)
+            ON CONFLICT (content_hash) DO UPDATE SET ref_count = blobs.ref_count + :references
+            RETURNING s3_key AS "s3Key", (xmax = 0) AS "created"
+            """, nativeQuery = true)
+    BlobReference acquire(@Param("contentHash") String contentHash,
+                          @Param("s3Key") String s3Key,
+                          @Param("size") long size,
+                          @Param("references") int references);
+
+    /**
+     * アップロードされたバイト列のSHA-256と画像ファイル本体の対応を登録
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO blob_sources (source_hash, content_hash)
+            VALUES (:sourceHash, :contentHash)
+            ON CONFLICT (source_hash) DO NOTHING
+            """, nativeQuery = true)
+    int addSource(@Param("sourceHash") String sourceHash, @Param("contentHash") String contentHash);
+
+    /**
+     * 登録済みの画像ファイル本体への参照を追加
+     *
+     * @param sourceHash アップロード前のバイト列のSHA-256
+     * @return S3キー（未登録の場合は空）
+     */
+    @Query(value = """
+            UPDATE blobs SET ref_count = ref_count + 1
+            WHERE content_hash = (SELECT content_hash FROM blob_sources WHERE source_hash = :sourceHash)
+            RETURNING s3_key
+            """, nativeQuery = true)
+    Optional<String> acquireExisting(@Param("sourceHash") String sourceHash);
+
+    /**
+     * 画像ファイル本体への参照を解除
+     *
+     * @return 解除後の参照数（blobsに登録されていないS3キーの場合は空）
+     */
+    @Query(value = """
+            UPDATE blobs SET ref_count = ref_count - 1
+            WHERE s3_key = :s3Key
+            RETURNING ref_count
+            """, nativeQuery = true)
+    Optional<Integer> release(@Param("s3Key") String s3Key);
+
+    /**
+     * 画像ファイル本体への参照を複数解除（一括アップロードでS3へのアップロードに失敗した場合）
+     *
+     * @param references 解除する参照数
+     * @return 解除後の参照数（blobsに登録されていないS3キーの場合は空）
+     */
+    @Query(value = """
+            UPDATE blobs SET ref_count = ref_count - :references
+            WHERE s3_key = :s3Key
+            RETURNING ref_count
+            """, nativeQuery = true)
+    Optional<Integer> release(@Param("s3Key") String s3Key, @Param("references") int references);
+
+    /**
+     * 参照数が0の画像ファイル本体を削除
+     */
+    @Modifying
+    @Query("DELETE FROM Blob b WHERE b.s3Key = :s3Key AND b.refCount = 0")
+    int deleteUnreferenced(@Param("s3Key") String s3Key);
+
+    /**
+     * ユーザーの画像メモが参照している画像ファイル本体か確認
+     * アップロード前の重複確認を自分の画像に限定し、他のユーザーが同じ画像を持っているかを推測できないようにする
+     *
+     * @param sourceHash アップロード前のバイト列のSHA-256
+     */
+    @Query(value = """
+            SELECT EXISTS (
+                SELECT 1 FROM blob_sources bs
+                JOIN blobs b ON b.content_hash = bs.content_hash
+                JOIN image_memos im ON im.s3_key = b.s3_key
+                WHERE bs.source_hash = :sourceHash AND im.user_id = :userId
+            )
+            """, nativeQuery = true)
+    boolean isReferencedByUser(@Param("sourceHash") String sourceHash, @Param("userId") Long userId);
+}
@@ -19,8 +19,12 @@ import java.time.LocalDateTime;
 @Builder
 public class ImageMemo {
 
+    /**
+     * ID（シーケンスから50件ずつ確保し、INSERTをJDBCバッチにまとめられるようにする）
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "image_memos_id_seq")
+    @SequenceGenerator(name = "image_memos_id_seq", sequenceName = "image_memos_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,21 @@
+package com.example.handson.domain.imagememo;
+
+import java.time.LocalDateTime;
+
+/**
+ * エクスポート用の画像メモの行（エンティティを生成せずに読み取る）
+ */
+public interface ImageMemoExportRow {
+
+    Long getId();
+
+    String getTitle();
+
+    String getDescription();
+
+    String getS3Key();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+}
@@ -0,0 +1,10 @@
+package com.example.handson.domain.imagememo;
+
+/**
+ * 画像メモの画像の参照（コンタクトシートの作成用に、IDとS3キーだけをコンストラクタ式で読み取る）
+ *
+ * @param id 画像メモID
+ * @param s3Key 画像のS3キー
+ */
+public record ImageMemoImageRef(Long id, String s3Key) {
+}
@@ -1,5 +1,6 @@
 package com.example.handson.domain.imagememo;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -7,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,4 +34,135 @@ public interface ImageMemoRepository extends JpaRepository<ImageMemo, Long> {
      * IDとユーザーIDで画像メモを取得
      */
     Optional<ImageMemo> findByIdAndUserId(Long id, Long userId);
+
+    /**
+     * ユーザーの画像メモを全文検索（関連度の降順、同順位はIDの降順）
+     * 前ページ最後の(関連度, ID)より後ろを取得するキーセット方式のため、OFFSETによる読み飛ばしが発生しない
+     *
+     * @param userId ユーザーID
+     * @param query to_tsquery形式の検索条件
+     * @param afterRank 前ページ最後の関連度（先頭ページはnull）
+     * @param afterId 前ページ最後のID（先頭ページはnull）
+     * @param limit 取得件数
+     */
+    @Query(value = """
+            SELECT im.id AS "id", im.title AS "title", im.description AS "description",
+                   im.created_at AS "createdAt", ts_rank(im.search_vector, q.query) AS "rank"
+            FROM image_memos im, to_tsquery('simple', :query) AS q(query)
+            WHERE im.user_id = :userId
+              AND im.search_vector @@ q.query
+              AND (CAST(:afterRank AS real) IS NULL
+                   OR (ts_rank(im.search_vector, q.query), im.id) < (CAST(:afterRank AS real), CAST(:afterId AS bigint)))
+            ORDER BY "rank" DESC, im.id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ImageMemoSearchHit> search(@Param("userId") Long userId,
+                                    @Param("query") String query,
+                                    @Param("afterRank") Float afterRank,
+                                    @Param("afterId") Long afterId,
+                                    @Param("limit") int limit);
+
+    /**
+     * ユーザーの画像メモをエクスポート用に作成日時の昇順で読み取る（先頭ページ）
+     * createdUntilまでに作成された画像メモだけを対象とし、ページ間・2回の読み取りの間に作成された画像メモを含めない
+     */
+    @Query("""
+            SELECT im.id AS id, im.title AS title, im.description AS description, im.s3Key AS s3Key,
+                   im.createdAt AS createdAt, im.updatedAt AS updatedAt
+            FROM ImageMemo im
+            WHERE im.user.id = :userId
+              AND im.createdAt <= :createdUntil
+            ORDER BY im.createdAt, im.id
+            """)
+    List<ImageMemoExportRow> findExportRows(@Param("userId") Long userId,
+                                            @Param("createdUntil") LocalDateTime createdUntil,
+                                            Limit limit);
+
+    /**
+     * ユーザーの画像メモをエクスポート用に作成日時の昇順で読み取る（指定した作成日時・IDより後のページ）
+     * キーセット方式のため、ページごとに別のトランザクションで読んでも重複・欠落しない
+     */
+    @Query("""
+            SELECT im.id AS id, im.title AS title, im.description AS description, im.s3Key AS s3Key,
+                   im.createdAt AS createdAt, im.updatedAt AS updatedAt
+            FROM ImageMemo im
+            WHERE im.user.id = :userId
+              AND im.createdAt <= :createdUntil
+              AND (im.createdAt > :afterCreatedAt OR (im.createdAt = :afterCreatedAt AND im.id > :afterId))
+            ORDER BY im.createdAt, im.id
+            """)
+    List<ImageMemoExportRow> findExportRowsAfter(@Param("userId") Long userId,
+                                                 @Param("createdUntil") LocalDateTime createdUntil,
+                                                 @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                                 @Param("afterId") Long afterId,
+                                                 Limit limit);
+
+    /**
+     * ユーザーの画像メモ一覧の先頭ページ（作成日時の降順、同時刻はIDの降順）
+     */
+    @Query("""
+            SELECT new com.example.handson.domain.imagememo.ImageMemoSummary(
+                   im.id, im.title, im.description, im.createdAt, im.updatedAt)
+            FROM ImageMemo im
+            WHERE im.user.id = :userId
+            ORDER BY im.createdAt DESC, im.id DESC
+            """)
+    List<ImageMemoSummary> findSummaries(@Param("userId") Long userId, Limit limit);
+
+    /**
+     * ユーザーの画像メモ一覧の続きのページ（前ページ最後の(作成日時, ID)より後ろ）
+     * キーセット方式のため、OFFSETによる読み飛ばしが発生せず、ページ間で作成・削除があっても重複・欠落しない
+     */
+    @Query("""
+            SELECT new com.example.handson.domain.imagememo.ImageMemoSummary(
+                   im.id, im.title, im.description, im.createdAt, im.updatedAt)
+            FROM ImageMemo im
+            WHERE im.user.id = :userId
+              AND (im.createdAt < :afterCreatedAt OR (im.createdAt = :afterCreatedAt AND im.id < :afterId))
+            ORDER BY im.createdAt DESC, im.id DESC
+            """)
+    List<ImageMemoSummary> findSummariesAfter(@Param("userId") Long userId,
+                                              @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                              @Param("afterId") Long afterId,
+                                              Limit limit);
+
+    /**
+     * ユーザーの画像メモ一覧の指定ページ（作成日時の降順、同時刻はIDの降順。件数は取得しない）
+     * 一覧ページの段階的な送信用。件数はページネーションの描画時にcountByUserIdで別途取得する
+     */
+    @Query("""
+            SELECT new com.example.handson.domain.imagememo.ImageMemoSummary(
+                   im.id, im.title, im.description, im.createdAt, im.updatedAt)
+            FROM ImageMemo im
+            WHERE im.user.id = :userId
+            ORDER BY im.createdAt DESC, im.id DESC
+            """)
+    List<ImageMemoSummary> findSummaryPage(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * ユーザーの画像メモ一覧の指定ページの画像の参照（並び順はfindSummaryPageと同じ）
+     */
+    @Query("""
+            SELECT new com.example.handson.domain.imagememo.ImageMemoImageRef(im.id, im.s3Key)
+            FROM ImageMemo im
+            WHERE im.user.id = :userId
+            ORDER BY im.createdAt DESC, im.id DESC
+            """)
+    List<ImageMemoImageRef> findImageRefPage(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * ユーザーの画像メモの件数
+     */
+    long countByUserId(Long userId);
+
+    /**
+     * IDとユーザーIDで画像メモを取得（エンティティを生成しない）
+     */
+    @Query("""
+            SELECT new com.example.handson.domain.imagememo.ImageMemoSummary(
+                   im.id, im.title, im.description, im.createdAt, im.updatedAt)
+            FROM ImageMemo im
+            WHERE im.id = :id AND im.user.id = :userId
+            """)
+    Optional<ImageMemoSummary> findSummaryByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
 }
@@ -0,0 +1,22 @@
+package com.example.handson.domain.imagememo;
+
+import java.time.LocalDateTime;
+
+/**
+ * 画像メモの全文検索結果
+ */
+public interface ImageMemoSearchHit {
+
+    Long getId();
+
+    String getTitle();
+
+    String getDescription();
+
+    LocalDateTime getCreatedAt();
+
+    /**
+     * 検索語との関連度（ts_rank）
+     */
+    Float getRank();
+}
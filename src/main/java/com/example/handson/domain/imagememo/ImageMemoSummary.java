@@ -0,0 +1,29 @@
+package com.example.handson.domain.imagememo;
+
+import java.time.LocalDateTime;
+
+/**
+ * JSON API・一覧ページ用の画像メモの行（エンティティ・ユーザーを生成せず、必要な列だけをコンストラクタ式で読み取る）
+ *
+ * @param id 画像メモID
+ * @param title タイトル
+ * @param description 説明
+ * @param createdAt 作成日時
+ * @param updatedAt 更新日時
+ */
+public record ImageMemoSummary(
+        Long id,
+        String title,
+        String description,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt
+) {
+
+    /**
+     * 作成直後の画像メモから生成（再度読み取らずに応答するため）
+     */
+    public static ImageMemoSummary of(ImageMemo memo) {
+        return new ImageMemoSummary(memo.getId(), memo.getTitle(), memo.getDescription(),
+                memo.getCreatedAt(), memo.getUpdatedAt());
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.handson.domain.importjob;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ZIPからの一括インポートのエンティティ
+ * 進捗の更新はImportJobRepositoryのUPDATE文で行う（インポート中はエンティティを保持しない）
+ */
+@Entity
+@Table(name = "import_jobs")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+@Builder
+public class ImportJob {
+
+    /**
+     * ID（シーケンスから50件ずつ確保し、INSERTをJDBCバッチにまとめられるようにする）
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "import_jobs_id_seq")
+    @SequenceGenerator(name = "import_jobs_id_seq", sequenceName = "import_jobs_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ImportJobState state;
+
+    /**
+     * 読み取ったZIPのエントリ数（ディレクトリを含む）
+     */
+    @Column(name = "entries_read", nullable = false)
+    private int entriesRead;
+
+    /**
+     * 作成した画像メモの件数
+     */
+    @Column(nullable = false)
+    private int imported;
+
+    /**
+     * 画像として取り込まなかったエントリ数（形式・サイズの検証に失敗）
+     */
+    @Column(nullable = false)
+    private int skipped;
+
+    /**
+     * 画像の保存に失敗したエントリ数
+     */
+    @Column(nullable = false)
+    private int failed;
+
+    /**
+     * 展開したバイト数の合計
+     */
+    @Column(name = "expanded_bytes", nullable = false)
+    private long expandedBytes;
+
+    /**
+     * エントリごとの失敗の理由（先頭の一定件数のみ）
+     */
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(nullable = false, columnDefinition = "jsonb")
+    @Builder.Default
+    private List<String> errors = new ArrayList<>();
+
+    /**
+     * 中断した理由（FAILEDの場合のみ）
+     */
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,79 @@
+package com.example.handson.domain.importjob;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * ZIPからの一括インポートのリポジトリ
+ * 状態・進捗はインポート中のリクエストから1文のUPDATEで更新し、即時にコミットする（別のリクエストから取得できるように）
+ */
+@Repository
+public interface ImportJobRepository extends JpaRepository<ImportJob, Long> {
+
+    /**
+     * IDとユーザーIDでインポートを取得
+     */
+    Optional<ImportJob> findByIdAndUserId(Long id, Long userId);
+
+    /**
+     * 作成済みのインポートを開始する（PENDINGの場合のみ。同じインポートのZIPを2回送っても1回しか実行しない）
+     *
+     * @return 更新した件数（0の場合は開始できない）
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE import_jobs SET state = 'RUNNING', updated_at = CURRENT_TIMESTAMP
+            WHERE id = :id AND user_id = :userId AND state = 'PENDING'
+            """, nativeQuery = true)
+    int start(@Param("id") Long id, @Param("userId") Long userId);
+
+    /**
+     * 進捗を更新（終了した場合は状態・中断した理由も更新）
+     * インポート中の場合のみ更新する（failStale()で中断扱いにしたインポートを元に戻さない）
+     *
+     * @param errors エントリごとの失敗の理由（JSONの文字列の配列）
+     * @return 更新した件数（0の場合は中断扱いにされている）
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE import_jobs
+            SET state = :state, entries_read = :entriesRead, imported = :imported, skipped = :skipped,
+                failed = :failed, expanded_bytes = :expandedBytes, errors = CAST(:errors AS jsonb),
+                error_message = :errorMessage, updated_at = CURRENT_TIMESTAMP
+            WHERE id = :id AND state = 'RUNNING'
+            """, nativeQuery = true)
+    int updateProgress(@Param("id") Long id,
+                       @Param("state") String state,
+                       @Param("entriesRead") int entriesRead,
+                       @Param("imported") int imported,
+                       @Param("skipped") int skipped,
+                       @Param("failed") int failed,
+                       @Param("expandedBytes") long expandedBytes,
+                       @Param("errors") String errors,
+                       @Param("errorMessage") String errorMessage);
+
+    /**
+     * 作成済み・インポート中のまま一定時間進捗が更新されていないインポートを中断扱い（FAILED）にする
+     * 経過時間はDBの時刻で判定する（updated_atはDBのCURRENT_TIMESTAMPで更新しているため）
+     *
+     * @param timeoutSeconds 最後の更新からの経過時間（秒）
+     * @param errorMessage 中断した理由
+     * @return 中断扱いにした件数
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE import_jobs SET state = 'FAILED', error_message = :errorMessage, updated_at = CURRENT_TIMESTAMP
+            WHERE state IN ('PENDING', 'RUNNING')
+              AND updated_at < CURRENT_TIMESTAMP - make_interval(secs => CAST(:timeoutSeconds AS double precision))
+            """, nativeQuery = true)
+    int failStale(@Param("timeoutSeconds") long timeoutSeconds, @Param("errorMessage") String errorMessage);
+}
@@ -0,0 +1,31 @@
+package com.example.handson.domain.importjob;
+
+/**
+ * ZIPからの一括インポートの状態
+ */
+public enum ImportJobState {
+
+    /**
+     * 作成済み（ZIPの送信待ち）
+     */
+    PENDING,
+
+    /**
+     * インポート中
+     */
+    RUNNING,
+
+    /**
+     * 完了（エントリごとの失敗はImportJobの件数・理由に記録する）
+     */
+    SUCCEEDED,
+
+    /**
+     * 途中で中断（ZIPの読み取り失敗・上限超過等。中断までに作成した画像メモは残る）
+     */
+    FAILED;
+
+    public boolean isFinished() {
+        return this == SUCCEEDED || this == FAILED;
+    }
+}
@@ -18,8 +18,12 @@ import java.time.LocalDateTime;
 @Builder
 public class User {
 
+    /**
+     * ID（シーケンスから50件ずつ確保し、INSERTをJDBCバッチにまとめられるようにする）
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_seq")
+    @SequenceGenerator(name = "users_id_seq", sequenceName = "users_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true, length = 50)
@@ -31,6 +35,12 @@ public class User {
     @Column(nullable = false)
     private boolean enabled;
 
+    /**
+     * 画像メモ一覧のバージョン番号（作成・削除のたびにインクリメント）
+     */
+    @Column(name = "memo_list_version", nullable = false)
+    private long memoListVersion;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
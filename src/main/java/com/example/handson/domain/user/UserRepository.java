@@ -1,7 +1,11 @@
 package com.example.handson.domain.user;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -20,4 +24,27 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * ユーザー名が存在するか確認
      */
     boolean existsByUsername(String username);
+
+    /**
+     * ユーザー名が未使用の場合のみユーザーを登録
+     * 存在確認と挿入を1文で行うため、同時登録でも競合しない
+     *
+     * @return 登録されたユーザー（ユーザー名が既に使用されている場合は空）
+     */
+    @Transactional
+    @Query(value = """
+            INSERT INTO users (username, password, enabled)
+            VALUES (:username, :password, true)
+            ON CONFLICT (username) DO NOTHING
+            RETURNING *
+            """, nativeQuery = true)
+    Optional<User> insertIfAbsent(@Param("username") String username, @Param("password") String encodedPassword);
+
+    /**
+     * 画像メモ一覧のバージョン番号をインクリメント
+     * 一覧ページのキャッシュとETagを無効化するため、画像メモの作成・削除と同一トランザクションで実行する
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.memoListVersion = u.memoListVersion + 1 WHERE u.id = :userId")
+    int incrementMemoListVersion(@Param("userId") Long userId);
 }
@@ -0,0 +1,27 @@
+package com.example.handson.dto;
+
+/**
+ * 一括アップロードのファイルごとの結果DTO
+ *
+ * @param filename ファイル名
+ * @param memoId 作成された画像メモのID（失敗した場合はnull）
+ * @param errorMessage 失敗した理由（成功した場合はnull）
+ */
+public record BatchUploadResult(
+        String filename,
+        Long memoId,
+        String errorMessage
+) {
+
+    public static BatchUploadResult succeeded(String filename, Long memoId) {
+        return new BatchUploadResult(filename, memoId, null);
+    }
+
+    public static BatchUploadResult failed(String filename, String errorMessage) {
+        return new BatchUploadResult(filename, null, errorMessage);
+    }
+
+    public boolean isSuccess() {
+        return memoId != null;
+    }
+}
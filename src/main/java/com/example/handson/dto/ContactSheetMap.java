@@ -0,0 +1,20 @@
+package com.example.handson.dto;
+
+import java.util.List;
+
+/**
+ * コンタクトシートの各サムネイルの位置（JSON）
+ *
+ * @param image コンタクトシートのURL
+ * @param width コンタクトシートの幅
+ * @param height コンタクトシートの高さ
+ * @param tiles 画像メモごとのサムネイルの位置（一覧と同じ順）
+ */
+public record ContactSheetMap(String image, int width, int height, List<Tile> tiles) {
+
+    /**
+     * サムネイル1枚の位置（ピクセル）
+     */
+    public record Tile(Long id, int x, int y, int width, int height) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.handson.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * エクスポートのZIPのmanifest.jsonに記録する画像メモ1件分のメタデータDTO
+ *
+ * @param id 画像メモID
+ * @param title タイトル
+ * @param description 説明（null可）
+ * @param createdAt 作成日時
+ * @param updatedAt 更新日時
+ * @param file 画像のZIP内のパス（例: images/123-夕焼け.jpg）
+ */
+public record ExportManifestEntry(
+        Long id,
+        String title,
+        String description,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        String file
+) {
+}
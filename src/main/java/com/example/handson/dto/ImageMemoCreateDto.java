@@ -1,12 +1,13 @@
 package com.example.handson.dto;
 
 import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import org.springframework.web.multipart.MultipartFile;
 
 /**
  * 画像メモ作成DTO
+ * 画像ファイルの代わりに、保存済みの画像ファイルのSHA-256（アップロード前の重複確認でブラウザが計算）を指定できる
  */
 public record ImageMemoCreateDto(
         @NotBlank(message = "タイトルは必須です")
@@ -16,7 +17,9 @@ public record ImageMemoCreateDto(
         @Size(max = 1000, message = "説明は1000文字以下で入力してください")
         String description,
 
-        @NotNull(message = "画像ファイルは必須です")
-        MultipartFile image
+        MultipartFile image,
+
+        @Pattern(regexp = "[0-9a-f]{64}", message = "画像の内容ハッシュが不正です")
+        String contentHash
 ) {
 }
@@ -0,0 +1,37 @@
+package com.example.handson.dto;
+
+import com.example.handson.domain.importjob.ImportJob;
+import com.example.handson.domain.importjob.ImportJobState;
+
+import java.util.List;
+
+/**
+ * ZIPからの一括インポートの状態DTO（進捗の取得APIのレスポンス）
+ *
+ * @param id インポートID
+ * @param state 状態
+ * @param finished 終了したか（SUCCEEDED / FAILED）
+ * @param entriesRead 読み取ったZIPのエントリ数
+ * @param imported 作成した画像メモの件数
+ * @param skipped 画像として取り込まなかったエントリ数
+ * @param failed 画像の保存に失敗したエントリ数
+ * @param errors エントリごとの失敗の理由（先頭の一定件数のみ）
+ * @param errorMessage 中断した理由（FAILEDの場合のみ）
+ */
+public record ImportJobStatus(
+        Long id,
+        ImportJobState state,
+        boolean finished,
+        int entriesRead,
+        int imported,
+        int skipped,
+        int failed,
+        List<String> errors,
+        String errorMessage
+) {
+
+    public static ImportJobStatus of(ImportJob job) {
+        return new ImportJobStatus(job.getId(), job.getState(), job.getState().isFinished(), job.getEntriesRead(),
+                job.getImported(), job.getSkipped(), job.getFailed(), job.getErrors(), job.getErrorMessage());
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.handson.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * JSON APIの画像メモ一覧の続きを取得するための位置（前ページ最後の作成日時とID）
+ * クライアントには内容を解釈させないよう、Base64URLの文字列（cursorパラメーター）として渡す
+ */
+public record MemoListCursor(
+        LocalDateTime createdAt,
+        long id
+) {
+
+    private static final char SEPARATOR = ',';
+
+    public String encode() {
+        String value = createdAt + String.valueOf(SEPARATOR) + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * cursorパラメーターから復元
+     *
+     * @throws IllegalArgumentException 形式が正しくない場合
+     */
+    public static MemoListCursor decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            return new MemoListCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("cursorの形式が正しくありません");
+        }
+    }
+}
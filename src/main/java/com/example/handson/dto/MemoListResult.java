@@ -0,0 +1,17 @@
+package com.example.handson.dto;
+
+import com.example.handson.domain.imagememo.ImageMemoSummary;
+
+import java.util.List;
+
+/**
+ * JSON APIの画像メモ一覧の結果DTO
+ *
+ * @param memos 画像メモ（作成日時の降順）
+ * @param next 次ページの取得位置（最終ページの場合はnull）
+ */
+public record MemoListResult(
+        List<ImageMemoSummary> memos,
+        MemoListCursor next
+) {
+}
@@ -0,0 +1,10 @@
+package com.example.handson.dto;
+
+/**
+ * 画像メモ検索の続きを取得するための位置（前ページ最後の関連度とID）
+ */
+public record MemoSearchCursor(
+        float rank,
+        long id
+) {
+}
@@ -0,0 +1,17 @@
+package com.example.handson.dto;
+
+import com.example.handson.domain.imagememo.ImageMemoSearchHit;
+
+import java.util.List;
+
+/**
+ * 画像メモ検索結果DTO
+ *
+ * @param hits 検索結果（関連度の降順）
+ * @param next 次ページの取得位置（最終ページの場合はnull）
+ */
+public record MemoSearchResult(
+        List<ImageMemoSearchHit> hits,
+        MemoSearchCursor next
+) {
+}
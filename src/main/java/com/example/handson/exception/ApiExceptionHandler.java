@@ -0,0 +1,84 @@
+package com.example.handson.exception;
+
+import com.example.handson.controller.ImageMemoApiController;
+import com.example.handson.ratelimit.RateLimitExceededException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
+
+import java.io.IOException;
+
+/**
+ * JSON APIの例外ハンドラー
+ * GlobalExceptionHandler（エラーページのHTML）より優先し、JSON APIではエラーをProblem Details（RFC 9457）のJSONで返す
+ * Spring MVCの例外（パラメーターの型の誤り等）はResponseEntityExceptionHandlerが4xxのProblem Detailsにする
+ */
+@RestControllerAdvice(assignableTypes = ImageMemoApiController.class)
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class ApiExceptionHandler extends ResponseEntityExceptionHandler {
+
+    /**
+     * バリデーションエラー・ビジネスロジックエラー
+     * HTTPステータス: 400 Bad Request
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ProblemDetail> handleIllegalArgumentException(IllegalArgumentException e) {
+        log.warn("バリデーションエラー: {}", e.getMessage());
+        return ResponseEntity.badRequest()
+                .body(ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage()));
+    }
+
+    /**
+     * ユーザー単位のレート制限の超過
+     * HTTPステータス: 429 Too Many Requests（Retry-Afterヘッダーに再試行までの秒数）
+     */
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ProblemDetail> handleRateLimitExceededException(RateLimitExceededException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(ProblemDetail.forStatusAndDetail(HttpStatus.TOO_MANY_REQUESTS, e.getMessage()));
+    }
+
+    /**
+     * S3操作の同時実行数の上限による受付拒否
+     * HTTPステータス: 503 Service Unavailable（StorageExceptionの500より優先）
+     */
+    @ExceptionHandler(StorageOverloadedException.class)
+    public ResponseEntity<ProblemDetail> handleStorageOverloadedException(StorageOverloadedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage()));
+    }
+
+    /**
+     * ストレージ操作エラー（S3等）・ファイルI/Oエラー
+     * HTTPステータス: 500 Internal Server Error
+     */
+    @ExceptionHandler({StorageException.class, IOException.class})
+    public ResponseEntity<ProblemDetail> handleStorageException(Exception e) {
+        log.error("ストレージエラー", e);
+        return ResponseEntity.internalServerError()
+                .body(ProblemDetail.forStatusAndDetail(HttpStatus.INTERNAL_SERVER_ERROR,
+                        "ファイル操作でエラーが発生しました。しばらく時間をおいて再度お試しください。"));
+    }
+
+    /**
+     * 予期しないエラー
+     * HTTPステータス: 500 Internal Server Error
+     */
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<ProblemDetail> handleGenericException(Exception e) {
+        log.error("予期しないエラー", e);
+        return ResponseEntity.internalServerError()
+                .body(ProblemDetail.forStatusAndDetail(HttpStatus.INTERNAL_SERVER_ERROR,
+                        "システムエラーが発生しました。管理者に連絡してください。"));
+    }
+}
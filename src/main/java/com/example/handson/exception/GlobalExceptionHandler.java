@@ -1,9 +1,16 @@
 package com.example.handson.exception;
 
+import com.example.handson.ratelimit.RateLimitExceededException;
+import com.example.handson.security.PasswordHashingRejectedException;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
 import java.io.IOException;
 
@@ -30,6 +37,22 @@ public class GlobalExceptionHandler {
         return "error/400";
     }
 
+    /**
+     * アップロードのサイズ上限（spring.servlet.multipart）の超過
+     * HTTPステータス: 413 Content Too Large
+     */
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+    public String handleMaxUploadSizeExceededException(
+            MaxUploadSizeExceededException e,
+            Model model
+    ) {
+        log.warn("アップロードのサイズ上限を超えました: {}", e.getMessage());
+        model.addAttribute("errorMessage", "アップロードするファイルのサイズが大きすぎます。ファイル数を減らして再度お試しください。");
+        model.addAttribute("errorType", "validation");
+        return "error/400";
+    }
+
     /**
      * ストレージ操作エラー（S3等）
      * HTTPステータス: 500 Internal Server Error
@@ -45,6 +68,57 @@ public class GlobalExceptionHandler {
         return "error/500";
     }
 
+    /**
+     * S3操作の同時実行数の上限による受付拒否
+     * HTTPステータス: 503 Service Unavailable（StorageExceptionの500より優先）
+     */
+    @ExceptionHandler(StorageOverloadedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String handleStorageOverloadedException(
+            StorageOverloadedException e,
+            HttpServletResponse response,
+            Model model
+    ) {
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        model.addAttribute("errorMessage", e.getMessage());
+        model.addAttribute("errorType", "overloaded");
+        return "error/503";
+    }
+
+    /**
+     * 過負荷による受付拒否（パスワードハッシュ計算の混雑等）
+     * HTTPステータス: 503 Service Unavailable
+     */
+    @ExceptionHandler(PasswordHashingRejectedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String handlePasswordHashingRejectedException(
+            PasswordHashingRejectedException e,
+            Model model
+    ) {
+        log.warn("過負荷のためリクエストを拒否しました: {}", e.getMessage());
+        model.addAttribute("errorMessage", e.getMessage());
+        model.addAttribute("errorType", "overloaded");
+        return "error/503";
+    }
+
+    /**
+     * ユーザー単位のレート制限の超過
+     * HTTPステータス: 429 Too Many Requests（Retry-Afterヘッダーに再試行までの秒数）
+     */
+    @ExceptionHandler(RateLimitExceededException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public String handleRateLimitExceededException(
+            RateLimitExceededException e,
+            HttpServletResponse response,
+            Model model
+    ) {
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        model.addAttribute("errorMessage", e.getMessage());
+        model.addAttribute("errorType", "rate-limited");
+        model.addAttribute("retryAfterSeconds", e.getRetryAfterSeconds());
+        return "error/429";
+    }
+
     /**
      * ファイルI/Oエラー
      * HTTPステータス: 500 Internal Server Error
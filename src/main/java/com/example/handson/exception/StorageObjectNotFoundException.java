@@ -0,0 +1,18 @@
+package com.example.handson.exception;
+
+/**
+ * ストレージにオブジェクトが存在しなかった場合の例外
+ * 読み取りの途中で画像メモが削除され、画像がS3から消えていた場合などに発生する
+ */
+public class StorageObjectNotFoundException extends StorageException {
+
+    /**
+     * エラーメッセージと原因例外を指定してStorageObjectNotFoundExceptionを生成
+     *
+     * @param message エラーメッセージ
+     * @param cause 原因例外
+     */
+    public StorageObjectNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.handson.exception;
+
+/**
+ * ストレージの同時実行数の上限に達したため、操作を受け付けなかった場合の例外
+ * S3の応答が遅い間にリクエストスレッドが待たされ続けないよう、待たずに即座にスローする
+ * GlobalExceptionHandlerで503 Service Unavailableを返す
+ */
+public class StorageOverloadedException extends StorageException {
+
+    /**
+     * エラーメッセージを指定してStorageOverloadedExceptionを生成
+     *
+     * @param message エラーメッセージ
+     */
+    public StorageOverloadedException(String message) {
+        super(message, null);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.handson.image;
+
+import java.awt.geom.AffineTransform;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * EXIF（TIFF形式）の向き（Orientation）情報
+ * 撮影情報・位置情報・サムネイルを含むEXIF全体の代わりに、表示に必要な向きだけを持つ最小のEXIFを組み立てる
+ */
+final class ExifOrientation {
+
+    /**
+     * 回転・反転なし
+     */
+    static final int NORMAL = 1;
+
+    private static final int ORIENTATION_TAG = 0x0112;
+    private static final int TYPE_SHORT = 3;
+
+    private ExifOrientation() {
+    }
+
+    /**
+     * TIFFヘッダーから始まるEXIFのIFD0から向きを取得
+     *
+     * @return 向き（1〜8）。含まれない・解析できない場合は{@link #NORMAL}
+     */
+    static int parse(byte[] tiff, int offset) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(tiff, offset, tiff.length - offset).slice();
+            if (buffer.get(0) == 'I' && buffer.get(1) == 'I') {
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+            } else if (buffer.get(0) != 'M' || buffer.get(1) != 'M') {
+                return NORMAL;
+            }
+            int ifd = buffer.getInt(4);
+            int entries = Short.toUnsignedInt(buffer.getShort(ifd));
+            for (int i = 0; i < entries; i++) {
+                int entry = ifd + 2 + i * 12;
+                if (Short.toUnsignedInt(buffer.getShort(entry)) == ORIENTATION_TAG
+                        && Short.toUnsignedInt(buffer.getShort(entry + 2)) == TYPE_SHORT) {
+                    int orientation = Short.toUnsignedInt(buffer.getShort(entry + 8));
+                    return orientation >= 1 && orientation <= 8 ? orientation : NORMAL;
+                }
+            }
+            return NORMAL;
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            return NORMAL;
+        }
+    }
+
+    /**
+     * 表示時に縦横が入れ替わる向きか（90度・270度の回転を含む5〜8）
+     */
+    static boolean swapsDimensions(int orientation) {
+        return orientation >= 5 && orientation <= 8;
+    }
+
+    /**
+     * 保存されたままの画像（幅width・高さheight）の座標を、表示する向きの座標に変換する
+     */
+    static AffineTransform toDisplay(int orientation, int width, int height) {
+        return switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, width, 0);       // 左右反転
+            case 3 -> new AffineTransform(-1, 0, 0, -1, width, height); // 180度回転
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, height);      // 上下反転
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);            // 左上・右下の対角線で反転
+            case 6 -> new AffineTransform(0, 1, -1, 0, height, 0);      // 時計回りに90度回転
+            case 7 -> new AffineTransform(0, -1, -1, 0, height, width); // 右上・左下の対角線で反転
+            case 8 -> new AffineTransform(0, -1, 1, 0, 0, width);       // 反時計回りに90度回転
+            default -> new AffineTransform();
+        };
+    }
+
+    /**
+     * 向きのタグだけを持つTIFF（ビッグエンディアン、26バイト）を組み立てる
+     */
+    static byte[] minimalTiff(int orientation) {
+        return ByteBuffer.allocate(26)
+                .put((byte) 'M').put((byte) 'M').putShort((short) 42).putInt(8) // TIFFヘッダー、IFD0は8バイト目から
+                .putShort((short) 1)                                             // エントリー数
+                .putShort((short) ORIENTATION_TAG).putShort((short) TYPE_SHORT).putInt(1)
+                .putShort((short) orientation).putShort((short) 0)
+                .putInt(0)                                                       // 次のIFDなし（サムネイルなし）
+                .array();
+    }
+}
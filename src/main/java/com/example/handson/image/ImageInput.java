@@ -0,0 +1,145 @@
+package com.example.handson.image;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * 画像のバイト列を先頭から1度だけ読む入力
+ * BufferedInputStreamと異なり同期化を行わないため、1バイト単位の読み取りが多いセグメント解析でも遅くならない
+ */
+final class ImageInput {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    ImageInput(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * 先頭から最大lengthバイトを読み進めずに返す（形式の判定用）
+     */
+    byte[] peek(int length) throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        while (limit < length) {
+            int n = in.read(buffer, limit, buffer.length - limit);
+            if (n < 0) {
+                break;
+            }
+            limit += n;
+        }
+        return Arrays.copyOfRange(buffer, position, Math.min(limit, position + length));
+    }
+
+    /**
+     * 1バイト読む（終端の場合は-1）
+     */
+    int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    int readByte() throws IOException {
+        int b = read();
+        if (b < 0) {
+            throw new MalformedImageException("画像が途中で終わっています");
+        }
+        return b;
+    }
+
+    int readUnsignedShort() throws IOException {
+        return (readByte() << 8) | readByte();
+    }
+
+    long readUnsignedInt() throws IOException {
+        return ((long) readUnsignedShort() << 16) | readUnsignedShort();
+    }
+
+    byte[] readFully(int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            if (position == limit && !fill()) {
+                throw new MalformedImageException("画像が途中で終わっています");
+            }
+            int n = Math.min(length - offset, limit - position);
+            System.arraycopy(buffer, position, bytes, offset, n);
+            position += n;
+            offset += n;
+        }
+        return bytes;
+    }
+
+    /**
+     * 指定バイト数をそのまま出力にコピー（outがnullの場合は読み飛ばす）
+     */
+    void transferTo(OutputStream out, long length) throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            if (position == limit && !fill()) {
+                throw new MalformedImageException("画像が途中で終わっています");
+            }
+            int n = (int) Math.min(remaining, limit - position);
+            if (out != null) {
+                out.write(buffer, position, n);
+            }
+            position += n;
+            remaining -= n;
+        }
+    }
+
+    /**
+     * 終端までをそのまま出力にコピー
+     */
+    void transferRemaining(OutputStream out) throws IOException {
+        do {
+            out.write(buffer, position, limit - position);
+            position = limit;
+        } while (fill());
+    }
+
+    /**
+     * 次の0xFFの直前までをそのまま出力にコピーし、0xFFを読み進めた状態で返す
+     * JPEGのエントロピー符号化データを1バイトずつ判定せずにコピーするために使用する
+     *
+     * @return 0xFFが見つかった場合true、終端に達した場合false
+     */
+    boolean transferUntilMarkerPrefix(OutputStream out) throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                return false;
+            }
+            int start = position;
+            while (position < limit && buffer[position] != (byte) 0xFF) {
+                position++;
+            }
+            out.write(buffer, start, position - start);
+            if (position < limit) {
+                position++;
+                return true;
+            }
+        }
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer);
+        if (n <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = n;
+        return true;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.handson.image;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * アップロード画像のメタデータ除去
+ * カメラ画像に含まれるEXIF・XMP・サムネイル等（数十KBになることがある）を、画像データを再エンコードせずに取り除く
+ * 表示に必要な向き（EXIFのOrientation）と色（ICCプロファイル等）は残す
+ *
+ * アップロードされたバイト列を1度だけ読みながら、メタデータを除いたバイト列を一時ファイルに書き出し、
+ * 入力・出力それぞれのSHA-256を同時に計算する（ファイル全体をメモリに載せない）
+ * 既にメモリ上にある画像（ZIPのエントリ等）は、一時ファイルに書き出さずにメモリ上に保持する
+ */
+@Component
+@Slf4j
+public class ImageMetadataStripper {
+
+    private static final int SIGNATURE_LENGTH = 8;
+
+    private final DistributionSummary jpegSavedBytes;
+    private final DistributionSummary pngSavedBytes;
+
+    public ImageMetadataStripper(MeterRegistry meterRegistry) {
+        this.jpegSavedBytes = savedBytes(meterRegistry, "jpeg");
+        this.pngSavedBytes = savedBytes(meterRegistry, "png");
+    }
+
+    /**
+     * 画像のメタデータを除去して一時ファイルに書き出す
+     * JPEG・PNG以外の形式や構造を解析できない画像は、アップロードされたバイト列をそのまま書き出す
+     *
+     * @param file アップロードされた画像
+     * @return 一時ファイルに書き出した画像（使用後にcloseすること）
+     */
+    public StagedImage stage(MultipartFile file) throws IOException {
+        return stage(file, file.getOriginalFilename(), file.getSize());
+    }
+
+    /**
+     * 画像のメタデータを除去して一時ファイルに書き出す（MultipartFile以外の画像用）
+     *
+     * @param image 画像（構造を解析できない場合に先頭から読み直すため、2回開ける必要がある）
+     * @param filename ファイル名（ログ出力用）
+     * @param size 画像のサイズ
+     * @return 一時ファイルに書き出した画像（使用後にcloseすること）
+     */
+    public StagedImage stage(InputStreamSource image, String filename, long size) throws IOException {
+        Path path = Files.createTempFile("upload-", ".img");
+        try {
+            Hashes hashes = stage(image, filename, size, () -> new BufferedOutputStream(Files.newOutputStream(path)));
+            return new StagedImage(path, Files.size(path), hashes.content(), hashes.source());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    /**
+     * メモリ上の画像のメタデータを除去し、メモリ上に保持する（一時ファイルに書き出さない）
+     * 呼び出し元が既に画像全体をメモリに読み込んでいる場合（ZIPのエントリ等）に使用する
+     *
+     * @param image 画像のバイト列
+     * @param filename ファイル名（ログ出力用）
+     * @return メモリ上に保持した画像
+     */
+    public StagedImage stage(byte[] image, String filename) throws IOException {
+        ByteArrayOutputStream stripped = new ByteArrayOutputStream(image.length);
+        Hashes hashes = stage(new ByteArrayResource(image), filename, image.length, () -> {
+            stripped.reset();
+            return stripped;
+        });
+        return new StagedImage(stripped.toByteArray(), hashes.content(), hashes.source());
+    }
+
+    private Hashes stage(InputStreamSource image, String filename, long size, Output output) throws IOException {
+        MessageDigest source = sha256();
+        MessageDigest content = sha256();
+        try (InputStream in = new DigestInputStream(image.getInputStream(), source);
+             OutputStream out = new DigestOutputStream(output.open(), content)) {
+            strip(new ImageInput(in), out, size);
+            // EOI・IEND以降の除去したデータも読み切り、sourceHashをアップロードされたバイト列全体のハッシュにする
+            in.transferTo(OutputStream.nullOutputStream());
+        } catch (MalformedImageException e) {
+            log.warn("画像の構造を解析できないためメタデータを除去せずに保存します: file={}, reason={}",
+                    filename, e.getMessage());
+            source.reset();
+            content.reset();
+            try (InputStream in = new DigestInputStream(image.getInputStream(), source);
+                 OutputStream out = new DigestOutputStream(output.open(), content)) {
+                in.transferTo(out);
+            }
+        }
+
+        return new Hashes(hex(content), hex(source));
+    }
+
+    private void strip(ImageInput in, OutputStream out, long originalSize) throws IOException {
+        byte[] head = in.peek(SIGNATURE_LENGTH);
+        CountingOutputStream counting = new CountingOutputStream(out);
+        if (JpegMetadataFilter.matches(head)) {
+            JpegMetadataFilter.filter(in, counting);
+            jpegSavedBytes.record(originalSize - counting.count);
+        } else if (PngMetadataFilter.matches(head)) {
+            PngMetadataFilter.filter(in, counting, originalSize);
+            pngSavedBytes.record(originalSize - counting.count);
+        } else {
+            in.transferRemaining(out);
+        }
+    }
+
+    private static DistributionSummary savedBytes(MeterRegistry meterRegistry, String format) {
+        return DistributionSummary.builder("image.upload.metadata.stripped")
+                .description("アップロード時のメタデータ除去で削減したバイト数")
+                .baseUnit("bytes")
+                .tag("format", format)
+                .register(meterRegistry);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256はすべてのJava実行環境で提供が必須のアルゴリズム
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * 書き出し先（開くたびに先頭から書き直す）
+     */
+    @FunctionalInterface
+    private interface Output {
+        OutputStream open() throws IOException;
+    }
+
+    private record Hashes(String content, String source) {
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
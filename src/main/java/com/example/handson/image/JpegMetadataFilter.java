@@ -0,0 +1,175 @@
+package com.example.handson.image;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * JPEGのメタデータ除去
+ * セグメント単位でコピーするだけで、画像データ（エントロピー符号化データ）はデコードせずそのまま出力する
+ *
+ * <ul>
+ *   <li>残す: 量子化・ハフマンテーブル等の画像データに必要なセグメント、ICCプロファイル（APP2）、Adobe（APP14、色変換の指定）</li>
+ *   <li>置き換える: EXIF（APP1）は向きだけの最小のEXIFに、JFIF（APP0）はサムネイルなしに</li>
+ *   <li>除去する: XMP、サムネイル（JFXX）、MPF等のその他のAPPn、コメント、EOI以降のデータ</li>
+ * </ul>
+ */
+final class JpegMetadataFilter {
+
+    private static final int SOI = 0xD8;
+    private static final int EOI = 0xD9;
+    private static final int SOS = 0xDA;
+    private static final int APP0 = 0xE0;
+    private static final int APP1 = 0xE1;
+    private static final int APP2 = 0xE2;
+    private static final int APP14 = 0xEE;
+    private static final int APP15 = 0xEF;
+    private static final int COM = 0xFE;
+
+    private static final byte[] JFIF = "JFIF\0".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EXIF = "Exif\0\0".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ICC_PROFILE = "ICC_PROFILE\0".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ADOBE = "Adobe".getBytes(StandardCharsets.US_ASCII);
+    private static final int JFIF_HEADER_LENGTH = 14; // 識別子5 + バージョン2 + 単位1 + 密度4 + サムネイルサイズ2
+
+    private JpegMetadataFilter() {
+    }
+
+    static boolean matches(byte[] head) {
+        return head.length >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == SOI && (head[2] & 0xFF) == 0xFF;
+    }
+
+    static void filter(ImageInput in, OutputStream out) throws IOException {
+        if (in.readByte() != 0xFF || in.readByte() != SOI) {
+            throw new MalformedImageException("JPEGのSOIがありません");
+        }
+        writeMarker(out, SOI);
+
+        // フレームヘッダー部: 最初のSOSまでのセグメント
+        while (true) {
+            int marker = readMarker(in);
+            if (marker == EOI) {
+                writeMarker(out, EOI);
+                return;
+            }
+            if (isStandalone(marker)) {
+                writeMarker(out, marker);
+                continue;
+            }
+            copyOrDropSegment(in, out, marker);
+            if (marker == SOS) {
+                break;
+            }
+        }
+
+        // スキャン部: エントロピー符号化データはそのままコピーし、スキャン間のセグメントも同じ規則で処理する
+        while (true) {
+            if (!in.transferUntilMarkerPrefix(out)) {
+                throw new MalformedImageException("JPEGのEOIがありません");
+            }
+            int next = in.readByte();
+            while (next == 0xFF) {
+                next = in.readByte(); // フィルバイト
+            }
+            if (next == 0x00 || isRestart(next)) {
+                // バイトスタッフィング（0xFF 0x00）とリスタートマーカーはデータの一部
+                out.write(0xFF);
+                out.write(next);
+            } else if (next == EOI) {
+                // EOI以降（MPFのプレビュー画像など）は出力しない
+                writeMarker(out, EOI);
+                return;
+            } else {
+                copyOrDropSegment(in, out, next);
+            }
+        }
+    }
+
+    private static void copyOrDropSegment(ImageInput in, OutputStream out, int marker) throws IOException {
+        int length = in.readUnsignedShort();
+        if (length < 2) {
+            throw new MalformedImageException("JPEGのセグメント長が不正です");
+        }
+        int payloadLength = length - 2;
+
+        if (marker == APP0 || marker == APP1) {
+            byte[] payload = in.readFully(payloadLength);
+            if (marker == APP0 && startsWith(payload, JFIF) && payload.length >= JFIF_HEADER_LENGTH) {
+                byte[] header = Arrays.copyOf(payload, JFIF_HEADER_LENGTH);
+                header[12] = 0; // サムネイルの幅
+                header[13] = 0; // サムネイルの高さ
+                writeSegment(out, APP0, header);
+            } else if (marker == APP1 && startsWith(payload, EXIF)) {
+                int orientation = ExifOrientation.parse(payload, EXIF.length);
+                if (orientation != ExifOrientation.NORMAL) {
+                    byte[] tiff = ExifOrientation.minimalTiff(orientation);
+                    byte[] exif = Arrays.copyOf(EXIF, EXIF.length + tiff.length);
+                    System.arraycopy(tiff, 0, exif, EXIF.length, tiff.length);
+                    writeSegment(out, APP1, exif);
+                }
+            }
+            return;
+        }
+
+        if (marker == APP2 || marker == APP14) {
+            byte[] identifier = marker == APP2 ? ICC_PROFILE : ADOBE;
+            byte[] head = in.readFully(Math.min(payloadLength, identifier.length));
+            boolean keep = startsWith(head, identifier);
+            if (keep) {
+                writeMarker(out, marker);
+                out.write(length >> 8);
+                out.write(length);
+                out.write(head);
+            }
+            in.transferTo(keep ? out : null, payloadLength - head.length);
+            return;
+        }
+
+        if ((marker >= APP0 && marker <= APP15) || marker == COM) {
+            in.transferTo(null, payloadLength);
+            return;
+        }
+
+        writeMarker(out, marker);
+        out.write(length >> 8);
+        out.write(length);
+        in.transferTo(out, payloadLength);
+    }
+
+    private static int readMarker(ImageInput in) throws IOException {
+        if (in.readByte() != 0xFF) {
+            throw new MalformedImageException("JPEGのマーカーがありません");
+        }
+        int marker = in.readByte();
+        while (marker == 0xFF) {
+            marker = in.readByte();
+        }
+        return marker;
+    }
+
+    private static boolean isStandalone(int marker) {
+        return isRestart(marker) || marker == 0x01;
+    }
+
+    private static boolean isRestart(int marker) {
+        return marker >= 0xD0 && marker <= 0xD7;
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        return bytes.length >= prefix.length && Arrays.equals(bytes, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    private static void writeMarker(OutputStream out, int marker) throws IOException {
+        out.write(0xFF);
+        out.write(marker);
+    }
+
+    private static void writeSegment(OutputStream out, int marker, byte[] payload) throws IOException {
+        writeMarker(out, marker);
+        int length = payload.length + 2;
+        out.write(length >> 8);
+        out.write(length);
+        out.write(payload);
+    }
+}
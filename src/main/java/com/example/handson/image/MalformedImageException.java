@@ -0,0 +1,14 @@
+package com.example.handson.image;
+
+import java.io.IOException;
+
+/**
+ * 画像の構造（JPEGのセグメント・PNGのチャンク）が解析できない場合の例外
+ * メタデータ除去を諦め、アップロードされたバイト列をそのまま保存するために使用する
+ */
+class MalformedImageException extends IOException {
+
+    MalformedImageException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.handson.image;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * PNGのメタデータ除去
+ * チャンク単位でコピーするだけで、画像データ（IDAT）は展開せずそのまま出力する
+ *
+ * <ul>
+ *   <li>残す: 必須チャンク（IHDR・PLTE・IDAT・IEND）、透過・色空間（tRNS・gAMA・cHRM・sRGB・iCCP・sBIT・cICP・mDCV・cLLI・bKGD）、APNGのアニメーション</li>
+ *   <li>置き換える: eXIfは向きだけの最小のEXIFに（MAX_EXIF_LENGTHを超えるeXIfは読み込まずに除去する）</li>
+ *   <li>除去する: テキスト（tEXt・zTXt・iTXt）、日時・解像度などのその他の補助チャンク、IEND以降のデータ</li>
+ * </ul>
+ */
+final class PngMetadataFilter {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int MAX_CHUNK_LENGTH = Integer.MAX_VALUE;
+    /**
+     * 向きを読むためにメモリに読み込むeXIfの上限（JPEGのAPP1と同じく64KB）
+     */
+    private static final int MAX_EXIF_LENGTH = 64 * 1024;
+
+    private static final String EXIF = "eXIf";
+    private static final String IEND = "IEND";
+
+    /**
+     * 残す補助チャンク（必須チャンクはチャンク名の1文字目が大文字のため常に残す）
+     */
+    private static final Set<String> KEPT_ANCILLARY_CHUNKS = Set.of(
+            "tRNS", "gAMA", "cHRM", "sRGB", "iCCP", "sBIT", "cICP", "mDCV", "cLLI", "bKGD",
+            "acTL", "fcTL", "fdAT");
+
+    private PngMetadataFilter() {
+    }
+
+    static boolean matches(byte[] head) {
+        return head.length >= SIGNATURE.length && Arrays.equals(head, 0, SIGNATURE.length, SIGNATURE, 0, SIGNATURE.length);
+    }
+
+    /**
+     * @param size 画像全体のサイズ（これを超える長さのチャンクは不正として扱う）
+     */
+    static void filter(ImageInput in, OutputStream out, long size) throws IOException {
+        if (!Arrays.equals(in.readFully(SIGNATURE.length), SIGNATURE)) {
+            throw new MalformedImageException("PNGのシグネチャがありません");
+        }
+        out.write(SIGNATURE);
+
+        while (true) {
+            long length = in.readUnsignedInt();
+            if (length > MAX_CHUNK_LENGTH || length > size) {
+                throw new MalformedImageException("PNGのチャンク長が不正です");
+            }
+            byte[] type = in.readFully(4);
+            String name = new String(type, StandardCharsets.US_ASCII);
+
+            if (EXIF.equals(name) && length <= MAX_EXIF_LENGTH) {
+                int orientation = ExifOrientation.parse(in.readFully((int) length), 0);
+                in.transferTo(null, 4);
+                if (orientation != ExifOrientation.NORMAL) {
+                    writeChunk(out, type, ExifOrientation.minimalTiff(orientation));
+                }
+            } else if (isCritical(type) || KEPT_ANCILLARY_CHUNKS.contains(name)) {
+                out.write(ByteBuffer.allocate(4).putInt((int) length).array());
+                out.write(type);
+                in.transferTo(out, length + 4); // データ + CRC
+            } else {
+                in.transferTo(null, length + 4);
+            }
+
+            if (IEND.equals(name)) {
+                // IEND以降のデータは出力しない
+                return;
+            }
+        }
+    }
+
+    private static boolean isCritical(byte[] type) {
+        return Character.isUpperCase(type[0]);
+    }
+
+    private static void writeChunk(OutputStream out, byte[] type, byte[] data) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(data);
+        out.write(ByteBuffer.allocate(8).putInt(data.length).put(type).array());
+        out.write(data);
+        out.write(ByteBuffer.allocate(4).putInt((int) crc.getValue()).array());
+    }
+}
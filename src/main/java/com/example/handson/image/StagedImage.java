@@ -0,0 +1,56 @@
+package com.example.handson.image;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * S3へのアップロード前にメタデータを除去した画像
+ * 一時ファイル（path）かメモリ上のバイト列（content）のどちらか一方に保持する
+ * close時に一時ファイルを削除する
+ *
+ * @param path 一時ファイル（メタデータ除去後のバイト列。メモリ上に保持する場合はnull）
+ * @param content メタデータ除去後のバイト列（一時ファイルに書き出した場合はnull）
+ * @param size メタデータ除去後のサイズ
+ * @param contentHash メタデータ除去後の内容のSHA-256（保存先のキー）
+ * @param sourceHash アップロードされたバイト列のSHA-256（アップロード前の重複確認に使用）
+ */
+public record StagedImage(Path path, byte[] content, long size, String contentHash, String sourceHash)
+        implements AutoCloseable {
+
+    /**
+     * 一時ファイルに書き出した画像
+     */
+    public StagedImage(Path path, long size, String contentHash, String sourceHash) {
+        this(path, null, size, contentHash, sourceHash);
+    }
+
+    /**
+     * メモリ上に保持する画像
+     */
+    public StagedImage(byte[] content, String contentHash, String sourceHash) {
+        this(null, content, content.length, contentHash, sourceHash);
+    }
+
+    /**
+     * メタデータ除去後のバイト列を先頭から読む
+     */
+    public InputStream openStream() throws IOException {
+        return path != null ? Files.newInputStream(path) : new ByteArrayInputStream(content);
+    }
+
+    @Override
+    public void close() {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
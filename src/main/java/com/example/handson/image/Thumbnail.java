@@ -0,0 +1,169 @@
+package com.example.handson.image;
+
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 一覧表示用の小さなサムネイル・コンタクトシートの作成
+ * 元画像を縮小しながら読み込み（ImageReadParamの間引き）、EXIFの向きを適用して、指定サイズを覆うように中央で切り抜く
+ * 元画像全体を原寸で展開しないため、大きなカメラ画像でもメモリ使用量は縮小後のサイズ程度に収まる
+ */
+public final class Thumbnail {
+
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+    private static final int APP1_MARKER = 0xE1;
+    private static final byte[] EXIF_HEADER = "Exif\0\0".getBytes(StandardCharsets.US_ASCII);
+    private static final Color PLACEHOLDER_COLOR = new Color(0xEE, 0xEE, 0xEE);
+
+    private Thumbnail() {
+    }
+
+    /**
+     * サムネイルを作成する（透過部分は白で塗る）
+     *
+     * @param in 画像（JPEG・PNG・GIF。closeしない）
+     * @param width サムネイルの幅
+     * @param height サムネイルの高さ
+     * @return サムネイル
+     * @throws IOException 読み込めない形式・壊れた画像の場合
+     */
+    public static BufferedImage cover(InputStream in, int width, int height) throws IOException {
+        // ImageIO.createImageInputStreamは一時ファイルにキャッシュするため、メモリ上でキャッシュする
+        try (ImageInputStream input = new MemoryCacheImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new MalformedImageException("画像の形式を判別できません");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, false);
+                int orientation = orientation(reader);
+                boolean swapped = ExifOrientation.swapsDimensions(orientation);
+                int displayWidth = swapped ? reader.getHeight(0) : reader.getWidth(0);
+                int displayHeight = swapped ? reader.getWidth(0) : reader.getHeight(0);
+
+                // サムネイルより小さくならない範囲で、画素を間引いて読み込む
+                int step = Math.max(1, Math.min(displayWidth / width, displayHeight / height));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                BufferedImage source = reader.read(0, param);
+
+                return draw(source, orientation, width, height);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * サムネイルを縦に並べた1枚のJPEGを作成する（i番目は上からi × height の位置。nullと空き枠は灰色で塗る）
+     *
+     * @param thumbnails サムネイル（幅width・高さheight。作成できなかったものはnull）
+     * @param slots 並べる枠の数（thumbnailsの数以上）
+     * @param width サムネイルの幅
+     * @param height サムネイルの高さ
+     * @param quality JPEGの品質（0.0〜1.0）
+     * @return JPEG
+     */
+    public static byte[] stackAsJpeg(List<BufferedImage> thumbnails, int slots, int width, int height, float quality)
+            throws IOException {
+        BufferedImage sheet = new BufferedImage(width, height * slots, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = sheet.createGraphics();
+        try {
+            graphics.setColor(PLACEHOLDER_COLOR);
+            graphics.fillRect(0, 0, sheet.getWidth(), sheet.getHeight());
+            for (int i = 0; i < thumbnails.size(); i++) {
+                if (thumbnails.get(i) != null) {
+                    graphics.drawImage(thumbnails.get(i), 0, i * height, null);
+                }
+            }
+        } finally {
+            graphics.dispose();
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = new MemoryCacheImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(sheet, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static BufferedImage draw(BufferedImage source, int orientation, int width, int height) {
+        AffineTransform toDisplay = ExifOrientation.toDisplay(orientation, source.getWidth(), source.getHeight());
+        boolean swapped = ExifOrientation.swapsDimensions(orientation);
+        double displayWidth = swapped ? source.getHeight() : source.getWidth();
+        double displayHeight = swapped ? source.getWidth() : source.getHeight();
+        double scale = Math.max(width / displayWidth, height / displayHeight);
+
+        AffineTransform transform = new AffineTransform();
+        transform.translate((width - displayWidth * scale) / 2, (height - displayHeight * scale) / 2);
+        transform.scale(scale, scale);
+        transform.concatenate(toDisplay);
+
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return thumbnail;
+    }
+
+    /**
+     * JPEGのEXIF（APP1）から向きを取得（JPEG以外・EXIFがない場合は回転なし）
+     */
+    private static int orientation(ImageReader reader) throws IOException {
+        IIOMetadata metadata = reader.getImageMetadata(0);
+        if (metadata == null || !JPEG_METADATA_FORMAT.equals(metadata.getNativeMetadataFormatName())) {
+            return ExifOrientation.NORMAL;
+        }
+        Node markers = metadata.getAsTree(JPEG_METADATA_FORMAT).getLastChild();
+        for (Node marker = markers.getFirstChild(); marker != null; marker = marker.getNextSibling()) {
+            if (marker instanceof IIOMetadataNode unknown
+                    && "unknown".equals(unknown.getNodeName())
+                    && String.valueOf(APP1_MARKER).equals(unknown.getAttribute("MarkerTag"))
+                    && unknown.getUserObject() instanceof byte[] data
+                    && data.length > EXIF_HEADER.length
+                    && Arrays.equals(data, 0, EXIF_HEADER.length, EXIF_HEADER, 0, EXIF_HEADER.length)) {
+                return ExifOrientation.parse(data, EXIF_HEADER.length);
+            }
+        }
+        return ExifOrientation.NORMAL;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.handson.ratelimit;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * ユーザー単位のレート制限を超過した場合の例外
+ * GlobalExceptionHandlerで429 Too Many RequestsとRetry-Afterヘッダーを返す
+ */
+@Getter
+public class RateLimitExceededException extends RuntimeException {
+
+    private final RateLimitedEndpoint endpoint;
+
+    /**
+     * 次のリクエストを受け付けられるようになるまでの時間
+     */
+    private final Duration retryAfter;
+
+    /**
+     * 超過したエンドポイントと再試行までの時間を指定してRateLimitExceededExceptionを生成
+     *
+     * @param endpoint エンドポイントの種類
+     * @param retryAfter 再試行までの時間
+     */
+    public RateLimitExceededException(RateLimitedEndpoint endpoint, Duration retryAfter) {
+        super("リクエストが多すぎます。しばらく時間をおいて再度お試しください。");
+        this.endpoint = endpoint;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Retry-Afterヘッダーの値（秒、切り上げ・最小1秒）
+     */
+    public long getRetryAfterSeconds() {
+        long seconds = retryAfter.toSeconds();
+        return retryAfter.toNanosPart() > 0 || seconds == 0 ? seconds + 1 : seconds;
+    }
+}
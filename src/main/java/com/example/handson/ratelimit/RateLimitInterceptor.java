@@ -0,0 +1,50 @@
+package com.example.handson.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.time.Duration;
+
+/**
+ * {@link RateLimited}を付与したハンドラーメソッドを、ログイン中のユーザー単位でレート制限する
+ * セキュリティフィルターの後に実行されるため、認証済みのユーザー名をキーにできる
+ * 超過時はハンドラー（S3アクセス・DBアクセス）を実行せずにRateLimitExceededExceptionをスローする
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final UserRateLimiter userRateLimiter;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        RateLimited rateLimited = handlerMethod.getMethodAnnotation(RateLimited.class);
+        if (rateLimited == null) {
+            return true;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            // 未認証のリクエストはSpring Securityが拒否する
+            return true;
+        }
+
+        long waitNanos = userRateLimiter.tryAcquire(rateLimited.value(), authentication.getName());
+        if (waitNanos > 0) {
+            log.debug("レート制限によりリクエストを拒否しました: endpoint={}, username={}",
+                    rateLimited.value(), authentication.getName());
+            throw new RateLimitExceededException(rateLimited.value(), Duration.ofNanos(waitNanos));
+        }
+        return true;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.handson.ratelimit;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * ログイン中のユーザー単位でレート制限するハンドラーメソッドに付与する
+ * 超過したリクエストはハンドラーを実行せずに429 Too Many Requestsを返す（RateLimitInterceptor）
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RateLimited {
+
+    /**
+     * エンドポイントの種類（種類ごとに独立して制限する）
+     */
+    RateLimitedEndpoint value();
+}
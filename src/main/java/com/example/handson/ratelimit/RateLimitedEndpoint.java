@@ -0,0 +1,51 @@
+package com.example.handson.ratelimit;
+
+import com.example.handson.config.RateLimitProperties;
+
+/**
+ * レート制限の対象とするエンドポイントの種類
+ * 種類ごとに独立したバケットで制限する
+ */
+public enum RateLimitedEndpoint {
+
+    /**
+     * 画像メモの作成（S3へのアップロード）
+     */
+    UPLOAD,
+
+    /**
+     * 画像メモの一括作成（1リクエストで複数ファイルをS3へアップロード）
+     */
+    BATCH_UPLOAD,
+
+    /**
+     * 画像の配信（S3からのダウンロード）
+     */
+    IMAGE,
+
+    /**
+     * 一覧ページのコンタクトシートと位置情報（1枚で最大app.memo-list.contact-sheet.max-tiles件の画像をS3からダウンロード）
+     */
+    CONTACT_SHEET,
+
+    /**
+     * 全画像メモのZIPエクスポート（1リクエストで全画像をS3からダウンロード）
+     */
+    EXPORT,
+
+    /**
+     * ZIPからの一括インポートの開始（1回のインポートで多数の画像をS3へアップロード）
+     */
+    ZIP_IMPORT;
+
+    RateLimitProperties.Limit limitIn(RateLimitProperties properties) {
+        return switch (this) {
+            case UPLOAD -> properties.getUpload();
+            case BATCH_UPLOAD -> properties.getBatchUpload();
+            case IMAGE -> properties.getImage();
+            case CONTACT_SHEET -> properties.getContactSheet();
+            case EXPORT -> properties.getExport();
+            case ZIP_IMPORT -> properties.getZipImport();
+        };
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.handson.ratelimit;
+
+import com.example.handson.config.RateLimitProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * ユーザー単位のレート制限（トークンバケット）
+ * バケットはGCRA（Generic Cell Rate Algorithm）で表現し、1ユーザー分の状態は
+ * 「次にバケットが満杯になる時刻」のlong値1つだけにする
+ *
+ * ユーザー名を固定数のストライプに振り分け、ストライプ内ではユーザー名ごとに正確に状態を持つ
+ * ストライプは同時更新のロックの単位で、衝突したユーザー同士がバケットを共有することはない
+ * 振り分けにはプロセスごとの乱数を混ぜ、特定のユーザーと同じストライプになるユーザー名を作れないようにする
+ * 1ストライプで保持するユーザー名の数に上限を設けるため、ユーザー数に関係なくメモリ使用量は一定
+ * （上限を超えた場合は満杯に戻ったバケット、なければ満杯に最も近いバケットを破棄する。
+ * 破棄されたユーザーは満杯のバケットから再開するだけで、他のユーザーが制限されることはない）
+ */
+@Component
+public class UserRateLimiter {
+
+    private final boolean enabled;
+    private final Map<RateLimitedEndpoint, Buckets> buckets = new EnumMap<>(RateLimitedEndpoint.class);
+    private final LongSupplier nanoClock;
+    private final long origin;
+    private final long seed = new SecureRandom().nextLong();
+
+    @Autowired
+    public UserRateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    UserRateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.enabled = properties.isEnabled();
+        this.nanoClock = nanoClock;
+        // System.nanoTime()は負の値を取りうるため、起動時からの経過時間で扱う
+        this.origin = nanoClock.getAsLong();
+        for (RateLimitedEndpoint endpoint : RateLimitedEndpoint.values()) {
+            RateLimitProperties.Limit limit = endpoint.limitIn(properties);
+            Counter rejected = Counter.builder("http.rate.limit.rejected")
+                    .description("ユーザー単位のレート制限で拒否したリクエスト数")
+                    .tag("endpoint", endpoint.name().toLowerCase())
+                    .register(meterRegistry);
+            buckets.put(endpoint, new Buckets(properties.getStripes(), properties.getUsernamesPerStripe(),
+                    limit.getCapacity(), limit.getRefillInterval().toNanos(), rejected));
+        }
+    }
+
+    /**
+     * リクエスト1件分のトークンを取得
+     *
+     * @param endpoint エンドポイントの種類
+     * @param username ログイン中のユーザー名
+     * @return 受け付けた場合は0、超過した場合は次に受け付けられるまでの時間（ナノ秒）
+     */
+    public long tryAcquire(RateLimitedEndpoint endpoint, String username) {
+        if (!enabled) {
+            return 0;
+        }
+        return buckets.get(endpoint).tryAcquire(username, stripeOf(username), nanoClock.getAsLong() - origin);
+    }
+
+    /**
+     * ユーザー名の文字にプロセスごとの乱数を混ぜたハッシュで振り分ける
+     * （String.hashCode()は衝突するユーザー名を簡単に作れるため使わない）
+     */
+    private int stripeOf(String username) {
+        long hash = seed;
+        for (int i = 0; i < username.length(); i++) {
+            hash = (hash ^ username.charAt(i)) * 0x9E3779B97F4A7C15L;
+            hash ^= hash >>> 29;
+        }
+        return (int) (hash >>> 33);
+    }
+
+    /**
+     * エンドポイント1種類分のバケット
+     * 各ユーザーのTAT（理論到着時刻）はバケットが満杯に戻る時刻を表す
+     * 取得のたびに回復間隔だけ進め、現在時刻より容量分を超えて先に進む場合は拒否する
+     */
+    private static final class Buckets {
+
+        private final Stripe[] stripes;
+        private final long refillIntervalNanos;
+        private final long burstNanos;
+        private final Counter rejected;
+
+        private Buckets(int stripeCount, int usernamesPerStripe, int capacity, long refillIntervalNanos,
+                        Counter rejected) {
+            this.stripes = new Stripe[stripeCount];
+            for (int i = 0; i < stripeCount; i++) {
+                stripes[i] = new Stripe(usernamesPerStripe);
+            }
+            this.refillIntervalNanos = refillIntervalNanos;
+            this.burstNanos = refillIntervalNanos * capacity;
+            this.rejected = rejected;
+        }
+
+        long tryAcquire(String username, int hash, long now) {
+            long wait = stripes[Math.floorMod(hash, stripes.length)]
+                    .tryAcquire(username, now, refillIntervalNanos, burstNanos);
+            if (wait > 0) {
+                rejected.increment();
+            }
+            return wait;
+        }
+    }
+
+    /**
+     * ユーザー名ごとのTAT（ストライプ単位でロック）
+     * アイドル状態のユーザーは過去の時刻が残るだけで満杯のバケットと同じ扱いになるため、
+     * 保持数の上限に達するまで破棄しない
+     */
+    private static final class Stripe {
+
+        private final int capacity;
+        private final Map<String, Bucket> buckets = new HashMap<>();
+
+        Stripe(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized long tryAcquire(String username, long now, long refillIntervalNanos, long burstNanos) {
+            Bucket bucket = buckets.get(username);
+            long next = Math.max(bucket == null ? now : bucket.tat, now) + refillIntervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket == null) {
+                if (buckets.size() >= capacity) {
+                    evict(now);
+                }
+                bucket = new Bucket();
+                buckets.put(username, bucket);
+            }
+            bucket.tat = next;
+            return 0;
+        }
+
+        /**
+         * 1件を破棄する（満杯に戻ったもの → 満杯に最も近いものの順）
+         * 制限中のユーザーを、別のユーザー名のリクエストで押し出して解除させない
+         */
+        private void evict(long now) {
+            String victim = null;
+            long earliest = Long.MAX_VALUE;
+            for (Map.Entry<String, Bucket> entry : buckets.entrySet()) {
+                long tat = entry.getValue().tat;
+                if (tat <= now) {
+                    victim = entry.getKey();
+                    break;
+                }
+                if (tat < earliest) {
+                    earliest = tat;
+                    victim = entry.getKey();
+                }
+            }
+            buckets.remove(victim);
+        }
+    }
+
+    private static final class Bucket {
+
+        private long tat;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.handson.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * BCrypt計算を専用の有界スレッドプールで実行するPasswordEncoder
+ * ログイン・登録が集中してもBCryptが使うCPUをスレッド数で頭打ちにし、
+ * 画像配信などの他リクエストがCPUを使えるようにする
+ * キューが溢れた場合は待たせずに拒否する（ロードシェディング）
+ */
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+
+    /**
+     * @param delegate 実際のハッシュ計算を行うPasswordEncoder
+     * @param threads ハッシュ計算スレッド数
+     * @param queueCapacity 待ちキューの上限（0の場合は空きスレッドがなければ即拒否）
+     * @param timeout 計算完了までの待ち時間上限
+     */
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, Duration timeout) {
+        this.delegate = delegate;
+        this.timeout = timeout;
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new SynchronousQueue<>(),
+                Thread.ofPlatform().name("password-hash-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        // ハッシュ文字列の解析のみでCPU負荷は小さいため、呼び出しスレッドで実行
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * 現在の待ちキュー長（監視用）
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> T execute(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("パスワードハッシュ計算の待ちキューが上限に達したため拒否しました: queueDepth={}", getQueueDepth());
+            throw new PasswordHashingRejectedException("ログイン処理が混雑しています。しばらく時間をおいて再度お試しください。", e);
+        }
+
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("パスワードハッシュ計算が待ち時間上限を超えました: timeout={}", timeout);
+            throw new PasswordHashingRejectedException("ログイン処理が混雑しています。しばらく時間をおいて再度お試しください。", e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException("パスワードハッシュ計算が中断されました", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("パスワードハッシュ計算に失敗しました", e.getCause());
+        }
+    }
+}
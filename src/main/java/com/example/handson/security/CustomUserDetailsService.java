@@ -19,6 +19,7 @@ import java.util.ArrayList;
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final LoginAttemptThrottle loginAttemptThrottle;
 
     @Override
     @Transactional(readOnly = true)
@@ -32,7 +33,7 @@ public class CustomUserDetailsService implements UserDetailsService {
                 user.isEnabled(),
                 true, // accountNonExpired
                 true, // credentialsNonExpired
-                true, // accountNonLocked
+                !loginAttemptThrottle.isBlocked(username), // accountNonLocked（連続失敗中はBCrypt照合前にロック扱い）
                 new ArrayList<>() // authorities
         );
     }
@@ -0,0 +1,184 @@
+package com.example.handson.security;
+
+import com.example.handson.config.LoginProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * ユーザー名ごとのログイン失敗回数によるスロットリング
+ * ユーザー名のハッシュで固定数のストライプに振り分け、ストライプ内ではユーザー名ごとに正確にカウントする
+ * ストライプは同時更新のロックの単位で、衝突したユーザー同士がカウンタを共有することはない
+ * （別のユーザー名への失敗でロックされることはない）
+ * 1ストライプで保持するユーザー名の数に上限を設けるため、ユーザー数に関係なくメモリ使用量は一定
+ * 上限を超えたユーザー名はBCrypt照合の前にロック扱いとし、CPUを消費させない
+ */
+@Component
+@Slf4j
+public class LoginAttemptThrottle {
+
+    private final Stripe[] stripes;
+    private final int maxFailedAttempts;
+    private final long windowNanos;
+    private final LongSupplier nanoClock;
+
+    @Autowired
+    public LoginAttemptThrottle(LoginProperties loginProperties) {
+        this(loginProperties.getAttemptStripes(),
+                loginProperties.getAttemptsPerStripe(),
+                loginProperties.getMaxFailedAttempts(),
+                loginProperties.getFailureWindow().toNanos(),
+                System::nanoTime);
+    }
+
+    LoginAttemptThrottle(int stripeCount, int usernamesPerStripe, int maxFailedAttempts, long windowNanos,
+                         LongSupplier nanoClock) {
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(usernamesPerStripe, maxFailedAttempts);
+        }
+        this.maxFailedAttempts = maxFailedAttempts;
+        this.windowNanos = windowNanos;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * ユーザー名が一時ロック中か判定
+     *
+     * @param username ユーザー名
+     * @return 失敗回数が上限に達している場合はtrue
+     */
+    public boolean isBlocked(String username) {
+        return stripeOf(username).failures(username, nanoClock.getAsLong(), windowNanos) >= maxFailedAttempts;
+    }
+
+    /**
+     * ログイン失敗を記録
+     *
+     * @param username ユーザー名
+     */
+    public void recordFailure(String username) {
+        int failures = stripeOf(username).increment(username, nanoClock.getAsLong(), windowNanos);
+        if (failures == maxFailedAttempts) {
+            log.warn("ログイン失敗回数が上限に達したため一時ロックします: username={}", username);
+        }
+    }
+
+    /**
+     * ログイン成功時に失敗回数をリセット
+     *
+     * @param username ユーザー名
+     */
+    public void reset(String username) {
+        stripeOf(username).reset(username);
+    }
+
+    @EventListener
+    public void onAuthenticationFailure(AuthenticationFailureBadCredentialsEvent event) {
+        recordFailure(event.getAuthentication().getName());
+    }
+
+    @EventListener
+    public void onAuthenticationSuccess(AuthenticationSuccessEvent event) {
+        reset(event.getAuthentication().getName());
+    }
+
+    private Stripe stripeOf(String username) {
+        int hash = username == null ? 0 : username.hashCode();
+        // 上位ビットを混ぜて偏りを抑える
+        hash ^= (hash >>> 16);
+        return stripes[Math.floorMod(hash, stripes.length)];
+    }
+
+    /**
+     * ユーザー名ごとの固定時間窓の失敗カウンタ（ストライプ単位でロック）
+     * 保持数の上限に達した場合は、ロック中でないユーザー名から古い順に破棄する
+     * （ロック中のユーザー名を別のユーザー名への失敗で押し出して解除させない）
+     */
+    private static final class Stripe {
+
+        private final int capacity;
+        private final int maxFailedAttempts;
+        private final Map<String, Counter> counters = new LinkedHashMap<>();
+
+        Stripe(int capacity, int maxFailedAttempts) {
+            this.capacity = capacity;
+            this.maxFailedAttempts = maxFailedAttempts;
+        }
+
+        synchronized int failures(String username, long now, long windowNanos) {
+            Counter counter = counters.get(key(username));
+            if (counter == null) {
+                return 0;
+            }
+            if (counter.expired(now, windowNanos)) {
+                counters.remove(key(username));
+                return 0;
+            }
+            return counter.failures;
+        }
+
+        synchronized int increment(String username, long now, long windowNanos) {
+            Counter counter = counters.get(key(username));
+            if (counter == null || counter.expired(now, windowNanos)) {
+                counters.remove(key(username));
+                if (counters.size() >= capacity) {
+                    evict(now, windowNanos);
+                }
+                counter = new Counter(now);
+                counters.put(key(username), counter);
+            }
+            return ++counter.failures;
+        }
+
+        synchronized void reset(String username) {
+            counters.remove(key(username));
+        }
+
+        /**
+         * 1件を破棄する（期限切れ → ロック中でないもの → 最も古いものの順）
+         */
+        private void evict(long now, long windowNanos) {
+            String victim = null;
+            for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+                Counter counter = entry.getValue();
+                if (counter.expired(now, windowNanos)) {
+                    victim = entry.getKey();
+                    break;
+                }
+                if (victim == null && counter.failures < maxFailedAttempts) {
+                    victim = entry.getKey();
+                }
+            }
+            if (victim == null) {
+                victim = counters.keySet().iterator().next();
+            }
+            counters.remove(victim);
+        }
+
+        private static String key(String username) {
+            return username == null ? "" : username;
+        }
+    }
+
+    private static final class Counter {
+
+        private final long windowStart;
+        private int failures;
+
+        Counter(long windowStart) {
+            this.windowStart = windowStart;
+        }
+
+        boolean expired(long now, long windowNanos) {
+            return now - windowStart >= windowNanos;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.handson.security;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * パスワードハッシュ計算の受付を拒否した場合の例外
+ * BCrypt専用スレッドプールが飽和している、または待ち時間が上限を超えた場合にスローする
+ * ログイン時はAuthenticationExceptionとして扱われ、ログイン失敗画面へ誘導される
+ */
+public class PasswordHashingRejectedException extends AuthenticationServiceException {
+
+    /**
+     * エラーメッセージを指定してPasswordHashingRejectedExceptionを生成
+     *
+     * @param message エラーメッセージ
+     */
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+
+    /**
+     * エラーメッセージと原因例外を指定してPasswordHashingRejectedExceptionを生成
+     *
+     * @param message エラーメッセージ
+     * @param cause 原因例外
+     */
+    public PasswordHashingRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.handson.service;
+
+import java.util.List;
+
+/**
+ * コンタクトシート（一覧1ページ分のサムネイルを縦に並べた1枚のJPEG）
+ * i番目の画像メモのサムネイルは、上から i × tileHeight の位置にある
+ *
+ * @param memoIds 並べた画像メモのID（一覧と同じ順）
+ * @param slots 枠の数（一覧の1ページの件数。画像メモが足りない枠は空き）
+ * @param tileWidth サムネイル1枚の幅
+ * @param tileHeight サムネイル1枚の高さ
+ * @param complete すべての画像メモのサムネイルを作成できたか（falseの場合、作成できなかった枠は空き）
+ * @param image JPEG
+ */
+public record ContactSheet(List<Long> memoIds, int slots, int tileWidth, int tileHeight, boolean complete,
+                           byte[] image) {
+}
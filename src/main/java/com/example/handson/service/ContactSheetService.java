@@ -0,0 +1,159 @@
+package com.example.handson.service;
+
+import com.example.handson.concurrency.BoundedParallelism;
+import com.example.handson.config.MemoListProperties;
+import com.example.handson.config.S3Properties;
+import com.example.handson.domain.imagememo.ImageMemoImageRef;
+import com.example.handson.dto.ContactSheetMap;
+import com.example.handson.exception.StorageOverloadedException;
+import com.example.handson.image.Thumbnail;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * コンタクトシート（一覧1ページ分のサムネイルを縦に並べた1枚の画像）のサービス
+ * 一覧ページは画像ごとのリクエスト（ユーザーの取得・所有者チェック・S3からの取得）の前に、
+ * コンタクトシート1枚をプレースホルダーとして表示する
+ *
+ * 作成したコンタクトシートは並べた画像メモのIDをキーにキャッシュする
+ * 画像メモの画像は変更されないため、同じIDの並びなら同じ画像になる（IDは所有者で絞り込んだ一覧から取得する）
+ * メモリ使用量は件数と画像の合計バイト数の上限付きのLRUで制限する
+ */
+@Service
+@Slf4j
+public class ContactSheetService {
+
+    private final ImageMemoService imageMemoService;
+    private final S3Service s3Service;
+    private final S3Properties s3Properties;
+    private final MemoListProperties.ContactSheet settings;
+    private final Map<Key, ContactSheet> sheets = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public ContactSheetService(ImageMemoService imageMemoService, S3Service s3Service, S3Properties s3Properties,
+                               MemoListProperties memoListProperties) {
+        this.imageMemoService = imageMemoService;
+        this.s3Service = s3Service;
+        this.s3Properties = s3Properties;
+        this.settings = memoListProperties.getContactSheet();
+    }
+
+    /**
+     * 一覧の指定ページのコンタクトシートを取得（未キャッシュならS3から画像を取得して作成する）
+     * 取得・読み込みに失敗した画像の枠は空きにし、その場合はキャッシュしない
+     *
+     * @param userId ユーザーID
+     * @param pageable 一覧のページング情報
+     * @return コンタクトシート
+     * @throws IllegalArgumentException 1ページの件数がサムネイルの最大数を超える場合
+     */
+    public ContactSheet getContactSheet(Long userId, Pageable pageable) {
+        validate(pageable);
+        List<ImageMemoImageRef> refs = imageMemoService.findImageRefPage(userId, pageable);
+        Key key = new Key(refs.stream().map(ImageMemoImageRef::id).toList(), pageable.getPageSize());
+        ContactSheet cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long start = System.nanoTime();
+        List<BufferedImage> thumbnails = BoundedParallelism.map(refs, settings.getParallelism(),
+                "contact-sheet-", this::thumbnail);
+        byte[] image;
+        try {
+            image = Thumbnail.stackAsJpeg(thumbnails, key.slots(),
+                    settings.getTileWidth(), settings.getTileHeight(), settings.getQuality());
+        } catch (IOException e) {
+            throw new UncheckedIOException("コンタクトシートの書き出しに失敗しました", e);
+        }
+        boolean complete = thumbnails.stream().allMatch(Objects::nonNull);
+        ContactSheet sheet = new ContactSheet(key.memoIds(), key.slots(),
+                settings.getTileWidth(), settings.getTileHeight(), complete, image);
+        if (complete) {
+            put(key, sheet);
+        }
+        log.info("コンタクトシートを作成しました: userId={}, memos={}, bytes={}, elapsedMs={}",
+                userId, refs.size(), image.length, (System.nanoTime() - start) / 1_000_000);
+        return sheet;
+    }
+
+    /**
+     * 一覧の指定ページのコンタクトシートの各サムネイルの位置（画像は作成しない）
+     *
+     * @param userId ユーザーID
+     * @param pageable 一覧のページング情報
+     * @param imageUrl コンタクトシートのURL
+     * @return サムネイルの位置
+     * @throws IllegalArgumentException 1ページの件数がサムネイルの最大数を超える場合
+     */
+    public ContactSheetMap getMap(Long userId, Pageable pageable, String imageUrl) {
+        validate(pageable);
+        List<ImageMemoImageRef> refs = imageMemoService.findImageRefPage(userId, pageable);
+        int width = settings.getTileWidth();
+        int height = settings.getTileHeight();
+        List<ContactSheetMap.Tile> tiles = IntStream.range(0, refs.size())
+                .mapToObj(i -> new ContactSheetMap.Tile(refs.get(i).id(), 0, i * height, width, height))
+                .toList();
+        return new ContactSheetMap(imageUrl, width, height * pageable.getPageSize(), tiles);
+    }
+
+    private void validate(Pageable pageable) {
+        if (pageable.getPageSize() > settings.getMaxTiles()) {
+            throw new IllegalArgumentException(
+                    "コンタクトシートの件数は" + settings.getMaxTiles() + "件以下で指定してください");
+        }
+    }
+
+    /**
+     * サムネイルを作成（取得・読み込みに失敗した場合はnull。S3の同時実行数の上限超過は503とするためそのままスローする）
+     */
+    private BufferedImage thumbnail(ImageMemoImageRef ref) {
+        try (InputStream in = s3Service.downloadImageStream(s3Properties.getBucketName(), ref.s3Key()).inputStream()) {
+            return Thumbnail.cover(in, settings.getTileWidth(), settings.getTileHeight());
+        } catch (StorageOverloadedException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            log.warn("コンタクトシートのサムネイルを作成できませんでした: id={}, s3Key={}", ref.id(), ref.s3Key(), e);
+            return null;
+        }
+    }
+
+    private synchronized ContactSheet get(Key key) {
+        return sheets.get(key);
+    }
+
+    /**
+     * 件数・合計バイト数の上限を超えた分は、最も長く参照されていないものから破棄する
+     * 1枚で合計バイト数の上限を超えるコンタクトシートはキャッシュしない
+     */
+    private synchronized void put(Key key, ContactSheet sheet) {
+        if (sheet.image().length > settings.getCacheMaxTotalBytes()) {
+            return;
+        }
+        ContactSheet previous = sheets.put(key, sheet);
+        totalBytes += sheet.image().length - (previous != null ? previous.image().length : 0);
+        Iterator<ContactSheet> eldest = sheets.values().iterator();
+        while (sheets.size() > settings.getCacheMaxEntries() || totalBytes > settings.getCacheMaxTotalBytes()) {
+            totalBytes -= eldest.next().image().length;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * キャッシュキー（並べた画像メモのIDと枠の数）
+     */
+    private record Key(List<Long> memoIds, int slots) {
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.handson.service;
+
+import com.example.handson.concurrency.AdaptiveConcurrencyLimiter;
+import com.example.handson.concurrency.HedgeBudget;
+import com.example.handson.concurrency.LatencyWindow;
+import com.example.handson.concurrency.S3ConcurrencyLimits;
+import com.example.handson.config.S3Properties;
+import com.example.handson.exception.StorageException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 画像配信用のS3のGET（ヘッジ付き）
+ * 最初のバイトまでのレイテンシの直近のパーセンタイル（デフォルトp95）を過ぎても応答がない場合、
+ * 同じオブジェクトに2つ目のGETを送り、先に応答した方を使う。遅れた方は中断して接続を破棄する
+ * 2つ目のGETは、予算（リクエストの一定割合）と読み取りの同時実行数に空きがある場合のみ送る
+ *
+ * 各GETは仮想スレッドで実行し、試行ごとに最初のバイトまでのタイムアウトを設定する
+ * （接続・ソケットのタイムアウトはCracConfigでHTTPクライアントに設定）
+ */
+@Component
+@Slf4j
+public class HedgedS3Reader implements AutoCloseable {
+
+    private static final int LATENCY_WINDOW_SIZE = 1024;
+    private static final int LATENCY_MIN_SAMPLES = 32;
+
+    private final S3Client s3Client;
+    private final S3Properties s3Properties;
+    private final S3ConcurrencyLimits s3ConcurrencyLimits;
+    private final LatencyWindow firstByteLatency;
+    private final HedgeBudget budget;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("s3-get-", 0).factory());
+
+    private final Counter hedgesFired;
+    private final Counter hedgesWon;
+    private final Counter skippedByBudget;
+    private final Counter skippedByConcurrency;
+
+    public HedgedS3Reader(S3Client s3Client, S3Properties s3Properties, S3ConcurrencyLimits s3ConcurrencyLimits,
+                          MeterRegistry meterRegistry) {
+        this.s3Client = s3Client;
+        this.s3Properties = s3Properties;
+        this.s3ConcurrencyLimits = s3ConcurrencyLimits;
+        S3Properties.Hedge hedge = s3Properties.getHedge();
+        this.firstByteLatency = new LatencyWindow(LATENCY_WINDOW_SIZE, hedge.getPercentile(), LATENCY_MIN_SAMPLES);
+        this.budget = new HedgeBudget(hedge.getBudgetRatio(), hedge.getBudgetBurst());
+
+        this.hedgesFired = Counter.builder("s3.get.hedge.fired")
+                .description("応答が遅いため2つ目のGETを送った回数")
+                .register(meterRegistry);
+        this.hedgesWon = Counter.builder("s3.get.hedge.won")
+                .description("2つ目のGETが先に応答した回数")
+                .register(meterRegistry);
+        this.skippedByBudget = skipped(meterRegistry, "budget");
+        this.skippedByConcurrency = skipped(meterRegistry, "concurrency");
+        TimeGauge.builder("s3.get.hedge.delay", this, TimeUnit.NANOSECONDS, HedgedS3Reader::hedgeDelayNanos)
+                .description("2つ目のGETを送るまでの待ち時間")
+                .register(meterRegistry);
+    }
+
+    /**
+     * オブジェクトを取得
+     * 読み取りの実行枠を取得し、返却するストリームのclose時に返却する
+     *
+     * @param bucketName バケット名
+     * @param s3Key S3キー
+     * @return オブジェクトのストリーム（レスポンスヘッダー受信済み）
+     * @throws com.example.handson.exception.StorageOverloadedException 読み取りの同時実行数が上限に達している場合
+     */
+    public ResponseInputStream<GetObjectResponse> getObject(String bucketName, String s3Key) {
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(s3Key)
+                .overrideConfiguration(config -> config.apiCallAttemptTimeout(s3Properties.getFirstByteTimeout()))
+                .build();
+        AdaptiveConcurrencyLimiter.Permit permit = s3ConcurrencyLimits.acquire(S3ConcurrencyLimits.Pool.READ);
+
+        if (!s3Properties.getHedge().isEnabled()) {
+            try {
+                ResponseInputStream<GetObjectResponse> response = s3Client.getObject(request);
+                permit.recordLatency();
+                return releasingOnClose(response, permit);
+            } catch (RuntimeException e) {
+                permit.close();
+                throw e;
+            }
+        }
+
+        budget.recordRequest();
+        long start = System.nanoTime();
+        Attempt primary = new Attempt(request, permit);
+        Attempt winner = primary.completesWithin(hedgeDelayNanos()) ? primary : race(request, primary);
+
+        ResponseInputStream<GetObjectResponse> response = winner.response();
+        firstByteLatency.record(System.nanoTime() - start);
+        if (winner != primary) {
+            hedgesWon.increment();
+            log.info("2つ目のGETが先に応答しました: bucket={}, key={}", bucketName, s3Key);
+        }
+        return releasingOnClose(response, winner.permit);
+    }
+
+    /**
+     * 2つ目のGETを送るまでの待ち時間
+     * 直近の最初のバイトまでのレイテンシのパーセンタイルを、下限・上限の範囲に収めた値
+     */
+    long hedgeDelayNanos() {
+        S3Properties.Hedge hedge = s3Properties.getHedge();
+        long percentile = firstByteLatency.percentileNanos();
+        long max = hedge.getMaxDelay().toNanos();
+        if (percentile < 0) {
+            return max;
+        }
+        return Math.max(hedge.getMinDelay().toNanos(), Math.min(max, percentile));
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 2つ目のGETを送り、先に応答した方を返す（両方失敗した場合は失敗した方のいずれか）
+     * 予算・同時実行数に空きがない場合は、最初のGETの応答を待つ
+     */
+    private Attempt race(GetObjectRequest request, Attempt primary) {
+        Optional<AdaptiveConcurrencyLimiter.Permit> permit = s3ConcurrencyLimits.tryAcquire(S3ConcurrencyLimits.Pool.READ);
+        if (permit.isEmpty()) {
+            skippedByConcurrency.increment();
+            return primary;
+        }
+        if (!budget.tryWithdraw()) {
+            permit.get().cancel();
+            skippedByBudget.increment();
+            return primary;
+        }
+
+        hedgesFired.increment();
+        Attempt hedge = new Attempt(request, permit.get());
+
+        CompletableFuture<Attempt> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (Attempt attempt : List.of(primary, hedge)) {
+            attempt.result.whenComplete((response, error) -> {
+                if (error == null || failures.incrementAndGet() == 2) {
+                    first.complete(attempt);
+                }
+            });
+        }
+
+        Attempt winner = first.join();
+        (winner == primary ? hedge : primary).discard();
+        return winner;
+    }
+
+    private static ResponseInputStream<GetObjectResponse> releasingOnClose(
+            ResponseInputStream<GetObjectResponse> response, AdaptiveConcurrencyLimiter.Permit permit) {
+        return new ResponseInputStream<>(response.response(), AbortableInputStream.create(
+                new PermitReleasingInputStream(response, permit),
+                () -> {
+                    response.abort();
+                    permit.close();
+                }));
+    }
+
+    private static Counter skipped(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("s3.get.hedge.skipped")
+                .description("2つ目のGETを送る条件だったが、予算・同時実行数の上限により送らなかった回数")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * GET1回分の試行（仮想スレッドで実行）
+     * 実行枠は試行ごとに持ち、先に応答した方の実行枠はストリームのclose時、遅れた方は中断時に返却する
+     */
+    private final class Attempt {
+
+        private final AdaptiveConcurrencyLimiter.Permit permit;
+        private final CompletableFuture<ResponseInputStream<GetObjectResponse>> result = new CompletableFuture<>();
+        private final Future<?> task;
+
+        private Attempt(GetObjectRequest request, AdaptiveConcurrencyLimiter.Permit permit) {
+            this.permit = permit;
+            this.task = executor.submit(() -> {
+                try {
+                    ResponseInputStream<GetObjectResponse> response = s3Client.getObject(request);
+                    if (!result.complete(response)) {
+                        // 中断済みの試行に遅れて届いた応答は、本文を読まずに接続を破棄する
+                        response.abort();
+                    }
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        }
+
+        /**
+         * 指定時間内に応答（成功・失敗）したか
+         */
+        boolean completesWithin(long nanos) {
+            try {
+                result.get(nanos, TimeUnit.NANOSECONDS);
+                return true;
+            } catch (ExecutionException e) {
+                return true;
+            } catch (TimeoutException e) {
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                discard();
+                throw new StorageException("ファイルのダウンロードが中断されました", e);
+            }
+        }
+
+        /**
+         * 応答を待って返す（失敗した場合は実行枠を返却して例外をスロー）
+         */
+        ResponseInputStream<GetObjectResponse> response() {
+            try {
+                ResponseInputStream<GetObjectResponse> response = result.join();
+                permit.recordLatency();
+                return response;
+            } catch (CompletionException | CancellationException e) {
+                permit.close();
+                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                if (cause instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new StorageException("ファイルのダウンロードに失敗しました", cause);
+            }
+        }
+
+        /**
+         * 試行を中断し、実行枠を返却する（応答済みの場合は接続を破棄する）
+         */
+        void discard() {
+            task.cancel(true);
+            result.completeExceptionally(new CancellationException());
+            result.whenComplete((response, error) -> {
+                if (response != null) {
+                    response.abort();
+                }
+                permit.cancel();
+            });
+        }
+    }
+
+    /**
+     * close時にS3操作の実行枠を返却するInputStream
+     */
+    private static final class PermitReleasingInputStream extends FilterInputStream {
+
+        private final AdaptiveConcurrencyLimiter.Permit permit;
+
+        private PermitReleasingInputStream(InputStream in, AdaptiveConcurrencyLimiter.Permit permit) {
+            super(in);
+            this.permit = permit;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                permit.close();
+            }
+        }
+    }
+}
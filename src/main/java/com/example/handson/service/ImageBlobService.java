@@ -0,0 +1,234 @@
+package com.example.handson.service;
+
+import com.example.handson.concurrency.BoundedParallelism;
+import com.example.handson.config.S3Properties;
+import com.example.handson.domain.blob.BlobReference;
+import com.example.handson.domain.blob.BlobRepository;
+import com.example.handson.exception.StorageOverloadedException;
+import com.example.handson.image.ImageMetadataStripper;
+import com.example.handson.image.StagedImage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * 画像ファイル本体サービス
+ * 画像をメタデータ除去後の内容のSHA-256で識別し、同じ内容の画像は1つのS3オブジェクトを参照数付きで共有する
+ * 参照数の更新とS3操作は呼び出し元（画像メモの作成・削除）と同一トランザクションで行う
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImageBlobService {
+
+    private static final Pattern SHA256_HEX_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    /**
+     * 一括アップロードで書き込みの実行枠が空かなかった場合の再試行の間隔（再試行ごとに最大10倍まで延ばす）
+     */
+    private static final Duration OVERLOADED_RETRY_INTERVAL = Duration.ofMillis(50);
+    private static final int OVERLOADED_RETRY_MAX_STEPS = 10;
+
+    private final BlobRepository blobRepository;
+    private final ImageMetadataStripper imageMetadataStripper;
+    private final S3Service s3Service;
+    private final S3Properties s3Properties;
+
+    /**
+     * 画像を保存し、S3キーを返す
+     * メタデータを除去した内容で識別し、同じ内容の画像が保存済みの場合は参照数を増やすだけで、S3へのアップロードは行わない
+     *
+     * @param file 画像ファイル
+     * @return S3キー
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public String store(MultipartFile file) throws IOException {
+        s3Service.validateFile(file);
+
+        try (StagedImage image = imageMetadataStripper.stage(file)) {
+            String s3Key = s3Service.generateS3Key(image.contentHash(), file.getOriginalFilename());
+
+            BlobReference reference = blobRepository.acquire(image.contentHash(), s3Key, image.size());
+            blobRepository.addSource(image.sourceHash(), image.contentHash());
+            if (Boolean.TRUE.equals(reference.getCreated())) {
+                // 行ロックを保持したままアップロードするため、同じ内容の同時アップロードはこの完了を待つ
+                s3Service.uploadFile(s3Properties.getBucketName(), image, file.getContentType(), reference.getS3Key());
+            } else {
+                log.info("同じ内容の画像が保存済みのためアップロードを省略しました: hash={}, key={}",
+                        image.contentHash(), reference.getS3Key());
+            }
+            return reference.getS3Key();
+        }
+    }
+
+    /**
+     * 複数の画像を保存し、内容ごとのS3キーを返す（一括アップロード）
+     * 同じ内容の画像はまとめて参照を追加し、新規の内容だけを並列数の上限付きでS3にアップロードする
+     * 書き込みの同時実行数が上限に達している場合は実行枠の空きを待って再試行する（S3が正常なのに失敗させない）
+     * アップロードに失敗した内容は、追加した参照を取り消して結果に含めない（他の画像の保存は続ける）
+     *
+     * 参照の追加は内容のSHA-256の順に行い、同じ画像を含む一括アップロード同士が
+     * 逆の順序で行ロックを取り合って待ち合わない（デッドロックしない）ようにする
+     *
+     * @param uploads メタデータ除去した画像
+     * @return 保存した画像ファイル本体（呼び出し元のトランザクションが失敗した場合は{@link #discardUploaded}を呼ぶこと）
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public StoredBlobs storeAll(List<StagedUpload> uploads) {
+        Map<String, List<StagedUpload>> byContent = new TreeMap<>();
+        uploads.forEach(upload -> byContent.computeIfAbsent(upload.image().contentHash(), hash -> new ArrayList<>()).add(upload));
+
+        Map<String, String> s3Keys = new HashMap<>();
+        List<StagedUpload> newContents = new ArrayList<>();
+        byContent.forEach((contentHash, sameContent) -> {
+            StagedUpload first = sameContent.getFirst();
+            String s3Key = s3Service.generateS3Key(contentHash, first.originalFilename());
+
+            BlobReference reference = blobRepository.acquire(contentHash, s3Key, first.image().size(), sameContent.size());
+            sameContent.forEach(upload -> blobRepository.addSource(upload.image().sourceHash(), contentHash));
+            s3Keys.put(contentHash, reference.getS3Key());
+            if (Boolean.TRUE.equals(reference.getCreated())) {
+                newContents.add(first);
+            }
+        });
+
+        // 行ロックを保持したままアップロードするため、同じ内容の同時アップロードはこの完了を待つ
+        List<Boolean> uploaded = BoundedParallelism.map(newContents, s3Properties.getBatchUpload().getParallelism(),
+                "s3-batch-put-", upload -> upload(upload, s3Keys.get(upload.image().contentHash())));
+
+        List<String> uploadedKeys = new ArrayList<>();
+        for (int i = 0; i < newContents.size(); i++) {
+            String contentHash = newContents.get(i).image().contentHash();
+            if (uploaded.get(i)) {
+                uploadedKeys.add(s3Keys.get(contentHash));
+            } else {
+                // 今回登録した行のため、参照を取り消すと参照数は0になる
+                String s3Key = s3Keys.remove(contentHash);
+                blobRepository.release(s3Key, byContent.get(contentHash).size());
+                blobRepository.deleteUnreferenced(s3Key);
+            }
+        }
+
+        log.info("画像を一括保存しました: files={}, uploaded={}, shared={}, failed={}",
+                uploads.size(), uploadedKeys.size(), byContent.size() - newContents.size(),
+                newContents.size() - uploadedKeys.size());
+        return new StoredBlobs(s3Keys, uploadedKeys);
+    }
+
+    /**
+     * 1件のアップロード（並列のスレッドで実行）
+     * 書き込みの同時実行数が上限に達している場合は、permit-waitの間、間隔を空けて再試行する
+     */
+    private boolean upload(StagedUpload upload, String s3Key) {
+        long deadline = System.nanoTime() + s3Properties.getBatchUpload().getPermitWait().toNanos();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                s3Service.uploadFile(s3Properties.getBucketName(), upload.image(), upload.contentType(), s3Key);
+                return true;
+            } catch (StorageOverloadedException e) {
+                Duration interval = OVERLOADED_RETRY_INTERVAL.multipliedBy(Math.min(attempt, OVERLOADED_RETRY_MAX_STEPS));
+                if (System.nanoTime() + interval.toNanos() - deadline > 0 || !sleep(interval)) {
+                    log.warn("一括アップロードで書き込みの実行枠が空かず画像を保存できませんでした: file={}, key={}, attempts={}",
+                            upload.originalFilename(), s3Key, attempt);
+                    return false;
+                }
+            } catch (RuntimeException e) {
+                log.warn("一括アップロードで画像の保存に失敗しました: file={}, key={}", upload.originalFilename(), s3Key, e);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return 待った場合true、割り込まれた場合false
+     */
+    private static boolean sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 一括アップロードでS3にアップロードした画像を削除する（呼び出し元のトランザクションを失敗させる前に呼ぶ）
+     * 参照の追加はロールバックで取り消されるため、S3オブジェクトだけが残らないようにする
+     * 行ロックを保持している間に削除するため、同じ内容を待っている他のアップロードが先にアップロードしたオブジェクトを消すことはない
+     *
+     * @param blobs {@link #storeAll}の結果
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void discardUploaded(StoredBlobs blobs) {
+        for (String s3Key : blobs.uploadedKeys()) {
+            try {
+                s3Service.deleteFile(s3Properties.getBucketName(), s3Key);
+            } catch (RuntimeException e) {
+                log.error("一括アップロードの取り消しでS3オブジェクトを削除できませんでした: key={}", s3Key, e);
+            }
+        }
+    }
+
+    /**
+     * ユーザーが保存済みの画像を、アップロードなしで再利用する
+     *
+     * @param sourceHash 画像ファイルのSHA-256（クライアントでアップロード前のバイト列から計算）
+     * @param userId ユーザーID
+     * @return S3キー（ユーザーの画像メモが参照していない画像の場合は空）
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<String> reuse(String sourceHash, Long userId) {
+        if (!isReusable(sourceHash, userId)) {
+            return Optional.empty();
+        }
+        return blobRepository.acquireExisting(sourceHash);
+    }
+
+    /**
+     * アップロード前の重複確認
+     * 他のユーザーの画像の有無を推測できないよう、ユーザー自身の画像メモが参照している内容に限定する
+     *
+     * @param sourceHash 画像ファイルのSHA-256（アップロード前のバイト列）
+     * @param userId ユーザーID
+     * @return アップロードせずに再利用できる場合true
+     */
+    @Transactional(readOnly = true)
+    public boolean isReusable(String sourceHash, Long userId) {
+        return sourceHash != null
+                && SHA256_HEX_PATTERN.matcher(sourceHash).matches()
+                && blobRepository.isReferencedByUser(sourceHash, userId);
+    }
+
+    /**
+     * 画像への参照を解除する
+     * 参照数が0になった場合のみS3オブジェクトを削除する（失敗時は例外をスローし、呼び出し元の削除を中止）
+     * blobsに登録されていない以前の形式のS3キー（uploads/...）は、そのまま削除する
+     *
+     * @param s3Key S3キー
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(String s3Key) {
+        Optional<Integer> remaining = blobRepository.release(s3Key);
+        if (remaining.isPresent() && remaining.get() > 0) {
+            log.info("他の画像メモが参照しているためS3オブジェクトを残します: key={}, refCount={}", s3Key, remaining.get());
+            return;
+        }
+
+        remaining.ifPresent(count -> blobRepository.deleteUnreferenced(s3Key));
+        s3Service.deleteFile(s3Properties.getBucketName(), s3Key);
+    }
+}
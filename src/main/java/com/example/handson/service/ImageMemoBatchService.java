@@ -0,0 +1,139 @@
+package com.example.handson.service;
+
+import com.example.handson.concurrency.BoundedParallelism;
+import com.example.handson.config.S3Properties;
+import com.example.handson.domain.imagememo.ImageMemo;
+import com.example.handson.domain.user.User;
+import com.example.handson.dto.BatchUploadResult;
+import com.example.handson.image.ImageMetadataStripper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 画像メモの一括作成サービス
+ * 複数の画像ファイルを1リクエストで受け取り、ファイルごとの結果を返す
+ *
+ * 1. 検証・メタデータ除去を並列数の上限付きで実行（DB接続は使わない）
+ * 2. ImageMemoService.createImageMemos()のトランザクションで、S3への並列アップロードと画像メモのINSERTを実行
+ * 3. メタデータ除去した画像を破棄（マルチパートのパートから書き出したファイルを削除）
+ *
+ * 検証・アップロードに失敗したファイルは結果に理由を記録し、他のファイルの作成は続ける
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImageMemoBatchService {
+
+    private static final int TITLE_MAX_LENGTH = 255;
+    private static final int DESCRIPTION_MAX_LENGTH = 1000;
+
+    private final ImageMemoService imageMemoService;
+    private final S3Service s3Service;
+    private final ImageMetadataStripper imageMetadataStripper;
+    private final S3Properties s3Properties;
+
+    /**
+     * 画像メモを一括作成
+     * タイトルはファイル名（拡張子を除く）、説明は全ファイル共通
+     *
+     * @param files 画像ファイル（ファイル未選択の空のパートは無視する）
+     * @param description 全画像メモ共通の説明（null可）
+     * @param user ログイン中のユーザー
+     * @return ファイルごとの結果（入力の順序）
+     */
+    public List<BatchUploadResult> createImageMemos(List<MultipartFile> files, String description, User user) {
+        List<MultipartFile> selected = files == null ? List.of() : files.stream()
+                .filter(file -> file.getOriginalFilename() != null && !file.getOriginalFilename().isBlank())
+                .toList();
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("画像ファイルを選択してください");
+        }
+        int maxFiles = s3Properties.getBatchUpload().getMaxFiles();
+        if (selected.size() > maxFiles) {
+            throw new IllegalArgumentException(
+                    String.format("一度にアップロードできる画像ファイルは%d件までです", maxFiles));
+        }
+        if (description != null && description.length() > DESCRIPTION_MAX_LENGTH) {
+            throw new IllegalArgumentException("説明は1000文字以下で入力してください");
+        }
+        String memoDescription = description == null || description.isBlank() ? null : description;
+
+        List<Staging> staged = BoundedParallelism.map(selected, s3Properties.getBatchUpload().getParallelism(),
+                "image-stage-", file -> stage(file, memoDescription));
+        try {
+            List<StagedUpload> uploads = staged.stream().map(Staging::upload).filter(Objects::nonNull).toList();
+            Map<StagedUpload, ImageMemo> created = uploads.isEmpty()
+                    ? Map.of()
+                    : imageMemoService.createImageMemos(uploads, user);
+
+            List<BatchUploadResult> results = new ArrayList<>(staged.size());
+            for (Staging staging : staged) {
+                String filename = staging.file().getOriginalFilename();
+                if (staging.upload() == null) {
+                    results.add(BatchUploadResult.failed(filename, staging.errorMessage()));
+                } else if (created.containsKey(staging.upload())) {
+                    results.add(BatchUploadResult.succeeded(filename, created.get(staging.upload()).getId()));
+                } else {
+                    results.add(BatchUploadResult.failed(filename,
+                            "画像の保存に失敗しました。しばらく時間をおいて再度お試しください。"));
+                }
+            }
+            return results;
+        } finally {
+            staged.stream().map(Staging::upload).filter(Objects::nonNull).forEach(this::discardQuietly);
+        }
+    }
+
+    /**
+     * 1ファイル分の検証・メタデータ除去（失敗は例外ではなく結果として返す）
+     */
+    private Staging stage(MultipartFile file, String description) {
+        try {
+            s3Service.validateFile(file);
+            return new Staging(file, new StagedUpload(titleOf(file.getOriginalFilename()), description,
+                    file.getOriginalFilename(), file.getContentType(), imageMetadataStripper.stage(file)), null);
+        } catch (IllegalArgumentException e) {
+            return new Staging(file, null, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            log.warn("一括アップロードで画像を読み込めませんでした: file={}", file.getOriginalFilename(), e);
+            return new Staging(file, null, "画像ファイルを読み込めませんでした");
+        }
+    }
+
+    private void discardQuietly(StagedUpload upload) {
+        try {
+            upload.image().close();
+        } catch (RuntimeException e) {
+            log.warn("メタデータ除去した画像を破棄できませんでした: file={}", upload.originalFilename(), e);
+        }
+    }
+
+    /**
+     * ファイル名から拡張子を除いたものをタイトルにする
+     */
+    static String titleOf(String filename) {
+        int dot = filename.lastIndexOf('.');
+        String title = (dot > 0 ? filename.substring(0, dot) : filename).strip();
+        if (title.isEmpty()) {
+            title = filename;
+        }
+        return title.length() > TITLE_MAX_LENGTH ? title.substring(0, TITLE_MAX_LENGTH) : title;
+    }
+
+    /**
+     * 検証・メタデータ除去の結果
+     *
+     * @param upload メタデータ除去した画像（失敗した場合はnull）
+     * @param errorMessage 失敗した理由
+     */
+    private record Staging(MultipartFile file, StagedUpload upload, String errorMessage) {
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.handson.service;
+
+import com.example.handson.concurrency.OrderedPrefetch;
+import com.example.handson.config.S3Properties;
+import com.example.handson.domain.imagememo.ImageMemoExportRow;
+import com.example.handson.domain.imagememo.ImageMemoRepository;
+import com.example.handson.domain.user.User;
+import com.example.handson.dto.ExportManifestEntry;
+import com.example.handson.exception.StorageException;
+import com.example.handson.exception.StorageObjectNotFoundException;
+import com.example.handson.exception.StorageOverloadedException;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 全画像メモのZIPエクスポートサービス
+ * 画像メモのメタデータ（manifest.json）と全画像を1つのZIPとして出力ストリームに直接書き込む
+ *
+ * 1. manifest.jsonを書き込む（画像メモの行をページごとに読み、1件ずつJSONに書き出す）
+ * 2. 画像を作成日時の順に書き込む（行をもう一度ページごとに読み、後続の画像を先読み数までS3から並行に取得する）
+ *
+ * 画像メモのエンティティ・一覧をメモリに載せず、保持する行は1ページ・画像は先読み数までのため、件数によらずメモリ使用量は一定
+ *
+ * 行はページごとに短いトランザクションで読み、ZIPをクライアントに送信している間はDBの接続を保持しない。
+ * レプリカでの長いスナップショットはリカバリとの競合で取り消されるため、レプリカには送らずプライマリから読む。
+ * 2回の読み取りはエクスポート開始時刻までに作成された画像メモを対象とし、途中で作成された画像メモを含めない
+ * （途中で削除された画像メモは、manifest.jsonにだけ含まれ画像が含まれないことがある。
+ * S3に画像がなくなっていた場合は警告を記録してその画像を飛ばし、エクスポートは中断しない）
+ */
+@Service
+@Slf4j
+public class ImageMemoExportService {
+
+    static final String MANIFEST_ENTRY = "manifest.json";
+    static final String IMAGES_DIRECTORY = "images/";
+    static final int MANIFEST_VERSION = 1;
+
+    private static final int FILENAME_TITLE_MAX_LENGTH = 100;
+    private static final Pattern FILENAME_UNSAFE_CHARACTERS = Pattern.compile("[\\\\/:*?\"<>|\\p{Cntrl}]");
+
+    /**
+     * 読み取りの同時実行数が上限に達していた場合の再試行（エクスポートの途中で失敗させないため待って再試行する）
+     */
+    private static final int OVERLOADED_MAX_ATTEMPTS = 5;
+    private static final Duration OVERLOADED_RETRY_INTERVAL = Duration.ofMillis(200);
+
+    private final ImageMemoRepository imageMemoRepository;
+    private final S3Service s3Service;
+    private final S3Properties s3Properties;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate primaryReadTransaction;
+    private final Semaphore exports;
+
+    public ImageMemoExportService(ImageMemoRepository imageMemoRepository, S3Service s3Service,
+                                  S3Properties s3Properties, ObjectMapper objectMapper,
+                                  PlatformTransactionManager transactionManager) {
+        this.imageMemoRepository = imageMemoRepository;
+        this.s3Service = s3Service;
+        this.s3Properties = s3Properties;
+        this.objectMapper = objectMapper;
+        // 読み取り専用のトランザクションはレプリカに送られるため、読み書きのトランザクションでプライマリから読む
+        this.primaryReadTransaction = new TransactionTemplate(transactionManager);
+        this.exports = new Semaphore(s3Properties.getExport().getMaxConcurrent());
+    }
+
+    /**
+     * ユーザーの全画像メモをZIPとして書き込む
+     * 途中で失敗した場合は例外をスローし、ZIPは末尾（セントラルディレクトリ）のない不完全なものになる
+     *
+     * @param user ログイン中のユーザー
+     * @param out 出力先（closeしない）
+     * @return 書き込んだ画像メモの件数
+     * @throws StorageOverloadedException 同時に実行中のエクスポートが上限に達している場合（何も書き込まない）
+     */
+    public int export(User user, OutputStream out) throws IOException {
+        if (!exports.tryAcquire()) {
+            throw new StorageOverloadedException("ただいまエクスポートが混み合っています。しばらく時間をおいて再度お試しください。");
+        }
+        try {
+            long start = System.nanoTime();
+            LocalDateTime createdUntil = LocalDateTime.now();
+            ZipOutputStream zip = new ZipOutputStream(out);
+            writeManifest(user, createdUntil, zip);
+            int count = writeImages(user, createdUntil, zip);
+            zip.finish();
+            zip.flush();
+
+            log.info("画像メモをエクスポートしました: userId={}, memos={}, elapsedMs={}",
+                    user.getId(), count, Duration.ofNanos(System.nanoTime() - start).toMillis());
+            return count;
+        } finally {
+            exports.release();
+        }
+    }
+
+    private void writeManifest(User user, LocalDateTime createdUntil, ZipOutputStream zip) throws IOException {
+        ZipEntry entry = new ZipEntry(MANIFEST_ENTRY);
+        entry.setTimeLocal(LocalDateTime.now());
+        zip.putNextEntry(entry);
+
+        // ZIPのストリームを閉じず、1件ごとにレスポンスへフラッシュしない
+        try (JsonGenerator json = objectMapper.createGenerator(zip, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM)) {
+            json.writeStartObject();
+            json.writeNumberField("version", MANIFEST_VERSION);
+            json.writeStringField("exportedAt", createdUntil.toString());
+            json.writeArrayFieldStart("memos");
+            for (Iterator<ImageMemoExportRow> it = new ExportRows(user.getId(), createdUntil); it.hasNext(); ) {
+                ImageMemoExportRow row = it.next();
+                objectMapper.writeValue(json, new ExportManifestEntry(row.getId(), row.getTitle(),
+                        row.getDescription(), row.getCreatedAt(), row.getUpdatedAt(), fileOf(row)));
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+        zip.closeEntry();
+    }
+
+    private int writeImages(User user, LocalDateTime createdUntil, ZipOutputStream zip) throws IOException {
+        int[] count = {0};
+        OrderedPrefetch.forEach(new ExportRows(user.getId(), createdUntil), s3Properties.getExport().getPrefetch(),
+                "s3-export-", this::download, (row, image) -> {
+                    if (image == null) {
+                        return;
+                    }
+                    // 画像は圧縮済みのため、再圧縮せず格納する（STOREDはサイズ・CRCを先に書く）
+                    ZipEntry entry = new ZipEntry(fileOf(row));
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(image.content().length);
+                    entry.setCompressedSize(image.content().length);
+                    entry.setCrc(image.crc());
+                    entry.setTimeLocal(row.getUpdatedAt());
+                    zip.putNextEntry(entry);
+                    zip.write(image.content());
+                    zip.closeEntry();
+                    count[0]++;
+                });
+        return count[0];
+    }
+
+    /**
+     * 画像をS3から取得してメモリに読み込む（先読みのスレッドで実行）
+     *
+     * @return 画像。S3に存在しなかった（途中で画像メモが削除された）場合はnull
+     */
+    private DownloadedImage download(ImageMemoExportRow row) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                ImageDownloadResult result = s3Service.downloadImageStream(s3Properties.getBucketName(), row.getS3Key());
+                try (InputStream in = result.inputStream()) {
+                    byte[] content = in.readAllBytes();
+                    CRC32 crc = new CRC32();
+                    crc.update(content);
+                    return new DownloadedImage(content, crc.getValue());
+                }
+            } catch (StorageObjectNotFoundException e) {
+                log.warn("エクスポート中に画像メモが削除されたため画像を含めません: id={}, s3Key={}",
+                        row.getId(), row.getS3Key());
+                return null;
+            } catch (StorageOverloadedException e) {
+                if (attempt == OVERLOADED_MAX_ATTEMPTS) {
+                    throw e;
+                }
+                sleep(OVERLOADED_RETRY_INTERVAL.multipliedBy(attempt));
+            } catch (IOException e) {
+                log.error("エクスポートで画像を読み込めませんでした: id={}, s3Key={}", row.getId(), row.getS3Key(), e);
+                throw new StorageException("ファイルのダウンロードに失敗しました", e);
+            }
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("エクスポートが中断されました");
+        }
+    }
+
+    /**
+     * 画像のZIP内のパス（images/{ID}-{タイトル}.{拡張子}）
+     * IDを付けてタイトルが重複してもパスが重複しないようにし、ファイル名に使えない文字は置き換える
+     */
+    static String fileOf(ImageMemoExportRow row) {
+        String title = FILENAME_UNSAFE_CHARACTERS.matcher(row.getTitle()).replaceAll("_").strip();
+        if (title.codePointCount(0, title.length()) > FILENAME_TITLE_MAX_LENGTH) {
+            title = title.substring(0, title.offsetByCodePoints(0, FILENAME_TITLE_MAX_LENGTH));
+        }
+        String s3Key = row.getS3Key();
+        String extension = s3Key.substring(s3Key.lastIndexOf('.') + 1);
+        return IMAGES_DIRECTORY + row.getId() + "-" + title + "." + extension;
+    }
+
+    /**
+     * 画像メモの行をキーセット方式で1ページずつ読むIterator
+     * ページごとにプライマリへの短いトランザクションで読み、次のページは前のページを使い切ってから読む
+     */
+    private final class ExportRows implements Iterator<ImageMemoExportRow> {
+
+        private final Long userId;
+        private final LocalDateTime createdUntil;
+        private final int pageSize = s3Properties.getExport().getPageSize();
+        private List<ImageMemoExportRow> page;
+        private int position;
+
+        ExportRows(Long userId, LocalDateTime createdUntil) {
+            this.userId = userId;
+            this.createdUntil = createdUntil;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (page == null) {
+                page = primaryReadTransaction.execute(status ->
+                        imageMemoRepository.findExportRows(userId, createdUntil, Limit.of(pageSize)));
+            } else if (position == page.size() && page.size() == pageSize) {
+                ImageMemoExportRow last = page.getLast();
+                page = primaryReadTransaction.execute(status -> imageMemoRepository.findExportRowsAfter(
+                        userId, createdUntil, last.getCreatedAt(), last.getId(), Limit.of(pageSize)));
+                position = 0;
+            }
+            return position < page.size();
+        }
+
+        @Override
+        public ImageMemoExportRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.get(position++);
+        }
+    }
+
+    /**
+     * S3から取得した画像（ZIPのSTOREDのエントリに必要なCRCも先読みのスレッドで計算しておく）
+     */
+    private record DownloadedImage(byte[] content, long crc) {
+    }
+}
@@ -0,0 +1,500 @@
+package com.example.handson.service;
+
+import com.example.handson.config.S3Properties;
+import com.example.handson.datasource.ReadYourWritesWindow;
+import com.example.handson.domain.imagememo.ImageMemo;
+import com.example.handson.domain.importjob.ImportJob;
+import com.example.handson.domain.importjob.ImportJobRepository;
+import com.example.handson.domain.importjob.ImportJobState;
+import com.example.handson.domain.user.User;
+import com.example.handson.dto.ExportManifestEntry;
+import com.example.handson.dto.ImportJobStatus;
+import com.example.handson.image.ImageMetadataStripper;
+import com.example.handson.image.StagedImage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * ZIPからの一括インポートサービス
+ * リクエストの本文のZIPをストリームとして先頭から読み、ディスクに展開せずに画像のエントリを画像メモとして作成する
+ * 画像はメモリ上でメタデータを除去して保持し、一時ファイルには書き出さない
+ * （メモリに保持するのは、読み取り中のバッチと保存中のバッチの2つまで。各バッチは件数とバイト数の上限で区切る）
+ *
+ * 1. createJob()でインポートを作成し、IDを返す（進捗はこのIDで取得する）
+ * 2. importArchive()でZIPを読みながら、画像のエントリを検証（S3Service.validateFile()と同じ規則）・メタデータ除去し、
+ *    バッチサイズごとにImageMemoService.createImageMemos()で保存する（S3へは並列数の上限付きでアップロード、INSERTはJDBCバッチ）
+ *    保存は別スレッドで行い、次のバッチのZIPの読み取りと重ねる（保存中のバッチは1つまで）
+ * 3. バッチごとに進捗をimport_jobsに書き込む
+ *
+ * ZIP爆弾対策として、エントリ数・ZIPのサイズ・展開後の合計サイズを実際に読み取ったバイト数で制限し、超えた時点で中断する
+ * エクスポートしたZIP（ImageMemoExportService）のmanifest.jsonがあれば、タイトル・説明をその値にする
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImageMemoImportService {
+
+    private static final int TITLE_MAX_LENGTH = 255;
+    private static final int DESCRIPTION_MAX_LENGTH = 1000;
+    private static final int MAX_RECORDED_ERRORS = 20;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String STALE_ERROR_MESSAGE =
+            "一定時間進捗がなかったため中断しました（ZIPの送信の中断・サーバーの再起動など）。もう一度インポートしてください。";
+
+    private final ImportJobRepository importJobRepository;
+    private final ImageMemoService imageMemoService;
+    private final S3Service s3Service;
+    private final ImageMetadataStripper imageMetadataStripper;
+    private final S3Properties s3Properties;
+    private final ReadYourWritesWindow readYourWritesWindow;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * インポートを作成（ZIPの送信待ち）
+     *
+     * @param user ログイン中のユーザー
+     * @return 作成したインポートの状態
+     */
+    public ImportJobStatus createJob(User user) {
+        ImportJob job = importJobRepository.save(ImportJob.builder()
+                .userId(user.getId())
+                .state(ImportJobState.PENDING)
+                .build());
+        readYourWritesWindow.markWritten();
+        return ImportJobStatus.of(job);
+    }
+
+    /**
+     * インポートの状態を取得（所有者チェック付き）
+     *
+     * @param id インポートID
+     * @param userId ユーザーID
+     * @return インポートの状態（存在しない、または他のユーザーのインポートの場合は空）
+     */
+    @Transactional(readOnly = true)
+    public Optional<ImportJobStatus> findJob(Long id, Long userId) {
+        return importJobRepository.findByIdAndUserId(id, userId).map(ImportJobStatus::of);
+    }
+
+    /**
+     * ZIPを読み取り、画像メモを作成する（ZIPの最後まで、または中断するまで返らない）
+     * エントリごとの失敗と中断した理由はインポートの状態に記録し、例外はスローしない
+     *
+     * @param jobId インポートID（作成済みでZIP未送信のもの）
+     * @param user ログイン中のユーザー
+     * @param archive ZIP（リクエストの本文）
+     * @return 終了後のインポートの状態（作成済みでZIP未送信のインポートでない場合は空）
+     */
+    public Optional<ImportJobStatus> importArchive(Long jobId, User user, InputStream archive) {
+        if (importJobRepository.start(jobId, user.getId()) == 0) {
+            return Optional.empty();
+        }
+        long start = System.nanoTime();
+        ImportRun run = new ImportRun(jobId, user);
+        ImportJobStatus status = run.execute(archive);
+        if (status.imported() > 0) {
+            readYourWritesWindow.markWritten();
+        }
+
+        log.info("ZIPからインポートしました: jobId={}, userId={}, state={}, imported={}, skipped={}, failed={}, elapsedMs={}",
+                jobId, user.getId(), status.state(), status.imported(), status.skipped(), status.failed(),
+                (System.nanoTime() - start) / 1_000_000);
+        return Optional.of(status);
+    }
+
+    /**
+     * 作成済み・インポート中のまま一定時間（app.s3.zip-import.stale-timeout）進捗が更新されていないインポートを中断扱いにする
+     * ZIPが送信されないままのインポートや、サーバーの停止でインポート中のまま残ったインポートが対象（ImportJobConfigが定期実行する）
+     *
+     * @return 中断扱いにした件数
+     */
+    public int failStaleJobs() {
+        Duration timeout = s3Properties.getZipImport().getStaleTimeout();
+        int failed = importJobRepository.failStale(timeout.toSeconds(), STALE_ERROR_MESSAGE);
+        if (failed > 0) {
+            log.warn("進捗が更新されないインポートを中断扱いにしました: jobs={}, timeout={}", failed, timeout);
+        }
+        return failed;
+    }
+
+    /**
+     * エントリ名のうち、画像として扱わないOSのメタデータファイル（macOSのリソースフォーク等）か
+     */
+    static boolean isSystemFile(String entryName) {
+        String filename = entryName.substring(entryName.lastIndexOf('/') + 1);
+        return entryName.startsWith("__MACOSX/") || filename.startsWith("._")
+                || filename.equals(".DS_Store") || filename.equalsIgnoreCase("Thumbs.db");
+    }
+
+    private static String truncate(String value, int maxLength) {
+        if (value == null || value.length() <= maxLength) {
+            return value;
+        }
+        return value.substring(0, maxLength);
+    }
+
+    /**
+     * 1回のインポートの実行状態
+     * ZIPの読み取りはリクエストスレッド、保存は保存用のスレッドで行うため、進捗はこのオブジェクトのロックで保護する
+     */
+    private final class ImportRun {
+
+        private final Long jobId;
+        private final User user;
+        private final S3Properties.ZipImport limits = s3Properties.getZipImport();
+        private final ExecutorService storer = Executors.newSingleThreadExecutor(
+                Thread.ofVirtual().name("zip-import-store-", 0).factory());
+
+        private Map<String, ExportManifestEntry> manifest = Map.of();
+        private Future<?> storing;
+
+        private int entriesRead;
+        private int imported;
+        private int skipped;
+        private int failed;
+        private long expandedBytes;
+        private final List<String> errors = new ArrayList<>();
+
+        private ImportRun(Long jobId, User user) {
+            this.jobId = jobId;
+            this.user = user;
+        }
+
+        ImportJobStatus execute(InputStream archive) {
+            ImportJobState state = ImportJobState.SUCCEEDED;
+            String errorMessage = null;
+            List<StagedUpload> batch = new ArrayList<>();
+            long batchBytes = 0;
+            try (ZipInputStream zip = new ZipInputStream(
+                    new ArchiveInputStream(archive, limits.getMaxArchiveSize()), StandardCharsets.UTF_8)) {
+                for (ZipEntry entry = nextEntry(zip); entry != null; entry = nextEntry(zip)) {
+                    Optional<StagedUpload> upload = read(entry, zip);
+                    if (upload.isEmpty()) {
+                        continue;
+                    }
+                    batch.add(upload.get());
+                    batchBytes += upload.get().image().size();
+                    if (batch.size() == limits.getBatchSize() || batchBytes >= limits.getMaxBatchBytes()) {
+                        submit(batch);
+                        batch = new ArrayList<>();
+                        batchBytes = 0;
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    submit(batch);
+                    batch = List.of();
+                }
+            } catch (ImportAbortedException e) {
+                state = ImportJobState.FAILED;
+                errorMessage = e.getMessage();
+            } catch (IOException e) {
+                log.warn("インポートのZIPを読み取れませんでした: jobId={}", jobId, e);
+                state = ImportJobState.FAILED;
+                errorMessage = "ZIPの受信が途中で終わりました。再度お試しください。";
+            } catch (RuntimeException e) {
+                log.error("インポート中にエラーが発生しました: jobId={}", jobId, e);
+                state = ImportJobState.FAILED;
+                errorMessage = "インポート中にエラーが発生しました。しばらく時間をおいて再度お試しください。";
+            }
+
+            // 保存中のバッチの完了を待ってから最終状態を書き込む（保存用のスレッドの進捗の書き込みと競合しないように）
+            try {
+                awaitStoring();
+            } catch (ImportAbortedException e) {
+                if (state == ImportJobState.SUCCEEDED) {
+                    state = ImportJobState.FAILED;
+                    errorMessage = e.getMessage();
+                }
+            } finally {
+                storer.shutdown();
+            }
+            return persist(state, errorMessage);
+        }
+
+        /**
+         * 次のエントリ（エントリ数の上限・ファイル名の文字コードを確認）
+         */
+        private ZipEntry nextEntry(ZipInputStream zip) throws IOException {
+            ZipEntry entry;
+            try {
+                entry = zip.getNextEntry();
+            } catch (ZipException e) {
+                throw new ImportAbortedException("ZIPの形式が正しくありません: " + e.getMessage());
+            } catch (IllegalArgumentException e) {
+                // ZipInputStreamはファイル名をUTF-8として読み、それ以外（Shift_JIS等）の場合はIllegalArgumentExceptionをスローする
+                throw new ImportAbortedException("ZIPのファイル名を読み取れません。ファイル名をUTF-8にして作成してください。");
+            }
+            if (entry == null) {
+                return null;
+            }
+            synchronized (this) {
+                entriesRead++;
+                if (entriesRead > limits.getMaxEntries()) {
+                    throw new ImportAbortedException(
+                            String.format("ZIPのエントリ数が上限（%d件）を超えています", limits.getMaxEntries()));
+                }
+            }
+            return entry;
+        }
+
+        /**
+         * エントリを読み取り、取り込む画像であれば検証・メタデータ除去して返す
+         */
+        private Optional<StagedUpload> read(ZipEntry entry, ZipInputStream zip) throws IOException {
+            String name = entry.getName();
+            if (entry.isDirectory() || isSystemFile(name)) {
+                readEntry(zip, 0);
+                return Optional.empty();
+            }
+            if (name.equals(ImageMemoExportService.MANIFEST_ENTRY)) {
+                readManifest(zip);
+                return Optional.empty();
+            }
+
+            String filename = name.substring(name.lastIndexOf('/') + 1);
+            long maxFileSize = s3Properties.getMaxFileSize();
+            byte[] content = readEntry(zip, maxFileSize);
+            try {
+                s3Service.validateFile(filename, content == null ? maxFileSize + 1 : content.length);
+            } catch (IllegalArgumentException e) {
+                skip(name, e.getMessage());
+                return Optional.empty();
+            }
+
+            ExportManifestEntry metadata = manifest.get(name);
+            String title = metadata != null && metadata.title() != null && !metadata.title().isBlank()
+                    ? truncate(metadata.title(), TITLE_MAX_LENGTH)
+                    : ImageMemoBatchService.titleOf(filename);
+            String description = metadata != null ? truncate(metadata.description(), DESCRIPTION_MAX_LENGTH) : null;
+            try {
+                StagedImage image = imageMetadataStripper.stage(content, filename);
+                return Optional.of(new StagedUpload(title, description, filename,
+                        s3Service.getContentType(filename), image));
+            } catch (IOException | RuntimeException e) {
+                log.warn("インポートで画像を読み込めませんでした: jobId={}, entry={}", jobId, name, e);
+                skip(name, "画像ファイルを読み込めませんでした");
+                return Optional.empty();
+            }
+        }
+
+        /**
+         * エントリをmaxBytesまでメモリに読み込む
+         * 超えた場合も残りを最後まで読み（展開後の合計サイズに数える）、nullを返す
+         */
+        private byte[] readEntry(ZipInputStream zip, long maxBytes) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long total = 0;
+            for (int n = zip.read(buffer); n != -1; n = zip.read(buffer)) {
+                addExpanded(n);
+                total += n;
+                if (total <= maxBytes) {
+                    out.write(buffer, 0, n);
+                } else {
+                    out = null;
+                    break;
+                }
+            }
+            if (out == null) {
+                for (int n = zip.read(buffer); n != -1; n = zip.read(buffer)) {
+                    addExpanded(n);
+                }
+                return null;
+            }
+            return out.toByteArray();
+        }
+
+        private synchronized void addExpanded(int bytes) {
+            expandedBytes += bytes;
+            if (expandedBytes > limits.getMaxExpandedSize()) {
+                throw new ImportAbortedException(String.format(
+                        "ZIPの展開後のサイズが上限（%d bytes）を超えています", limits.getMaxExpandedSize()));
+            }
+        }
+
+        /**
+         * エクスポートしたZIPのmanifest.json（ファイルのパス → タイトル・説明）
+         * 読み取れない場合はタイトルをファイル名から付ける
+         */
+        private void readManifest(ZipInputStream zip) throws IOException {
+            byte[] content = readEntry(zip, s3Properties.getMaxFileSize());
+            if (content == null) {
+                recordError(ImageMemoExportService.MANIFEST_ENTRY, "大きすぎるため使用しません");
+                return;
+            }
+            try {
+                Map<String, ExportManifestEntry> entries = new HashMap<>();
+                for (JsonNode memo : objectMapper.readTree(content).path("memos")) {
+                    if (entries.size() == limits.getMaxEntries()) {
+                        break;
+                    }
+                    ExportManifestEntry entry = objectMapper.treeToValue(memo, ExportManifestEntry.class);
+                    if (entry.file() != null) {
+                        entries.put(entry.file(), entry);
+                    }
+                }
+                manifest = entries;
+            } catch (JsonProcessingException e) {
+                recordError(ImageMemoExportService.MANIFEST_ENTRY, "形式が正しくないため使用しません");
+            }
+        }
+
+        /**
+         * バッチを保存用のスレッドに渡す（前のバッチの保存の完了を待ってから）
+         */
+        private void submit(List<StagedUpload> batch) {
+            awaitStoring();
+            storing = storer.submit(() -> store(batch));
+        }
+
+        private void awaitStoring() {
+            if (storing == null) {
+                return;
+            }
+            Future<?> pending = storing;
+            storing = null;
+            try {
+                pending.get();
+            } catch (ExecutionException e) {
+                log.error("インポートした画像メモを保存できませんでした: jobId={}", jobId, e.getCause());
+                throw new ImportAbortedException("画像メモの保存に失敗しました。しばらく時間をおいて再度お試しください。");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ImportAbortedException("インポートが中断されました");
+            }
+        }
+
+        /**
+         * バッチを保存し、進捗を書き込む（保存用のスレッドで実行）
+         */
+        private void store(List<StagedUpload> batch) {
+            Map<StagedUpload, ImageMemo> created = imageMemoService.createImageMemos(batch, user);
+            synchronized (this) {
+                imported += created.size();
+                for (StagedUpload upload : batch) {
+                    if (!created.containsKey(upload)) {
+                        failed++;
+                        recordError(upload.originalFilename(),
+                                "画像の保存に失敗しました。しばらく時間をおいて再度お試しください。");
+                    }
+                }
+            }
+            persist(ImportJobState.RUNNING, null);
+        }
+
+        private synchronized void skip(String entryName, String reason) {
+            skipped++;
+            recordError(entryName, reason);
+        }
+
+        private synchronized void recordError(String entryName, String reason) {
+            if (errors.size() < MAX_RECORDED_ERRORS) {
+                errors.add(entryName + ": " + reason);
+            }
+        }
+
+        /**
+         * 進捗をimport_jobsに書き込む
+         */
+        private ImportJobStatus persist(ImportJobState state, String errorMessage) {
+            ImportJobStatus status;
+            long expanded;
+            synchronized (this) {
+                status = new ImportJobStatus(jobId, state, state.isFinished(), entriesRead, imported, skipped, failed,
+                        List.copyOf(errors), errorMessage);
+                expanded = expandedBytes;
+            }
+            String errorsJson;
+            try {
+                errorsJson = objectMapper.writeValueAsString(status.errors());
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+            importJobRepository.updateProgress(jobId, state.name(), status.entriesRead(), status.imported(),
+                    status.skipped(), status.failed(), expanded, errorsJson, errorMessage);
+            return status;
+        }
+    }
+
+    /**
+     * 受信したZIP（圧縮後）のバイト数を数え、上限を超えた時点で中断する
+     */
+    private static final class ArchiveInputStream extends FilterInputStream {
+
+        private final long maxBytes;
+        private long count;
+
+        private ArchiveInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            if (skipped > 0) {
+                count(skipped);
+            }
+            return skipped;
+        }
+
+        private void count(long n) {
+            count += n;
+            if (count > maxBytes) {
+                throw new ImportAbortedException(String.format("ZIPのサイズが上限（%d bytes）を超えています", maxBytes));
+            }
+        }
+    }
+
+    /**
+     * インポートを中断する理由（メッセージはユーザーに表示する）
+     */
+    private static final class ImportAbortedException extends RuntimeException {
+
+        private ImportAbortedException(String message) {
+            super(message);
+        }
+    }
+}
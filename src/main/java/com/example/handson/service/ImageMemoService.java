@@ -1,18 +1,36 @@
 package com.example.handson.service;
 
-import com.example.handson.config.S3Properties;
+import com.example.handson.datasource.ReadYourWritesWindow;
 import com.example.handson.domain.imagememo.ImageMemo;
+import com.example.handson.domain.imagememo.ImageMemoImageRef;
 import com.example.handson.domain.imagememo.ImageMemoRepository;
+import com.example.handson.domain.imagememo.ImageMemoSearchHit;
+import com.example.handson.domain.imagememo.ImageMemoSummary;
 import com.example.handson.domain.user.User;
+import com.example.handson.domain.user.UserRepository;
 import com.example.handson.dto.ImageMemoCreateDto;
+import com.example.handson.dto.MemoListCursor;
+import com.example.handson.dto.MemoListResult;
+import com.example.handson.dto.MemoSearchCursor;
+import com.example.handson.dto.MemoSearchResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * 画像メモサービス
@@ -23,9 +41,14 @@ import java.io.IOException;
 @Slf4j
 public class ImageMemoService {
 
+    private static final int SEARCH_PAGE_SIZE = 20;
+    private static final int SEARCH_MAX_TERMS = 8;
+    private static final Pattern TSQUERY_SPECIAL_CHARACTERS = Pattern.compile("[&|!():*<>'\\\\]");
+
     private final ImageMemoRepository imageMemoRepository;
-    private final S3Service s3Service;
-    private final S3Properties s3Properties;
+    private final UserRepository userRepository;
+    private final ImageBlobService imageBlobService;
+    private final ReadYourWritesWindow readYourWritesWindow;
 
     /**
      * 画像メモを作成
@@ -36,13 +59,18 @@ public class ImageMemoService {
      */
     @Transactional
     public ImageMemo createImageMemo(ImageMemoCreateDto dto, User user) throws IOException {
-        if (dto.image() == null || dto.image().isEmpty()) {
+        // 画像を保存（同じ内容の画像は既存のS3オブジェクトを共有）
+        String s3Key;
+        if (dto.image() != null && !dto.image().isEmpty()) {
+            s3Key = imageBlobService.store(dto.image());
+        } else if (dto.contentHash() != null) {
+            // アップロード前の重複確認で、保存済みと判定された画像を再利用
+            s3Key = imageBlobService.reuse(dto.contentHash(), user.getId())
+                    .orElseThrow(() -> new IllegalArgumentException("画像ファイルを選択し直してください"));
+        } else {
             throw new IllegalArgumentException("画像ファイルは必須です");
         }
 
-        // S3にアップロード
-        String s3Key = s3Service.uploadFile(s3Properties.getBucketName(), dto.image(), String.valueOf(user.getId()));
-
         // 画像メモを保存
         // 画像URLはアプリケーション経由で配信するため、DBには保存しない
         ImageMemo imageMemo = ImageMemo.builder()
@@ -53,11 +81,56 @@ public class ImageMemoService {
                 .build();
 
         ImageMemo saved = imageMemoRepository.save(imageMemo);
+        userRepository.incrementMemoListVersion(user.getId());
+        readYourWritesWindow.markWritten();
         log.info("画像メモを作成しました: id={}, userId={}, title={}", saved.getId(), user.getId(), saved.getTitle());
 
         return saved;
     }
 
+    /**
+     * 画像メモを一括作成
+     * 画像の保存（並列アップロード）と画像メモのINSERTを1つのトランザクションで行う
+     * 画像の保存に失敗したファイルは作成せず、他のファイルの作成は続ける
+     * INSERTに失敗した場合は、今回アップロードしたS3オブジェクトを削除してからロールバックする
+     *
+     * @param uploads メタデータ除去した画像（タイトル・説明付き）
+     * @param user ログイン中のユーザー
+     * @return 作成できたファイル → 作成された画像メモ（入力の順序）
+     */
+    @Transactional
+    public Map<StagedUpload, ImageMemo> createImageMemos(List<StagedUpload> uploads, User user) {
+        StoredBlobs blobs = imageBlobService.storeAll(uploads);
+        try {
+            Map<StagedUpload, ImageMemo> created = new LinkedHashMap<>();
+            for (StagedUpload upload : uploads) {
+                String s3Key = blobs.s3Keys().get(upload.image().contentHash());
+                if (s3Key != null) {
+                    created.put(upload, ImageMemo.builder()
+                            .user(user)
+                            .title(upload.title())
+                            .description(upload.description())
+                            .s3Key(s3Key)
+                            .build());
+                }
+            }
+
+            imageMemoRepository.saveAll(created.values());
+            // コミット前にINSERTを実行し、失敗をこのメソッド内で検知する
+            imageMemoRepository.flush();
+            if (!created.isEmpty()) {
+                userRepository.incrementMemoListVersion(user.getId());
+                readYourWritesWindow.markWritten();
+            }
+            log.info("画像メモを一括作成しました: userId={}, created={}, failed={}",
+                    user.getId(), created.size(), uploads.size() - created.size());
+            return created;
+        } catch (RuntimeException e) {
+            imageBlobService.discardUploaded(blobs);
+            throw e;
+        }
+    }
+
     /**
      * ユーザーの画像メモ一覧をページング付きで取得
      *
@@ -70,6 +143,125 @@ public class ImageMemoService {
         return imageMemoRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
     }
 
+    /**
+     * ユーザーの画像メモ一覧の指定ページを取得（件数は取得しない、エンティティを生成しない）
+     * 並び順は作成日時の降順で固定（ページング情報の並び順は使わない）
+     *
+     * @param userId ユーザーID
+     * @param pageable ページング情報
+     * @return 画像メモ一覧
+     */
+    @Transactional(readOnly = true)
+    public List<ImageMemoSummary> findSummaryPage(Long userId, Pageable pageable) {
+        return imageMemoRepository.findSummaryPage(userId,
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+    }
+
+    /**
+     * ユーザーの画像メモ一覧の指定ページの画像の参照を取得（並び順はfindSummaryPageと同じ）
+     *
+     * @param userId ユーザーID
+     * @param pageable ページング情報
+     * @return 画像メモIDとS3キー
+     */
+    @Transactional(readOnly = true)
+    public List<ImageMemoImageRef> findImageRefPage(Long userId, Pageable pageable) {
+        return imageMemoRepository.findImageRefPage(userId,
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+    }
+
+    /**
+     * ユーザーの画像メモの件数を取得
+     *
+     * @param userId ユーザーID
+     * @return 件数
+     */
+    @Transactional(readOnly = true)
+    public long countByUserId(Long userId) {
+        return imageMemoRepository.countByUserId(userId);
+    }
+
+    /**
+     * ユーザーの画像メモ一覧をキーセット方式のページングで取得（JSON API用、エンティティを生成しない）
+     *
+     * @param userId ユーザーID
+     * @param after 前ページの続きから取得する場合の位置（先頭ページはnull）
+     * @param limit 取得件数
+     * @return 画像メモ一覧
+     */
+    @Transactional(readOnly = true)
+    public MemoListResult findSummaries(Long userId, MemoListCursor after, int limit) {
+        // 次ページの有無を判定するため1件多く取得
+        List<ImageMemoSummary> memos = after == null
+                ? imageMemoRepository.findSummaries(userId, Limit.of(limit + 1))
+                : imageMemoRepository.findSummariesAfter(userId, after.createdAt(), after.id(), Limit.of(limit + 1));
+        if (memos.size() <= limit) {
+            return new MemoListResult(memos, null);
+        }
+
+        List<ImageMemoSummary> page = memos.subList(0, limit);
+        ImageMemoSummary last = page.get(page.size() - 1);
+        return new MemoListResult(page, new MemoListCursor(last.createdAt(), last.id()));
+    }
+
+    /**
+     * 画像メモを取得（JSON API用、エンティティを生成しない）
+     *
+     * @param id 画像メモID
+     * @param userId ユーザーID
+     * @return 画像メモ（存在しない、または他のユーザーの画像メモの場合は空）
+     */
+    @Transactional(readOnly = true)
+    public Optional<ImageMemoSummary> findSummary(Long id, Long userId) {
+        return imageMemoRepository.findSummaryByIdAndUserId(id, userId);
+    }
+
+    /**
+     * ユーザーの画像メモをタイトル・説明から全文検索
+     * 各検索語は前方一致で、すべての語を含むメモを関連度の降順で返す
+     *
+     * @param userId ユーザーID
+     * @param keywords 検索語（空白区切り）
+     * @param after 前ページの続きから取得する場合の位置（先頭ページはnull）
+     * @return 検索結果
+     */
+    @Transactional(readOnly = true)
+    public MemoSearchResult search(Long userId, String keywords, MemoSearchCursor after) {
+        String query = toPrefixQuery(keywords);
+        if (query.isEmpty()) {
+            return new MemoSearchResult(List.of(), null);
+        }
+
+        // 次ページの有無を判定するため1件多く取得
+        List<ImageMemoSearchHit> hits = imageMemoRepository.search(userId, query,
+                after != null ? after.rank() : null,
+                after != null ? after.id() : null,
+                SEARCH_PAGE_SIZE + 1);
+        if (hits.size() <= SEARCH_PAGE_SIZE) {
+            return new MemoSearchResult(hits, null);
+        }
+
+        List<ImageMemoSearchHit> page = hits.subList(0, SEARCH_PAGE_SIZE);
+        ImageMemoSearchHit last = page.get(page.size() - 1);
+        return new MemoSearchResult(page, new MemoSearchCursor(last.getRank(), last.getId()));
+    }
+
+    /**
+     * 検索語をto_tsquery形式（各語の前方一致をANDで結合）に変換
+     * tsqueryの演算子として解釈される記号は取り除く
+     */
+    static String toPrefixQuery(String keywords) {
+        if (keywords == null) {
+            return "";
+        }
+        return Arrays.stream(keywords.trim().split("\\s+"))
+                .map(term -> TSQUERY_SPECIAL_CHARACTERS.matcher(term).replaceAll(""))
+                .filter(term -> !term.isEmpty())
+                .limit(SEARCH_MAX_TERMS)
+                .map(term -> term.toLowerCase(Locale.ROOT) + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+
     /**
      * 画像メモを取得
      *
@@ -84,7 +276,7 @@ public class ImageMemoService {
 
     /**
      * 画像メモを削除
-     * S3削除を先に実行し、成功後にDB削除を行う
+     * 画像への参照解除（必要ならS3削除）を先に実行し、成功後にDB削除を行う
      *
      * @param id 画像メモID
      * @param userId ユーザーID
@@ -96,12 +288,13 @@ public class ImageMemoService {
 
         String s3Key = imageMemo.getS3Key();
 
-        // S3から画像を削除（失敗時は例外をスローしてDB削除を中止）
-        s3Service.deleteFile(s3Properties.getBucketName(), s3Key);
-        log.info("S3から画像を削除しました: s3Key={}", s3Key);
+        // 画像への参照を解除（参照数が0になった場合のみS3から削除。失敗時は例外をスローしてDB削除を中止）
+        imageBlobService.release(s3Key);
 
-        // S3削除成功後、DBから削除
+        // 参照解除成功後、DBから削除
         imageMemoRepository.delete(imageMemo);
+        userRepository.incrementMemoListVersion(userId);
+        readYourWritesWindow.markWritten();
         log.info("画像メモを削除しました: id={}, userId={}", id, userId);
     }
 }
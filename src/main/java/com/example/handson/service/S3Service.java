@@ -1,24 +1,33 @@
 package com.example.handson.service;
 
+import com.example.handson.concurrency.AdaptiveConcurrencyLimiter;
+import com.example.handson.concurrency.S3ConcurrencyLimits;
 import com.example.handson.config.S3Properties;
 import com.example.handson.exception.StorageException;
+import com.example.handson.exception.StorageObjectNotFoundException;
+import com.example.handson.exception.StorageOverloadedException;
+import com.example.handson.image.StagedImage;
 import io.awspring.cloud.s3.S3Exception;
-import io.awspring.cloud.s3.S3Resource;
 import io.awspring.cloud.s3.S3Template;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
-import java.util.UUID;
 
 /**
  * S3サービス
- * 画像ファイルのアップロード・削除・URL取得を担当
- * Spring Cloud AWSのS3Templateを使用
+ * 画像ファイルのアップロード・削除・ダウンロードを担当
+ * アップロード・削除はSpring Cloud AWSのS3Template、ダウンロードはHedgedS3Readerを使用
+ * S3操作は読み取り・書き込みごとの同時実行数の上限（S3ConcurrencyLimits）の範囲で実行し、
+ * 上限に達している場合は待たずにStorageOverloadedExceptionをスローする
  */
 @Service
 @RequiredArgsConstructor
@@ -27,35 +36,31 @@ public class S3Service {
 
     private final S3Template s3Template;
     private final S3Properties s3Properties;
+    private final S3ConcurrencyLimits s3ConcurrencyLimits;
+    private final HedgedS3Reader hedgedS3Reader;
 
     /**
      * ファイルをS3にアップロード
      *
      * @param bucketName バケット名
-     * @param file アップロードするファイル
-     * @param userId ユーザーID
-     * @return S3キー
+     * @param image アップロードする画像（メタデータ除去後）
+     * @param contentType Content-Type
+     * @param s3Key S3キー（{@link #generateS3Key(String, String)}で生成）
      */
-    public String uploadFile(String bucketName, MultipartFile file, String userId) throws IOException {
-        validateFile(file);
-
-        String originalFilename = file.getOriginalFilename();
-        String extension = getFileExtension(originalFilename);
-        String s3Key = generateS3Key(userId, extension);
-
-        try (InputStream inputStream = file.getInputStream()) {
+    public void uploadFile(String bucketName, StagedImage image, String contentType, String s3Key) {
+        AdaptiveConcurrencyLimiter.Permit permit = s3ConcurrencyLimits.acquire(S3ConcurrencyLimits.Pool.WRITE);
+        try (permit; InputStream inputStream = image.openStream()) {
             // Spring Cloud AWSのS3Templateを使用してアップロード
             s3Template.upload(bucketName, s3Key, inputStream,
                 io.awspring.cloud.s3.ObjectMetadata.builder()
-                    .contentType(file.getContentType())
-                    .contentLength(file.getSize())
+                    .contentType(contentType)
+                    .contentLength(image.size())
                     .build());
 
             log.info("ファイルをS3にアップロードしました: bucket={}, key={}", bucketName, s3Key);
-            return s3Key;
         } catch (S3Exception e) {
             log.error("S3へのアップロードに失敗しました: bucket={}, key={}", bucketName, s3Key, e);
-            throw new StorageException("ファイルのアップロードに失敗しました", e);
+            throw failure("ファイルのアップロードに失敗しました", e);
         } catch (IOException e) {
             log.error("ファイル読み込みエラー: key={}", s3Key, e);
             throw new StorageException("ファイルの読み込みに失敗しました", e);
@@ -64,42 +69,35 @@ public class S3Service {
 
     /**
      * S3から画像をダウンロード（ストリーミング配信用）
+     * 応答が遅い場合は2つ目のGETを送る（HedgedS3Reader）
      *
      * @param bucketName バケット名
      * @param s3Key S3キー
-     * @return 画像ダウンロード結果（InputStream、Content-Type、Content-Length）
+     * @return 画像ダウンロード結果（InputStream、Content-Type、Content-Length）。InputStreamのclose時に実行枠を返却する
      */
     public ImageDownloadResult downloadImageStream(String bucketName, String s3Key) {
         try {
-            // Spring Cloud AWSのS3Templateを使用してダウンロード
-            S3Resource resource = s3Template.download(bucketName, s3Key);
+            // レスポンスヘッダーのContent-Lengthを使用（HEADリクエストは送らない）
+            ResponseInputStream<GetObjectResponse> object = hedgedS3Reader.getObject(bucketName, s3Key);
 
             // Content-Typeを取得（ファイル名から推測）
             String contentType = getContentType(s3Key);
-
-            // Content-Lengthを取得
-            long contentLength = resource.contentLength();
-
-            // InputStreamを取得
-            InputStream inputStream = resource.getInputStream();
+            long contentLength = object.response().contentLength();
 
             log.info("S3から画像をダウンロードしました: bucket={}, key={}, contentType={}, size={}",
                 bucketName, s3Key, contentType, contentLength);
 
-            return new ImageDownloadResult(inputStream, contentType, contentLength);
-        } catch (S3Exception e) {
+            return new ImageDownloadResult(object, contentType, contentLength);
+        } catch (SdkException e) {
             log.error("S3からのダウンロードに失敗しました: bucket={}, key={}", bucketName, s3Key, e);
-            throw new StorageException("ファイルのダウンロードに失敗しました", e);
-        } catch (IOException e) {
-            log.error("S3リソースアクセスエラー: bucket={}, key={}", bucketName, s3Key, e);
-            throw new StorageException("ファイルのダウンロードに失敗しました", e);
+            throw failure("ファイルのダウンロードに失敗しました", e);
         }
     }
 
     /**
-     * S3キーからContent-Typeを推測
+     * S3キー（ファイル名）からContent-Typeを推測
      */
-    private String getContentType(String s3Key) {
+    String getContentType(String s3Key) {
         String extension = getFileExtension(s3Key).toLowerCase();
         return switch (extension) {
             case "jpg", "jpeg" -> "image/jpeg";
@@ -116,31 +114,61 @@ public class S3Service {
      * @param s3Key S3キー
      */
     public void deleteFile(String bucketName, String s3Key) {
-        try {
+        AdaptiveConcurrencyLimiter.Permit permit = s3ConcurrencyLimits.acquire(S3ConcurrencyLimits.Pool.WRITE);
+        try (permit) {
             // Spring Cloud AWSのS3Templateを使用して削除
             s3Template.deleteObject(bucketName, s3Key);
             log.info("S3からファイルを削除しました: bucket={}, key={}", bucketName, s3Key);
         } catch (S3Exception e) {
             log.error("S3からの削除に失敗しました: bucket={}, key={}", bucketName, s3Key, e);
-            throw new StorageException("ファイルの削除に失敗しました", e);
+            throw failure("ファイルの削除に失敗しました", e);
         }
     }
 
     /**
-     * ファイルのバリデーション
+     * S3操作の失敗をStorageExceptionに変換する
+     * HTTPクライアントが停止中（チェックポイント・終了処理中）で拒否した場合は、
+     * SDK・S3Templateがラップした原因のStorageOverloadedException（503）をそのまま返す
+     * オブジェクトが存在しなかった場合はStorageObjectNotFoundExceptionを返す
+     */
+    private static StorageException failure(String message, Exception e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof StorageOverloadedException overloaded) {
+                return overloaded;
+            }
+            if (cause instanceof NoSuchKeyException) {
+                return new StorageObjectNotFoundException(message, e);
+            }
+        }
+        return new StorageException(message, e);
+    }
+
+    /**
+     * ファイルのバリデーション（サイズ・拡張子）
+     */
+    public void validateFile(MultipartFile file) {
+        validateFile(file.getOriginalFilename(), file.getSize());
+    }
+
+    /**
+     * ファイルのバリデーション（サイズ・拡張子）
+     * MultipartFile以外（ZIPのエントリ等）の画像にも同じ規則を適用する
+     *
+     * @param filename ファイル名
+     * @param size ファイルサイズ（バイト）
      */
-    private void validateFile(MultipartFile file) {
-        if (file.isEmpty()) {
+    public void validateFile(String filename, long size) {
+        if (size == 0) {
             throw new IllegalArgumentException("空のファイルはアップロードできません");
         }
 
-        if (file.getSize() > s3Properties.getMaxFileSize()) {
+        if (size > s3Properties.getMaxFileSize()) {
             throw new IllegalArgumentException(
                     String.format("ファイルサイズが大きすぎます。最大サイズ: %d bytes", s3Properties.getMaxFileSize())
             );
         }
 
-        String extension = getFileExtension(file.getOriginalFilename());
+        String extension = getFileExtension(filename);
         List<String> allowed = s3Properties.getAllowedExtensions();
 
         if (!allowed.contains(extension.toLowerCase())) {
@@ -162,15 +190,15 @@ public class S3Service {
 
     /**
      * S3キーを生成
-     * マルチユーザーアプリケーションのベストプラクティスに従い、
-     * ユーザーIDでパスを分離することで運用性・管理性を向上
+     * 内容のSHA-256をキーにすることで、同じ画像は誰がアップロードしても1つのオブジェクトを共有する
+     * 先頭2文字でプレフィックスを分け、S3のプレフィックス単位のリクエストレート上限に偏らないようにする
      *
-     * @param userId ユーザーID
-     * @param extension ファイル拡張子
-     * @return S3キー（形式: uploads/{userId}/{UUID}.{extension}）
+     * @param contentHash ファイル内容のSHA-256
+     * @param originalFilename 元のファイル名（拡張子をContent-Typeの判定に使用）
+     * @return S3キー（形式: blobs/{hashの先頭2文字}/{hash}.{extension}）
      */
-    private String generateS3Key(String userId, String extension) {
-        String uuid = UUID.randomUUID().toString();
-        return String.format("uploads/%s/%s.%s", userId, uuid, extension);
+    public String generateS3Key(String contentHash, String originalFilename) {
+        String extension = getFileExtension(originalFilename).toLowerCase();
+        return String.format("blobs/%s/%s.%s", contentHash.substring(0, 2), contentHash, extension);
     }
 }
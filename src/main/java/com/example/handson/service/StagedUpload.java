@@ -0,0 +1,15 @@
+package com.example.handson.service;
+
+import com.example.handson.image.StagedImage;
+
+/**
+ * 一括アップロード・ZIPからのインポートで、メタデータを除去した画像ファイル
+ *
+ * @param title 画像メモのタイトル（ファイル名から拡張子を除いたもの、またはインポートするZIPのmanifest.jsonの値）
+ * @param description 画像メモの説明（null可）
+ * @param originalFilename 元のファイル名（拡張子をS3キーに使用）
+ * @param contentType Content-Type
+ * @param image メタデータ除去後の画像（一括アップロードはファイル、インポートはメモリ上に保持）
+ */
+public record StagedUpload(String title, String description, String originalFilename, String contentType, StagedImage image) {
+}
@@ -0,0 +1,13 @@
+package com.example.handson.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一括アップロードで保存した画像ファイル本体
+ *
+ * @param s3Keys 内容のSHA-256 → S3キー（保存に失敗した内容は含まない）
+ * @param uploadedKeys 今回S3にアップロードしたS3キー（保存済みの内容を共有したものは含まない）
+ */
+public record StoredBlobs(Map<String, String> s3Keys, List<String> uploadedKeys) {
+}
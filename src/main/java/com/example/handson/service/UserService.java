@@ -1,5 +1,6 @@
 package com.example.handson.service;
 
+import com.example.handson.datasource.ReadYourWritesWindow;
 import com.example.handson.domain.user.User;
 import com.example.handson.domain.user.UserRepository;
 import com.example.handson.dto.UserRegistrationDto;
@@ -20,6 +21,7 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ReadYourWritesWindow readYourWritesWindow;
 
     /**
      * ユーザー登録
@@ -34,19 +36,12 @@ public class UserService {
             throw new IllegalArgumentException("パスワードが一致しません");
         }
 
-        // ユーザー名の重複チェック
-        if (userRepository.existsByUsername(dto.username())) {
-            throw new IllegalArgumentException("既に使用されているユーザー名です");
-        }
-
-        // ユーザー作成
-        User user = User.builder()
-                .username(dto.username())
-                .password(passwordEncoder.encode(dto.password()))
-                .enabled(true)
-                .build();
+        // ユーザー作成（重複チェックは一意制約に任せ、INSERT ... ON CONFLICT DO NOTHINGの1文で行う）
+        User saved = userRepository.insertIfAbsent(dto.username(), passwordEncoder.encode(dto.password()))
+                .orElseThrow(() -> new IllegalArgumentException("既に使用されているユーザー名です"));
 
-        User saved = userRepository.save(user);
+        // 直後のログインでレプリカに未反映のユーザーを参照しないようにする
+        readYourWritesWindow.markWritten();
         log.info("新規ユーザーを登録しました: username={}", saved.getUsername());
 
         return saved;
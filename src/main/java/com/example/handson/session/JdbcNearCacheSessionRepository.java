@@ -0,0 +1,509 @@
+package com.example.handson.session;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializingConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.session.FindByIndexNameSessionRepository;
+import org.springframework.session.MapSession;
+import org.springframework.session.PrincipalNameIndexResolver;
+import org.springframework.session.Session;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * PostgreSQLにセッションを保存するSessionRepository
+ * 複数のECSタスク間でセッションを共有し、タスク再起動でもログイン状態を維持する
+ *
+ * <ul>
+ *   <li>読み込み: 短いTTLのローカルニアキャッシュで、リクエストごとのSELECTを省略</li>
+ *   <li>属性の変更: 変更した属性の行だけを即座にDBへ書き込み、DBから読み直してニアキャッシュを更新
+ *       （ニアキャッシュの古いスナップショットで他タスクの変更・同時セッション制御による失効を上書きしない）</li>
+ *   <li>最終アクセス時刻のみの変更: 一定間隔でまとめてバッチ更新</li>
+ *   <li>削除済みセッションの保存: 作り直さない（他タスクでのログアウト・同時セッション制御による失効を戻さない）</li>
+ * </ul>
+ */
+@Slf4j
+public class JdbcNearCacheSessionRepository
+        implements FindByIndexNameSessionRepository<JdbcNearCacheSessionRepository.NearCachedSession> {
+
+    private static final String SELECT_COLUMNS = """
+            SELECT s.session_id, s.creation_time, s.last_access_time, s.max_inactive_interval,
+                   a.attribute_name, a.attribute_bytes
+            FROM http_sessions s
+            LEFT JOIN http_session_attributes a ON a.session_id = s.session_id
+            """;
+
+    private static final String INSERT_SESSION = """
+            INSERT INTO http_sessions (session_id, principal_name, creation_time, last_access_time,
+                                       max_inactive_interval, expiry_time)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String LOCK_SESSION =
+            "SELECT session_id FROM http_sessions WHERE session_id = ? FOR UPDATE";
+
+    private static final String UPSERT_ATTRIBUTE = """
+            INSERT INTO http_session_attributes (session_id, attribute_name, attribute_bytes)
+            VALUES (?, ?, ?)
+            ON CONFLICT (session_id, attribute_name) DO UPDATE SET attribute_bytes = EXCLUDED.attribute_bytes
+            """;
+
+    private static final String DELETE_ATTRIBUTE =
+            "DELETE FROM http_session_attributes WHERE session_id = ? AND attribute_name = ?";
+
+    /** 最終アクセス時刻は他タスクがより新しい時刻を書いていれば戻さない */
+    private static final String UPDATE_SESSION = """
+            UPDATE http_sessions
+            SET principal_name = ?,
+                last_access_time = GREATEST(last_access_time, ?),
+                max_inactive_interval = ?,
+                expiry_time = GREATEST(last_access_time, ?) + ?
+            WHERE session_id = ?
+            """;
+
+    private static final String UPDATE_SESSION_ID =
+            "UPDATE http_sessions SET session_id = ? WHERE session_id = ?";
+
+    private static final String UPDATE_LAST_ACCESS_TIME = """
+            UPDATE http_sessions
+            SET last_access_time = ?, expiry_time = ?
+            WHERE session_id = ? AND last_access_time < ?
+            """;
+
+    private static final String SELECT_SESSION =
+            SELECT_COLUMNS + "WHERE s.session_id = ?";
+
+    private static final String SELECT_SESSIONS_BY_PRINCIPAL_NAME =
+            SELECT_COLUMNS + "WHERE s.principal_name = ? AND s.expiry_time > ?";
+
+    private static final String DELETE_SESSION =
+            "DELETE FROM http_sessions WHERE session_id = ?";
+
+    private static final String DELETE_EXPIRED_SESSIONS =
+            "DELETE FROM http_sessions WHERE expiry_time < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration defaultMaxInactiveInterval;
+    private final long nearCacheTtlNanos;
+    private final LongSupplier nanoClock;
+
+    private final PrincipalNameIndexResolver<Session> principalNameResolver = new PrincipalNameIndexResolver<>();
+    private final SerializingConverter serializer = new SerializingConverter();
+    private final DeserializingConverter deserializer;
+
+    /** セッションID → 読み込み済みセッションのスナップショット */
+    private final Map<String, CachedEntry> nearCache = new ConcurrentHashMap<>();
+
+    /** セッションID → DB未反映の最終アクセス時刻 */
+    private final Map<String, Instant> pendingAccessTimes = new ConcurrentHashMap<>();
+
+    public JdbcNearCacheSessionRepository(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                          Duration defaultMaxInactiveInterval, Duration nearCacheTtl,
+                                          ClassLoader classLoader) {
+        this(jdbcTemplate, transactionManager, defaultMaxInactiveInterval, nearCacheTtl, classLoader,
+                System::nanoTime);
+    }
+
+    JdbcNearCacheSessionRepository(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                   Duration defaultMaxInactiveInterval, Duration nearCacheTtl,
+                                   ClassLoader classLoader, LongSupplier nanoClock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.defaultMaxInactiveInterval = defaultMaxInactiveInterval;
+        this.nearCacheTtlNanos = nearCacheTtl.toNanos();
+        this.deserializer = new DeserializingConverter(classLoader);
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public NearCachedSession createSession() {
+        MapSession delegate = new MapSession();
+        delegate.setMaxInactiveInterval(defaultMaxInactiveInterval);
+        return new NearCachedSession(delegate, true);
+    }
+
+    @Override
+    public void save(NearCachedSession session) {
+        MapSession saved = session.delegate;
+        boolean cacheSaved = true;
+        if (session.isNew) {
+            insert(session);
+        } else {
+            if (session.originalId != null && !session.originalId.equals(session.getId())) {
+                // セッション固定攻撃対策でIDが変更された場合
+                int renamed = jdbcTemplate.update(UPDATE_SESSION_ID, session.getId(), session.originalId);
+                nearCache.remove(session.originalId);
+                Instant pending = pendingAccessTimes.remove(session.originalId);
+                if (renamed == 0) {
+                    discard(session);
+                    return;
+                }
+                if (pending != null) {
+                    pendingAccessTimes.merge(session.getId(), pending, JdbcNearCacheSessionRepository::latest);
+                }
+            }
+            if (session.changed) {
+                saved = update(session);
+                if (saved == null) {
+                    discard(session);
+                    return;
+                }
+                pendingAccessTimes.remove(session.getId());
+            } else {
+                if (session.accessed) {
+                    // 最終アクセス時刻のみの更新は次回のバッチ書き戻しに回す
+                    pendingAccessTimes.merge(session.getId(), session.getLastAccessedTime(),
+                            JdbcNearCacheSessionRepository::latest);
+                }
+                // DBから読んでいないスナップショットでニアキャッシュの有効期間を延ばさない
+                cacheSaved = session.originalId != null;
+            }
+        }
+
+        if (cacheSaved) {
+            nearCache.put(session.getId(), new CachedEntry(new MapSession(saved), nanoClock.getAsLong()));
+        }
+        session.clearChangeFlags();
+    }
+
+    @Override
+    public NearCachedSession findById(String id) {
+        MapSession snapshot = lookup(id);
+        if (snapshot == null) {
+            return null;
+        }
+
+        Instant pending = pendingAccessTimes.get(id);
+        if (pending != null && pending.isAfter(snapshot.getLastAccessedTime())) {
+            snapshot.setLastAccessedTime(pending);
+        }
+
+        if (snapshot.isExpired()) {
+            deleteById(id);
+            return null;
+        }
+        return new NearCachedSession(snapshot, false);
+    }
+
+    @Override
+    public void deleteById(String id) {
+        jdbcTemplate.update(DELETE_SESSION, id);
+        nearCache.remove(id);
+        pendingAccessTimes.remove(id);
+    }
+
+    @Override
+    public Map<String, NearCachedSession> findByIndexNameAndIndexValue(String indexName, String indexValue) {
+        if (!PRINCIPAL_NAME_INDEX_NAME.equals(indexName)) {
+            return Collections.emptyMap();
+        }
+
+        // 同時セッション制御の判定に使うため、ニアキャッシュを経由せずDBを参照する
+        List<MapSession> sessions = jdbcTemplate.query(SELECT_SESSIONS_BY_PRINCIPAL_NAME, sessionExtractor(),
+                indexValue, System.currentTimeMillis());
+
+        Map<String, NearCachedSession> result = new HashMap<>(sessions.size());
+        for (MapSession session : sessions) {
+            result.put(session.getId(), new NearCachedSession(session, false));
+        }
+        return result;
+    }
+
+    /**
+     * DB未反映の最終アクセス時刻をまとめて書き戻す
+     */
+    public void flushPendingAccessTimes() {
+        if (pendingAccessTimes.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> batchArgs = new ArrayList<>();
+        for (String id : Set.copyOf(pendingAccessTimes.keySet())) {
+            Instant lastAccessedTime = pendingAccessTimes.remove(id);
+            if (lastAccessedTime == null) {
+                continue;
+            }
+            CachedEntry cached = nearCache.get(id);
+            Duration maxInactive = cached != null
+                    ? cached.session().getMaxInactiveInterval()
+                    : defaultMaxInactiveInterval;
+            long lastAccessMillis = lastAccessedTime.toEpochMilli();
+            batchArgs.add(new Object[] {
+                    lastAccessMillis, expiryTime(lastAccessMillis, maxInactive), id, lastAccessMillis
+            });
+        }
+
+        if (!batchArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_LAST_ACCESS_TIME, batchArgs);
+            log.debug("セッションの最終アクセス時刻をバッチ更新しました: count={}", batchArgs.size());
+        }
+    }
+
+    /**
+     * 期限切れセッションの削除とニアキャッシュの掃除
+     */
+    public void cleanupExpiredSessions() {
+        flushPendingAccessTimes();
+
+        int deleted = jdbcTemplate.update(DELETE_EXPIRED_SESSIONS, System.currentTimeMillis());
+        if (deleted > 0) {
+            log.info("期限切れセッションを削除しました: count={}", deleted);
+        }
+
+        long now = nanoClock.getAsLong();
+        nearCache.entrySet().removeIf(entry -> !entry.getValue().isFresh(now, nearCacheTtlNanos));
+    }
+
+    private MapSession lookup(String id) {
+        CachedEntry cached = nearCache.get(id);
+        if (cached != null && cached.isFresh(nanoClock.getAsLong(), nearCacheTtlNanos)) {
+            return new MapSession(cached.session());
+        }
+
+        MapSession session = load(id);
+        if (session == null) {
+            nearCache.remove(id);
+            return null;
+        }
+
+        nearCache.put(id, new CachedEntry(session, nanoClock.getAsLong()));
+        return new MapSession(session);
+    }
+
+    private MapSession load(String id) {
+        List<MapSession> loaded = jdbcTemplate.query(SELECT_SESSION, sessionExtractor(), id);
+        return loaded.isEmpty() ? null : loaded.getFirst();
+    }
+
+    private void insert(NearCachedSession session) {
+        long lastAccessMillis = session.getLastAccessedTime().toEpochMilli();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(INSERT_SESSION,
+                    session.getId(),
+                    principalNameResolver.resolveIndexValueFor(session),
+                    session.getCreationTime().toEpochMilli(),
+                    lastAccessMillis,
+                    (int) session.getMaxInactiveInterval().toSeconds(),
+                    expiryTime(lastAccessMillis, session.getMaxInactiveInterval()));
+            writeAttributes(session.getId(), session.changedAttributes);
+        });
+    }
+
+    /**
+     * 変更した属性だけを書き込み、他タスクが変更した属性を含めてDBから読み直す
+     * ユーザー名のインデックスは読み直した属性から求める
+     *
+     * @return 保存後のDB上のセッション。DBにセッションがない（他タスクで削除・期限切れ削除済み）場合null
+     */
+    private MapSession update(NearCachedSession session) {
+        String id = session.getId();
+        long lastAccessMillis = session.getLastAccessedTime().toEpochMilli();
+        Duration maxInactive = session.getMaxInactiveInterval();
+        return transactionTemplate.execute(status -> {
+            // 同じセッションの保存を直列化し、属性の書き込みと読み直しの間に他タスクの書き込みを挟まない
+            if (jdbcTemplate.queryForList(LOCK_SESSION, String.class, id).isEmpty()) {
+                return null;
+            }
+            writeAttributes(id, session.changedAttributes);
+
+            MapSession merged = load(id);
+            merged.setMaxInactiveInterval(maxInactive);
+            if (session.getLastAccessedTime().isAfter(merged.getLastAccessedTime())) {
+                merged.setLastAccessedTime(session.getLastAccessedTime());
+            }
+            jdbcTemplate.update(UPDATE_SESSION,
+                    principalNameResolver.resolveIndexValueFor(merged),
+                    lastAccessMillis,
+                    (int) maxInactive.toSeconds(),
+                    lastAccessMillis,
+                    maxInactive.toMillis(),
+                    id);
+            return merged;
+        });
+    }
+
+    /**
+     * 属性の行を書き込む（値がnullの属性は削除）
+     */
+    private void writeAttributes(String sessionId, Map<String, Object> attributes) {
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        attributes.forEach((name, value) -> {
+            if (value == null) {
+                deletes.add(new Object[] {sessionId, name});
+            } else {
+                upserts.add(new Object[] {sessionId, name, serializer.convert(value)});
+            }
+        });
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_ATTRIBUTE, deletes);
+        }
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_ATTRIBUTE, upserts);
+        }
+    }
+
+    /**
+     * 他タスクで削除されたセッションの保存を破棄する
+     * 他タスクのニアキャッシュには削除後もTTLの間残るため、そこからの保存で作り直さない
+     * （ログアウト・同時セッション制御で失効したセッションが戻らないようにする）
+     */
+    private void discard(NearCachedSession session) {
+        nearCache.remove(session.getId());
+        pendingAccessTimes.remove(session.getId());
+        session.clearChangeFlags();
+        log.debug("削除済みのセッションのため保存しません: id={}", session.getId());
+    }
+
+    /**
+     * セッションと属性の結合結果（属性ごとに1行）をセッションごとにまとめる
+     */
+    private ResultSetExtractor<List<MapSession>> sessionExtractor() {
+        return rs -> {
+            Map<String, MapSession> sessions = new LinkedHashMap<>();
+            while (rs.next()) {
+                String id = rs.getString("session_id");
+                MapSession session = sessions.get(id);
+                if (session == null) {
+                    session = new MapSession(id);
+                    session.setCreationTime(Instant.ofEpochMilli(rs.getLong("creation_time")));
+                    session.setLastAccessedTime(Instant.ofEpochMilli(rs.getLong("last_access_time")));
+                    session.setMaxInactiveInterval(Duration.ofSeconds(rs.getInt("max_inactive_interval")));
+                    sessions.put(id, session);
+                }
+                String attributeName = rs.getString("attribute_name");
+                if (attributeName != null) {
+                    session.setAttribute(attributeName, deserializer.convert(rs.getBytes("attribute_bytes")));
+                }
+            }
+            return new ArrayList<>(sessions.values());
+        };
+    }
+
+    private static long expiryTime(long lastAccessMillis, Duration maxInactiveInterval) {
+        return lastAccessMillis + maxInactiveInterval.toMillis();
+    }
+
+    private static Instant latest(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private record CachedEntry(MapSession session, long loadedAtNanos) {
+
+        boolean isFresh(long now, long ttlNanos) {
+            return now - loadedAtNanos < ttlNanos;
+        }
+    }
+
+    /**
+     * 変更内容（変更した属性・最終アクセス時刻・ID）を追跡するセッション
+     */
+    public static final class NearCachedSession implements Session {
+
+        private final MapSession delegate;
+        /** 属性名 → 変更後の値（削除した属性はnull） */
+        private final Map<String, Object> changedAttributes = new HashMap<>();
+        private boolean isNew;
+        private boolean changed;
+        private boolean accessed;
+        private String originalId;
+
+        NearCachedSession(MapSession delegate, boolean isNew) {
+            this.delegate = delegate;
+            this.isNew = isNew;
+            this.changed = isNew;
+        }
+
+        @Override
+        public String getId() {
+            return delegate.getId();
+        }
+
+        @Override
+        public String changeSessionId() {
+            if (originalId == null && !isNew) {
+                originalId = delegate.getId();
+            }
+            return delegate.changeSessionId();
+        }
+
+        @Override
+        public <T> T getAttribute(String attributeName) {
+            return delegate.getAttribute(attributeName);
+        }
+
+        @Override
+        public Set<String> getAttributeNames() {
+            return delegate.getAttributeNames();
+        }
+
+        @Override
+        public void setAttribute(String attributeName, Object attributeValue) {
+            delegate.setAttribute(attributeName, attributeValue);
+            changedAttributes.put(attributeName, attributeValue);
+            changed = true;
+        }
+
+        @Override
+        public void removeAttribute(String attributeName) {
+            delegate.removeAttribute(attributeName);
+            changedAttributes.put(attributeName, null);
+            changed = true;
+        }
+
+        @Override
+        public Instant getCreationTime() {
+            return delegate.getCreationTime();
+        }
+
+        @Override
+        public void setLastAccessedTime(Instant lastAccessedTime) {
+            delegate.setLastAccessedTime(lastAccessedTime);
+            accessed = true;
+        }
+
+        @Override
+        public Instant getLastAccessedTime() {
+            return delegate.getLastAccessedTime();
+        }
+
+        @Override
+        public void setMaxInactiveInterval(Duration interval) {
+            delegate.setMaxInactiveInterval(interval);
+            changed = true;
+        }
+
+        @Override
+        public Duration getMaxInactiveInterval() {
+            return delegate.getMaxInactiveInterval();
+        }
+
+        @Override
+        public boolean isExpired() {
+            return delegate.isExpired();
+        }
+
+        private void clearChangeFlags() {
+            isNew = false;
+            changedAttributes.clear();
+            changed = false;
+            accessed = false;
+            originalId = null;
+        }
+    }
+}
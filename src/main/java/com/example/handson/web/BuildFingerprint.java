@@ -0,0 +1,88 @@
+package com.example.handson.web;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+
+/**
+ * 静的リソース・テンプレート・アプリケーションのクラスの内容から計算したビルドの識別子
+ * 描画済みページ・JSON APIのETag・キャッシュキーに含め、デプロイでCSS・JS（ハッシュ付きURL）やテンプレート、
+ * JSONの項目が変わった後に、旧ビルドの内容を304やキャッシュで返さないようにする
+ * 同じイメージから起動したタスクは同じ値になる（内容とリソース内のパスだけから計算する）
+ * ネイティブイメージではクラスファイルをリソースに含めないため、静的リソース・テンプレートだけから計算する
+ */
+@Component
+@Slf4j
+public class BuildFingerprint {
+
+    private static final String[] LOCATIONS = {
+            "classpath*:/static/**", "classpath*:/templates/**", "classpath*:/com/example/handson/**/*.class"};
+
+    private final String value;
+
+    public BuildFingerprint(ResourceLoader resourceLoader) throws IOException {
+        this.value = compute(ResourcePatternUtils.getResourcePatternResolver(resourceLoader));
+        log.info("ビルドの識別子を計算しました: {}", value);
+    }
+
+    /**
+     * 識別子（16進数12桁）
+     */
+    public String value() {
+        return value;
+    }
+
+    static String compute(ResourcePatternResolver resolver) throws IOException {
+        MessageDigest digest = sha256();
+        for (String location : LOCATIONS) {
+            Resource[] resources = resolver.getResources(location);
+            // 列挙の順序は環境によって異なるため、パスの順に並べる
+            Arrays.sort(resources, Comparator.comparing(BuildFingerprint::path));
+            for (Resource resource : resources) {
+                // ディレクトリは読めないため除く
+                if (!resource.isReadable()) {
+                    continue;
+                }
+                digest.update(path(resource).getBytes(StandardCharsets.UTF_8));
+                try (InputStream in = resource.getInputStream()) {
+                    digest.update(in.readAllBytes());
+                }
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest(), 0, 6);
+    }
+
+    /**
+     * static・templates・パッケージ以下のパス（jarの場所によらない）
+     */
+    private static String path(Resource resource) {
+        try {
+            String url = resource.getURL().toString();
+            int start = Math.max(Math.max(url.lastIndexOf("/static/"), url.lastIndexOf("/templates/")),
+                    url.lastIndexOf("/com/example/handson/"));
+            return start >= 0 ? url.substring(start) : url;
+        } catch (IOException e) {
+            return String.valueOf(resource.getFilename());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256が利用できません", e);
+        }
+    }
+}
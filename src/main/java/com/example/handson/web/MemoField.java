@@ -0,0 +1,65 @@
+package com.example.handson.web;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * JSON APIの画像メモの項目（fieldsパラメーターで必要な項目だけを指定できる）
+ */
+public enum MemoField {
+
+    ID("id"),
+    TITLE("title"),
+    DESCRIPTION("description"),
+    CREATED_AT("createdAt"),
+    UPDATED_AT("updatedAt"),
+    IMAGE_URL("imageUrl");
+
+    private final String jsonName;
+
+    MemoField(String jsonName) {
+        this.jsonName = jsonName;
+    }
+
+    public String jsonName() {
+        return jsonName;
+    }
+
+    /**
+     * 項目の組み合わせを表す16進数（i番目のビットがordinal = iの項目、ETag用）
+     * EnumのhashCodeはJVMごとに異なるため使わない
+     */
+    public static String bitmask(Set<MemoField> fields) {
+        int mask = 0;
+        for (MemoField field : fields) {
+            mask |= 1 << field.ordinal();
+        }
+        return Integer.toHexString(mask);
+    }
+
+    /**
+     * fieldsパラメーター（カンマ区切りの項目名）を解釈する
+     *
+     * @param fields fieldsパラメーター（未指定の場合はすべての項目）
+     * @return 出力する項目
+     * @throws IllegalArgumentException 存在しない項目を指定した場合
+     */
+    public static Set<MemoField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return EnumSet.allOf(MemoField.class);
+        }
+        Set<MemoField> selected = EnumSet.noneOf(MemoField.class);
+        for (String name : fields.split(",")) {
+            String trimmed = name.strip();
+            selected.add(Arrays.stream(values())
+                    .filter(field -> field.jsonName.equals(trimmed))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException(String.format(
+                            "fieldsに指定できない項目です: %s（指定できる項目: %s）", trimmed,
+                            Arrays.stream(values()).map(MemoField::jsonName).collect(Collectors.joining(","))))));
+        }
+        return selected;
+    }
+}
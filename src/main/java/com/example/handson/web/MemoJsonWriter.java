@@ -0,0 +1,102 @@
+package com.example.handson.web;
+
+import com.example.handson.domain.imagememo.ImageMemoSummary;
+import com.example.handson.dto.MemoListResult;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+
+/**
+ * JSON APIの画像メモのJSONの書き出し
+ * 画像メモの行（ImageMemoSummary）を、指定された項目だけJsonGeneratorで直接書き出す
+ * （中間のMap・DTOを作らず、リフレクションによるシリアライズも行わない）
+ */
+@Component
+public class MemoJsonWriter {
+
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+
+    private final JsonFactory jsonFactory;
+
+    public MemoJsonWriter(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * 画像メモ一覧のJSON（{"memos": [...], "next": 次ページのcursor}）
+     *
+     * @param result 画像メモ一覧
+     * @param fields 出力する項目
+     * @param contextPath 画像URLの前に付けるコンテキストパス
+     * @return UTF-8のJSON
+     */
+    public byte[] writeList(MemoListResult result, Set<MemoField> fields, String contextPath) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        try (JsonGenerator json = jsonFactory.createGenerator(out)) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("memos");
+            for (ImageMemoSummary memo : result.memos()) {
+                writeMemo(json, memo, fields, contextPath);
+            }
+            json.writeEndArray();
+            if (result.next() != null) {
+                json.writeStringField("next", result.next().encode());
+            } else {
+                json.writeNullField("next");
+            }
+            json.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 画像メモ1件のJSON
+     *
+     * @param memo 画像メモ
+     * @param fields 出力する項目
+     * @param contextPath 画像URLの前に付けるコンテキストパス
+     * @return UTF-8のJSON
+     */
+    public byte[] writeMemo(ImageMemoSummary memo, Set<MemoField> fields, String contextPath) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        try (JsonGenerator json = jsonFactory.createGenerator(out)) {
+            writeMemo(json, memo, fields, contextPath);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeMemo(JsonGenerator json, ImageMemoSummary memo, Set<MemoField> fields,
+                                  String contextPath) throws IOException {
+        json.writeStartObject();
+        for (MemoField field : fields) {
+            json.writeFieldName(field.jsonName());
+            switch (field) {
+                case ID -> json.writeNumber(memo.id());
+                case TITLE -> json.writeString(memo.title());
+                case DESCRIPTION -> json.writeString(memo.description());
+                case CREATED_AT -> writeDateTime(json, memo.createdAt());
+                case UPDATED_AT -> writeDateTime(json, memo.updatedAt());
+                case IMAGE_URL -> json.writeString(contextPath + "/memos/" + memo.id() + "/image");
+            }
+        }
+        json.writeEndObject();
+    }
+
+    /**
+     * 日時はSpring BootのJacksonの既定（ISO-8601、タイムゾーンなし）と同じ形式で書き出す
+     */
+    private static void writeDateTime(JsonGenerator json, LocalDateTime value) throws IOException {
+        if (value == null) {
+            json.writeNull();
+        } else {
+            json.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value));
+        }
+    }
+}
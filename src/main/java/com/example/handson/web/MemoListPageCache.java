@@ -0,0 +1,281 @@
+package com.example.handson.web;
+
+import com.example.handson.config.MemoListProperties;
+import com.example.handson.domain.user.User;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FastByteArrayOutputStream;
+import org.springframework.web.servlet.View;
+import org.springframework.web.servlet.support.RequestContextUtils;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.thymeleaf.spring6.view.ThymeleafViewResolver;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * 描画済みの画像メモ一覧ページのキャッシュ
+ * キーにユーザーの一覧バージョン番号を含めるため、画像メモの作成・削除で自動的に無効化される
+ * キーとETagにはビルドの識別子も含め、デプロイ後は旧ビルドの静的リソースのURLを参照するページを返さない
+ * メモリ使用量は件数と合計バイト数の上限付きのLRUで制限する
+ * 未キャッシュ時は描画しながらクライアントへ送信し（段階的な送信）、送信した内容をキャッシュする
+ */
+@Component
+@Slf4j
+public class MemoListPageCache {
+
+    private final ThymeleafViewResolver viewResolver;
+    private final MemoListProperties properties;
+    private final BuildFingerprint buildFingerprint;
+    private final Map<Key, CachedPage> pages = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public MemoListPageCache(ThymeleafViewResolver viewResolver, MemoListProperties properties,
+                             BuildFingerprint buildFingerprint) {
+        this.viewResolver = viewResolver;
+        this.properties = properties;
+        this.buildFingerprint = buildFingerprint;
+    }
+
+    /**
+     * キャッシュキーを生成
+     * CSRFトークンを含むページのため、セッションが変われば別のキーになる
+     *
+     * @param user ログイン中のユーザー
+     * @param sessionId セッションID
+     * @param pageable ページング情報
+     * @return キャッシュキー
+     */
+    public Key keyFor(User user, String sessionId, Pageable pageable) {
+        return new Key(buildFingerprint.value(), user.getId(), user.getMemoListVersion(), sessionId,
+                pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort().toString());
+    }
+
+    /**
+     * キャッシュ済みならその内容を、未キャッシュなら描画してキャッシュするView
+     *
+     * @param viewName テンプレート名
+     * @param key キャッシュキー
+     * @param modelLoader 未キャッシュ時にのみ呼び出すモデル取得処理。
+     *                    引数は描画済みの内容をクライアントへ送信する処理（段階的な送信が無効な場合は何もしない）
+     * @return View
+     */
+    public View view(String viewName, Key key, Function<Flushable, Map<String, ?>> modelLoader) {
+        return new CachingView(viewName, key, modelLoader);
+    }
+
+    private synchronized CachedPage get(Key key) {
+        return pages.get(key);
+    }
+
+    /**
+     * 件数・合計バイト数の上限を超えた分は、最も長く参照されていないものから破棄する
+     */
+    private synchronized void put(Key key, CachedPage page) {
+        CachedPage previous = pages.put(key, page);
+        totalBytes += page.body().length - (previous != null ? previous.body().length : 0);
+        Iterator<CachedPage> eldest = pages.values().iterator();
+        while (pages.size() > properties.getCacheMaxEntries() || totalBytes > properties.getCacheMaxTotalBytes()) {
+            totalBytes -= eldest.next().body().length;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * 一覧ページのキャッシュキー
+     */
+    public record Key(String build, Long userId, long listVersion, String sessionId, int page, int size, String sort) {
+
+        /**
+         * キーに対応するETag
+         * Tomcatのレスポンス圧縮を妨げないよう弱いETagとする
+         */
+        public String etag() {
+            return "W/\"memos-" + build + "-" + userId + "-" + listVersion + "-" + page + "-" + size + "-"
+                    + Integer.toHexString(Objects.hash(sessionId, sort)) + "\"";
+        }
+    }
+
+    private record CachedPage(byte[] body, String contentType) {
+    }
+
+    private final class CachingView implements View {
+
+        private final String viewName;
+        private final Key key;
+        private final Function<Flushable, Map<String, ?>> modelLoader;
+
+        private CachingView(String viewName, Key key, Function<Flushable, Map<String, ?>> modelLoader) {
+            this.viewName = viewName;
+            this.key = key;
+            this.modelLoader = modelLoader;
+        }
+
+        @Override
+        public void render(Map<String, ?> model, HttpServletRequest request, HttpServletResponse response)
+                throws Exception {
+            CachedPage page = properties.isCacheEnabled() ? get(key) : null;
+            if (page != null) {
+                log.debug("キャッシュ済みの一覧ページを返却しました: userId={}, page={}", key.userId(), key.page());
+                write(page, response);
+                return;
+            }
+
+            if (properties.isStreamingEnabled()) {
+                renderStreaming(model, request, response);
+            } else {
+                page = renderBuffered(model, request, response);
+                cache(page);
+                write(page, response);
+            }
+        }
+
+        /**
+         * 描画しながら送信する（Content-Lengthは付けず、chunkedで送信される）
+         */
+        private void renderStreaming(Map<String, ?> model, HttpServletRequest request, HttpServletResponse response)
+                throws Exception {
+            TeeResponseWrapper tee = new TeeResponseWrapper(response,
+                    properties.isCacheEnabled() ? properties.getCacheMaxPageBytes() : 0);
+            renderTemplate(model, modelLoader.apply(tee::flushBuffer), request, tee);
+
+            byte[] body = tee.capturedBody();
+            if (body != null) {
+                cache(new CachedPage(body, tee.getContentType()));
+            }
+        }
+
+        private CachedPage renderBuffered(Map<String, ?> model, HttpServletRequest request, HttpServletResponse response)
+                throws Exception {
+            ContentCachingResponseWrapper buffer = new ContentCachingResponseWrapper(response);
+            renderTemplate(model, modelLoader.apply(StreamingMemoPage.NO_FLUSH), request, buffer);
+            return new CachedPage(buffer.getContentAsByteArray(), buffer.getContentType());
+        }
+
+        private void renderTemplate(Map<String, ?> model, Map<String, ?> loadedModel, HttpServletRequest request,
+                                    HttpServletResponse response) throws Exception {
+            Map<String, Object> mergedModel = new HashMap<>(model);
+            mergedModel.putAll(loadedModel);
+
+            View delegate = viewResolver.resolveViewName(viewName, RequestContextUtils.getLocale(request));
+            delegate.render(mergedModel, request, response);
+        }
+
+        private void cache(CachedPage page) {
+            if (properties.isCacheEnabled() && page.body().length <= properties.getCacheMaxPageBytes()) {
+                put(key, page);
+            }
+        }
+
+        private void write(CachedPage page, HttpServletResponse response) throws IOException {
+            response.setContentType(page.contentType());
+            response.setContentLength(page.body().length);
+            response.getOutputStream().write(page.body());
+        }
+    }
+
+    /**
+     * クライアントへ送信しながら、送信した内容をキャッシュ用に記録するレスポンス
+     * 記録は上限サイズまで（超えた時点で記録をやめ、キャッシュしない）
+     */
+    private static final class TeeResponseWrapper extends HttpServletResponseWrapper {
+
+        private final int maxCapturedBytes;
+        private FastByteArrayOutputStream captured = new FastByteArrayOutputStream();
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        private TeeResponseWrapper(HttpServletResponse response, int maxCapturedBytes) {
+            super(response);
+            this.maxCapturedBytes = maxCapturedBytes;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                ServletOutputStream target = super.getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        capture(new byte[]{(byte) b}, 0, 1);
+                        target.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        capture(b, off, len);
+                        target.write(b, off, len);
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        target.flush();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return target.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        target.setWriteListener(writeListener);
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            super.flushBuffer();
+        }
+
+        /**
+         * 記録した内容（上限サイズを超えた場合、送信に失敗した場合はnull）
+         * 送信に失敗したWriterは同じ内容を書き直すことがあり、記録が重複しうるためキャッシュしない
+         */
+        private byte[] capturedBody() {
+            if (writer != null && writer.checkError()) {
+                return null;
+            }
+            return captured != null ? captured.toByteArrayUnsafe() : null;
+        }
+
+        private void capture(byte[] b, int off, int len) {
+            if (captured == null) {
+                return;
+            }
+            if (captured.size() + len > maxCapturedBytes) {
+                captured = null;
+                return;
+            }
+            captured.write(b, off, len);
+        }
+    }
+}
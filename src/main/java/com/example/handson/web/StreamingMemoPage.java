@@ -0,0 +1,133 @@
+package com.example.handson.web;
+
+import com.example.handson.domain.imagememo.ImageMemoSummary;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 段階的に送信する画像メモ一覧ページ
+ * テンプレートからはPageと同じくcontent・totalPages・number・sizeで参照する
+ *
+ * 一覧はテンプレートの描画がth:eachに到達した時点で取得し、それまでに描画したhead・ヘッダーを先に送信する
+ * （ブラウザはDBアクセスを待たずにCSSの取得を始められる）
+ * 以降はカード1件を描画するたびに送信し（ブラウザはそのカードの画像の取得を始められる）、
+ * 件数はすべてのカードの後のページネーションの描画時に取得する
+ */
+public final class StreamingMemoPage {
+
+    /**
+     * 送信しない（段階的な送信を無効にした場合。描画後にまとめて送信される）
+     */
+    public static final Flushable NO_FLUSH = () -> {
+    };
+
+    private final int number;
+    private final int size;
+    private final Supplier<List<ImageMemoSummary>> contentLoader;
+    private final LongSupplier countLoader;
+    private final Flushable flusher;
+
+    private List<ImageMemoSummary> content;
+    private Integer totalPages;
+
+    /**
+     * @param number ページ番号（0始まり）
+     * @param size 1ページの件数
+     * @param contentLoader 一覧の取得（件数は取得しない）
+     * @param countLoader 件数の取得（一覧だけで件数が決まる場合は呼び出さない）
+     * @param flusher 描画済みの内容の送信
+     */
+    public StreamingMemoPage(int number, int size, Supplier<List<ImageMemoSummary>> contentLoader,
+                             LongSupplier countLoader, Flushable flusher) {
+        this.number = number;
+        this.size = size;
+        this.contentLoader = contentLoader;
+        this.countLoader = countLoader;
+        this.flusher = flusher;
+    }
+
+    /**
+     * 一覧（th:eachで1件ずつ取り出すたびに、直前までの描画内容を送信する）
+     */
+    public Iterable<ImageMemoSummary> getContent() {
+        return () -> new Iterator<>() {
+
+            private Iterator<ImageMemoSummary> rows;
+            // 最初の取り出しではhead・ヘッダーを、以降は直前のカードを送信する
+            private boolean pending = true;
+
+            @Override
+            public boolean hasNext() {
+                if (pending) {
+                    flush();
+                    pending = false;
+                }
+                if (rows == null) {
+                    rows = content().iterator();
+                }
+                return rows.hasNext();
+            }
+
+            @Override
+            public ImageMemoSummary next() {
+                if (rows == null) {
+                    rows = content().iterator();
+                }
+                ImageMemoSummary memo = rows.next();
+                pending = true;
+                return memo;
+            }
+        };
+    }
+
+    /**
+     * 総ページ数（一覧の取得後に呼び出される想定。最終ページが埋まらない場合は件数を取得しない）
+     */
+    public int getTotalPages() {
+        if (totalPages == null) {
+            totalPages = (int) Math.ceil((double) total() / size);
+        }
+        return totalPages;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    private List<ImageMemoSummary> content() {
+        if (content == null) {
+            content = contentLoader.get();
+        }
+        return content;
+    }
+
+    /**
+     * 総件数（PageableExecutionUtils.getPageと同じく、件数が一覧から決まる場合はcountを省略する）
+     */
+    private long total() {
+        List<ImageMemoSummary> rows = content();
+        long offset = (long) number * size;
+        if (rows.size() < size && (offset == 0 || !rows.isEmpty())) {
+            return offset + rows.size();
+        }
+        return countLoader.getAsLong();
+    }
+
+    private void flush() {
+        try {
+            flusher.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("一覧ページの送信に失敗しました", e);
+        }
+    }
+}
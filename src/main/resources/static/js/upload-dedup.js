@@ -0,0 +1,52 @@
+/*
+ * アップロード前の重複確認
+ * 選択した画像のSHA-256をブラウザで計算し、保存済みの画像であれば画像ファイルを送らずに
+ * 内容ハッシュだけで画像メモを作成する（同じ画像の再アップロードで通信量を発生させない）
+ * crypto.subtleが使えない環境（HTTPSでもlocalhostでもない場合）や確認に失敗した場合は通常どおり送信する
+ */
+(function () {
+    'use strict';
+
+    var form = document.querySelector('form[data-upload-dedup]');
+    if (!form || !window.crypto || !window.crypto.subtle) {
+        return;
+    }
+
+    var fileInput = form.querySelector('input[type="file"][name="image"]');
+    var hashInput = form.querySelector('input[name="contentHash"]');
+
+    function toHex(buffer) {
+        return Array.from(new Uint8Array(buffer))
+            .map(function (b) { return b.toString(16).padStart(2, '0'); })
+            .join('');
+    }
+
+    form.addEventListener('submit', function (event) {
+        var file = fileInput.files[0];
+        if (!file || hashInput.value) {
+            return;
+        }
+        event.preventDefault();
+
+        file.arrayBuffer()
+            .then(function (buffer) { return window.crypto.subtle.digest('SHA-256', buffer); })
+            .then(function (digest) {
+                var contentHash = toHex(digest);
+                return fetch(form.dataset.uploadDedup + contentHash, { credentials: 'same-origin' })
+                    .then(function (response) {
+                        if (response.status === 204) {
+                            // 無効化した入力欄は送信されないため、画像ファイルの本体は送らない
+                            hashInput.value = contentHash;
+                            fileInput.required = false;
+                            fileInput.disabled = true;
+                        }
+                    });
+            })
+            .catch(function () {
+                // 確認できない場合は画像ファイルをそのまま送信する
+            })
+            .then(function () {
+                form.submit();
+            });
+    });
+})();
@@ -0,0 +1,112 @@
+/*
+ * ZIPからの一括インポート
+ * インポートを作成してからZIPファイルをそのまま（マルチパートにせず）本文として送り、
+ * 送信と並行してインポートの進捗を定期的に取得して表示する
+ * 進捗バーはZIPの送信済みのバイト数、件数はサーバーが取り込んだ結果を表す
+ */
+(function () {
+    'use strict';
+
+    var POLL_INTERVAL_MS = 1000;
+
+    var form = document.querySelector('form[data-zip-import]');
+    if (!form) {
+        return;
+    }
+
+    var fileInput = form.querySelector('input[type="file"][name="archive"]');
+    var csrfToken = form.querySelector('input[name="_csrf"]').value;
+    var csrfHeader = form.dataset.csrfHeader;
+    var progressSection = document.querySelector('[data-zip-import-progress]');
+    var progressBar = progressSection.querySelector('progress');
+    var summary = progressSection.querySelector('[data-zip-import-summary]');
+    var errorList = progressSection.querySelector('[data-zip-import-errors]');
+
+    function render(status) {
+        var text = status.entriesRead + '件のエントリを読み取り、' + status.imported + '件の画像メモを作成しました';
+        if (status.skipped > 0 || status.failed > 0) {
+            text += '（取り込まなかったファイル: ' + (status.skipped + status.failed) + '件）';
+        }
+        if (status.state === 'FAILED') {
+            text += '。インポートを中断しました: ' + status.errorMessage;
+        } else if (status.finished) {
+            text += '。インポートが完了しました';
+        }
+        summary.textContent = text;
+
+        errorList.textContent = '';
+        status.errors.forEach(function (error) {
+            var item = document.createElement('li');
+            item.className = 'batch-results__item batch-results__item--failed';
+            item.textContent = error;
+            errorList.appendChild(item);
+        });
+    }
+
+    function poll(statusUrl) {
+        return fetch(statusUrl, { credentials: 'same-origin', cache: 'no-store' })
+            .then(function (response) { return response.ok ? response.json() : null; })
+            .then(function (status) {
+                if (status) {
+                    render(status);
+                }
+                return status;
+            });
+    }
+
+    function upload(archiveUrl, file) {
+        return new Promise(function (resolve) {
+            var xhr = new XMLHttpRequest();
+            xhr.open('POST', archiveUrl);
+            xhr.setRequestHeader('Content-Type', 'application/zip');
+            xhr.setRequestHeader(csrfHeader, csrfToken);
+            xhr.upload.addEventListener('progress', function (event) {
+                if (event.lengthComputable) {
+                    progressBar.value = event.loaded / event.total;
+                }
+            });
+            // 上限超過で中断した場合は本文を読み切らずに接続が切られることがあるため、結果は進捗の取得で確認する
+            xhr.addEventListener('loadend', function () { resolve(); });
+            xhr.send(file);
+        });
+    }
+
+    form.addEventListener('submit', function (event) {
+        event.preventDefault();
+        var file = fileInput.files[0];
+        if (!file) {
+            return;
+        }
+        form.querySelector('button[type="submit"]').disabled = true;
+        progressSection.hidden = false;
+        summary.textContent = 'インポートを開始しています…';
+
+        var headers = {};
+        headers[csrfHeader] = csrfToken;
+        fetch(form.action, { method: 'POST', credentials: 'same-origin', headers: headers })
+            .then(function (response) {
+                if (!response.ok) {
+                    throw new Error(response.status === 429
+                        ? 'インポートの回数が上限に達しました。しばらく時間をおいて再度お試しください。'
+                        : 'インポートを開始できませんでした。');
+                }
+                return response.json();
+            })
+            .then(function (job) {
+                var statusUrl = form.action + '/' + job.id;
+                var timer = setInterval(function () { poll(statusUrl); }, POLL_INTERVAL_MS);
+                return upload(statusUrl + '/archive', file)
+                    .then(function () {
+                        clearInterval(timer);
+                        progressBar.value = 1;
+                        return poll(statusUrl);
+                    });
+            })
+            .catch(function (error) {
+                summary.textContent = error.message;
+            })
+            .then(function () {
+                form.querySelector('button[type="submit"]').disabled = false;
+            });
+    });
+})();
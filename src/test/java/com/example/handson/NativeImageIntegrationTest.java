@@ -0,0 +1,274 @@
+package com.example.handson;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.localstack.LocalStackContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.testcontainers.containers.localstack.LocalStackContainer.Service.S3;
+
+/**
+ * native-imageの統合テスト
+ * nativeCompileで生成したバイナリをPostgreSQL・LocalStack(S3)のコンテナに接続して起動し、
+ * 登録・ログイン・画像アップロード・一覧表示・画像配信が動作することを検証
+ * ./gradlew nativeIntegrationTest -Pnative で実行（native.image.pathが未指定の場合はスキップ）
+ * 起動時間の上限の検証は、-PnativeStartupMaxMillis=5000 のように上限を指定した場合のみ実行する
+ * （実行環境の性能に依存するため、既定では起動時間をログに出力するだけにする）
+ */
+@Tag("native")
+@Testcontainers
+@EnabledIfSystemProperty(named = "native.image.path", matches = ".+")
+class NativeImageIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(NativeImageIntegrationTest.class);
+
+    private static final String BUCKET_NAME = "native-test-bucket";
+    private static final Pattern CSRF_PATTERN = Pattern.compile("name=\"_csrf\"[^>]*value=\"([^\"]+)\"");
+    private static final Pattern IMAGE_PATH_PATTERN = Pattern.compile("/memos/\\d+/image");
+
+    // 1x1ピクセルのPNG
+    private static final byte[] PNG_IMAGE = Base64.getDecoder().decode(
+            "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNk+M9QDwADhgGAWjR9awAAAABJRU5ErkJggg==");
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:17.5"))
+            .withDatabaseName("test_app")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Container
+    static final LocalStackContainer localStack = new LocalStackContainer(DockerImageName.parse("localstack/localstack:latest"))
+            .withServices(S3);
+
+    private static Process application;
+    private static String baseUrl;
+    private static long startupMillis;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .cookieHandler(new CookieManager())
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    @BeforeAll
+    static void startNativeImage() throws Exception {
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+
+        try (S3Client s3Client = S3Client.builder()
+                .endpointOverride(localStack.getEndpointOverride(S3))
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(localStack.getAccessKey(), localStack.getSecretKey())))
+                .region(Region.of(localStack.getRegion()))
+                .forcePathStyle(true)
+                .build()) {
+            s3Client.createBucket(builder -> builder.bucket(BUCKET_NAME));
+        }
+
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        baseUrl = "http://localhost:" + port;
+
+        ProcessBuilder processBuilder = new ProcessBuilder(
+                System.getProperty("native.image.path"),
+                "--server.port=" + port,
+                "--spring.cloud.aws.s3.endpoint=" + localStack.getEndpointOverride(S3),
+                "--spring.cloud.aws.s3.path-style-access-enabled=true",
+                "--spring.cloud.aws.region.static=" + localStack.getRegion(),
+                "--spring.cloud.aws.credentials.access-key=" + localStack.getAccessKey(),
+                "--spring.cloud.aws.credentials.secret-key=" + localStack.getSecretKey())
+                .redirectErrorStream(true)
+                .redirectOutput(new File("build/native-image-integration-test.log"));
+        processBuilder.environment().putAll(Map.of(
+                "JDBC_DATABASE_URL", postgres.getJdbcUrl(),
+                "JDBC_DATABASE_USERNAME", postgres.getUsername(),
+                "JDBC_DATABASE_PASSWORD", postgres.getPassword(),
+                "AWS_S3_BUCKET_NAME", BUCKET_NAME));
+
+        long start = System.nanoTime();
+        application = processBuilder.start();
+        waitForHealthy(Duration.ofSeconds(30));
+        startupMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        log.info("native-imageの起動時間: {}ms, RSS: {}", startupMillis, residentSetSize(application.pid()));
+    }
+
+    @AfterAll
+    static void stopNativeImage() {
+        if (application != null) {
+            application.destroy();
+        }
+    }
+
+    @Test
+    void ヘルスチェックが成功する() throws Exception {
+        // when
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/health")).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        // then
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).contains("UP");
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "native.startup.maxMillis", matches = "\\d+")
+    void 指定した時間内に起動する() {
+        long maxMillis = Long.parseLong(System.getProperty("native.startup.maxMillis"));
+        assertThat(startupMillis).isLessThan(maxMillis);
+    }
+
+    @Test
+    void 登録からログイン後の画像アップロードと配信まで動作する() throws Exception {
+        // given
+        String username = "native-" + UUID.randomUUID().toString().substring(0, 8);
+        String password = "password123";
+        postForm("/register", Map.of(
+                "username", username,
+                "password", password,
+                "confirmPassword", password));
+        HttpResponse<String> loginResponse = postForm("/login", Map.of(
+                "username", username,
+                "password", password));
+        assertThat(loginResponse.uri().getPath()).isEqualTo("/memos");
+
+        // when
+        HttpResponse<String> createResponse = postImage("/memos", "ネイティブテスト", PNG_IMAGE);
+
+        // then
+        assertThat(createResponse.statusCode()).isEqualTo(200);
+        assertThat(createResponse.body()).contains("ネイティブテスト");
+
+        Matcher imagePath = IMAGE_PATH_PATTERN.matcher(createResponse.body());
+        assertThat(imagePath.find()).isTrue();
+        HttpResponse<byte[]> imageResponse = client.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + imagePath.group())).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(imageResponse.statusCode()).isEqualTo(200);
+        assertThat(imageResponse.body()).isEqualTo(PNG_IMAGE);
+    }
+
+    private HttpResponse<String> postForm(String path, Map<String, String> fields) throws Exception {
+        String csrfToken = fetchCsrfToken(path);
+        String body = fields.entrySet().stream()
+                .map(field -> encode(field.getKey()) + "=" + encode(field.getValue()))
+                .collect(Collectors.joining("&")) + "&_csrf=" + encode(csrfToken);
+        return client.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + path))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> postImage(String path, String title, byte[] image) throws Exception {
+        String csrfToken = fetchCsrfToken("/memos/new");
+        String boundary = UUID.randomUUID().toString();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writePart(body, boundary, "Content-Disposition: form-data; name=\"_csrf\"", csrfToken.getBytes(StandardCharsets.UTF_8));
+        writePart(body, boundary, "Content-Disposition: form-data; name=\"title\"", title.getBytes(StandardCharsets.UTF_8));
+        writePart(body, boundary, "Content-Disposition: form-data; name=\"image\"; filename=\"test.png\"\r\nContent-Type: image/png", image);
+        body.write(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return client.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + path))
+                        .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void writePart(ByteArrayOutputStream body, String boundary, String headers, byte[] content) throws IOException {
+        body.write(("--" + boundary + "\r\n" + headers + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(content);
+        body.write("\r\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String fetchCsrfToken(String path) throws Exception {
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = CSRF_PATTERN.matcher(response.body());
+        assertThat(matcher.find()).as("CSRFトークンが見つかりません: %s", path).isTrue();
+        return matcher.group(1);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static void waitForHealthy(Duration timeout) throws Exception {
+        HttpClient healthClient = HttpClient.newHttpClient();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!application.isAlive()) {
+                throw new IllegalStateException("native-imageが異常終了しました（build/native-image-integration-test.logを参照）");
+            }
+            try {
+                HttpResponse<Void> response = healthClient.send(
+                        HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/health")).build(),
+                        HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // 起動前は接続拒否となるためリトライする
+            }
+            Thread.sleep(20);
+        }
+        throw new IllegalStateException("native-imageが" + timeout.toSeconds() + "秒以内に起動しませんでした");
+    }
+
+    /**
+     * プロセスの常駐メモリ（Linuxの/proc/{pid}/statusのVmRSS）
+     */
+    private static String residentSetSize(long pid) {
+        try {
+            return Files.readAllLines(Path.of("/proc", String.valueOf(pid), "status")).stream()
+                    .filter(line -> line.startsWith("VmRSS:"))
+                    .map(line -> line.substring("VmRSS:".length()).trim())
+                    .findFirst()
+                    .orElse("不明");
+        } catch (IOException e) {
+            return "不明";
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.handson.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * AdaptiveConcurrencyLimiterのテスト
+ * 上限到達時の即時拒否と、レイテンシによる上限の増減（AIMD）を検証
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long THRESHOLD = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void 上限に達すると待たずに拒否され返却すると再び取得できる() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, THRESHOLD, now::get);
+        AdaptiveConcurrencyLimiter.Permit first = limiter.tryAcquire().orElseThrow();
+        limiter.tryAcquire().orElseThrow();
+
+        // when & then
+        assertThat(limiter.tryAcquire()).isEmpty();
+        first.close();
+        first.close(); // 二重に返却しても実行中の数は減りすぎない
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+        assertThat(limiter.tryAcquire()).isPresent();
+    }
+
+    @Test
+    void 閾値以内のレイテンシが続くと上限が増える() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 10, THRESHOLD, now::get);
+
+        // when: 上限まで使った状態で、速い応答を繰り返す
+        for (int round = 0; round < 20; round++) {
+            List<AdaptiveConcurrencyLimiter.Permit> permits = acquireAll(limiter);
+            now.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+            permits.forEach(AdaptiveConcurrencyLimiter.Permit::close);
+        }
+
+        // then
+        assertThat(limiter.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void 上限の半分も使われていない間は上限を増やさない() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 10, THRESHOLD, now::get);
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire().orElseThrow().close();
+        }
+
+        // then
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void 閾値を超えると上限が減り減少前から実行中の操作では重ねて減らさない() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 10, THRESHOLD, now::get);
+        now.addAndGet(1);
+        List<AdaptiveConcurrencyLimiter.Permit> slow = acquireAll(limiter);
+
+        // when
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        slow.forEach(AdaptiveConcurrencyLimiter.Permit::close);
+
+        // then: 10件すべて遅かったが、減少は1回分
+        assertThat(limiter.getLimit()).isEqualTo(9);
+
+        // 減少後に開始した操作が遅ければ、さらに減る
+        for (int i = 0; i < 30; i++) {
+            now.addAndGet(1);
+            AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire().orElseThrow();
+            now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+            permit.close();
+        }
+        assertThat(limiter.getLimit()).isEqualTo(2); // 最小値を下回らない
+    }
+
+    @Test
+    void ストリーミングでは最初のバイトまでのレイテンシで判定する() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, THRESHOLD, now::get);
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire().orElseThrow();
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+
+        // when: 最初のバイトまでは速く、その後の転送に時間がかかる
+        permit.recordLatency();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        // then: 転送中は実行枠を保持し、上限は下げない
+        assertThat(limiter.tryAcquire()).isEmpty();
+        permit.close();
+        assertThat(limiter.getLimit()).isEqualTo(1);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    private static List<AdaptiveConcurrencyLimiter.Permit> acquireAll(AdaptiveConcurrencyLimiter limiter) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        while (permits.size() < limiter.getLimit()) {
+            permits.add(limiter.tryAcquire().orElseThrow());
+        }
+        return permits;
+    }
+}
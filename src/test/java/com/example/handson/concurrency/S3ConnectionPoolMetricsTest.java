@@ -0,0 +1,66 @@
+package com.example.handson.concurrency;
+
+import com.example.handson.config.S3Properties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollector;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * S3ConnectionPoolMetricsのテスト
+ * AWS SDKと同じ階層（API呼び出し → 試行 → HTTPクライアント）のメトリクスからゲージを更新することを検証
+ */
+class S3ConnectionPoolMetricsTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final S3ConnectionPoolMetrics metrics = new S3ConnectionPoolMetrics(new S3Properties(), meterRegistry);
+
+    @Test
+    void HTTPクライアントが報告した接続プールの状態をゲージに反映する() {
+        // given
+        MetricCollector apiCall = MetricCollector.create("ApiCall");
+        MetricCollector httpClient = apiCall.createChild("ApiCallAttempt").createChild("HttpClient");
+        httpClient.reportMetric(HttpMetric.MAX_CONCURRENCY, 50);
+        httpClient.reportMetric(HttpMetric.LEASED_CONCURRENCY, 12);
+        httpClient.reportMetric(HttpMetric.AVAILABLE_CONCURRENCY, 3);
+        httpClient.reportMetric(HttpMetric.PENDING_CONCURRENCY_ACQUIRES, 0);
+        httpClient.reportMetric(HttpMetric.CONCURRENCY_ACQUIRE_DURATION, Duration.ofMillis(4));
+
+        // when
+        metrics.publish(apiCall.collect());
+
+        // then
+        assertThat(gauge("s3.http.pool.max")).isEqualTo(50);
+        assertThat(gauge("s3.http.pool.leased")).isEqualTo(12);
+        assertThat(gauge("s3.http.pool.available")).isEqualTo(3);
+        assertThat(gauge("s3.http.pool.pending")).isZero();
+        assertThat(meterRegistry.get("s3.http.pool.acquire").tag("transport", "apache").timer()
+                .totalTime(TimeUnit.MILLISECONDS)).isEqualTo(4);
+    }
+
+    @Test
+    void 再試行した場合は最後の試行の値を反映する() {
+        // given
+        MetricCollector apiCall = MetricCollector.create("ApiCall");
+        apiCall.createChild("ApiCallAttempt").createChild("HttpClient")
+                .reportMetric(HttpMetric.PENDING_CONCURRENCY_ACQUIRES, 7);
+        apiCall.createChild("ApiCallAttempt").createChild("HttpClient")
+                .reportMetric(HttpMetric.PENDING_CONCURRENCY_ACQUIRES, 2);
+
+        // when
+        metrics.publish(apiCall.collect());
+
+        // then
+        assertThat(gauge("s3.http.pool.pending")).isEqualTo(2);
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).tag("transport", "apache").gauge().value();
+    }
+}
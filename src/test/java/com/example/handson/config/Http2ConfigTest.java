@@ -0,0 +1,77 @@
+package com.example.handson.config;
+
+import com.example.handson.TestcontainersConfiguration;
+import org.apache.coyote.UpgradeProtocol;
+import org.apache.coyote.http2.Http2Protocol;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.annotation.Import;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Http2Configのテスト
+ * 平文（h2c）でHTTP/2接続でき、同時ストリーム数とフロー制御ウィンドウが反映されることを検証
+ */
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "server.http2.enabled=true",
+                "app.http2.max-concurrent-streams=50",
+                "app.http2.initial-window-size=262144"
+        })
+@Import(TestcontainersConfiguration.class)
+class Http2ConfigTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    @Test
+    void h2cでHTTP2接続できる() throws Exception {
+        // given
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health"))
+                .GET()
+                .build();
+
+        // when
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        // then
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.version()).isEqualTo(HttpClient.Version.HTTP_2);
+    }
+
+    @Test
+    void 同時ストリーム数とフロー制御ウィンドウが設定される() {
+        // given
+        TomcatWebServer webServer = (TomcatWebServer) context.getWebServer();
+        UpgradeProtocol[] upgradeProtocols = webServer.getTomcat().getConnector().findUpgradeProtocols();
+
+        // when
+        Http2Protocol http2 = Arrays.stream(upgradeProtocols)
+                .filter(Http2Protocol.class::isInstance)
+                .map(Http2Protocol.class::cast)
+                .findFirst()
+                .orElseThrow();
+
+        // then
+        assertThat(http2.getMaxConcurrentStreams()).isEqualTo(50);
+        assertThat(http2.getInitialWindowSize()).isEqualTo(262144);
+    }
+}
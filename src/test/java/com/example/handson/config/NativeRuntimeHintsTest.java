@@ -0,0 +1,39 @@
+package com.example.handson.config;
+
+import com.example.handson.domain.imagememo.ImageMemo;
+import com.example.handson.domain.user.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * NativeRuntimeHintsのテスト
+ * native-imageで必要なリフレクション・リソース・シリアライズ情報が登録されることを検証
+ */
+class NativeRuntimeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    @Test
+    void エンティティのリフレクション情報が登録される() {
+        // when
+        new NativeRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        // then
+        assertThat(RuntimeHintsPredicates.reflection().onType(User.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(ImageMemo.class)).accepts(hints);
+    }
+
+    @Test
+    void テンプレートとセッション属性のシリアライズ情報が登録される() {
+        // when
+        new NativeRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        // then
+        assertThat(RuntimeHintsPredicates.resource().forResource("templates/memos/list.html")).accepts(hints);
+        assertThat(RuntimeHintsPredicates.serialization().onType(SecurityContextImpl.class)).accepts(hints);
+    }
+}
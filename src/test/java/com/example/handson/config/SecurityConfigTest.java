@@ -10,13 +10,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
-import org.springframework.data.domain.Page;
 import org.springframework.mock.web.MockHttpSession;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -55,6 +56,9 @@ class SecurityConfigTest {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private ResourceUrlProvider resourceUrlProvider;
+
     @Test
     void ログイン成功時にセッションが作成される() throws Exception {
         // given
@@ -67,7 +71,7 @@ class SecurityConfigTest {
 
         when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
         when(userService.findByUsername("testuser")).thenReturn(user);
-        when(imageMemoService.findByUserId(eq(1L), any())).thenReturn(Page.empty());
+        when(imageMemoService.findSummaryPage(eq(1L), any())).thenReturn(List.of());
 
         // when: ログイン実行
         MvcResult result = mockMvc.perform(formLogin("/login")
@@ -118,6 +122,13 @@ class SecurityConfigTest {
                 .andExpect(redirectedUrlPattern("**/login"));
     }
 
+    @Test
+    void JSON_APIは未認証でアクセスするとリダイレクトせず401を返す() throws Exception {
+        // when & then
+        mockMvc.perform(get("/api/v1/memos"))
+                .andExpect(status().isUnauthorized());
+    }
+
     @Test
     void 公開ページは認証なしでアクセスできる() throws Exception {
         // when & then
@@ -131,6 +142,26 @@ class SecurityConfigTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void ハッシュ付きの静的リソースは認証なしで長期キャッシュ付きで配信される() throws Exception {
+        // given
+        String versioned = resourceUrlProvider.getForLookupPath("/css/style.css");
+        assertThat(versioned).matches("/css/style-[0-9a-f]{32}\\.css");
+
+        // when & then
+        mockMvc.perform(get(versioned))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"));
+    }
+
+    @Test
+    void ハッシュなしの静的リソースは毎回再検証させる() throws Exception {
+        // when & then: デプロイ後に古い内容を使い続けないよう、immutableにしない
+        mockMvc.perform(get("/css/style.css"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache, public"));
+    }
+
     @Test
     @WithMockUser(username = "testuser")
     void 認証済みユーザーは保護されたページにアクセスできる() throws Exception {
@@ -143,7 +174,7 @@ class SecurityConfigTest {
                 .build();
 
         when(userService.findByUsername("testuser")).thenReturn(user);
-        when(imageMemoService.findByUserId(eq(1L), any())).thenReturn(Page.empty());
+        when(imageMemoService.findSummaryPage(eq(1L), any())).thenReturn(List.of());
 
         // when & then
         mockMvc.perform(get("/memos"))
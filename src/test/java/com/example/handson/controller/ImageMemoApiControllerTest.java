@@ -0,0 +1,250 @@
+package com.example.handson.controller;
+
+import com.example.handson.config.MemoListProperties;
+import com.example.handson.domain.imagememo.ImageMemo;
+import com.example.handson.domain.imagememo.ImageMemoSummary;
+import com.example.handson.domain.user.User;
+import com.example.handson.dto.MemoListCursor;
+import com.example.handson.dto.MemoListResult;
+import com.example.handson.ratelimit.UserRateLimiter;
+import com.example.handson.service.ImageMemoService;
+import com.example.handson.service.UserService;
+import com.example.handson.web.BuildFingerprint;
+import com.example.handson.web.MemoJsonWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * ImageMemoApiControllerのテスト
+ * fieldsによる項目の選択、ETagによる304、エラー時のProblem Detailsを検証
+ */
+@WebMvcTest(ImageMemoApiController.class)
+@Import({MemoJsonWriter.class, MemoListProperties.class})
+class ImageMemoApiControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private ImageMemoService imageMemoService;
+
+    @MockitoBean
+    private UserService userService;
+
+    @MockitoBean
+    private UserRateLimiter userRateLimiter;
+
+    @MockitoBean
+    private BuildFingerprint buildFingerprint;
+
+    private final User user = User.builder()
+            .id(1L)
+            .username("testuser")
+            .password("password")
+            .enabled(true)
+            .memoListVersion(3)
+            .build();
+
+    private final LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 10, 30, 0);
+
+    @BeforeEach
+    void setUp() {
+        when(userService.findByUsername("testuser")).thenReturn(user);
+        when(buildFingerprint.value()).thenReturn("0123456789ab");
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void 一覧はfieldsで指定した項目だけを返し次ページのcursorを付ける() throws Exception {
+        // given
+        MemoListCursor next = new MemoListCursor(createdAt, 9L);
+        when(imageMemoService.findSummaries(1L, null, 2)).thenReturn(new MemoListResult(
+                List.of(summary(10L), summary(9L)), next));
+
+        // when & then
+        mockMvc.perform(get("/api/v1/memos").param("limit", "2").param("fields", "id,title,imageUrl"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(header().string("ETag", "W/\"api-memos-0123456789ab-1-3-23-2\"")) // id・title・imageUrl、2件
+                .andExpect(header().string("Cache-Control", "private, no-cache"))
+                .andExpect(jsonPath("$.memos.length()").value(2))
+                .andExpect(jsonPath("$.memos[0].id").value(10))
+                .andExpect(jsonPath("$.memos[0].title").value("メモ10"))
+                .andExpect(jsonPath("$.memos[0].imageUrl").value("/memos/10/image"))
+                .andExpect(jsonPath("$.memos[0].description").doesNotExist())
+                .andExpect(jsonPath("$.memos[0].createdAt").doesNotExist())
+                .andExpect(jsonPath("$.next").value(next.encode()));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void 一覧のcursorを指定すると続きから取得する() throws Exception {
+        // given
+        MemoListCursor after = new MemoListCursor(createdAt, 9L);
+        when(imageMemoService.findSummaries(1L, after, 20)).thenReturn(new MemoListResult(List.of(summary(8L)), null));
+
+        // when & then
+        mockMvc.perform(get("/api/v1/memos").param("cursor", after.encode()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"api-memos-0123456789ab-1-3-3f-20-" + after.encode() + "\""))
+                .andExpect(jsonPath("$.memos[0].id").value(8))
+                .andExpect(jsonPath("$.memos[0].description").value("説明8"))
+                .andExpect(jsonPath("$.memos[0].createdAt").value("2024-05-01T10:30:00"))
+                .andExpect(jsonPath("$.next").isEmpty());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void ETagが一致すれば画像メモを読まずに304を返す() throws Exception {
+        // given
+        when(imageMemoService.findSummary(10L, 1L)).thenReturn(Optional.of(summary(10L)));
+        String etag = mockMvc.perform(get("/api/v1/memos/10"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        // 再起動やタスク間で変わらない値（ビルドの識別子・ユーザーID・一覧バージョン番号・項目のビットマスク）
+        assertThat(etag).isEqualTo("W/\"api-memo-10-0123456789ab-1-3-3f\"");
+
+        // when & then
+        mockMvc.perform(get("/api/v1/memos/10").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+        verify(imageMemoService).findSummary(10L, 1L);
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void デプロイでビルドが変わった後は304を返さない() throws Exception {
+        // given
+        when(imageMemoService.findSummary(10L, 1L)).thenReturn(Optional.of(summary(10L)));
+        String etag = mockMvc.perform(get("/api/v1/memos/10"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // when
+        when(buildFingerprint.value()).thenReturn("ba9876543210");
+
+        // then: JSONの項目・形式が変わっている可能性があるため、本文を返す
+        mockMvc.perform(get("/api/v1/memos/10").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"api-memo-10-ba9876543210-1-3-3f\""));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void 存在しない画像メモの詳細は404() throws Exception {
+        // given
+        when(imageMemoService.findSummary(99L, 1L)).thenReturn(Optional.empty());
+
+        // when & then
+        mockMvc.perform(get("/api/v1/memos/99"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void 指定できない項目やcursorは400のProblem_Detailsを返す() throws Exception {
+        // when & then
+        mockMvc.perform(get("/api/v1/memos").param("fields", "id,s3Key"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType("application/problem+json"))
+                .andExpect(jsonPath("$.status").value(400))
+                .andExpect(jsonPath("$.detail").value(startsWith("fieldsに指定できない項目です: s3Key")));
+        mockMvc.perform(get("/api/v1/memos").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/memos").param("limit", "101"))
+                .andExpect(status().isBadRequest());
+        verify(imageMemoService, never()).findSummaries(anyLong(), any(), anyInt());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void 作成すると201とLocationと作成した画像メモを返す() throws Exception {
+        // given
+        MockMultipartFile image = new MockMultipartFile("image", "photo.jpg", "image/jpeg", "image".getBytes());
+        ImageMemo created = ImageMemo.builder()
+                .id(5L)
+                .user(user)
+                .title("新しいメモ")
+                .description("説明")
+                .s3Key("blobs/ab/abc.jpg")
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build();
+        when(imageMemoService.createImageMemo(any(), eq(user))).thenReturn(created);
+
+        // when & then
+        mockMvc.perform(multipart("/api/v1/memos")
+                        .file(image)
+                        .param("title", "新しいメモ")
+                        .param("description", "説明")
+                        .with(csrf()))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", endsWith("/api/v1/memos/5")))
+                .andExpect(jsonPath("$.id").value(5))
+                .andExpect(jsonPath("$.title").value("新しいメモ"))
+                .andExpect(jsonPath("$.imageUrl").value("/memos/5/image"));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void 作成でタイトルが未入力なら項目ごとのエラーを400で返す() throws Exception {
+        // given
+        MockMultipartFile image = new MockMultipartFile("image", "photo.jpg", "image/jpeg", "image".getBytes());
+
+        // when & then
+        mockMvc.perform(multipart("/api/v1/memos")
+                        .file(image)
+                        .param("title", "")
+                        .with(csrf()))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0].field").value("title"))
+                .andExpect(jsonPath("$.errors[0].message").value("タイトルは必須です"));
+        verify(imageMemoService, never()).createImageMemo(any(), any());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void 削除すると204を返し他のユーザーの画像メモは404() throws Exception {
+        // given
+        when(imageMemoService.findSummary(10L, 1L)).thenReturn(Optional.of(summary(10L)));
+        when(imageMemoService.findSummary(11L, 1L)).thenReturn(Optional.empty());
+
+        // when & then
+        mockMvc.perform(delete("/api/v1/memos/10").with(csrf()))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/api/v1/memos/11").with(csrf()))
+                .andExpect(status().isNotFound());
+        verify(imageMemoService).deleteImageMemo(10L, 1L);
+        verify(imageMemoService, never()).deleteImageMemo(11L, 1L);
+    }
+
+    private ImageMemoSummary summary(Long id) {
+        return new ImageMemoSummary(id, "メモ" + id, "説明" + id, createdAt, createdAt);
+    }
+}
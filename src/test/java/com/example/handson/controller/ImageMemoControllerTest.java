@@ -1,26 +1,53 @@
 package com.example.handson.controller;
 
+import com.example.handson.config.MemoListProperties;
 import com.example.handson.config.S3Properties;
 import com.example.handson.domain.imagememo.ImageMemo;
 import com.example.handson.domain.user.User;
+import com.example.handson.dto.BatchUploadResult;
+import com.example.handson.dto.MemoSearchCursor;
+import com.example.handson.dto.MemoSearchResult;
+import com.example.handson.exception.StorageOverloadedException;
+import com.example.handson.ratelimit.RateLimitedEndpoint;
+import com.example.handson.ratelimit.UserRateLimiter;
+import com.example.handson.service.ContactSheet;
+import com.example.handson.service.ContactSheetService;
+import com.example.handson.service.ImageBlobService;
 import com.example.handson.service.ImageDownloadResult;
+import com.example.handson.service.ImageMemoBatchService;
+import com.example.handson.service.ImageMemoExportService;
 import com.example.handson.service.ImageMemoService;
 import com.example.handson.service.S3Service;
 import com.example.handson.service.UserService;
+import com.example.handson.web.BuildFingerprint;
+import com.example.handson.web.MemoListPageCache;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 /**
@@ -36,6 +63,15 @@ class ImageMemoControllerTest {
     @MockitoBean
     private ImageMemoService imageMemoService;
 
+    @MockitoBean
+    private ImageMemoBatchService imageMemoBatchService;
+
+    @MockitoBean
+    private ImageMemoExportService imageMemoExportService;
+
+    @MockitoBean
+    private ImageBlobService imageBlobService;
+
     @MockitoBean
     private UserService userService;
 
@@ -45,6 +81,29 @@ class ImageMemoControllerTest {
     @MockitoBean
     private S3Properties s3Properties;
 
+    @MockitoBean
+    private MemoListPageCache memoListPageCache;
+
+    @MockitoBean
+    private MemoListProperties memoListProperties;
+
+    @MockitoBean
+    private ContactSheetService contactSheetService;
+
+    @MockitoBean
+    private UserRateLimiter userRateLimiter;
+
+    @MockitoBean
+    private BuildFingerprint buildFingerprint;
+
+    private final MemoListProperties.ContactSheet contactSheetSettings = new MemoListProperties.ContactSheet();
+
+    @BeforeEach
+    void setUp() {
+        when(buildFingerprint.value()).thenReturn("0123456789ab");
+        when(memoListProperties.getContactSheet()).thenReturn(contactSheetSettings);
+    }
+
     @Test
     @WithMockUser(username = "testuser")
     void 認証済みユーザーが自分の画像にアクセスできる() throws Exception {
@@ -133,4 +192,314 @@ class ImageMemoControllerTest {
         mockMvc.perform(get("/memos/2/image"))
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void 一覧が変わっていなければ304を返しDBアクセスと描画を行わない() throws Exception {
+        // given
+        User user = User.builder()
+                .id(1L)
+                .username("testuser")
+                .password("password")
+                .enabled(true)
+                .memoListVersion(3L)
+                .build();
+        MemoListPageCache.Key key = new MemoListPageCache.Key("0123456789ab", 1L, 3L, "session", 0, 10, "createdAt: DESC");
+
+        when(userService.findByUsername("testuser")).thenReturn(user);
+        when(memoListPageCache.keyFor(eq(user), any(), any())).thenReturn(key);
+
+        // when & then
+        mockMvc.perform(get("/memos").header("If-None-Match", key.etag()))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", key.etag()));
+
+        verify(imageMemoService, never()).findSummaryPage(any(), any());
+        verify(imageMemoService, never()).countByUserId(any());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void コンタクトシートの最大数を超える件数のページはコンタクトシートを参照しない() throws Exception {
+        // given: コンタクトシートは1枚で最大50件
+        User user = User.builder()
+                .id(1L)
+                .username("testuser")
+                .password("password")
+                .enabled(true)
+                .build();
+
+        when(userService.findByUsername("testuser")).thenReturn(user);
+        when(imageMemoService.findSummaryPage(eq(1L), any())).thenReturn(List.of());
+
+        // when & then: 上限以下のページはコンタクトシートを参照する
+        mockMvc.perform(get("/memos").param("size", "50").flashAttr("successMessage", "保存しました"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("--contact-sheet: url(/memos/contact-sheet?page=0")));
+
+        // when & then: 上限を超えるページは400になるコンタクトシートを参照せず、各カードの画像だけを表示する
+        mockMvc.perform(get("/memos").param("size", "51").flashAttr("successMessage", "保存しました"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(not(containsString("--contact-sheet: url("))));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void 検索は前ページの関連度とIDをカーソルとして渡す() throws Exception {
+        // given
+        User user = User.builder()
+                .id(1L)
+                .username("testuser")
+                .password("password")
+                .enabled(true)
+                .build();
+
+        when(userService.findByUsername("testuser")).thenReturn(user);
+        when(imageMemoService.search(eq(1L), eq("beach"), any()))
+                .thenReturn(new MemoSearchResult(List.of(), null));
+
+        // when & then
+        mockMvc.perform(get("/memos/search").param("q", "beach").param("afterRank", "0.5").param("afterId", "10"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("memos/search"))
+                .andExpect(model().attribute("q", "beach"));
+        verify(imageMemoService).search(1L, "beach", new MemoSearchCursor(0.5f, 10L));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void アップロード前の重複確認は保存済みなら204を返す() throws Exception {
+        // given
+        User user = User.builder()
+                .id(1L)
+                .username("testuser")
+                .password("password")
+                .enabled(true)
+                .build();
+        String saved = "a".repeat(64);
+        String unsaved = "b".repeat(64);
+
+        when(userService.findByUsername("testuser")).thenReturn(user);
+        when(imageBlobService.isReusable(saved, 1L)).thenReturn(true);
+        when(imageBlobService.isReusable(unsaved, 1L)).thenReturn(false);
+
+        // when & then
+        mockMvc.perform(get("/memos/blobs/" + saved))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/memos/blobs/" + unsaved))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void レート制限を超過すると429とRetry_Afterを返しS3にアクセスしない() throws Exception {
+        // given
+        when(userRateLimiter.tryAcquire(RateLimitedEndpoint.IMAGE, "testuser")).thenReturn(1_500_000_000L);
+
+        // when & then
+        mockMvc.perform(get("/memos/1/image"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(view().name("error/429"));
+
+        verify(s3Service, never()).downloadImageStream(any(), any());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void 一括作成はファイルごとの結果を表示する() throws Exception {
+        // given
+        User user = User.builder()
+                .id(1L)
+                .username("testuser")
+                .password("password")
+                .enabled(true)
+                .build();
+        S3Properties.BatchUpload batchUpload = new S3Properties.BatchUpload();
+        List<BatchUploadResult> results = List.of(
+                BatchUploadResult.succeeded("a.jpg", 10L),
+                BatchUploadResult.failed("b.txt", "許可されていないファイル形式です"));
+
+        when(userService.findByUsername("testuser")).thenReturn(user);
+        when(s3Properties.getBatchUpload()).thenReturn(batchUpload);
+        when(imageMemoBatchService.createImageMemos(anyList(), eq("共通の説明"), eq(user))).thenReturn(results);
+
+        // when & then
+        mockMvc.perform(multipart("/memos/batch")
+                        .file(new MockMultipartFile("images", "a.jpg", "image/jpeg", "a".getBytes()))
+                        .file(new MockMultipartFile("images", "b.txt", "text/plain", "b".getBytes()))
+                        .param("description", "共通の説明")
+                        .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(view().name("memos/batch"))
+                .andExpect(model().attribute("results", results))
+                .andExpect(model().attribute("succeededCount", 1L));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void 一括作成のレート制限を超過すると429を返し作成しない() throws Exception {
+        // given
+        when(userRateLimiter.tryAcquire(RateLimitedEndpoint.BATCH_UPLOAD, "testuser")).thenReturn(30_000_000_000L);
+
+        // when & then
+        mockMvc.perform(multipart("/memos/batch")
+                        .file(new MockMultipartFile("images", "a.jpg", "image/jpeg", "a".getBytes()))
+                        .with(csrf()))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(view().name("error/429"));
+
+        verify(imageMemoBatchService, never()).createImageMemos(any(), any(), any());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void エクスポートはZIPを添付ファイルとしてレスポンスに書き込む() throws Exception {
+        // given
+        User user = User.builder()
+                .id(1L)
+                .username("testuser")
+                .password("password")
+                .enabled(true)
+                .build();
+        byte[] zip = "zip content".getBytes();
+
+        when(userService.findByUsername("testuser")).thenReturn(user);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write(zip);
+            return 1;
+        }).when(imageMemoExportService).export(eq(user), any());
+
+        // when & then
+        mockMvc.perform(get("/memos/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/zip"))
+                .andExpect(header().string("Content-Disposition", startsWith("attachment; filename=\"image-memos-")))
+                .andExpect(header().string("Cache-Control", "no-store"))
+                .andExpect(content().bytes(zip));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void エクスポートの同時実行数の上限では添付ファイルにせず503を返す() throws Exception {
+        // given
+        User user = User.builder()
+                .id(1L)
+                .username("testuser")
+                .password("password")
+                .enabled(true)
+                .build();
+
+        when(userService.findByUsername("testuser")).thenReturn(user);
+        when(imageMemoExportService.export(eq(user), any()))
+                .thenThrow(new StorageOverloadedException("ただいまエクスポートが混み合っています。"));
+
+        // when & then
+        mockMvc.perform(get("/memos/export"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().doesNotExist("Content-Disposition"))
+                .andExpect(view().name("error/503"));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void コンタクトシートは一覧が変わっていなければ304を返し作成しない() throws Exception {
+        // given
+        User user = User.builder()
+                .id(1L)
+                .username("testuser")
+                .password("password")
+                .enabled(true)
+                .memoListVersion(3L)
+                .build();
+        byte[] jpeg = "jpeg".getBytes();
+
+        when(userService.findByUsername("testuser")).thenReturn(user);
+        when(contactSheetService.getContactSheet(eq(1L), any()))
+                .thenReturn(new ContactSheet(List.of(2L, 1L), 10, 160, 110, true, jpeg));
+
+        // when & then
+        String etag = mockMvc.perform(get("/memos/contact-sheet").param("page", "0").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.IMAGE_JPEG))
+                .andExpect(header().string("Cache-Control", "private, no-cache"))
+                .andExpect(content().bytes(jpeg))
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/memos/contact-sheet").param("page", "0").param("size", "10")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        assertThat(etag).isEqualTo("\"contact-sheet-0123456789ab-1-3-0-10-160x110-0.6\"");
+        verify(contactSheetService).getContactSheet(eq(1L), any());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void コンタクトシートはビルドや枠のサイズ_画質が変わると304を返さない() throws Exception {
+        // given
+        User user = User.builder()
+                .id(1L)
+                .username("testuser")
+                .password("password")
+                .enabled(true)
+                .memoListVersion(3L)
+                .build();
+        when(userService.findByUsername("testuser")).thenReturn(user);
+        when(contactSheetService.getContactSheet(eq(1L), any()))
+                .thenReturn(new ContactSheet(List.of(1L), 10, 160, 110, true, "jpeg".getBytes()));
+        String etag = mockMvc.perform(get("/memos/contact-sheet"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // when & then: デプロイでビルドが変わった
+        when(buildFingerprint.value()).thenReturn("ba9876543210");
+        String rebuilt = mockMvc.perform(get("/memos/contact-sheet").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // when & then: 枠のサイズ・画質の設定が変わった
+        contactSheetSettings.setTileHeight(120);
+        String resized = mockMvc.perform(get("/memos/contact-sheet").header("If-None-Match", rebuilt))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        contactSheetSettings.setQuality(0.8f);
+        mockMvc.perform(get("/memos/contact-sheet").header("If-None-Match", resized))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void 空きの枠を含むコンタクトシートはブラウザに保存させない() throws Exception {
+        // given
+        User user = User.builder()
+                .id(1L)
+                .username("testuser")
+                .password("password")
+                .enabled(true)
+                .build();
+
+        when(userService.findByUsername("testuser")).thenReturn(user);
+        when(contactSheetService.getContactSheet(eq(1L), any()))
+                .thenReturn(new ContactSheet(List.of(1L), 10, 160, 110, false, "jpeg".getBytes()));
+
+        // when & then
+        mockMvc.perform(get("/memos/contact-sheet"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-store"));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void コンタクトシートの位置情報もCONTACT_SHEETのレート制限の対象() throws Exception {
+        // given
+        when(userRateLimiter.tryAcquire(RateLimitedEndpoint.CONTACT_SHEET, "testuser")).thenReturn(1_500_000_000L);
+
+        // when & then
+        mockMvc.perform(get("/memos/contact-sheet/map"))
+                .andExpect(status().isTooManyRequests());
+        mockMvc.perform(get("/memos/contact-sheet"))
+                .andExpect(status().isTooManyRequests());
+
+        verify(contactSheetService, never()).getMap(any(), any(), any());
+        verify(contactSheetService, never()).getContactSheet(any(), any());
+    }
 }
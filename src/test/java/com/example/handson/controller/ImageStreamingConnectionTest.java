@@ -0,0 +1,157 @@
+package com.example.handson.controller;
+
+import com.example.handson.TestcontainersConfiguration;
+import com.example.handson.config.S3Properties;
+import com.example.handson.domain.imagememo.ImageMemo;
+import com.example.handson.domain.user.User;
+import com.example.handson.dto.ImageMemoCreateDto;
+import com.example.handson.dto.UserRegistrationDto;
+import com.example.handson.service.ImageMemoService;
+import com.example.handson.service.UserService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * DB接続の保持期間のテスト
+ * open-in-viewを無効化しているため、画面描画や画像のストリーミング配信中に
+ * Hikariの接続を保持しないこと、遅延ロードなしで画面を描画できることを実サーバーで検証
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import(TestcontainersConfiguration.class)
+class ImageStreamingConnectionTest {
+
+    private static final Pattern CSRF_PATTERN = Pattern.compile("name=\"_csrf\"[^>]*value=\"([^\"]+)\"");
+    private static final int IMAGE_SIZE = 8 * 1024 * 1024; // ソケットの送信バッファに収まらないサイズ
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ImageMemoService imageMemoService;
+
+    @Autowired
+    private S3Client s3Client;
+
+    @Autowired
+    private S3Properties s3Properties;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .cookieHandler(new CookieManager())
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    private ImageMemo memo;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try {
+            s3Client.createBucket(builder -> builder.bucket(s3Properties.getBucketName()));
+        } catch (Exception e) {
+            // バケットが既に存在する場合は無視
+        }
+
+        String username = "stream-" + UUID.randomUUID().toString().substring(0, 8);
+        String password = "password123";
+        User user = userService.registerUser(new UserRegistrationDto(username, password, password));
+
+        byte[] image = new byte[IMAGE_SIZE];
+        new Random(0).nextBytes(image);
+        System.arraycopy("GIF89a".getBytes(StandardCharsets.US_ASCII), 0, image, 0, 6);
+        memo = imageMemoService.createImageMemo(
+                new ImageMemoCreateDto("ストリーミング", null, new MockMultipartFile("image", "large.gif", "image/gif", image), null),
+                user);
+
+        login(username, password);
+    }
+
+    @Test
+    void 画像のストリーミング配信中はDB接続を保持しない() throws Exception {
+        // given
+        HttpRequest request = HttpRequest.newBuilder(uri("/memos/" + memo.getId() + "/image")).build();
+
+        // when: ヘッダーと本文の先頭だけを受信し、クライアントが遅い状態を再現
+        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            byte[] head = body.readNBytes(1024);
+
+            // then
+            assertThat(response.statusCode()).isEqualTo(200);
+            assertThat(head).hasSize(1024);
+            assertThat(activeConnections()).isZero();
+
+            assertThat(body.readAllBytes()).hasSize(IMAGE_SIZE - 1024);
+        }
+    }
+
+    @Test
+    void 遅延ロードなしで一覧と詳細を描画できる() throws Exception {
+        // when
+        HttpResponse<String> list = client.send(HttpRequest.newBuilder(uri("/memos")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> detail = client.send(HttpRequest.newBuilder(uri("/memos/" + memo.getId())).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        // then
+        assertThat(list.statusCode()).isEqualTo(200);
+        assertThat(list.body()).contains("ストリーミング");
+        assertThat(detail.statusCode()).isEqualTo(200);
+        assertThat(detail.body()).contains("ストリーミング");
+        assertThat(activeConnections()).isZero();
+    }
+
+    private void login(String username, String password) throws Exception {
+        HttpResponse<String> loginPage = client.send(HttpRequest.newBuilder(uri("/login")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        Matcher csrf = CSRF_PATTERN.matcher(loginPage.body());
+        assertThat(csrf.find()).isTrue();
+
+        String form = "username=" + encode(username) + "&password=" + encode(password) + "&_csrf=" + encode(csrf.group(1));
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/login"))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(form))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertThat(response.uri().getPath()).isEqualTo("/memos");
+    }
+
+    private int activeConnections() throws Exception {
+        return dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean().getActiveConnections();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
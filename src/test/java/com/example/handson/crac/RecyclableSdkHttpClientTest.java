@@ -0,0 +1,67 @@
+package com.example.handson.crac;
+
+import com.example.handson.exception.StorageOverloadedException;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.http.HttpExecuteRequest;
+import software.amazon.awssdk.http.SdkHttpClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * RecyclableSdkHttpClientのテスト
+ * チェックポイント前（stop）に接続プールを閉じ、次のリクエストで作り直すことを検証
+ */
+class RecyclableSdkHttpClientTest {
+
+    private final List<SdkHttpClient> createdClients = new ArrayList<>();
+
+    private final RecyclableSdkHttpClient client = new RecyclableSdkHttpClient(() -> {
+        SdkHttpClient created = mock(SdkHttpClient.class);
+        createdClients.add(created);
+        return created;
+    });
+
+    @Test
+    void 最初のリクエストまで接続プールを生成しない() {
+        // then
+        assertThat(createdClients).isEmpty();
+    }
+
+    @Test
+    void 停止すると接続プールを閉じ次のリクエストで作り直す() {
+        // given
+        HttpExecuteRequest request = mock(HttpExecuteRequest.class);
+        client.prepareRequest(request);
+        SdkHttpClient first = createdClients.get(0);
+
+        // when
+        client.stop();
+        client.start();
+        client.prepareRequest(request);
+
+        // then
+        verify(first).close();
+        assertThat(createdClients).hasSize(2);
+        verify(createdClients.get(1), never()).close();
+        verify(createdClients.get(1)).prepareRequest(request);
+    }
+
+    @Test
+    void 停止中のリクエストは接続プールを作らずに拒否する() {
+        // given
+        HttpExecuteRequest request = mock(HttpExecuteRequest.class);
+        client.stop();
+
+        // when & then
+        assertThatThrownBy(() -> client.prepareRequest(request))
+                .isInstanceOf(StorageOverloadedException.class);
+        assertThat(createdClients).isEmpty();
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.handson.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.images.builder.Transferable;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 読み取りレプリカへの振り分けのテスト
+ * ストリーミングレプリケーションを構成した2つのPostgreSQLコンテナで、
+ * readOnlyトランザクションのレプリカ送信・遅延時や切断時のプライマリへのフォールバック・read-your-writesを検証
+ */
+@SpringBootTest(properties = {
+        "app.read-replica.max-lag=500ms",
+        "app.read-replica.lag-check-interval=1h"
+})
+@Testcontainers
+class ReadReplicaRoutingTest {
+
+    private static final Network network = Network.newNetwork();
+
+    @Container
+    static final PostgreSQLContainer<?> primary = new PostgreSQLContainer<>(DockerImageName.parse("postgres:17.5"))
+            .withNetwork(network)
+            .withNetworkAliases("primary")
+            .withDatabaseName("test_app")
+            .withUsername("test")
+            .withPassword("test")
+            .withCopyToContainer(Transferable.of("""
+                    #!/bin/bash
+                    set -e
+                    echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
+                    """), "/docker-entrypoint-initdb.d/replication.sh")
+            .withCommand("postgres", "-c", "wal_level=replica", "-c", "max_wal_senders=4", "-c", "hot_standby=on");
+
+    @Container
+    static final GenericContainer<?> replica = new GenericContainer<>(DockerImageName.parse("postgres:17.5"))
+            .dependsOn(primary)
+            .withNetwork(network)
+            .withExposedPorts(5432)
+            .withEnv("PGPASSWORD", "test")
+            .withCreateContainerCmdModifier(cmd -> cmd.withUser("postgres"))
+            .withCommand("bash", "-c", """
+                    until pg_basebackup -h primary -U test -D "$PGDATA" -R -X stream; do sleep 1; done
+                    chmod 0700 "$PGDATA"
+                    exec postgres
+                    """)
+            .waitingFor(Wait.forLogMessage(".*database system is ready to accept read-only connections.*", 1)
+                    .withStartupTimeout(Duration.ofMinutes(2)));
+
+    @DynamicPropertySource
+    static void dataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", primary::getJdbcUrl);
+        registry.add("spring.datasource.username", primary::getUsername);
+        registry.add("spring.datasource.password", primary::getPassword);
+        registry.add("app.read-replica.endpoints[0].url", ReadReplicaRoutingTest::replicaJdbcUrl);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReadReplicaPools readReplicaPools;
+
+    @Autowired
+    private ReadYourWritesWindow readYourWritesWindow;
+
+    /** 切断のテストで変更したレプリカの接続先（tearDownで戻す） */
+    private String primaryConninfo;
+
+    @BeforeEach
+    void setUp() {
+        readReplicaPools.refreshReplicaHealth();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        RequestContextHolder.resetRequestAttributes();
+        executeOnReplica("SELECT pg_wal_replay_resume()");
+        if (primaryConninfo != null) {
+            executeOnReplica("ALTER SYSTEM SET primary_conninfo = '" + primaryConninfo.replace("'", "''") + "'");
+            executeOnReplica("SELECT pg_reload_conf()");
+            awaitReplicaStreaming(true);
+            primaryConninfo = null;
+        }
+    }
+
+    @Test
+    void 読み取り専用トランザクションはレプリカに送られる() {
+        // when
+        boolean readOnlyInRecovery = isInRecovery(true);
+        boolean readWriteInRecovery = isInRecovery(false);
+
+        // then
+        assertThat(readOnlyInRecovery).isTrue();
+        assertThat(readWriteInRecovery).isFalse();
+    }
+
+    @Test
+    void レプリケーション遅延が許容値を超えるとプライマリに送られる() throws Exception {
+        // given: レプリカでのWAL適用を止めてからプライマリに書き込む
+        executeOnReplica("SELECT pg_wal_replay_pause()");
+        jdbcTemplate.update("INSERT INTO users (username, password, enabled) VALUES ('lag-test', 'x', true)");
+        Thread.sleep(1000);
+
+        // when
+        readReplicaPools.refreshReplicaHealth();
+
+        // then
+        assertThat(isInRecovery(true)).isFalse();
+
+        // WAL適用を再開すると再びレプリカに送られる
+        executeOnReplica("SELECT pg_wal_replay_resume()");
+        awaitReplicaCaughtUp();
+        readReplicaPools.refreshReplicaHealth();
+        assertThat(isInRecovery(true)).isTrue();
+    }
+
+    @Test
+    void プライマリから切断されたレプリカは遅延0でもプライマリに送られる() throws Exception {
+        // given: 遅延なしの状態からレプリカのストリーミングを止める（書き込みはないため受信・適用済みのLSNは一致したまま）
+        awaitReplicaCaughtUp();
+        primaryConninfo = queryOnReplica("SHOW primary_conninfo");
+        executeOnReplica("ALTER SYSTEM SET primary_conninfo = ''");
+        executeOnReplica("SELECT pg_reload_conf()");
+        awaitReplicaStreaming(false);
+
+        // when
+        readReplicaPools.refreshReplicaHealth();
+
+        // then
+        assertThat(isInRecovery(true)).isFalse();
+    }
+
+    @Test
+    void 書き込み直後のセッションの読み取りはプライマリに送られる() {
+        // given
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        // when
+        readYourWritesWindow.markWritten();
+
+        // then
+        assertThat(isInRecovery(true)).isFalse();
+    }
+
+    private boolean isInRecovery(boolean readOnly) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(readOnly);
+        return Boolean.TRUE.equals(template.execute(status ->
+                jdbcTemplate.queryForObject("SELECT pg_is_in_recovery()", Boolean.class)));
+    }
+
+    private void awaitReplicaCaughtUp() throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (System.nanoTime() < deadline) {
+            try (Connection connection = DriverManager.getConnection(replicaJdbcUrl(), "test", "test");
+                 Statement statement = connection.createStatement();
+                 var resultSet = statement.executeQuery(
+                         "SELECT pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn()")) {
+                if (resultSet.next() && resultSet.getBoolean(1)) {
+                    return;
+                }
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private static void awaitReplicaStreaming(boolean streaming) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (System.nanoTime() < deadline) {
+            String status = queryOnReplica(
+                    "SELECT COALESCE((SELECT status FROM pg_stat_wal_receiver), 'stopped')");
+            if ("streaming".equals(status) == streaming) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("レプリカのストリーミング状態が変わりません: streaming=" + streaming);
+    }
+
+    private static String queryOnReplica(String sql) throws Exception {
+        try (Connection connection = DriverManager.getConnection(replicaJdbcUrl(), "test", "test");
+             Statement statement = connection.createStatement();
+             var resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
+    private static void executeOnReplica(String sql) throws Exception {
+        try (Connection connection = DriverManager.getConnection(replicaJdbcUrl(), "test", "test");
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static String replicaJdbcUrl() {
+        return "jdbc:postgresql://" + replica.getHost() + ":" + replica.getMappedPort(5432) + "/test_app";
+    }
+}
@@ -221,4 +221,84 @@ class ImageMemoRepositoryTest {
         assertThat(memo.getUser().getUsername()).isEqualTo("testuser");
         assertThat(memo.getUser().getId()).isEqualTo(testUser.getId());
     }
+
+    @Test
+    void 全文検索ではタイトル一致が説明一致より上位になる() {
+        // given
+        ImageMemo descriptionHit = saveMemo(testUser, "夕焼け", "sunset at the beach");
+        ImageMemo titleHit = saveMemo(testUser, "beach", "海辺の写真");
+        saveMemo(testUser, "mountain", "山の写真");
+        entityManager.flush();
+
+        // when
+        List<ImageMemoSearchHit> hits = imageMemoRepository.search(testUser.getId(), "beach:*", null, null, 10);
+
+        // then
+        assertThat(hits).extracting(ImageMemoSearchHit::getId)
+                .containsExactly(titleHit.getId(), descriptionHit.getId());
+        assertThat(hits.get(0).getRank()).isGreaterThan(hits.get(1).getRank());
+    }
+
+    @Test
+    void 全文検索は前方一致で複数語のAND条件になる() {
+        // given
+        ImageMemo both = saveMemo(testUser, "Tokyo tower", "night view");
+        saveMemo(testUser, "Tokyo station", "morning");
+        entityManager.flush();
+
+        // when
+        List<ImageMemoSearchHit> hits = imageMemoRepository.search(testUser.getId(), "tok:* & nig:*", null, null, 10);
+
+        // then
+        assertThat(hits).extracting(ImageMemoSearchHit::getId).containsExactly(both.getId());
+    }
+
+    @Test
+    void 全文検索で他のユーザーの画像メモはヒットしない() {
+        // given
+        User otherUser = userRepository.save(User.builder()
+                .username("otheruser")
+                .password("password")
+                .enabled(true)
+                .build());
+        saveMemo(otherUser, "secret", "他人のメモ");
+        entityManager.flush();
+
+        // when
+        List<ImageMemoSearchHit> hits = imageMemoRepository.search(testUser.getId(), "secret:*", null, null, 10);
+
+        // then
+        assertThat(hits).isEmpty();
+    }
+
+    @Test
+    void 全文検索はキーセット方式で続きのページを取得できる() {
+        // given: 同じ関連度の5件
+        for (int i = 1; i <= 5; i++) {
+            saveMemo(testUser, "cat " + i, null);
+        }
+        entityManager.flush();
+
+        // when
+        List<ImageMemoSearchHit> first = imageMemoRepository.search(testUser.getId(), "cat:*", null, null, 3);
+        ImageMemoSearchHit last = first.get(first.size() - 1);
+        List<ImageMemoSearchHit> second = imageMemoRepository.search(testUser.getId(), "cat:*",
+                last.getRank(), last.getId(), 3);
+
+        // then
+        assertThat(first).hasSize(3);
+        assertThat(second).hasSize(2);
+        assertThat(second).extracting(ImageMemoSearchHit::getId)
+                .doesNotContainAnyElementsOf(first.stream().map(ImageMemoSearchHit::getId).toList())
+                .allMatch(id -> id < last.getId());
+    }
+
+    private ImageMemo saveMemo(User user, String title, String description) {
+        return imageMemoRepository.save(ImageMemo.builder()
+                .user(user)
+                .title(title)
+                .description(description)
+                .s3Key(title + ".jpg")
+                .build());
+    }
 }
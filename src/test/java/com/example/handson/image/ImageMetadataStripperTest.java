@@ -0,0 +1,308 @@
+package com.example.handson.image;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.color.ColorSpace;
+import java.awt.color.ICC_Profile;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ImageMetadataStripperのテスト
+ * メタデータを除去しても画素が変わらないこと、向きと色の情報が残ることを検証
+ */
+class ImageMetadataStripperTest {
+
+    private static final int EXIF_PADDING = 20_000; // 埋め込みサムネイル相当
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ImageMetadataStripper stripper = new ImageMetadataStripper(meterRegistry);
+
+    @Test
+    void JPEGのEXIF_XMP_コメントを除去し向きとICCプロファイルは残す() throws Exception {
+        // given
+        byte[] plain = encode("jpg");
+        byte[] iccProfile = ICC_Profile.getInstance(ColorSpace.CS_sRGB).getData();
+        byte[] original = insertAfterJfif(plain,
+                segment(0xE1, concat(ascii("Exif\0\0"), exifWithOrientation(6))),
+                segment(0xE1, ascii("http://ns.adobe.com/xap/1.0/\0<x:xmpmeta/>")),
+                segment(0xE2, concat(ascii("ICC_PROFILE\0"), new byte[]{1, 1}, iccProfile)),
+                segment(0xFE, ascii("comment")));
+
+        // when
+        byte[] stripped = stage(original, "photo.jpg");
+
+        // then
+        List<Integer> markers = jpegMarkers(stripped);
+        assertThat(markers).doesNotContain(0xFE);
+        assertThat(markers).filteredOn(marker -> marker == 0xE1).hasSize(1);
+        assertThat(markers).contains(0xE2);
+        assertThat(stripped.length).isLessThan(original.length - EXIF_PADDING);
+        assertThat(ExifOrientation.parse(exifPayload(stripped), 6)).isEqualTo(6);
+        assertPixelsEqual(original, stripped);
+        assertThat(meterRegistry.get("image.upload.metadata.stripped").tag("format", "jpeg").summary().totalAmount())
+                .isEqualTo((double) (original.length - stripped.length));
+    }
+
+    @Test
+    void JPEGのEOI以降のデータを除去する() throws Exception {
+        // given: MPFのプレビュー画像のようにEOIの後ろに続くデータ（読み込みのバッファより大きい）
+        byte[] plain = encode("jpg");
+        byte[] trailer = new byte[100_000];
+        Arrays.fill(trailer, (byte) 0x5A);
+        byte[] original = concat(plain, trailer);
+
+        // when
+        try (StagedImage image = stripper.stage(new MockMultipartFile("image", "photo.jpg", "image/*", original))) {
+            // then: 除去したデータもアップロードされたバイト列のハッシュには含める
+            assertThat(Files.readAllBytes(image.path())).isEqualTo(plain);
+            assertThat(image.sourceHash()).isEqualTo(sha256(original));
+        }
+    }
+
+    @Test
+    void PNGのテキストを除去し向きは最小のeXIfとして残す() throws Exception {
+        // given
+        byte[] plain = encode("png");
+        byte[] original = concat(
+                insertAfterIhdr(plain,
+                        chunk("tEXt", concat(ascii("Comment\0"), new byte[EXIF_PADDING])),
+                        chunk("eXIf", exifWithOrientation(3))),
+                new byte[16]);
+
+        // when
+        byte[] stripped = stage(original, "photo.png");
+
+        // then
+        List<String> chunks = pngChunks(stripped);
+        assertThat(chunks).doesNotContain("tEXt");
+        assertThat(chunks).contains("IHDR", "IDAT", "eXIf");
+        assertThat(chunks.get(chunks.size() - 1)).isEqualTo("IEND");
+        assertThat(stripped.length).isLessThan(original.length - EXIF_PADDING);
+        assertPixelsEqual(original, stripped);
+    }
+
+    @Test
+    void PNGの長さが不正なeXIfは読み込まずにそのまま保存する() throws Exception {
+        // given: 約2GBの長さを宣言する（データは続かない）eXIf
+        byte[] plain = encode("png");
+        byte[] header = ByteBuffer.allocate(8).putInt(0x7FFFFFF0).put(ascii("eXIf")).array();
+        byte[] crafted = concat(Arrays.copyOf(plain, 33), header, new byte[16]); // シグネチャ8 + IHDR25
+
+        // when
+        try (StagedImage image = stripper.stage(new MockMultipartFile("image", "crafted.png", "image/png", crafted))) {
+            // then
+            assertThat(Files.readAllBytes(image.path())).isEqualTo(crafted);
+            assertThat(image.contentHash()).isEqualTo(image.sourceHash()).isEqualTo(sha256(crafted));
+        }
+    }
+
+    @Test
+    void PNGの上限を超えるeXIfは読み込まずに除去する() throws Exception {
+        // given
+        byte[] plain = encode("png");
+        byte[] original = insertAfterIhdr(plain,
+                chunk("eXIf", concat(exifWithOrientation(3), new byte[100_000])));
+
+        // when
+        byte[] stripped = stage(original, "photo.png");
+
+        // then
+        assertThat(pngChunks(stripped)).doesNotContain("eXIf");
+        assertPixelsEqual(original, stripped);
+    }
+
+    @Test
+    void 解析できない画像はそのまま保存し元のハッシュと一致する() throws Exception {
+        // given: 途中で切れたJPEG
+        byte[] plain = encode("jpg");
+        byte[] truncated = Arrays.copyOf(plain, plain.length / 2);
+
+        // when
+        try (StagedImage image = stripper.stage(new MockMultipartFile("image", "broken.jpg", "image/jpeg", truncated))) {
+            // then
+            assertThat(Files.readAllBytes(image.path())).isEqualTo(truncated);
+            assertThat(image.contentHash()).isEqualTo(image.sourceHash()).isEqualTo(sha256(truncated));
+        }
+    }
+
+    @Test
+    void 一時ファイルはclose時に削除される() throws Exception {
+        // given
+        StagedImage image = stripper.stage(new MockMultipartFile("image", "photo.gif", "image/gif", ascii("GIF89a")));
+        assertThat(image.path()).exists();
+
+        // when
+        image.close();
+
+        // then
+        assertThat(image.path()).doesNotExist();
+    }
+
+    @Test
+    void メモリ上の画像は一時ファイルに書き出さずにメタデータを除去する() throws Exception {
+        // given
+        byte[] plain = encode("jpg");
+        byte[] original = insertAfterJfif(plain, segment(0xFE, ascii("comment")));
+        byte[] truncated = Arrays.copyOf(plain, plain.length / 2);
+
+        // when
+        StagedImage image = stripper.stage(original, "photo.jpg");
+        StagedImage broken = stripper.stage(truncated, "broken.jpg");
+
+        // then: 一時ファイルに書き出した場合と同じ内容・ハッシュになる
+        assertThat(image.path()).isNull();
+        assertThat(image.content()).isEqualTo(stage(original, "photo.jpg"));
+        assertThat(image.size()).isEqualTo(image.content().length);
+        assertThat(image.contentHash()).isEqualTo(sha256(image.content()));
+        assertThat(image.sourceHash()).isEqualTo(sha256(original));
+        assertThat(image.openStream().readAllBytes()).isEqualTo(image.content());
+        // 構造を解析できない画像はそのまま保持する
+        assertThat(broken.content()).isEqualTo(truncated);
+        assertThat(broken.contentHash()).isEqualTo(broken.sourceHash()).isEqualTo(sha256(truncated));
+    }
+
+    private byte[] stage(byte[] original, String filename) throws Exception {
+        try (StagedImage image = stripper.stage(new MockMultipartFile("image", filename, "image/*", original))) {
+            byte[] stripped = Files.readAllBytes(image.path());
+            assertThat(image.size()).isEqualTo(stripped.length);
+            assertThat(image.contentHash()).isEqualTo(sha256(stripped));
+            assertThat(image.sourceHash()).isEqualTo(sha256(original));
+            return stripped;
+        }
+    }
+
+    private static byte[] encode(String format) throws IOException {
+        BufferedImage image = new BufferedImage(32, 16, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, (x * 8) << 16 | (y * 16) << 8 | 0x80);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    private static void assertPixelsEqual(byte[] expected, byte[] actual) throws IOException {
+        BufferedImage expectedImage = ImageIO.read(new ByteArrayInputStream(expected));
+        BufferedImage actualImage = ImageIO.read(new ByteArrayInputStream(actual));
+        assertThat(actualImage.getWidth()).isEqualTo(expectedImage.getWidth());
+        assertThat(actualImage.getHeight()).isEqualTo(expectedImage.getHeight());
+        assertThat(actualImage.getRGB(0, 0, actualImage.getWidth(), actualImage.getHeight(), null, 0, actualImage.getWidth()))
+                .isEqualTo(expectedImage.getRGB(0, 0, expectedImage.getWidth(), expectedImage.getHeight(), null, 0, expectedImage.getWidth()));
+    }
+
+    /**
+     * リトルエンディアンのTIFF（メーカー名 + 向き）の後ろにサムネイル相当のデータを付けたEXIF
+     */
+    private static byte[] exifWithOrientation(int orientation) {
+        byte[] make = ascii("Camera\0");
+        ByteBuffer tiff = ByteBuffer.allocate(8 + 2 + 2 * 12 + 4 + make.length + EXIF_PADDING).order(ByteOrder.LITTLE_ENDIAN);
+        tiff.put((byte) 'I').put((byte) 'I').putShort((short) 42).putInt(8);
+        tiff.putShort((short) 2);
+        tiff.putShort((short) 0x010F).putShort((short) 2).putInt(make.length).putInt(8 + 2 + 2 * 12 + 4);
+        tiff.putShort((short) 0x0112).putShort((short) 3).putInt(1).putShort((short) orientation).putShort((short) 0);
+        tiff.putInt(0);
+        tiff.put(make);
+        return tiff.array();
+    }
+
+    /**
+     * JFIF（APP0）の直後にセグメントを挿入（カメラ画像と同じく、画像データより前にメタデータを置く）
+     */
+    private static byte[] insertAfterJfif(byte[] jpeg, byte[]... segments) {
+        int app0End = 4 + ((jpeg[4] & 0xFF) << 8 | (jpeg[5] & 0xFF));
+        return concat(Arrays.copyOf(jpeg, app0End), concat(segments), Arrays.copyOfRange(jpeg, app0End, jpeg.length));
+    }
+
+    private static byte[] segment(int marker, byte[] payload) {
+        int length = payload.length + 2;
+        return concat(new byte[]{(byte) 0xFF, (byte) marker, (byte) (length >> 8), (byte) length}, payload);
+    }
+
+    private static List<Integer> jpegMarkers(byte[] jpeg) {
+        List<Integer> markers = new ArrayList<>();
+        int offset = 2;
+        while (offset + 4 <= jpeg.length && (jpeg[offset] & 0xFF) == 0xFF) {
+            int marker = jpeg[offset + 1] & 0xFF;
+            markers.add(marker);
+            if (marker == 0xDA) {
+                break;
+            }
+            offset += 2 + ((jpeg[offset + 2] & 0xFF) << 8 | (jpeg[offset + 3] & 0xFF));
+        }
+        return markers;
+    }
+
+    /**
+     * 最初のAPP1セグメントのペイロード（"Exif\0\0"から）
+     */
+    private static byte[] exifPayload(byte[] jpeg) {
+        int offset = 2;
+        while ((jpeg[offset + 1] & 0xFF) != 0xE1) {
+            offset += 2 + ((jpeg[offset + 2] & 0xFF) << 8 | (jpeg[offset + 3] & 0xFF));
+        }
+        int length = (jpeg[offset + 2] & 0xFF) << 8 | (jpeg[offset + 3] & 0xFF);
+        return Arrays.copyOfRange(jpeg, offset + 4, offset + 2 + length);
+    }
+
+    private static byte[] insertAfterIhdr(byte[] png, byte[]... chunks) {
+        int ihdrEnd = 8 + 4 + 4 + 13 + 4;
+        return concat(Arrays.copyOf(png, ihdrEnd), concat(chunks), Arrays.copyOfRange(png, ihdrEnd, png.length));
+    }
+
+    private static byte[] chunk(String type, byte[] data) {
+        byte[] typeBytes = ascii(type);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        return concat(ByteBuffer.allocate(4).putInt(data.length).array(), typeBytes, data,
+                ByteBuffer.allocate(4).putInt((int) crc.getValue()).array());
+    }
+
+    private static List<String> pngChunks(byte[] png) {
+        List<String> chunks = new ArrayList<>();
+        int offset = 8;
+        while (offset + 8 <= png.length) {
+            int length = ByteBuffer.wrap(png, offset, 4).getInt();
+            chunks.add(new String(png, offset + 4, 4, StandardCharsets.US_ASCII));
+            offset += 12 + length;
+        }
+        return chunks;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String sha256(byte[] bytes) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.handson.image;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Thumbnailのテスト
+ * EXIFの向きの適用・中央での切り抜き・コンタクトシートの並びを検証
+ */
+class ThumbnailTest {
+
+    @Test
+    void EXIFの向きを適用してから切り抜く() throws Exception {
+        // given: 左半分が赤・右半分が青の横長のJPEGで、時計回りに90度回転して表示する
+        byte[] jpeg = withOrientation(encode(halves(640, 320), "jpg"), 6);
+
+        // when
+        BufferedImage thumbnail = Thumbnail.cover(new ByteArrayInputStream(jpeg), 20, 40);
+
+        // then: 縦長に表示され、上半分が赤・下半分が青になる
+        assertThat(thumbnail.getWidth()).isEqualTo(20);
+        assertThat(thumbnail.getHeight()).isEqualTo(40);
+        assertThat(isReddish(thumbnail.getRGB(10, 5))).isTrue();
+        assertThat(isReddish(thumbnail.getRGB(10, 35))).isFalse();
+    }
+
+    @Test
+    void 縦横比が異なる画像は中央を切り抜く() throws Exception {
+        // given: 左右の端が赤・中央が青の横長のPNG
+        BufferedImage image = new BufferedImage(300, 100, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < image.getWidth(); x++) {
+            Color color = x < 100 || x >= 200 ? Color.RED : Color.BLUE;
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.setRGB(x, y, color.getRGB());
+            }
+        }
+
+        // when: 正方形のサムネイルにする
+        BufferedImage thumbnail = Thumbnail.cover(new ByteArrayInputStream(encode(image, "png")), 30, 30);
+
+        // then: 中央の青の部分だけになる
+        assertThat(isReddish(thumbnail.getRGB(1, 15))).isFalse();
+        assertThat(isReddish(thumbnail.getRGB(28, 15))).isFalse();
+    }
+
+    @Test
+    void 画像でないデータは例外() {
+        // when & then
+        assertThatThrownBy(() -> Thumbnail.cover(new ByteArrayInputStream("not an image".getBytes()), 20, 20))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void コンタクトシートは枠の数の高さで作成しなかった枠は灰色にする() throws Exception {
+        // given: 3枠のうち1枠目だけサムネイルがある
+        BufferedImage red = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < red.getHeight(); y++) {
+            for (int x = 0; x < red.getWidth(); x++) {
+                red.setRGB(x, y, Color.RED.getRGB());
+            }
+        }
+
+        // when
+        byte[] jpeg = Thumbnail.stackAsJpeg(Arrays.asList(red, null), 3, 20, 10, 0.9f);
+
+        // then
+        BufferedImage sheet = ImageIO.read(new ByteArrayInputStream(jpeg));
+        assertThat(sheet.getWidth()).isEqualTo(20);
+        assertThat(sheet.getHeight()).isEqualTo(30);
+        assertThat(isReddish(sheet.getRGB(10, 5))).isTrue();
+        assertThat(isReddish(sheet.getRGB(10, 15))).isFalse();
+        assertThat(isReddish(sheet.getRGB(10, 25))).isFalse();
+    }
+
+    private static BufferedImage halves(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, (x < width / 2 ? Color.RED : Color.BLUE).getRGB());
+            }
+        }
+        return image;
+    }
+
+    private static boolean isReddish(int rgb) {
+        Color color = new Color(rgb);
+        return color.getRed() > 200 && color.getBlue() < 80;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * JFIF（APP0）の直後に向きだけを持つEXIF（APP1）を挿入
+     */
+    private static byte[] withOrientation(byte[] jpeg, int orientation) {
+        byte[] exif = concat(List.of("Exif\0\0".getBytes(StandardCharsets.US_ASCII),
+                ExifOrientation.minimalTiff(orientation)));
+        byte[] segment = concat(List.of(new byte[]{(byte) 0xFF, (byte) 0xE1},
+                ByteBuffer.allocate(2).putShort((short) (exif.length + 2)).array(), exif));
+        int app0End = 4 + ((jpeg[4] & 0xFF) << 8 | (jpeg[5] & 0xFF));
+        return concat(List.of(Arrays.copyOf(jpeg, app0End), segment, Arrays.copyOfRange(jpeg, app0End, jpeg.length)));
+    }
+
+    private static byte[] concat(List<byte[]> parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        parts.forEach(out::writeBytes);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.handson.ratelimit;
+
+import com.example.handson.config.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * UserRateLimiterのテスト
+ * バケット容量・回復間隔による制限と、同時アクセス時に容量を超えて受け付けないことを検証
+ * ストライプを共有するユーザー同士が互いに制限しないことも検証
+ */
+class UserRateLimiterTest {
+
+    private static final int THREADS = 16;
+
+    private final AtomicLong now = new AtomicLong(-TimeUnit.DAYS.toNanos(1)); // nanoTime()は負の値も取りうる
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void 容量までは連続で受け付け超過分は拒否される() {
+        // given
+        UserRateLimiter limiter = limiter(3, Duration.ofSeconds(1));
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "alice")).isZero();
+        }
+        long wait = limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "alice");
+
+        // then
+        assertThat(wait).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+        assertThat(meterRegistry.get("http.rate.limit.rejected").tag("endpoint", "upload").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void 回復間隔ごとに1件ずつ受け付けられる() {
+        // given
+        UserRateLimiter limiter = limiter(2, Duration.ofSeconds(1));
+        limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "bob");
+        limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "bob");
+
+        // when
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(400));
+        long waitBeforeRefill = limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "bob");
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+        long waitAfterRefill = limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "bob");
+
+        // then
+        assertThat(waitBeforeRefill).isEqualTo(TimeUnit.MILLISECONDS.toNanos(600));
+        assertThat(waitAfterRefill).isZero();
+        assertThat(limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "bob")).isPositive();
+    }
+
+    @Test
+    void 長時間アイドル状態のユーザーは容量まで受け付けられる() {
+        // given
+        UserRateLimiter limiter = limiter(2, Duration.ofSeconds(1));
+        limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "carol");
+        limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "carol");
+
+        // when
+        now.addAndGet(TimeUnit.HOURS.toNanos(1));
+
+        // then: 容量を超えて貯まることはない
+        assertThat(limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "carol")).isZero();
+        assertThat(limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "carol")).isZero();
+        assertThat(limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "carol")).isPositive();
+    }
+
+    @Test
+    void ユーザーとエンドポイントの種類ごとに独立して制限される() {
+        // given
+        UserRateLimiter limiter = limiter(1, Duration.ofSeconds(1));
+        limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "dave");
+
+        // when & then
+        assertThat(limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "dave")).isPositive();
+        assertThat(limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "erin")).isZero();
+        assertThat(limiter.tryAcquire(RateLimitedEndpoint.IMAGE, "dave")).isZero();
+    }
+
+    @Test
+    void ハッシュコードが衝突するユーザー同士は互いに制限しない() {
+        // given: String.hashCode()が同じユーザー名を、同じストライプに入れる
+        assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+        RateLimitProperties properties = properties(1, Duration.ofSeconds(1));
+        properties.setStripes(1);
+        UserRateLimiter limiter = new UserRateLimiter(properties, meterRegistry, now::get);
+        limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "Aa");
+
+        // when & then: 一方がバケットを使い切っても、もう一方は容量まで受け付けられる
+        assertThat(limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "Aa")).isPositive();
+        assertThat(limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "BB")).isZero();
+        assertThat(limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "BB")).isPositive();
+    }
+
+    @Test
+    void ストライプの保持数を超えても制限中のユーザーは解除されない() {
+        // given: 1ストライプに2ユーザーまで
+        RateLimitProperties properties = properties(2, Duration.ofSeconds(1));
+        properties.setStripes(1);
+        properties.setUsernamesPerStripe(2);
+        UserRateLimiter limiter = new UserRateLimiter(properties, meterRegistry, now::get);
+        limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "heidi");
+        limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "heidi");
+
+        // when: 別のユーザー名のリクエストで保持数を超える
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "ivan-" + i)).isZero();
+        }
+
+        // then
+        assertThat(limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "heidi")).isPositive();
+    }
+
+    @Test
+    void 無効化すると制限しない() {
+        // given
+        RateLimitProperties properties = properties(1, Duration.ofSeconds(1));
+        properties.setEnabled(false);
+        UserRateLimiter limiter = new UserRateLimiter(properties, meterRegistry, now::get);
+
+        // when & then
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, "frank")).isZero();
+        }
+    }
+
+    @Test
+    void 同じユーザーへの同時アクセスでも容量を超えて受け付けない() throws Exception {
+        // given: 時刻を止めて、容量ちょうどの件数だけ受け付けられる状態にする
+        int capacity = 1000;
+        int attemptsPerThread = 500;
+        UserRateLimiter limiter = limiter(capacity, Duration.ofSeconds(1));
+
+        // when
+        long accepted = runConcurrently(limiter, attemptsPerThread, thread -> "grace");
+
+        // then
+        assertThat(accepted).isEqualTo(capacity);
+        assertThat(meterRegistry.get("http.rate.limit.rejected").tag("endpoint", "upload").counter().count())
+                .isEqualTo((double) (THREADS * attemptsPerThread - capacity));
+    }
+
+    @Test
+    void 別々のユーザーへの同時アクセスはそれぞれ容量まで受け付ける() throws Exception {
+        // given
+        int capacity = 100;
+        UserRateLimiter limiter = limiter(capacity, Duration.ofSeconds(1));
+
+        // when: スレッドごとに別のユーザー
+        long accepted = runConcurrently(limiter, capacity * 2, thread -> "user-" + thread);
+
+        // then
+        assertThat(accepted).isEqualTo((long) THREADS * capacity);
+    }
+
+    private static long runConcurrently(UserRateLimiter limiter, int attemptsPerThread, IntFunction<String> username)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Long>> results = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                String name = username.apply(thread);
+                results.add(executor.submit(() -> {
+                    start.await();
+                    long accepted = 0;
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        if (limiter.tryAcquire(RateLimitedEndpoint.UPLOAD, name) == 0) {
+                            accepted++;
+                        }
+                    }
+                    return accepted;
+                }));
+            }
+            start.countDown();
+
+            long accepted = 0;
+            for (Future<Long> result : results) {
+                accepted += result.get(30, TimeUnit.SECONDS);
+            }
+            return accepted;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private UserRateLimiter limiter(int capacity, Duration refillInterval) {
+        return new UserRateLimiter(properties(capacity, refillInterval), meterRegistry, now::get);
+    }
+
+    private static RateLimitProperties properties(int capacity, Duration refillInterval) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setUpload(new RateLimitProperties.Limit(capacity, refillInterval));
+        properties.setImage(new RateLimitProperties.Limit(capacity, refillInterval));
+        return properties;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.handson.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * BoundedPasswordEncoderのテスト
+ * 有界スレッドプールでのハッシュ計算とロードシェディングを検証
+ */
+class BoundedPasswordEncoderTest {
+
+    @Test
+    void BCryptでエンコードと照合ができる() {
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(
+                new BCryptPasswordEncoder(4), 1, 4, Duration.ofSeconds(5))) {
+            // when
+            String encoded = encoder.encode("password");
+
+            // then
+            assertThat(encoded).matches("^\\$2[ab]\\$.*");
+            assertThat(encoder.matches("password", encoded)).isTrue();
+            assertThat(encoder.matches("wrong", encoded)).isFalse();
+        }
+    }
+
+    @Test
+    void スレッドとキューが埋まっている場合は即座に拒否される() throws Exception {
+        // given: 1スレッド・キューなしで、計算を止めておくエンコーダー
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(
+                blockingEncoder(started, release), 1, 0, Duration.ofSeconds(5))) {
+            CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // when & then: 2件目は待たされずに拒否される
+            assertThatThrownBy(() -> encoder.encode("second"))
+                    .isInstanceOf(PasswordHashingRejectedException.class)
+                    .hasMessageContaining("混雑");
+
+            release.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("encoded:first");
+        }
+    }
+
+    @Test
+    void 待ち時間の上限を超えた場合は拒否される() throws Exception {
+        // given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(
+                blockingEncoder(started, release), 1, 1, Duration.ofMillis(100))) {
+
+            // when & then
+            assertThatThrownBy(() -> encoder.matches("password", "encoded:password"))
+                    .isInstanceOf(PasswordHashingRejectedException.class);
+
+            release.countDown();
+        }
+    }
+
+    private PasswordEncoder blockingEncoder(CountDownLatch started, CountDownLatch release) {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                await();
+                return "encoded:" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                await();
+                return encodedPassword.equals("encoded:" + rawPassword);
+            }
+
+            private void await() {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.handson.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * LoginAttemptThrottleのテスト
+ * ユーザー名ごとの失敗回数による一時ロックを検証
+ */
+class LoginAttemptThrottleTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final LoginAttemptThrottle throttle =
+            new LoginAttemptThrottle(1024, 16, 3, TimeUnit.MINUTES.toNanos(5), now::get);
+
+    @Test
+    void 失敗回数が上限に達するとロックされる() {
+        // when
+        throttle.recordFailure("alice");
+        throttle.recordFailure("alice");
+        assertThat(throttle.isBlocked("alice")).isFalse();
+        throttle.recordFailure("alice");
+
+        // then
+        assertThat(throttle.isBlocked("alice")).isTrue();
+    }
+
+    @Test
+    void 時間窓を過ぎるとロックが解除される() {
+        // given
+        for (int i = 0; i < 3; i++) {
+            throttle.recordFailure("bob");
+        }
+        assertThat(throttle.isBlocked("bob")).isTrue();
+
+        // when
+        now.addAndGet(TimeUnit.MINUTES.toNanos(5));
+
+        // then
+        assertThat(throttle.isBlocked("bob")).isFalse();
+    }
+
+    @Test
+    void ログイン成功で失敗回数がリセットされる() {
+        // given
+        throttle.recordFailure("carol");
+        throttle.recordFailure("carol");
+
+        // when
+        throttle.reset("carol");
+        throttle.recordFailure("carol");
+
+        // then
+        assertThat(throttle.isBlocked("carol")).isFalse();
+    }
+
+    @Test
+    void 同じストライプの別ユーザーの失敗ではロックされない() {
+        // given: ストライプが1つだけで、全ユーザーが衝突する
+        LoginAttemptThrottle shared = new LoginAttemptThrottle(1, 16, 3, TimeUnit.MINUTES.toNanos(5), now::get);
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            shared.recordFailure("mallory");
+        }
+
+        // then
+        assertThat(shared.isBlocked("mallory")).isTrue();
+        assertThat(shared.isBlocked("alice")).isFalse();
+    }
+
+    @Test
+    void 保持数を超えてもロック中のユーザー名は破棄されない() {
+        // given: 1ストライプに2件までで、aliceはロック中
+        LoginAttemptThrottle small = new LoginAttemptThrottle(1, 2, 3, TimeUnit.MINUTES.toNanos(5), now::get);
+        for (int i = 0; i < 3; i++) {
+            small.recordFailure("alice");
+        }
+
+        // when: 別のユーザー名への失敗で保持数を超える
+        small.recordFailure("bob");
+        small.recordFailure("carol");
+        small.recordFailure("dave");
+
+        // then
+        assertThat(small.isBlocked("alice")).isTrue();
+    }
+}
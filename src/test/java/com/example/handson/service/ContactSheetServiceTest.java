@@ -0,0 +1,88 @@
+package com.example.handson.service;
+
+import com.example.handson.config.MemoListProperties;
+import com.example.handson.config.S3Properties;
+import com.example.handson.domain.imagememo.ImageMemoImageRef;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * ContactSheetServiceのテスト
+ * 作成したコンタクトシートのキャッシュが、件数だけでなく画像の合計バイト数でも制限されることを検証
+ */
+class ContactSheetServiceTest {
+
+    private final ImageMemoService imageMemoService = mock(ImageMemoService.class);
+    private final S3Service s3Service = mock(S3Service.class);
+    private final MemoListProperties memoListProperties = new MemoListProperties();
+
+    private ContactSheetService contactSheetService;
+    private byte[] png;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        S3Properties s3Properties = new S3Properties();
+        s3Properties.setBucketName("test-bucket");
+        contactSheetService = new ContactSheetService(imageMemoService, s3Service, s3Properties, memoListProperties);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB), "png", out);
+        png = out.toByteArray();
+        when(s3Service.downloadImageStream(eq("test-bucket"), anyString())).thenAnswer(invocation ->
+                new ImageDownloadResult(new ByteArrayInputStream(png), "image/png", png.length));
+
+        // ページごとに別の画像メモ（同じ画像のため、どのページのコンタクトシートも同じサイズになる）
+        when(imageMemoService.findImageRefPage(eq(1L), any())).thenAnswer(invocation -> {
+            Pageable pageable = invocation.getArgument(1);
+            long first = pageable.getPageNumber() * 2L;
+            return List.of(new ImageMemoImageRef(first + 1, "blobs/ab/a.png"),
+                    new ImageMemoImageRef(first + 2, "blobs/ab/a.png"));
+        });
+    }
+
+    @Test
+    void 作成したコンタクトシートはキャッシュから返す() {
+        // given
+        ContactSheet first = contactSheetService.getContactSheet(1L, PageRequest.of(0, 2));
+
+        // when
+        ContactSheet second = contactSheetService.getContactSheet(1L, PageRequest.of(0, 2));
+
+        // then
+        assertThat(second).isSameAs(first);
+        verify(s3Service, times(2)).downloadImageStream(any(), any());
+    }
+
+    @Test
+    void 合計バイト数の上限を超えると最も長く参照されていないものから破棄する() {
+        // given: 1枚だけ収まる合計バイト数の上限
+        int sheetBytes = contactSheetService.getContactSheet(1L, PageRequest.of(0, 2)).image().length;
+        memoListProperties.getContactSheet().setCacheMaxTotalBytes(sheetBytes * 3L / 2);
+        contactSheetService.getContactSheet(1L, PageRequest.of(1, 2));
+
+        // when: 件数の上限（500件）には達していない
+        contactSheetService.getContactSheet(1L, PageRequest.of(1, 2));
+        contactSheetService.getContactSheet(1L, PageRequest.of(0, 2));
+
+        // then: 2ページ目はキャッシュから返し、破棄された1ページ目は作り直す（2枚分＋作り直しの2件）
+        verify(s3Service, times(6)).downloadImageStream(any(), any());
+    }
+}
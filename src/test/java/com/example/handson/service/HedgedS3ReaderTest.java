@@ -0,0 +1,156 @@
+package com.example.handson.service;
+
+import com.example.handson.concurrency.S3ConcurrencyLimits;
+import com.example.handson.config.S3Properties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * HedgedS3Readerのテスト
+ * 1回目のGETだけ応答を遅らせたスタブのS3Clientで、ヘッジの発火・予算・実行枠の返却を検証
+ */
+class HedgedS3ReaderTest {
+
+    private static final Duration STRAGGLER_LATENCY = Duration.ofMillis(500);
+
+    private final S3Client s3Client = mock(S3Client.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private S3Properties properties;
+    private S3ConcurrencyLimits limits;
+    private HedgedS3Reader reader;
+
+    @BeforeEach
+    void setUp() {
+        properties = new S3Properties();
+        properties.setReadConcurrency(new S3Properties.Concurrency(10, 1, 10, Duration.ofSeconds(1)));
+        properties.getHedge().setMinDelay(Duration.ofMillis(20));
+        properties.getHedge().setMaxDelay(Duration.ofMillis(20));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (reader != null) {
+            reader.close();
+        }
+    }
+
+    @Test
+    void 応答が遅い場合は2つ目のGETを送り先に応答した方を使う() throws Exception {
+        // given: 1回目のGETだけ応答が遅い
+        createReader();
+        stubFirstCallSlow();
+
+        // when
+        long start = System.nanoTime();
+        try (InputStream stream = reader.getObject("test-bucket", "blobs/ab/slow.jpg")) {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            // then: 遅い方の応答を待たずに返る
+            assertThat(elapsedMillis).isLessThan(STRAGGLER_LATENCY.toMillis());
+            assertThat(stream.readAllBytes()).isEqualTo("data".getBytes());
+        }
+        verify(s3Client, times(2)).getObject(any(GetObjectRequest.class));
+        assertThat(counter("s3.get.hedge.fired")).isEqualTo(1);
+        assertThat(counter("s3.get.hedge.won")).isEqualTo(1);
+
+        // 遅れた方も中断されて実行枠が返却される
+        awaitNoReadsInFlight();
+    }
+
+    @Test
+    void 応答が速い場合は2つ目のGETを送らない() throws Exception {
+        // given
+        createReader();
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> response());
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            reader.getObject("test-bucket", "blobs/ab/fast.jpg").close();
+        }
+
+        // then
+        verify(s3Client, times(10)).getObject(any(GetObjectRequest.class));
+        assertThat(counter("s3.get.hedge.fired")).isZero();
+        assertThat(limits.inFlightOf(S3ConcurrencyLimits.Pool.READ)).isZero();
+    }
+
+    @Test
+    void 予算を使い切った場合は2つ目のGETを送らない() throws Exception {
+        // given: 予算は最初の1件分のみで、リクエストごとに貯まらない
+        properties.getHedge().setBudgetRatio(0.0);
+        properties.getHedge().setBudgetBurst(1);
+        createReader();
+        stubFirstCallSlow();
+        reader.getObject("test-bucket", "blobs/ab/slow.jpg").close();
+
+        // when: 2件目の遅いGET
+        calls.set(0);
+        long start = System.nanoTime();
+        reader.getObject("test-bucket", "blobs/ab/slow.jpg").close();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // then: 1件目の応答を待つ
+        assertThat(elapsedMillis).isGreaterThanOrEqualTo(STRAGGLER_LATENCY.toMillis());
+        assertThat(counter("s3.get.hedge.fired")).isEqualTo(1);
+        assertThat(meterRegistry.get("s3.get.hedge.skipped").tag("reason", "budget").counter().count())
+                .isEqualTo(1);
+        awaitNoReadsInFlight();
+    }
+
+    private void createReader() {
+        limits = new S3ConcurrencyLimits(properties, meterRegistry);
+        reader = new HedgedS3Reader(s3Client, properties, limits, meterRegistry);
+    }
+
+    /**
+     * 1回目のGETはSTRAGGLER_LATENCYだけ遅らせ（中断された場合は即座に終了）、2回目以降はすぐに応答する
+     */
+    private void stubFirstCallSlow() {
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+            if (calls.getAndIncrement() == 0) {
+                Thread.sleep(STRAGGLER_LATENCY.toMillis());
+            }
+            return response();
+        });
+    }
+
+    private static ResponseInputStream<GetObjectResponse> response() {
+        return new ResponseInputStream<>(GetObjectResponse.builder().contentLength(4L).build(),
+                AbortableInputStream.create(new ByteArrayInputStream("data".getBytes())));
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    private void awaitNoReadsInFlight() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (limits.inFlightOf(S3ConcurrencyLimits.Pool.READ) > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(limits.inFlightOf(S3ConcurrencyLimits.Pool.READ)).isZero();
+    }
+}
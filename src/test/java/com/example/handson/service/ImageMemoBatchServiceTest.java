@@ -0,0 +1,233 @@
+package com.example.handson.service;
+
+import com.example.handson.TestcontainersConfiguration;
+import com.example.handson.concurrency.AdaptiveConcurrencyLimiter;
+import com.example.handson.concurrency.S3ConcurrencyLimits;
+import com.example.handson.domain.blob.BlobRepository;
+import com.example.handson.domain.imagememo.ImageMemo;
+import com.example.handson.domain.imagememo.ImageMemoRepository;
+import com.example.handson.domain.user.User;
+import com.example.handson.domain.user.UserRepository;
+import com.example.handson.dto.BatchUploadResult;
+import com.example.handson.exception.StorageException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * ImageMemoBatchServiceの統合テスト
+ * Testcontainers（PostgreSQL + LocalStack S3）を使用し、ファイルごとの結果と失敗時に参照・S3オブジェクトが残らないことを検証
+ */
+@SpringBootTest
+@Import(TestcontainersConfiguration.class)
+class ImageMemoBatchServiceTest {
+
+    @Autowired
+    private ImageMemoBatchService imageMemoBatchService;
+
+    @Autowired
+    private ImageMemoRepository imageMemoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BlobRepository blobRepository;
+
+    @Autowired
+    private S3Client s3Client;
+
+    @Autowired
+    private S3ConcurrencyLimits s3ConcurrencyLimits;
+
+    @MockitoSpyBean
+    private S3Service s3Service;
+
+    @Value("${app.s3.bucket-name:handson-app-bucket}")
+    private String bucketName;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        try {
+            s3Client.createBucket(CreateBucketRequest.builder()
+                    .bucket(bucketName)
+                    .build());
+        } catch (Exception e) {
+            // バケットが既に存在する場合は無視
+        }
+
+        testUser = userRepository.save(User.builder()
+                .username("batchuser-" + UUID.randomUUID().toString().substring(0, 8))
+                .password("password")
+                .enabled(true)
+                .build());
+    }
+
+    @Test
+    void 複数の画像メモを一括作成できる() {
+        // given
+        List<MultipartFile> files = List.of(image("sunset.jpg"), image("beach.png"), image("mountain.jpeg"));
+        long before = userRepository.findById(testUser.getId()).orElseThrow().getMemoListVersion();
+
+        // when
+        List<BatchUploadResult> results = imageMemoBatchService.createImageMemos(files, "旅行の写真", testUser);
+
+        // then: 入力の順序で結果を返し、タイトルはファイル名から拡張子を除いたもの
+        assertThat(results).extracting(BatchUploadResult::filename)
+                .containsExactly("sunset.jpg", "beach.png", "mountain.jpeg");
+        assertThat(results).allMatch(BatchUploadResult::isSuccess);
+
+        ImageMemo memo = imageMemoRepository.findByIdAndUserId(results.get(1).memoId(), testUser.getId()).orElseThrow();
+        assertThat(memo.getTitle()).isEqualTo("beach");
+        assertThat(memo.getDescription()).isEqualTo("旅行の写真");
+        assertThat(listObjects(memo.getS3Key())).isNotEmpty();
+
+        // 一覧バージョンは一括作成1回につき1回だけ更新する
+        assertThat(userRepository.findById(testUser.getId()).orElseThrow().getMemoListVersion()).isEqualTo(before + 1);
+    }
+
+    @Test
+    void 検証に失敗したファイルは理由を返し他のファイルは作成する() {
+        // given
+        List<MultipartFile> files = List.of(
+                image("ok.jpg"),
+                new MockMultipartFile("images", "notes.txt", "text/plain", "not an image".getBytes()),
+                new MockMultipartFile("images", "empty.jpg", "image/jpeg", new byte[0]));
+
+        // when
+        List<BatchUploadResult> results = imageMemoBatchService.createImageMemos(files, null, testUser);
+
+        // then
+        assertThat(results.get(0).isSuccess()).isTrue();
+        assertThat(results.get(1).isSuccess()).isFalse();
+        assertThat(results.get(1).errorMessage()).contains("許可されていないファイル形式です");
+        assertThat(results.get(2).isSuccess()).isFalse();
+        assertThat(results.get(2).errorMessage()).contains("空のファイル");
+    }
+
+    @Test
+    void 同じ内容の画像は1回だけアップロードし参照数をまとめて追加する() throws NoSuchAlgorithmException {
+        // given
+        byte[] content = ("batch duplicate " + UUID.randomUUID()).getBytes();
+        List<MultipartFile> files = List.of(
+                new MockMultipartFile("images", "a.jpg", "image/jpeg", content),
+                new MockMultipartFile("images", "b.jpg", "image/jpeg", content));
+
+        // when
+        List<BatchUploadResult> results = imageMemoBatchService.createImageMemos(files, null, testUser);
+
+        // then
+        assertThat(results).allMatch(BatchUploadResult::isSuccess);
+        assertThat(blobRepository.findById(sha256(content)).orElseThrow().getRefCount()).isEqualTo(2);
+        verify(s3Service, times(1)).uploadFile(eq(bucketName), any(), any(), any());
+    }
+
+    @Test
+    void S3へのアップロードに失敗したファイルは参照もS3オブジェクトも残さない() throws NoSuchAlgorithmException {
+        // given: PNGのアップロードだけ失敗させる
+        byte[] failing = ("batch failing " + UUID.randomUUID()).getBytes();
+        List<MultipartFile> files = List.of(
+                image("ok.jpg"),
+                new MockMultipartFile("images", "broken.png", "image/png", failing));
+        doThrow(new StorageException("ファイルのアップロードに失敗しました", null))
+                .when(s3Service).uploadFile(any(), any(), eq("image/png"), any());
+
+        // when
+        List<BatchUploadResult> results = imageMemoBatchService.createImageMemos(files, null, testUser);
+
+        // then
+        assertThat(results.get(0).isSuccess()).isTrue();
+        assertThat(results.get(1).isSuccess()).isFalse();
+        assertThat(blobRepository.findById(sha256(failing))).isEmpty();
+        assertThat(imageMemoRepository.findByUserIdOrderByCreatedAtDesc(testUser.getId())).hasSize(1);
+    }
+
+    @Test
+    void 書き込みの実行枠が埋まっている間は空くのを待ってアップロードする() {
+        // given: 他のリクエストが書き込みの実行枠をすべて使用中
+        List<AdaptiveConcurrencyLimiter.Permit> held = new ArrayList<>();
+        Optional<AdaptiveConcurrencyLimiter.Permit> permit;
+        while ((permit = s3ConcurrencyLimits.tryAcquire(S3ConcurrencyLimits.Pool.WRITE)).isPresent()) {
+            held.add(permit.get());
+        }
+        List<MultipartFile> files = List.of(image("wait1.jpg"), image("wait2.jpg"), image("wait3.jpg"));
+
+        // when: 一括アップロードの実行中に実行枠を返却する
+        CompletableFuture.runAsync(() -> held.forEach(AdaptiveConcurrencyLimiter.Permit::cancel),
+                CompletableFuture.delayedExecutor(300, TimeUnit.MILLISECONDS));
+        List<BatchUploadResult> results = imageMemoBatchService.createImageMemos(files, null, testUser);
+
+        // then: 実行枠が空くのを待ち、すべて保存する
+        assertThat(results).allMatch(BatchUploadResult::isSuccess);
+        assertThat(imageMemoRepository.findByUserIdOrderByCreatedAtDesc(testUser.getId())).hasSize(3);
+    }
+
+    @Test
+    void 上限を超えるファイル数は受け付けない() {
+        // given
+        List<MultipartFile> files = IntStream.range(0, 51)
+                .mapToObj(i -> (MultipartFile) image("photo" + i + ".jpg"))
+                .toList();
+
+        // when & then
+        assertThatThrownBy(() -> imageMemoBatchService.createImageMemos(files, null, testUser))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("50件まで");
+    }
+
+    @Test
+    void ファイル名から拡張子を除いてタイトルにする() {
+        assertThat(ImageMemoBatchService.titleOf("IMG_0001.JPG")).isEqualTo("IMG_0001");
+        assertThat(ImageMemoBatchService.titleOf("archive.tar.png")).isEqualTo("archive.tar");
+        assertThat(ImageMemoBatchService.titleOf(".png")).isEqualTo(".png");
+        assertThat(ImageMemoBatchService.titleOf("a".repeat(300) + ".jpg")).hasSize(255);
+    }
+
+    /**
+     * 他のテストの画像と内容が重複しないよう一意の内容にする
+     */
+    private static MockMultipartFile image(String filename) {
+        return new MockMultipartFile("images", filename, "image/jpeg",
+                ("batch content " + UUID.randomUUID()).getBytes());
+    }
+
+    private static String sha256(byte[] content) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    private List<?> listObjects(String s3Key) {
+        return s3Client.listObjectsV2(ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(s3Key)
+                .build()).contents();
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.handson.service;
+
+import com.example.handson.TestcontainersConfiguration;
+import com.example.handson.domain.imagememo.ImageMemo;
+import com.example.handson.domain.imagememo.ImageMemoExportRow;
+import com.example.handson.domain.imagememo.ImageMemoRepository;
+import com.example.handson.domain.user.User;
+import com.example.handson.domain.user.UserRepository;
+import com.example.handson.dto.BatchUploadResult;
+import com.example.handson.exception.StorageOverloadedException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * ImageMemoExportServiceの統合テスト
+ * Testcontainers（PostgreSQL + LocalStack S3）を使用し、ZIPのmanifest.jsonと画像の内容を検証
+ * 複数ページの読み取りを検証するため、ページの件数を小さくする
+ */
+@SpringBootTest(properties = {
+        "app.s3.export.page-size=3",
+        "app.s3.export.max-concurrent=1"
+})
+@Import(TestcontainersConfiguration.class)
+class ImageMemoExportServiceTest {
+
+    @Autowired
+    private ImageMemoExportService imageMemoExportService;
+
+    @Autowired
+    private ImageMemoBatchService imageMemoBatchService;
+
+    @Autowired
+    private ImageMemoRepository imageMemoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private S3Client s3Client;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.s3.bucket-name:handson-app-bucket}")
+    private String bucketName;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        try {
+            s3Client.createBucket(CreateBucketRequest.builder()
+                    .bucket(bucketName)
+                    .build());
+        } catch (Exception e) {
+            // バケットが既に存在する場合は無視
+        }
+
+        testUser = userRepository.save(User.builder()
+                .username("exportuser-" + UUID.randomUUID().toString().substring(0, 8))
+                .password("password")
+                .enabled(true)
+                .build());
+    }
+
+    @Test
+    void 全画像メモのmanifestと画像をZIPに書き込む() throws IOException {
+        // given: 先読み数（4）・ページの件数（3）より多い画像メモ
+        List<MultipartFile> files = IntStream.range(0, 7)
+                .mapToObj(i -> (MultipartFile) new MockMultipartFile("images", "photo" + i + ".jpg", "image/jpeg",
+                        ("export content " + UUID.randomUUID()).getBytes()))
+                .toList();
+        List<BatchUploadResult> created = imageMemoBatchService.createImageMemos(files, "書き出し", testUser);
+
+        // when
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int count = imageMemoExportService.export(testUser, out);
+
+        // then: 先頭がmanifest.json、続いて画像がmanifestと同じ順序で並ぶ
+        Map<String, byte[]> entries = readZip(out.toByteArray());
+        assertThat(count).isEqualTo(7);
+        assertThat(entries.keySet()).first().isEqualTo("manifest.json");
+
+        JsonNode manifest = objectMapper.readTree(entries.get("manifest.json"));
+        assertThat(manifest.get("version").asInt()).isEqualTo(1);
+        List<String> manifestFiles = new ArrayList<>();
+        manifest.get("memos").forEach(memo -> manifestFiles.add(memo.get("file").asText()));
+        assertThat(new ArrayList<>(entries.keySet()).subList(1, entries.size())).isEqualTo(manifestFiles);
+
+        JsonNode first = manifest.get("memos").get(0);
+        assertThat(first.get("title").asText()).isEqualTo("photo0");
+        assertThat(first.get("description").asText()).isEqualTo("書き出し");
+        assertThat(first.get("file").asText()).isEqualTo("images/" + created.get(0).memoId() + "-photo0.jpg");
+
+        // 画像はS3のオブジェクトと同じ内容
+        ImageMemo memo = imageMemoRepository.findByIdAndUserId(created.get(0).memoId(), testUser.getId()).orElseThrow();
+        byte[] stored = s3Client.getObjectAsBytes(GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(memo.getS3Key())
+                .build()).asByteArray();
+        assertThat(entries.get(first.get("file").asText())).isEqualTo(stored);
+    }
+
+    @Test
+    void 画像メモがなければmanifestだけのZIPを書き込む() throws IOException {
+        // when
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int count = imageMemoExportService.export(testUser, out);
+
+        // then
+        Map<String, byte[]> entries = readZip(out.toByteArray());
+        assertThat(count).isZero();
+        assertThat(entries).containsOnlyKeys("manifest.json");
+        assertThat(objectMapper.readTree(entries.get("manifest.json")).get("memos")).isEmpty();
+    }
+
+    @Test
+    void S3に画像がなくなっていた画像メモは飛ばしてエクスポートを続ける() throws IOException {
+        // given: エクスポート中に削除された画像メモ（S3の画像だけがなくなっている）
+        List<MultipartFile> files = IntStream.range(0, 4)
+                .mapToObj(i -> (MultipartFile) new MockMultipartFile("images", "photo" + i + ".jpg", "image/jpeg",
+                        ("export content " + UUID.randomUUID()).getBytes()))
+                .toList();
+        List<BatchUploadResult> created = imageMemoBatchService.createImageMemos(files, "書き出し", testUser);
+        ImageMemo deleted = imageMemoRepository.findByIdAndUserId(created.get(1).memoId(), testUser.getId()).orElseThrow();
+        s3Client.deleteObject(DeleteObjectRequest.builder()
+                .bucket(bucketName)
+                .key(deleted.getS3Key())
+                .build());
+
+        // when
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int count = imageMemoExportService.export(testUser, out);
+
+        // then: 例外で中断せず、残りの画像を書き込む（manifest.jsonには削除された画像メモも含まれる）
+        assertThat(count).isEqualTo(3);
+        Map<String, byte[]> entries = readZip(out.toByteArray());
+        assertThat(entries).hasSize(4).containsKey("manifest.json");
+        assertThat(entries.keySet()).noneMatch(name -> name.startsWith("images/" + deleted.getId() + "-"));
+        assertThat(objectMapper.readTree(entries.get("manifest.json")).get("memos")).hasSize(4);
+    }
+
+    @Test
+    void ZIPの書き込み中はDBのトランザクションを保持しない() throws IOException {
+        // given
+        List<MultipartFile> files = IntStream.range(0, 4)
+                .mapToObj(i -> (MultipartFile) new MockMultipartFile("images", "photo" + i + ".jpg", "image/jpeg",
+                        ("export content " + UUID.randomUUID()).getBytes()))
+                .toList();
+        imageMemoBatchService.createImageMemos(files, "書き出し", testUser);
+        List<Boolean> transactionActive = new ArrayList<>();
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) {
+                transactionActive.add(TransactionSynchronizationManager.isActualTransactionActive());
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                transactionActive.add(TransactionSynchronizationManager.isActualTransactionActive());
+            }
+        };
+
+        // when
+        int count = imageMemoExportService.export(testUser, out);
+
+        // then
+        assertThat(count).isEqualTo(4);
+        assertThat(transactionActive).isNotEmpty().containsOnly(false);
+    }
+
+    @Test
+    void 同時実行数の上限を超えるエクスポートは書き込まずに拒否する() throws IOException {
+        // given: 1件目のエクスポートの書き込み中に2件目を開始する（max-concurrent=1）
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        List<Throwable> rejected = new ArrayList<>();
+        OutputStream first = new OutputStream() {
+            @Override
+            public void write(int b) {
+                if (rejected.isEmpty()) {
+                    rejected.add(catchThrowable(() -> imageMemoExportService.export(testUser, second)));
+                }
+            }
+        };
+
+        // when
+        imageMemoExportService.export(testUser, first);
+
+        // then
+        assertThat(rejected).singleElement().isInstanceOf(StorageOverloadedException.class);
+        assertThat(second.size()).isZero();
+
+        // 完了後は再び受け付ける
+        assertThat(imageMemoExportService.export(testUser, new ByteArrayOutputStream())).isZero();
+    }
+
+    @Test
+    void ZIP内のファイル名はIDを付けて使えない文字を置き換える() {
+        assertThat(ImageMemoExportService.fileOf(row(12L, "旅行/2024: 夏?", "blobs/ab/abc.png")))
+                .isEqualTo("images/12-旅行_2024_ 夏_.png");
+        assertThat(ImageMemoExportService.fileOf(row(3L, "a".repeat(300), "blobs/ab/abc.jpg")))
+                .isEqualTo("images/3-" + "a".repeat(100) + ".jpg");
+    }
+
+    private static Map<String, byte[]> readZip(byte[] zip) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                entries.put(entry.getName(), in.readAllBytes());
+            }
+        }
+        return entries;
+    }
+
+    private static ImageMemoExportRow row(Long id, String title, String s3Key) {
+        return new ImageMemoExportRow() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getTitle() {
+                return title;
+            }
+
+            @Override
+            public String getDescription() {
+                return null;
+            }
+
+            @Override
+            public String getS3Key() {
+                return s3Key;
+            }
+
+            @Override
+            public LocalDateTime getCreatedAt() {
+                return LocalDateTime.now();
+            }
+
+            @Override
+            public LocalDateTime getUpdatedAt() {
+                return LocalDateTime.now();
+            }
+        };
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.handson.service;
+
+import com.example.handson.TestcontainersConfiguration;
+import com.example.handson.domain.imagememo.ImageMemo;
+import com.example.handson.domain.imagememo.ImageMemoRepository;
+import com.example.handson.domain.importjob.ImportJobRepository;
+import com.example.handson.domain.importjob.ImportJobState;
+import com.example.handson.domain.user.User;
+import com.example.handson.domain.user.UserRepository;
+import com.example.handson.dto.ImportJobStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * ImageMemoImportServiceの統合テスト
+ * Testcontainers（PostgreSQL + LocalStack S3）を使用し、メモリ上で作成したZIPのインポート結果と上限による中断を検証
+ */
+@SpringBootTest(properties = {
+        "app.s3.zip-import.max-entries=20",
+        "app.s3.zip-import.max-expanded-size=1048576",
+        "app.s3.zip-import.batch-size=2"
+})
+@Import(TestcontainersConfiguration.class)
+class ImageMemoImportServiceTest {
+
+    @Autowired
+    private ImageMemoImportService imageMemoImportService;
+
+    @Autowired
+    private ImageMemoRepository imageMemoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ImportJobRepository importJobRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private S3Client s3Client;
+
+    @Value("${app.s3.bucket-name:handson-app-bucket}")
+    private String bucketName;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        try {
+            s3Client.createBucket(CreateBucketRequest.builder()
+                    .bucket(bucketName)
+                    .build());
+        } catch (Exception e) {
+            // バケットが既に存在する場合は無視
+        }
+
+        testUser = userRepository.save(User.builder()
+                .username("importuser-" + UUID.randomUUID().toString().substring(0, 8))
+                .password("password")
+                .enabled(true)
+                .build());
+    }
+
+    @Test
+    void 画像のエントリを画像メモとして作成しmanifestのタイトルと説明を使う() throws IOException {
+        // given: エクスポートしたZIPと同じ構成（manifest.json + images/）に、取り込まないエントリを混ぜる
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("manifest.json", """
+                {"version":1,"memos":[{"id":1,"title":"夏の旅行","description":"海で撮影","file":"images/1-a.jpg"}]}
+                """.getBytes(StandardCharsets.UTF_8));
+        entries.put("images/", new byte[0]);
+        entries.put("images/1-a.jpg", image());
+        entries.put("images/2-b.png", image());
+        entries.put("images/notes.txt", "メモ".getBytes(StandardCharsets.UTF_8));
+        entries.put("__MACOSX/images/._1-a.jpg", new byte[]{0});
+        entries.put("images/3-c.gif", image());
+        Long jobId = imageMemoImportService.createJob(testUser).id();
+
+        // when
+        ImportJobStatus status = imageMemoImportService.importArchive(jobId, testUser, zip(entries)).orElseThrow();
+
+        // then
+        assertThat(status.state()).isEqualTo(ImportJobState.SUCCEEDED);
+        assertThat(status.finished()).isTrue();
+        assertThat(status.entriesRead()).isEqualTo(7);
+        assertThat(status.imported()).isEqualTo(3);
+        assertThat(status.skipped()).isEqualTo(1);
+        assertThat(status.failed()).isZero();
+        assertThat(status.errors()).singleElement().asString().startsWith("images/notes.txt: ");
+
+        List<ImageMemo> memos = imageMemoRepository.findByUserIdOrderByCreatedAtDesc(testUser.getId());
+        assertThat(memos).extracting(ImageMemo::getTitle).containsExactlyInAnyOrder("夏の旅行", "2-b", "3-c");
+        assertThat(memos).filteredOn(memo -> memo.getTitle().equals("夏の旅行"))
+                .singleElement().extracting(ImageMemo::getDescription).isEqualTo("海で撮影");
+
+        // 進捗の取得でも同じ状態が読める
+        assertThat(imageMemoImportService.findJob(jobId, testUser.getId())).contains(status);
+    }
+
+    @Test
+    void エントリ数が上限を超えたら中断しそれまでに保存したバッチは残す() throws IOException {
+        // given: 上限（20件）を超える21件
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (int i = 0; i < 21; i++) {
+            entries.put("photo" + i + ".jpg", image());
+        }
+        Long jobId = imageMemoImportService.createJob(testUser).id();
+
+        // when
+        ImportJobStatus status = imageMemoImportService.importArchive(jobId, testUser, zip(entries)).orElseThrow();
+
+        // then
+        assertThat(status.state()).isEqualTo(ImportJobState.FAILED);
+        assertThat(status.errorMessage()).contains("エントリ数が上限");
+        assertThat(status.imported()).isEqualTo(20);
+        assertThat(imageMemoRepository.findByUserIdOrderByCreatedAtDesc(testUser.getId())).hasSize(20);
+    }
+
+    @Test
+    void 展開後の合計サイズが上限を超えたら中断する() throws IOException {
+        // given: 圧縮後は小さいが展開すると上限（1MB）を超えるエントリ
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("bomb.jpg", new byte[2 * 1024 * 1024]);
+        byte[] archive = zip(entries).readAllBytes();
+        assertThat(archive.length).isLessThan(64 * 1024);
+        Long jobId = imageMemoImportService.createJob(testUser).id();
+
+        // when
+        ImportJobStatus status = imageMemoImportService.importArchive(
+                jobId, testUser, new ByteArrayInputStream(archive)).orElseThrow();
+
+        // then
+        assertThat(status.state()).isEqualTo(ImportJobState.FAILED);
+        assertThat(status.errorMessage()).contains("展開後のサイズが上限");
+        assertThat(status.imported()).isZero();
+        assertThat(imageMemoRepository.findByUserIdOrderByCreatedAtDesc(testUser.getId())).isEmpty();
+    }
+
+    @Test
+    void ZIP送信済みのインポートと他のユーザーのインポートは扱わない() throws IOException {
+        // given
+        Long jobId = imageMemoImportService.createJob(testUser).id();
+        imageMemoImportService.importArchive(jobId, testUser, zip(Map.of("a.jpg", image()))).orElseThrow();
+        User otherUser = userRepository.save(User.builder()
+                .username("importother-" + UUID.randomUUID().toString().substring(0, 8))
+                .password("password")
+                .enabled(true)
+                .build());
+
+        // when / then
+        assertThat(imageMemoImportService.importArchive(jobId, testUser, zip(Map.of("b.jpg", image())))).isEmpty();
+        assertThat(imageMemoImportService.importArchive(jobId, otherUser, zip(Map.of("c.jpg", image())))).isEmpty();
+        assertThat(imageMemoImportService.findJob(jobId, otherUser.getId())).isEmpty();
+        assertThat(imageMemoRepository.findByUserIdOrderByCreatedAtDesc(testUser.getId())).hasSize(1);
+    }
+
+    @Test
+    void 進捗が更新されないまま残ったインポートは中断扱いにする() throws IOException {
+        // given: 30分（stale-timeout）より前から更新されていない作成済み・インポート中のインポートと、最近のインポート
+        Long abandoned = imageMemoImportService.createJob(testUser).id();
+        Long interrupted = imageMemoImportService.createJob(testUser).id();
+        importJobRepository.start(interrupted, testUser.getId());
+        Long finished = imageMemoImportService.createJob(testUser).id();
+        imageMemoImportService.importArchive(finished, testUser, zip(Map.of("a.jpg", image()))).orElseThrow();
+        Long recent = imageMemoImportService.createJob(testUser).id();
+        jdbcTemplate.update("UPDATE import_jobs SET updated_at = CURRENT_TIMESTAMP - INTERVAL '1 hour' WHERE id IN (?, ?, ?)",
+                abandoned, interrupted, finished);
+
+        // when
+        int failed = imageMemoImportService.failStaleJobs();
+
+        // then
+        assertThat(failed).isGreaterThanOrEqualTo(2);
+        assertThat(imageMemoImportService.findJob(abandoned, testUser.getId())).get()
+                .satisfies(job -> {
+                    assertThat(job.state()).isEqualTo(ImportJobState.FAILED);
+                    assertThat(job.errorMessage()).isNotBlank();
+                });
+        assertThat(imageMemoImportService.findJob(interrupted, testUser.getId())).get()
+                .extracting(ImportJobStatus::state).isEqualTo(ImportJobState.FAILED);
+        assertThat(imageMemoImportService.findJob(finished, testUser.getId())).get()
+                .extracting(ImportJobStatus::state).isEqualTo(ImportJobState.SUCCEEDED);
+        assertThat(imageMemoImportService.findJob(recent, testUser.getId())).get()
+                .extracting(ImportJobStatus::state).isEqualTo(ImportJobState.PENDING);
+
+        // 中断扱いにしたインポートは開始できず、遅れて届いた進捗でも元に戻らない
+        assertThat(imageMemoImportService.importArchive(abandoned, testUser, zip(Map.of("b.jpg", image())))).isEmpty();
+        assertThat(importJobRepository.updateProgress(interrupted, ImportJobState.SUCCEEDED.name(),
+                1, 1, 0, 0, 0, "[]", null)).isZero();
+        assertThat(imageMemoImportService.findJob(interrupted, testUser.getId())).get()
+                .extracting(ImportJobStatus::state).isEqualTo(ImportJobState.FAILED);
+    }
+
+    @Test
+    void OSのメタデータファイルを判定する() {
+        assertThat(ImageMemoImportService.isSystemFile("__MACOSX/images/._a.jpg")).isTrue();
+        assertThat(ImageMemoImportService.isSystemFile("images/._a.jpg")).isTrue();
+        assertThat(ImageMemoImportService.isSystemFile("images/.DS_Store")).isTrue();
+        assertThat(ImageMemoImportService.isSystemFile("Thumbs.db")).isTrue();
+        assertThat(ImageMemoImportService.isSystemFile("images/a.jpg")).isFalse();
+    }
+
+    private static byte[] image() {
+        return ("import content " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ByteArrayInputStream zip(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.handson.service;
 
 import com.example.handson.TestcontainersConfiguration;
+import com.example.handson.domain.blob.BlobRepository;
 import com.example.handson.domain.imagememo.ImageMemo;
 import com.example.handson.domain.imagememo.ImageMemoRepository;
+import com.example.handson.domain.imagememo.ImageMemoSummary;
 import com.example.handson.domain.user.User;
 import com.example.handson.domain.user.UserRepository;
 import com.example.handson.dto.ImageMemoCreateDto;
+import com.example.handson.dto.MemoListCursor;
+import com.example.handson.dto.MemoListResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,8 +24,13 @@ import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.S3Object;
 
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.*;
@@ -43,6 +52,9 @@ class ImageMemoServiceTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private BlobRepository blobRepository;
+
     @Autowired
     private S3Client s3Client;
 
@@ -80,7 +92,7 @@ class ImageMemoServiceTest {
                 "image/jpeg",
                 "test image content".getBytes()
         );
-        ImageMemoCreateDto dto = new ImageMemoCreateDto("テストタイトル", "テスト説明", file);
+        ImageMemoCreateDto dto = new ImageMemoCreateDto("テストタイトル", "テスト説明", file, null);
 
         // when
         ImageMemo memo = imageMemoService.createImageMemo(dto, testUser);
@@ -89,7 +101,7 @@ class ImageMemoServiceTest {
         assertThat(memo.getId()).isNotNull();
         assertThat(memo.getTitle()).isEqualTo("テストタイトル");
         assertThat(memo.getDescription()).isEqualTo("テスト説明");
-        assertThat(memo.getS3Key()).startsWith("uploads/" + testUser.getId() + "/");
+        assertThat(memo.getS3Key()).startsWith("blobs/");
         assertThat(memo.getS3Key()).endsWith(".jpg");
         assertThat(memo.getUser().getId()).isEqualTo(testUser.getId());
         assertThat(memo.getCreatedAt()).isNotNull();
@@ -102,10 +114,32 @@ class ImageMemoServiceTest {
         assertThat(response).isNotNull();
     }
 
+    @Test
+    void 画像メモの作成と削除で一覧バージョンが更新される() throws IOException {
+        // given
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "test.jpg",
+                "image/jpeg",
+                "test image content".getBytes()
+        );
+        long before = userRepository.findById(testUser.getId()).orElseThrow().getMemoListVersion();
+
+        // when
+        ImageMemo memo = imageMemoService.createImageMemo(new ImageMemoCreateDto("タイトル", "説明", file, null), testUser);
+        long afterCreate = userRepository.findById(testUser.getId()).orElseThrow().getMemoListVersion();
+        imageMemoService.deleteImageMemo(memo.getId(), testUser.getId());
+        long afterDelete = userRepository.findById(testUser.getId()).orElseThrow().getMemoListVersion();
+
+        // then
+        assertThat(afterCreate).isEqualTo(before + 1);
+        assertThat(afterDelete).isEqualTo(before + 2);
+    }
+
     @Test
     void 画像ファイルがnullの場合は例外がスローされる() {
         // given
-        ImageMemoCreateDto dto = new ImageMemoCreateDto("タイトル", "説明", null);
+        ImageMemoCreateDto dto = new ImageMemoCreateDto("タイトル", "説明", null, null);
 
         // when & then
         assertThatThrownBy(() -> imageMemoService.createImageMemo(dto, testUser))
@@ -122,7 +156,7 @@ class ImageMemoServiceTest {
                 "image/jpeg",
                 new byte[0]
         );
-        ImageMemoCreateDto dto = new ImageMemoCreateDto("タイトル", "説明", emptyFile);
+        ImageMemoCreateDto dto = new ImageMemoCreateDto("タイトル", "説明", emptyFile, null);
 
         // when & then
         // 注: MultipartFile.isEmpty()はサイズが0の場合にtrueを返すため、
@@ -142,7 +176,7 @@ class ImageMemoServiceTest {
                     "image/jpeg",
                     ("test content " + i).getBytes()
             );
-            ImageMemoCreateDto dto = new ImageMemoCreateDto("タイトル" + i, "説明" + i, file);
+            ImageMemoCreateDto dto = new ImageMemoCreateDto("タイトル" + i, "説明" + i, file, null);
             imageMemoService.createImageMemo(dto, testUser);
         }
 
@@ -157,6 +191,32 @@ class ImageMemoServiceTest {
         assertThat(page.getContent().get(0).getTitle()).isEqualTo("タイトル3");
     }
 
+    @Test
+    void JSON_API用の一覧をキーセット方式で最後のページまで取得できる() throws IOException {
+        // given: 5件の画像メモを作成
+        for (int i = 1; i <= 5; i++) {
+            MockMultipartFile file = new MockMultipartFile(
+                    "file",
+                    "test" + i + ".jpg",
+                    "image/jpeg",
+                    ("summary content " + UUID.randomUUID()).getBytes()
+            );
+            imageMemoService.createImageMemo(new ImageMemoCreateDto("タイトル" + i, "説明" + i, file, null), testUser);
+        }
+
+        // when: 2件ずつ、前ページのnextを指定して続きを取得
+        MemoListResult first = imageMemoService.findSummaries(testUser.getId(), null, 2);
+        MemoListResult second = imageMemoService.findSummaries(testUser.getId(), first.next(), 2);
+        MemoListResult last = imageMemoService.findSummaries(testUser.getId(), second.next(), 2);
+
+        // then: 作成日時の降順で重複・欠落なく取得でき、最終ページのnextはnull
+        assertThat(first.memos()).extracting(ImageMemoSummary::title).containsExactly("タイトル5", "タイトル4");
+        assertThat(second.memos()).extracting(ImageMemoSummary::title).containsExactly("タイトル3", "タイトル2");
+        assertThat(last.memos()).extracting(ImageMemoSummary::title).containsExactly("タイトル1");
+        assertThat(last.next()).isNull();
+        assertThat(MemoListCursor.decode(first.next().encode())).isEqualTo(first.next());
+    }
+
     @Test
     void IDとユーザーIDで画像メモを取得できる() throws IOException {
         // given
@@ -166,7 +226,7 @@ class ImageMemoServiceTest {
                 "image/jpeg",
                 "test content".getBytes()
         );
-        ImageMemoCreateDto dto = new ImageMemoCreateDto("タイトル", "説明", file);
+        ImageMemoCreateDto dto = new ImageMemoCreateDto("タイトル", "説明", file, null);
         ImageMemo created = imageMemoService.createImageMemo(dto, testUser);
 
         // when
@@ -194,7 +254,7 @@ class ImageMemoServiceTest {
                 "image/jpeg",
                 "test content".getBytes()
         );
-        ImageMemoCreateDto dto = new ImageMemoCreateDto("他人のメモ", "説明", file);
+        ImageMemoCreateDto dto = new ImageMemoCreateDto("他人のメモ", "説明", file, null);
         ImageMemo otherMemo = imageMemoService.createImageMemo(dto, otherUser);
 
         // when
@@ -206,14 +266,14 @@ class ImageMemoServiceTest {
 
     @Test
     void 画像メモを削除できる() throws IOException {
-        // given
+        // given: 他のテストの画像メモと内容が重複しないよう一意の内容にする
         MockMultipartFile file = new MockMultipartFile(
                 "file",
                 "test.jpg",
                 "image/jpeg",
-                "test content".getBytes()
+                ("test content " + UUID.randomUUID()).getBytes()
         );
-        ImageMemoCreateDto dto = new ImageMemoCreateDto("削除対象", "説明", file);
+        ImageMemoCreateDto dto = new ImageMemoCreateDto("削除対象", "説明", file, null);
         ImageMemo memo = imageMemoService.createImageMemo(dto, testUser);
         String s3Key = memo.getS3Key();
 
@@ -256,7 +316,7 @@ class ImageMemoServiceTest {
                 "image/jpeg",
                 "test content".getBytes()
         );
-        ImageMemoCreateDto dto = new ImageMemoCreateDto("他人のメモ", "説明", file);
+        ImageMemoCreateDto dto = new ImageMemoCreateDto("他人のメモ", "説明", file, null);
         ImageMemo otherMemo = imageMemoService.createImageMemo(dto, otherUser);
 
         // when & then
@@ -264,4 +324,90 @@ class ImageMemoServiceTest {
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("画像メモが見つかりません");
     }
+
+    @Test
+    void 検索キーワードは前方一致のAND条件に変換され演算子は除去される() {
+        // when & then
+        assertThat(ImageMemoService.toPrefixQuery("  Tokyo   night ")).isEqualTo("tokyo:* & night:*");
+        assertThat(ImageMemoService.toPrefixQuery("a|b !c (d) e':*")).isEqualTo("ab:* & c:* & d:* & e:*");
+        assertThat(ImageMemoService.toPrefixQuery("&& ||")).isEmpty();
+        assertThat(ImageMemoService.toPrefixQuery(null)).isEmpty();
+    }
+
+    @Test
+    void 同じ内容の画像は1つのS3オブジェクトを共有し最後の参照の削除でS3から削除される() throws IOException {
+        // given
+        byte[] content = ("duplicate content " + UUID.randomUUID()).getBytes();
+        ImageMemo first = imageMemoService.createImageMemo(new ImageMemoCreateDto("1枚目", null,
+                new MockMultipartFile("image", "a.jpg", "image/jpeg", content), null), testUser);
+
+        // when
+        ImageMemo second = imageMemoService.createImageMemo(new ImageMemoCreateDto("2枚目", null,
+                new MockMultipartFile("image", "b.jpg", "image/jpeg", content), null), testUser);
+
+        // then
+        assertThat(second.getS3Key()).isEqualTo(first.getS3Key());
+        assertThat(blobRepository.findById(contentHashOf(first)).orElseThrow().getRefCount()).isEqualTo(2);
+
+        // 1件目の削除ではS3オブジェクトを残す
+        imageMemoService.deleteImageMemo(first.getId(), testUser.getId());
+        assertThat(listObjects(second.getS3Key())).hasSize(1);
+
+        // 最後の参照の削除でS3オブジェクトとblobsの行を削除する
+        imageMemoService.deleteImageMemo(second.getId(), testUser.getId());
+        assertThat(listObjects(second.getS3Key())).isEmpty();
+        assertThat(blobRepository.findById(contentHashOf(second))).isEmpty();
+    }
+
+    @Test
+    void 保存済みの画像は内容ハッシュの指定だけで再利用できる() throws Exception {
+        // given
+        byte[] content = ("reuse content " + UUID.randomUUID()).getBytes();
+        MockMultipartFile file = new MockMultipartFile("image", "test.png", "image/png", content);
+        ImageMemo original = imageMemoService.createImageMemo(
+                new ImageMemoCreateDto("元の画像", null, file, null), testUser);
+
+        // when: ブラウザと同じく、アップロード前のバイト列のSHA-256を指定
+        ImageMemo reused = imageMemoService.createImageMemo(
+                new ImageMemoCreateDto("再利用", null, null, sha256(content)), testUser);
+
+        // then
+        assertThat(reused.getS3Key()).isEqualTo(original.getS3Key());
+        assertThat(blobRepository.findById(contentHashOf(original)).orElseThrow().getRefCount()).isEqualTo(2);
+    }
+
+    @Test
+    void 他ユーザーの画像は内容ハッシュを指定しても再利用できない() throws Exception {
+        // given
+        User otherUser = userRepository.save(User.builder()
+                .username("otheruser3-" + UUID.randomUUID().toString().substring(0, 8))
+                .password("password")
+                .enabled(true)
+                .build());
+        byte[] content = ("other content " + UUID.randomUUID()).getBytes();
+        imageMemoService.createImageMemo(new ImageMemoCreateDto("他人の画像", null,
+                new MockMultipartFile("image", "test.png", "image/png", content), null), otherUser);
+
+        // when & then
+        assertThatThrownBy(() -> imageMemoService.createImageMemo(
+                new ImageMemoCreateDto("再利用", null, null, sha256(content)), testUser))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("画像ファイルを選択し直してください");
+    }
+
+    private String contentHashOf(ImageMemo memo) {
+        String fileName = memo.getS3Key().substring(memo.getS3Key().lastIndexOf('/') + 1);
+        return fileName.substring(0, fileName.indexOf('.'));
+    }
+
+    private static String sha256(byte[] content) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    private List<S3Object> listObjects(String s3Key) {
+        return s3Client.listObjectsV2(ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(s3Key)
+                .build()).contents();
+    }
 }
@@ -0,0 +1,154 @@
+package com.example.handson.service;
+
+import com.example.handson.concurrency.S3ConcurrencyLimits;
+import com.example.handson.config.S3Properties;
+import com.example.handson.exception.StorageOverloadedException;
+import com.example.handson.image.StagedImage;
+import io.awspring.cloud.s3.S3Template;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * S3Serviceの同時実行数制限のテスト
+ * 応答を遅らせたスタブのS3Client（読み取り）とS3Template（書き込み）で、上限超過時に待たずに拒否すること、
+ * 読み取りと書き込みが互いの実行枠を使わないこと、遅延に応じて上限が下がることを検証
+ */
+class S3ServiceConcurrencyTest {
+
+    private static final int READ_LIMIT = 4;
+
+    private final S3Template s3Template = mock(S3Template.class);
+    private final S3Client s3Client = mock(S3Client.class);
+    private final CountDownLatch s3Responds = new CountDownLatch(1);
+    private final AtomicInteger waitingReads = new AtomicInteger();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private S3ConcurrencyLimits limits;
+    private HedgedS3Reader hedgedS3Reader;
+    private S3Service s3Service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        S3Properties properties = new S3Properties();
+        properties.setBucketName("test-bucket");
+        properties.setReadConcurrency(new S3Properties.Concurrency(READ_LIMIT, 1, 10, Duration.ofMillis(50)));
+        properties.setWriteConcurrency(new S3Properties.Concurrency(2, 1, 2, Duration.ofSeconds(5)));
+        // ヘッジの実行枠の使い方はHedgedS3ReaderTestで検証する
+        properties.getHedge().setEnabled(false);
+        limits = new S3ConcurrencyLimits(properties, new SimpleMeterRegistry());
+        hedgedS3Reader = new HedgedS3Reader(s3Client, properties, limits, new SimpleMeterRegistry());
+        s3Service = new S3Service(s3Template, properties, limits, hedgedS3Reader);
+
+        // S3の応答遅延: s3Respondsが開くまでGetObjectが返らない
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+            waitingReads.incrementAndGet();
+            s3Responds.await(10, TimeUnit.SECONDS);
+            return new ResponseInputStream<>(GetObjectResponse.builder().contentLength(4L).build(),
+                    AbortableInputStream.create(new ByteArrayInputStream("data".getBytes())));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        s3Responds.countDown();
+        executor.shutdownNow();
+        hedgedS3Reader.close();
+    }
+
+    @Test
+    void S3が遅い間は上限を超えた読み取りを待たずに拒否する() throws Exception {
+        // given: 上限まで遅い読み取りを実行中にする
+        List<Future<ImageDownloadResult>> slowReads = startSlowReads(READ_LIMIT);
+
+        // when
+        long start = System.nanoTime();
+        for (int i = 0; i < 8; i++) {
+            assertThatThrownBy(() -> s3Service.downloadImageStream("test-bucket", "blobs/ab/slow.jpg"))
+                    .isInstanceOf(StorageOverloadedException.class);
+        }
+        long rejectionMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // then: 拒否したリクエストはS3にアクセスせず、応答を待たない
+        assertThat(rejectionMillis).isLessThan(1000);
+        verify(s3Client, times(READ_LIMIT)).getObject(any(GetObjectRequest.class));
+
+        // 遅延を観測したため上限が下がる（実行中だった操作の分は重ねて下げない）
+        Thread.sleep(100);
+        s3Responds.countDown();
+        for (Future<ImageDownloadResult> read : slowReads) {
+            read.get(10, TimeUnit.SECONDS).inputStream().close();
+        }
+        assertThat(limits.limitOf(S3ConcurrencyLimits.Pool.READ)).isEqualTo(READ_LIMIT - 1);
+    }
+
+    @Test
+    void 読み取りが上限に達していても書き込みは実行できる() throws Exception {
+        // given
+        startSlowReads(READ_LIMIT);
+        StagedImage image = new StagedImage("image".getBytes(), "new", "new");
+
+        // when
+        s3Service.uploadFile("test-bucket", image, "image/jpeg", "blobs/ab/new.jpg");
+
+        // then
+        verify(s3Template).upload(any(), any(), any(InputStream.class), any());
+    }
+
+    @Test
+    void 実行枠はストリームをcloseするまで保持される() throws Exception {
+        // given
+        s3Responds.countDown();
+        List<ImageDownloadResult> results = new ArrayList<>();
+        for (int i = 0; i < READ_LIMIT; i++) {
+            results.add(s3Service.downloadImageStream("test-bucket", "blobs/ab/fast.jpg"));
+        }
+
+        // when & then
+        assertThatThrownBy(() -> s3Service.downloadImageStream("test-bucket", "blobs/ab/fast.jpg"))
+                .isInstanceOf(StorageOverloadedException.class);
+        try (InputStream stream = results.getFirst().inputStream()) {
+            assertThat(stream.readAllBytes()).isEqualTo("data".getBytes());
+        }
+        assertThat(s3Service.downloadImageStream("test-bucket", "blobs/ab/fast.jpg")).isNotNull();
+    }
+
+    private List<Future<ImageDownloadResult>> startSlowReads(int count) throws InterruptedException {
+        List<Future<ImageDownloadResult>> reads = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            reads.add(executor.submit(() -> s3Service.downloadImageStream("test-bucket", "blobs/ab/slow.jpg")));
+        }
+        // すべての読み取りがS3の応答待ちになるまで待つ
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (waitingReads.get() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return reads;
+    }
+}
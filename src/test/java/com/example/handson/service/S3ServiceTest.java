@@ -1,6 +1,7 @@
 package com.example.handson.service;
 
 import com.example.handson.TestcontainersConfiguration;
+import com.example.handson.image.StagedImage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,7 +13,8 @@ import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 
-import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -45,7 +47,7 @@ class S3ServiceTest {
     }
 
     @Test
-    void ファイルをS3にアップロードできる() throws IOException {
+    void ファイルをS3にアップロードできる() throws Exception {
         // given
         MockMultipartFile file = new MockMultipartFile(
                 "file",
@@ -55,11 +57,11 @@ class S3ServiceTest {
         );
 
         // when
-        String s3Key = s3Service.uploadFile(TEST_BUCKET, file, "user123");
+        String s3Key = upload(file);
 
         // then
         assertThat(s3Key).isNotNull();
-        assertThat(s3Key).startsWith("uploads/user123/");  // マルチユーザーアプリケーションのベストプラクティス: userIdでパスを分離
+        assertThat(s3Key).startsWith("blobs/");  // 内容のSHA-256をキーにし、同じ内容の画像は1つのオブジェクトを共有
         assertThat(s3Key).endsWith(".jpg");
 
         // S3に実際にファイルが存在することを確認
@@ -72,7 +74,7 @@ class S3ServiceTest {
 
 
     @Test
-    void S3からファイルを削除できる() throws IOException {
+    void S3からファイルを削除できる() throws Exception {
         // given
         MockMultipartFile file = new MockMultipartFile(
                 "file",
@@ -80,7 +82,7 @@ class S3ServiceTest {
                 "image/jpeg",
                 "test image content".getBytes()
         );
-        String s3Key = s3Service.uploadFile(TEST_BUCKET, file, "user123");
+        String s3Key = upload(file);
 
         // when
         s3Service.deleteFile(TEST_BUCKET, s3Key);
@@ -105,7 +107,7 @@ class S3ServiceTest {
         );
 
         // when & then
-        assertThatThrownBy(() -> s3Service.uploadFile(TEST_BUCKET, file, "user123"))
+        assertThatThrownBy(() -> s3Service.validateFile(file))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("許可されていないファイル形式");
     }
@@ -122,7 +124,7 @@ class S3ServiceTest {
         );
 
         // when & then
-        assertThatThrownBy(() -> s3Service.uploadFile(TEST_BUCKET, file, "user123"))
+        assertThatThrownBy(() -> s3Service.validateFile(file))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("ファイルサイズ");
     }
@@ -138,13 +140,13 @@ class S3ServiceTest {
         );
 
         // when & then
-        assertThatThrownBy(() -> s3Service.uploadFile(TEST_BUCKET, file, "user123"))
+        assertThatThrownBy(() -> s3Service.validateFile(file))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("空のファイル");
     }
 
     @Test
-    void S3から画像をストリーミングダウンロードできる() throws IOException {
+    void S3から画像をストリーミングダウンロードできる() throws Exception {
         // given
         MockMultipartFile file = new MockMultipartFile(
                 "file",
@@ -152,7 +154,7 @@ class S3ServiceTest {
                 "image/jpeg",
                 "test image content".getBytes()
         );
-        String s3Key = s3Service.uploadFile(TEST_BUCKET, file, "user123");
+        String s3Key = upload(file);
 
         // when
         ImageDownloadResult result = s3Service.downloadImageStream(TEST_BUCKET, s3Key);
@@ -170,7 +172,7 @@ class S3ServiceTest {
     }
 
     @Test
-    void PNG画像の場合Content_Typeが正しく設定される() throws IOException {
+    void PNG画像の場合Content_Typeが正しく設定される() throws Exception {
         // given
         MockMultipartFile file = new MockMultipartFile(
                 "file",
@@ -178,7 +180,7 @@ class S3ServiceTest {
                 "image/png",
                 "test image content".getBytes()
         );
-        String s3Key = s3Service.uploadFile(TEST_BUCKET, file, "user123");
+        String s3Key = upload(file);
 
         // when
         ImageDownloadResult result = s3Service.downloadImageStream(TEST_BUCKET, s3Key);
@@ -187,4 +189,24 @@ class S3ServiceTest {
         assertThat(result.contentType()).isEqualTo("image/png");
         result.inputStream().close();
     }
+
+    @Test
+    void S3キーは内容のSHA_256と拡張子から生成される() {
+        // given
+        String contentHash = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+        // when
+        String s3Key = s3Service.generateS3Key(contentHash, "photo.JPG");
+
+        // then
+        assertThat(s3Key).isEqualTo("blobs/9f/" + contentHash + ".jpg");
+    }
+
+    private String upload(MockMultipartFile file) throws Exception {
+        String contentHash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(file.getBytes()));
+        String s3Key = s3Service.generateS3Key(contentHash, file.getOriginalFilename());
+        s3Service.uploadFile(TEST_BUCKET, new StagedImage(file.getBytes(), contentHash, contentHash),
+                file.getContentType(), s3Key);
+        return s3Key;
+    }
 }
@@ -0,0 +1,214 @@
+package com.example.handson.session;
+
+import com.example.handson.TestcontainersConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.session.FindByIndexNameSessionRepository;
+import org.springframework.session.security.SpringSessionBackedSessionRegistry;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * JdbcNearCacheSessionRepositoryのテスト
+ * PostgreSQLへの保存、ニアキャッシュ、最終アクセス時刻のバッチ書き戻しを検証
+ */
+@SpringBootTest
+@Import(TestcontainersConfiguration.class)
+class JdbcNearCacheSessionRepositoryTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicLong now = new AtomicLong();
+
+    private JdbcNearCacheSessionRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM http_sessions");
+        repository = newRepository();
+    }
+
+    @Test
+    void セッションを保存して別インスタンスから読み込める() {
+        // given
+        var session = repository.createSession();
+        session.setAttribute("greeting", "hello");
+        repository.save(session);
+
+        // when: 別タスクを想定した別インスタンスから読み込み
+        var found = newRepository().findById(session.getId());
+
+        // then
+        assertThat(found).isNotNull();
+        assertThat((String) found.getAttribute("greeting")).isEqualTo("hello");
+    }
+
+    @Test
+    void ニアキャッシュの有効期間内はDBを参照しない() {
+        // given
+        var session = repository.createSession();
+        repository.save(session);
+        jdbcTemplate.update("DELETE FROM http_sessions WHERE session_id = ?", session.getId());
+
+        // when & then: キャッシュから返る
+        assertThat(repository.findById(session.getId())).isNotNull();
+
+        // TTL経過後はDBを参照する
+        now.addAndGet(TimeUnit.SECONDS.toNanos(3));
+        assertThat(repository.findById(session.getId())).isNull();
+    }
+
+    @Test
+    void 最終アクセス時刻のみの更新はバッチで書き戻される() {
+        // given
+        var session = repository.createSession();
+        repository.save(session);
+        long before = lastAccessTime(session.getId());
+
+        // when
+        var loaded = repository.findById(session.getId());
+        loaded.setLastAccessedTime(Instant.ofEpochMilli(before).plusSeconds(10));
+        repository.save(loaded);
+
+        // then: バッチ書き戻しまではDBに反映されない
+        assertThat(lastAccessTime(session.getId())).isEqualTo(before);
+
+        repository.flushPendingAccessTimes();
+        assertThat(lastAccessTime(session.getId())).isEqualTo(before + 10_000);
+    }
+
+    @Test
+    void ユーザー名でセッションを検索できる() {
+        // given
+        var session = repository.createSession();
+        session.setAttribute(FindByIndexNameSessionRepository.PRINCIPAL_NAME_INDEX_NAME, "alice");
+        repository.save(session);
+
+        // when
+        var sessions = repository.findByPrincipalName("alice");
+
+        // then
+        assertThat(sessions).containsOnlyKeys(session.getId());
+    }
+
+    @Test
+    void セッションIDを変更できる() {
+        // given
+        var session = repository.createSession();
+        repository.save(session);
+        String oldId = session.getId();
+
+        // when
+        var loaded = repository.findById(oldId);
+        String newId = loaded.changeSessionId();
+        repository.save(loaded);
+
+        // then
+        assertThat(newRepository().findById(oldId)).isNull();
+        assertThat(newRepository().findById(newId)).isNotNull();
+    }
+
+    @Test
+    void 削除したセッションは取得できない() {
+        // given
+        var session = repository.createSession();
+        repository.save(session);
+
+        // when
+        repository.deleteById(session.getId());
+
+        // then
+        assertThat(repository.findById(session.getId())).isNull();
+    }
+
+    @Test
+    void 別インスタンスで削除したセッションは属性を変更して保存しても作り直さない() {
+        // given: 別タスクのニアキャッシュにセッションが残っている
+        var session = repository.createSession();
+        repository.save(session);
+        var other = newRepository();
+        var cached = other.findById(session.getId());
+
+        // when: 一方のタスクでログアウト（削除）した後、もう一方のタスクで属性を変更して保存
+        repository.deleteById(session.getId());
+        cached.setAttribute("csrf", "token");
+        other.save(cached);
+
+        // then
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM http_sessions WHERE session_id = ?",
+                Integer.class, session.getId())).isZero();
+        assertThat(other.findById(session.getId())).isNull();
+    }
+
+    @Test
+    void 別インスタンスで失効させたセッションは古いスナップショットから保存しても有効に戻らない() {
+        // given: 別タスクのニアキャッシュに失効前のセッションが残っている
+        var session = repository.createSession();
+        session.setAttribute(FindByIndexNameSessionRepository.PRINCIPAL_NAME_INDEX_NAME, "alice");
+        repository.save(session);
+        var other = newRepository();
+        var cached = other.findById(session.getId());
+
+        // when: 一方のタスクで同時セッション制御により失効させた後、もう一方のタスクで属性を変更して保存
+        new SpringSessionBackedSessionRegistry<>(repository).getSessionInformation(session.getId()).expireNow();
+        cached.setAttribute("csrf", "token");
+        other.save(cached);
+
+        // then
+        var registry = new SpringSessionBackedSessionRegistry<>(newRepository());
+        assertThat(registry.getSessionInformation(session.getId()).isExpired()).isTrue();
+        assertThat(other.findById(session.getId()).getAttributeNames())
+                .contains("csrf", FindByIndexNameSessionRepository.PRINCIPAL_NAME_INDEX_NAME);
+    }
+
+    @Test
+    void 別インスタンスで同時に変更した属性は互いに上書きしない() {
+        // given: 2つのタスクが同じセッションを読み込み済み
+        var session = repository.createSession();
+        session.setAttribute("removed", "value");
+        repository.save(session);
+        var other = newRepository();
+        var first = repository.findById(session.getId());
+        var second = other.findById(session.getId());
+
+        // when: それぞれ別の属性を変更して保存
+        first.setAttribute("first", 1);
+        first.removeAttribute("removed");
+        repository.save(first);
+        second.setAttribute("second", 2);
+        other.save(second);
+
+        // then: 両方の変更が残り、削除した属性は戻らない
+        var found = newRepository().findById(session.getId());
+        assertThat((Integer) found.getAttribute("first")).isEqualTo(1);
+        assertThat((Integer) found.getAttribute("second")).isEqualTo(2);
+        assertThat(found.getAttributeNames()).doesNotContain("removed");
+
+        // 保存したタスクのニアキャッシュにも他タスクの変更が反映される
+        assertThat((Integer) other.findById(session.getId()).getAttribute("first")).isEqualTo(1);
+    }
+
+    private JdbcNearCacheSessionRepository newRepository() {
+        return new JdbcNearCacheSessionRepository(jdbcTemplate, transactionManager, Duration.ofMinutes(30),
+                Duration.ofSeconds(2), getClass().getClassLoader(), now::get);
+    }
+
+    private long lastAccessTime(String sessionId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT last_access_time FROM http_sessions WHERE session_id = ?", Long.class, sessionId);
+    }
+}
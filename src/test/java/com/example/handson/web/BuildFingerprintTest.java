@@ -0,0 +1,24 @@
+package com.example.handson.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * BuildFingerprintのテスト
+ * 静的リソース・テンプレート・クラスから同じ識別子が計算されることを検証
+ */
+class BuildFingerprintTest {
+
+    @Test
+    void 同じ内容からは同じ識別子を計算する() throws Exception {
+        // when
+        String first = BuildFingerprint.compute(new PathMatchingResourcePatternResolver());
+        String second = BuildFingerprint.compute(new PathMatchingResourcePatternResolver());
+
+        // then
+        assertThat(first).hasSize(12).matches("[0-9a-f]+");
+        assertThat(second).isEqualTo(first);
+    }
+}
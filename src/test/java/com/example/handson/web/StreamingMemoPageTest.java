@@ -0,0 +1,84 @@
+package com.example.handson.web;
+
+import com.example.handson.domain.imagememo.ImageMemoSummary;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * StreamingMemoPageのテスト
+ * 送信（フラッシュ）・一覧の取得・件数の取得が描画の順に行われることを検証
+ */
+class StreamingMemoPageTest {
+
+    private final List<String> events = new ArrayList<>();
+
+    @Test
+    void 一覧の取得前とカード1件ごとに送信し件数は最後に取得する() {
+        // given: 1ページ2件で、2ページ目以降もある
+        StreamingMemoPage page = page(0, 2, memos(2), 5);
+
+        // when: テンプレートと同じ順に参照する
+        for (ImageMemoSummary memo : page.getContent()) {
+            events.add("card " + memo.id());
+        }
+        int totalPages = page.getTotalPages();
+
+        // then
+        assertThat(events).containsExactly("flush", "load", "card 1", "flush", "card 2", "flush", "count");
+        assertThat(totalPages).isEqualTo(3);
+        assertThat(page.getNumber()).isZero();
+    }
+
+    @Test
+    void 最終ページが埋まらない場合は件数を取得しない() {
+        // given: 1ページ10件の2ページ目に3件
+        StreamingMemoPage page = page(1, 10, memos(3), 13);
+
+        // when
+        page.getContent().forEach(memo -> events.add("card " + memo.id()));
+        int totalPages = page.getTotalPages();
+
+        // then
+        assertThat(totalPages).isEqualTo(2);
+        assertThat(events).doesNotContain("count");
+    }
+
+    @Test
+    void 画像メモがない場合も送信してから空の一覧を返す() {
+        // given
+        StreamingMemoPage page = page(0, 10, List.of(), 0);
+
+        // when
+        page.getContent().forEach(memo -> events.add("card " + memo.id()));
+
+        // then
+        assertThat(events).containsExactly("flush", "load");
+        assertThat(page.getTotalPages()).isZero();
+    }
+
+    private StreamingMemoPage page(int number, int size, List<ImageMemoSummary> content, long total) {
+        return new StreamingMemoPage(number, size,
+                () -> {
+                    events.add("load");
+                    return content;
+                },
+                () -> {
+                    events.add("count");
+                    return total;
+                },
+                () -> events.add("flush"));
+    }
+
+    private static List<ImageMemoSummary> memos(int count) {
+        LocalDateTime now = LocalDateTime.now();
+        return LongStream.rangeClosed(1, count)
+                .mapToObj(id -> new ImageMemoSummary(id, "メモ" + id, "説明" + id, now, now))
+                .toList();
+    }
+}